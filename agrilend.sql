@@ -20,7 +20,8 @@ CREATE TABLE users (
     last_login DATETIME,
     INDEX idx_email (email),
     INDEX idx_role (role),
-    INDEX idx_hedera_account (hedera_account_id)
+    INDEX idx_hedera_account (hedera_account_id),
+    INDEX idx_users_created (created_at, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Table des agriculteurs (hérite de users)
@@ -98,7 +99,10 @@ CREATE TABLE offers (
     FOREIGN KEY (validated_by) REFERENCES users(id),
     INDEX idx_status (status),
     INDEX idx_availability_date (availability_date),
-    INDEX idx_farmer_product (farmer_id, product_id)
+    INDEX idx_farmer_product (farmer_id, product_id),
+    INDEX idx_offers_status_created (status, created_at, id),
+    INDEX idx_offers_status_expiry (status, expiry_date, id),
+    INDEX idx_offers_status_availability (status, availability_date, id)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Table des commandes
@@ -111,6 +115,8 @@ CREATE TABLE orders (
     total_price DECIMAL(15,2) NOT NULL,
     platform_fee DECIMAL(10,2) NOT NULL,
     status ENUM('PENDING', 'IN_ESCROW', 'RELEASED', 'IN_DELIVERY', 'DELIVERED', 'CANCELLED', 'DISPUTED') DEFAULT 'PENDING',
+    processing_stage VARCHAR(30),
+    reservation_expires_at DATETIME,
     escrow_transaction_id VARCHAR(100),
     escrow_start_date DATETIME,
     escrow_end_date DATETIME,
@@ -129,14 +135,47 @@ CREATE TABLE orders (
     FOREIGN KEY (cancelled_by) REFERENCES users(id),
     INDEX idx_status (status),
     INDEX idx_order_number (order_number),
-    INDEX idx_escrow_dates (escrow_start_date, escrow_end_date)
+    INDEX idx_escrow_dates (escrow_start_date, escrow_end_date),
+    INDEX idx_status_reservation (status, reservation_expires_at),
+    INDEX idx_status_escrow_end (status, escrow_end_date, id), -- Règlement des séquestres expirés
+    INDEX idx_orders_created (created_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Réserve de comptes Hedera créés à l'avance (clé privée chiffrée)
+CREATE TABLE hedera_account_pool (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    account_id VARCHAR(50) NOT NULL UNIQUE,
+    encrypted_private_key VARCHAR(512) NOT NULL,
+    public_key VARCHAR(256),
+    status VARCHAR(20) NOT NULL DEFAULT 'AVAILABLE',
+    claim_token VARCHAR(36) UNIQUE,
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    claimed_at DATETIME,
+    INDEX idx_account_pool_status (status, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Table des lots de règlement (libérations de séquestre groupées en une transaction Hedera)
+CREATE TABLE settlement_batches (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    hedera_transaction_id VARCHAR(100) UNIQUE,
+    status VARCHAR(20) NOT NULL DEFAULT 'OPEN',
+    member_count INT NOT NULL,
+    transfer_count INT NOT NULL,
+    total_amount DECIMAL(19,8),
+    fee_amount DECIMAL(19,8),
+    attempts INT NOT NULL DEFAULT 0,
+    lease_expires_at DATETIME(6),
+    last_error VARCHAR(1000),
+    created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    INDEX idx_settlement_status_lease (status, lease_expires_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Table des transactions
 CREATE TABLE transactions (
     id BIGINT PRIMARY KEY AUTO_INCREMENT,
     order_id BIGINT,
-    hedera_transaction_id VARCHAR(100) UNIQUE,
+    hedera_transaction_id VARCHAR(100), -- Non unique : un transfert multi-destinataires produit une ligne par destinataire
     type ENUM('TOKENIZATION', 'ESCROW_DEPOSIT', 'ESCROW_RELEASE', 'FARMER_PAYMENT', 'PLATFORM_FEE', 'STAKING_REWARD', 'REFUND') NOT NULL,
     amount DECIMAL(15,8) NOT NULL, -- Précision pour les cryptomonnaies
     currency ENUM('HBAR', 'USD') DEFAULT 'HBAR',
@@ -145,13 +184,23 @@ CREATE TABLE transactions (
     smart_contract_address VARCHAR(100),
     gas_fee DECIMAL(10,8),
     consensus_timestamp TIMESTAMP(6), -- Timestamp Hedera avec microsecondes
-    status ENUM('PENDING', 'SUCCESS', 'FAILED', 'REVERSED') DEFAULT 'PENDING',
+    status ENUM('PENDING', 'PROCESSING', 'SUCCESS', 'FAILED', 'REVERSED', 'CANCELLED') DEFAULT 'PENDING',
     error_message TEXT,
     metadata JSON,
+    idempotency_key VARCHAR(100) UNIQUE, -- Clé de l'outbox (ex: ESCROW_DEPOSIT:42)
+    fee_amount DECIMAL(15,8),
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6),
+    lease_expires_at DATETIME(6),
+    last_error VARCHAR(1000),
+    settlement_batch_id BIGINT, -- Lot de règlement groupé (libérations de séquestre)
     created_at DATETIME DEFAULT CURRENT_TIMESTAMP,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
     FOREIGN KEY (order_id) REFERENCES orders(id),
+    FOREIGN KEY (settlement_batch_id) REFERENCES settlement_batches(id),
     INDEX idx_type (type),
     INDEX idx_status (status),
+    INDEX idx_outbox_due (status, next_attempt_at),
     INDEX idx_hedera_tx (hedera_transaction_id),
     INDEX idx_timestamp (consensus_timestamp)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
@@ -173,10 +222,45 @@ CREATE TABLE notifications (
     delivery_status ENUM('PENDING', 'SENT', 'FAILED') DEFAULT 'PENDING',
     related_entity_type VARCHAR(50),
     related_entity_id BIGINT,
+    created_at DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6),
     FOREIGN KEY (user_id) REFERENCES users(id),
     INDEX idx_user_read (user_id, is_read),
     INDEX idx_type (type),
-    INDEX idx_sent_at (sent_at)
+    INDEX idx_sent_at (sent_at),
+    INDEX idx_notifications_retention (is_read, created_at),
+    INDEX idx_notifications_user_created (user_id, created_at, id)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- Notifications lues archivées par la rétention (identifiant d'origine conservé)
+CREATE TABLE notifications_archive (
+    id BIGINT PRIMARY KEY,
+    user_id BIGINT NOT NULL,
+    type VARCHAR(50),
+    title VARCHAR(500),
+    message TEXT,
+    related_entity_type VARCHAR(255),
+    related_entity_id BIGINT,
+    created_at DATETIME(6),
+    archived_at DATETIME(6),
+    INDEX idx_notifications_archive_user (user_id, created_at)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
+-- File des emails sortants (alimentée après validation des transactions métier)
+CREATE TABLE outbound_emails (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    recipient VARCHAR(255) NOT NULL,
+    subject VARCHAR(255) NOT NULL,
+    body TEXT NOT NULL,
+    dedup_key CHAR(64) NOT NULL, -- SHA-256 du destinataire, du sujet et du corps
+    status VARCHAR(20) NOT NULL DEFAULT 'PENDING',
+    attempts INT NOT NULL DEFAULT 0,
+    next_attempt_at DATETIME(6),
+    lease_expires_at DATETIME(6),
+    last_error VARCHAR(1000),
+    created_at DATETIME(6) DEFAULT CURRENT_TIMESTAMP(6),
+    sent_at DATETIME(6),
+    INDEX idx_outbound_emails_due (status, next_attempt_at),
+    INDEX idx_outbound_emails_dedup (dedup_key, created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
 -- Table pour le suivi logistique
@@ -276,6 +360,17 @@ CREATE TABLE audit_logs (
     INDEX idx_created_at (created_at)
 ) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
 
+-- Agrégat quotidien du chiffre d'affaires par catégorie
+CREATE TABLE revenue_daily_rollups (
+    id BIGINT PRIMARY KEY AUTO_INCREMENT,
+    rollup_day DATE NOT NULL,
+    category VARCHAR(50) NOT NULL,
+    total_amount DECIMAL(15,2) NOT NULL DEFAULT 0,
+    order_count BIGINT NOT NULL DEFAULT 0,
+    updated_at DATETIME DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    UNIQUE KEY uk_rollup_day_category (rollup_day, category)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4;
+
 -- Vues utiles
 CREATE VIEW active_offers_view AS
 SELECT 
@@ -298,24 +393,30 @@ WHERE o.status = 'ACTIVE'
   AND o.admin_validated = TRUE
   AND o.availability_date >= CURDATE();
 
--- Procédure stockée pour expirer les offres
-DELIMITER //
-CREATE PROCEDURE expire_old_offers()
-BEGIN
-    UPDATE offers 
-    SET status = 'EXPIRED' 
-    WHERE status = 'ACTIVE' 
-      AND (expiry_date < CURDATE() OR availability_date < DATE_SUB(CURDATE(), INTERVAL 30 DAY));
-END //
-DELIMITER ;
-
--- Event scheduler pour exécuter la procédure quotidiennement
-CREATE EVENT IF NOT EXISTS expire_offers_daily
-ON SCHEDULE EVERY 1 DAY
-STARTS CURRENT_DATE + INTERVAL 1 DAY
-DO CALL expire_old_offers();
+-- L'expiration des offres est assurée par l'application (OfferExpiryService), par petits lots
 
 -- Indexes supplémentaires pour les performances
 CREATE INDEX idx_orders_buyer_status ON orders(buyer_id, status);
 CREATE INDEX idx_offers_farmer_status ON offers(farmer_id, status);
-CREATE INDEX idx_transactions_order_type ON transactions(order_id, type);
\ No newline at end of file
+CREATE INDEX idx_transactions_order_type ON transactions(order_id, type);
+
+-- =====================================================
+-- MIGRATION D'UNE BASE EXISTANTE
+-- =====================================================
+-- ddl-auto=update ajoute les nouvelles colonnes mais ne modifie jamais une colonne ENUM existante :
+-- sur une base créée avant l'outbox des opérations Hedera, les statuts PROCESSING et CANCELLED
+-- des transactions sont refusés tant que cette instruction n'a pas été exécutée (une seule fois).
+ALTER TABLE transactions
+    MODIFY status ENUM('PENDING', 'PROCESSING', 'SUCCESS', 'FAILED', 'REVERSED', 'CANCELLED') DEFAULT 'PENDING';
+
+-- Plusieurs lignes partagent désormais l'identifiant de leur transfert multi-destinataires :
+-- l'ancienne contrainte d'unicité est remplacée par l'index idx_hedera_tx
+-- (MySQL n'a pas de DROP INDEX IF EXISTS : l'instruction n'est exécutée que si l'index est présent)
+SET @drop_unique_hedera_tx = (
+    SELECT IF(COUNT(*) > 0, 'ALTER TABLE transactions DROP INDEX hedera_transaction_id', 'DO 0')
+    FROM information_schema.statistics
+    WHERE table_schema = DATABASE() AND table_name = 'transactions' AND index_name = 'hedera_transaction_id'
+);
+PREPARE drop_unique_hedera_tx FROM @drop_unique_hedera_tx;
+EXECUTE drop_unique_hedera_tx;
+DEALLOCATE PREPARE drop_unique_hedera_tx;
@@ -0,0 +1,93 @@
+// Débit de prise de commande (POST /api/buyer/orders) à 200 VU, Hedera en mode simulation.
+// Une commande acceptée (202) est enregistrée et confiée au pipeline ; un 503 signale le délestage
+// quand le pipeline est plein (app.orders.pipeline.*). Voir loadtest/README.md pour la procédure.
+import http from 'k6/http';
+import { check } from 'k6';
+import { Counter } from 'k6/metrics';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const VUS = parseInt(__ENV.VUS || '200', 10);
+const DURATION = __ENV.DURATION || '2m';
+const OFFER_ID = parseInt(__ENV.OFFER_ID, 10);
+const QUANTITY = __ENV.QUANTITY || '1';
+
+const accepted = new Counter('orders_accepted');
+const shed = new Counter('orders_shed');
+
+export const options = {
+    scenarios: {
+        buyers: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: DURATION,
+        },
+    },
+    summaryTrendStats: ['p(50)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    if (!OFFER_ID) {
+        throw new Error('OFFER_ID obligatoire : offre ACTIVE avec assez de stock pour toute la durée du run');
+    }
+    const res = http.post(`${BASE_URL}/api/auth/login`, JSON.stringify({
+        email: __ENV.BUYER_EMAIL,
+        password: __ENV.BUYER_PASSWORD,
+    }), { headers: { 'Content-Type': 'application/json' } });
+    if (res.status !== 200) {
+        throw new Error(`Connexion impossible (${res.status}) : vérifier BUYER_EMAIL / BUYER_PASSWORD`);
+    }
+    return { token: res.json('data.accessToken'), pipeline: pipelineCount() };
+}
+
+export default function (data) {
+    const res = http.post(`${BASE_URL}/api/buyer/orders`, JSON.stringify({
+        offerId: OFFER_ID,
+        orderedQuantity: QUANTITY,
+        deliveryAddress: 'Abidjan, Plateau',
+    }), {
+        headers: { Authorization: `Bearer ${data.token}`, 'Content-Type': 'application/json' },
+        // Le délestage est une réponse attendue, pas une erreur de transport
+        responseCallback: http.expectedStatuses(202, 503),
+    });
+    if (res.status === 202) {
+        accepted.add(1);
+    } else if (res.status === 503) {
+        shed.add(1);
+    }
+    check(res, { 'statut 202 ou 503': (r) => r.status === 202 || r.status === 503 });
+}
+
+// Commandes sorties du pipeline (étapes Hedera terminées ou en échec)
+function pipelineCount() {
+    const res = http.get(`${BASE_URL}/actuator/metrics/agrilend.orders.pipeline.duration`);
+    if (res.status !== 200) {
+        return null;
+    }
+    const count = (res.json('measurements') || []).find((m) => m.statistic === 'COUNT');
+    return count ? count.value : null;
+}
+
+export function teardown(data) {
+    const after = pipelineCount();
+    if (after !== null && data.pipeline !== null) {
+        console.log(`Commandes traitées par le pipeline pendant le run : ${after - data.pipeline}`);
+    }
+}
+
+export function handleSummary(summary) {
+    const metric = (name, stat) => (summary.metrics[name] ? summary.metrics[name].values[stat] : null);
+    const report = {
+        vus: VUS,
+        duration: DURATION,
+        orders_per_second: metric('orders_accepted', 'rate'),
+        orders_accepted: metric('orders_accepted', 'count'),
+        orders_shed: metric('orders_shed', 'count') || 0,
+        p50_ms: metric('http_req_duration', 'p(50)'),
+        p99_ms: metric('http_req_duration', 'p(99)'),
+        error_rate: metric('http_req_failed', 'rate'),
+    };
+    return {
+        stdout: JSON.stringify(report, null, 2) + '\n',
+        'loadtest/results-orders.json': JSON.stringify(report, null, 2),
+    };
+}
@@ -0,0 +1,59 @@
+-- Pagination par offset contre pagination par clé (createdAt, id) : page 1 et page 10 000 (20 lignes/page)
+-- sur les offres actives, comme GET /api/buyer/offers. MySQL 8.0.18+ (EXPLAIN ANALYZE).
+-- À exécuter sur une COPIE de la base : la section 1 insère des offres de test.
+
+-- =============================================
+-- 1. Jeu de données : 250 000 copies d'une offre ACTIVE existante
+-- =============================================
+SET @template_offer_id = (SELECT MIN(id) FROM offers WHERE status = 'ACTIVE');
+SET @max_id_before = (SELECT MAX(id) FROM offers);
+SET SESSION cte_max_recursion_depth = 300000;
+
+CREATE TEMPORARY TABLE offer_seed SELECT * FROM offers WHERE id = @template_offer_id;
+ALTER TABLE offer_seed MODIFY id BIGINT NULL;
+UPDATE offer_seed SET id = NULL;
+
+INSERT INTO offers
+WITH RECURSIVE seq (n) AS (SELECT 1 UNION ALL SELECT n + 1 FROM seq WHERE n < 250000)
+SELECT s.* FROM offer_seed s JOIN seq;
+
+-- Dates de création étalées, avec des doublons pour exercer le départage par id
+UPDATE offers SET created_at = NOW() - INTERVAL (id DIV 3) MINUTE WHERE id > @max_id_before;
+DROP TEMPORARY TABLE offer_seed;
+ANALYZE TABLE offers;
+
+-- =============================================
+-- 2. Page 1
+-- =============================================
+-- Offset : contenu + COUNT(*)
+EXPLAIN ANALYZE
+SELECT o.id, o.created_at, p.name, CONCAT(fu.first_name, ' ', fu.last_name)
+FROM offers o JOIN products p ON p.id = o.product_id JOIN farmers f ON f.user_id = o.farmer_id JOIN users fu ON fu.id = f.user_id
+WHERE o.status = 'ACTIVE' ORDER BY o.created_at DESC, o.id DESC LIMIT 20 OFFSET 0;
+
+EXPLAIN ANALYZE SELECT COUNT(*) FROM offers o WHERE o.status = 'ACTIVE';
+
+-- Clé : premier lot, sans comptage
+EXPLAIN ANALYZE
+SELECT o.id, o.created_at, p.name, CONCAT(fu.first_name, ' ', fu.last_name)
+FROM offers o JOIN products p ON p.id = o.product_id JOIN farmers f ON f.user_id = o.farmer_id JOIN users fu ON fu.id = f.user_id
+WHERE o.status = 'ACTIVE' ORDER BY o.created_at DESC, o.id DESC LIMIT 20;
+
+-- =============================================
+-- 3. Page 10 000 (OFFSET 199 980)
+-- =============================================
+EXPLAIN ANALYZE
+SELECT o.id, o.created_at, p.name, CONCAT(fu.first_name, ' ', fu.last_name)
+FROM offers o JOIN products p ON p.id = o.product_id JOIN farmers f ON f.user_id = o.farmer_id JOIN users fu ON fu.id = f.user_id
+WHERE o.status = 'ACTIVE' ORDER BY o.created_at DESC, o.id DESC LIMIT 20 OFFSET 199980;
+
+-- Curseur équivalent : dernière ligne de la page 9 999 (ce que contient nextCursor)
+SELECT created_at, id INTO @cursor_created_at, @cursor_id
+FROM offers WHERE status = 'ACTIVE' ORDER BY created_at DESC, id DESC LIMIT 1 OFFSET 199979;
+
+EXPLAIN ANALYZE
+SELECT o.id, o.created_at, p.name, CONCAT(fu.first_name, ' ', fu.last_name)
+FROM offers o JOIN products p ON p.id = o.product_id JOIN farmers f ON f.user_id = o.farmer_id JOIN users fu ON fu.id = f.user_id
+WHERE o.status = 'ACTIVE'
+  AND (o.created_at < @cursor_created_at OR (o.created_at = @cursor_created_at AND o.id < @cursor_id))
+ORDER BY o.created_at DESC, o.id DESC LIMIT 20;
@@ -0,0 +1,65 @@
+// Débit comparé des modes de résolution du principal (app.security.principal-resolution=database / cached).
+// Chaque requête porte un If-None-Match à jour sur GET /api/buyer/offers : le filtre d'ETag répond 304
+// sans contrôleur ni base, il ne reste que le filtre JWT et la chaîne Spring Security.
+// Voir loadtest/README.md pour la procédure.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const MODE = __ENV.MODE || 'cached';
+const VUS = parseInt(__ENV.VUS || '100', 10);
+const DURATION = __ENV.DURATION || '1m';
+
+export const options = {
+    scenarios: {
+        // Modèle fermé : le débit atteint par un nombre fixe de clients mesure le coût par requête
+        authenticated: {
+            executor: 'constant-vus',
+            vus: VUS,
+            duration: DURATION,
+        },
+    },
+    summaryTrendStats: ['p(50)', 'p(99)', 'max'],
+};
+
+export function setup() {
+    const res = http.post(`${BASE_URL}/api/auth/login`, JSON.stringify({
+        email: __ENV.BUYER_EMAIL,
+        password: __ENV.BUYER_PASSWORD,
+    }), { headers: { 'Content-Type': 'application/json' } });
+    if (res.status !== 200) {
+        throw new Error(`Connexion impossible (${res.status}) : vérifier BUYER_EMAIL / BUYER_PASSWORD`);
+    }
+    const token = res.json('data.accessToken');
+    const offers = http.get(`${BASE_URL}/api/buyer/offers?size=20`, { headers: { Authorization: `Bearer ${token}` } });
+    const etag = offers.headers['Etag'];
+    if (!etag) {
+        throw new Error('Pas d\'ETag sur /api/buyer/offers : vérifier app.catalogue.etag.enabled');
+    }
+    return { token, etag };
+}
+
+export default function (data) {
+    const res = http.get(`${BASE_URL}/api/buyer/offers?size=20`, {
+        headers: { Authorization: `Bearer ${data.token}`, 'If-None-Match': data.etag },
+    });
+    check(res, { 'statut 304': (r) => r.status === 304 });
+}
+
+export function handleSummary(summary) {
+    const metric = (name, stat) => (summary.metrics[name] ? summary.metrics[name].values[stat] : null);
+    const report = {
+        mode: MODE,
+        vus: VUS,
+        duration: DURATION,
+        requests_per_second: metric('http_reqs', 'rate'),
+        p50_ms: metric('http_req_duration', 'p(50)'),
+        p99_ms: metric('http_req_duration', 'p(99)'),
+        // Un 304 attendu : tout autre statut (401 compris) compte comme échec
+        not_modified_rate: metric('checks', 'rate'),
+    };
+    return {
+        stdout: JSON.stringify(report, null, 2) + '\n',
+        [`loadtest/results-principal-${MODE}.json`]: JSON.stringify(report, null, 2),
+    };
+}
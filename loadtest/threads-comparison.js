@@ -0,0 +1,104 @@
+// Charge comparée threads plateforme / threads virtuels (profil "virtual").
+// Trois scénarios à débit constant : mes commandes, offres disponibles, notifications paginées.
+// Voir loadtest/README.md pour la procédure.
+import http from 'k6/http';
+import { check } from 'k6';
+
+const BASE_URL = __ENV.BASE_URL || 'http://localhost:8080';
+const MODE = __ENV.MODE || 'platform';
+const RATE = parseInt(__ENV.RATE || '200', 10);
+const DURATION = __ENV.DURATION || '2m';
+const MAX_VUS = parseInt(__ENV.MAX_VUS || '2000', 10);
+
+function scenario(exec) {
+    return {
+        executor: 'constant-arrival-rate',
+        exec,
+        rate: RATE,
+        timeUnit: '1s',
+        duration: DURATION,
+        // Les VU en vol mesurent la concurrence nécessaire pour tenir le débit
+        preAllocatedVUs: Math.min(RATE, MAX_VUS),
+        maxVUs: MAX_VUS,
+    };
+}
+
+export const options = {
+    scenarios: {
+        orders: scenario('orders'),
+        offers: scenario('offers'),
+        notifications: scenario('notifications'),
+    },
+    summaryTrendStats: ['p(50)', 'p(99)', 'max'],
+    thresholds: {
+        // Une seule entrée par endpoint dans le résumé
+        'http_req_duration{scenario:orders}': [],
+        'http_req_duration{scenario:offers}': [],
+        'http_req_duration{scenario:notifications}': [],
+        'http_req_failed{scenario:orders}': [],
+        'http_req_failed{scenario:offers}': [],
+        'http_req_failed{scenario:notifications}': [],
+    },
+};
+
+export function setup() {
+    const res = http.post(`${BASE_URL}/api/auth/login`, JSON.stringify({
+        email: __ENV.BUYER_EMAIL,
+        password: __ENV.BUYER_PASSWORD,
+    }), { headers: { 'Content-Type': 'application/json' } });
+    if (res.status !== 200) {
+        throw new Error(`Connexion impossible (${res.status}) : vérifier BUYER_EMAIL / BUYER_PASSWORD`);
+    }
+    return { token: res.json('data.accessToken') };
+}
+
+function get(path, data) {
+    const res = http.get(`${BASE_URL}${path}`, { headers: { Authorization: `Bearer ${data.token}` } });
+    check(res, { 'statut 200': (r) => r.status === 200 });
+}
+
+export function orders(data) {
+    get('/api/buyer/orders', data);
+}
+
+export function offers(data) {
+    get('/api/buyer/offers?size=20', data);
+}
+
+export function notifications(data) {
+    get('/api/notifications/paginated?size=20', data);
+}
+
+// Concurrence maximale côté serveur : requêtes HTTP actives (LongTaskTimer de Spring Boot)
+export function teardown() {
+    const res = http.get(`${BASE_URL}/actuator/metrics/http.server.requests.active`);
+    if (res.status === 200) {
+        const max = (res.json('measurements') || []).find((m) => m.statistic === 'MAX');
+        const active = (res.json('measurements') || []).find((m) => m.statistic === 'ACTIVE_TASKS');
+        console.log(`[${MODE}] http.server.requests.active : ${JSON.stringify({ active, max })}`);
+    }
+}
+
+export function handleSummary(summary) {
+    const endpoints = {};
+    for (const name of ['orders', 'offers', 'notifications']) {
+        const duration = summary.metrics[`http_req_duration{scenario:${name}}`];
+        const failed = summary.metrics[`http_req_failed{scenario:${name}}`];
+        endpoints[name] = {
+            p50_ms: duration ? duration.values['p(50)'] : null,
+            p99_ms: duration ? duration.values['p(99)'] : null,
+            error_rate: failed ? failed.values.rate : null,
+        };
+    }
+    const report = {
+        mode: MODE,
+        rate_per_endpoint: RATE,
+        duration: DURATION,
+        max_concurrency: summary.metrics.vus_max ? summary.metrics.vus_max.values.max : null,
+        endpoints,
+    };
+    return {
+        stdout: JSON.stringify(report, null, 2) + '\n',
+        [`loadtest/results-${MODE}.json`]: JSON.stringify(report, null, 2),
+    };
+}
@@ -0,0 +1,130 @@
+package com.agrilend.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.ThreadPoolExecutor;
+
+@Configuration
+public class AsyncConfig {
+
+    @Value("${spring.threads.virtual.enabled:false}")
+    private boolean virtualThreads;
+
+    @Value("${app.orders.pipeline.core-pool-size:4}")
+    private int orderPipelineCorePoolSize;
+
+    @Value("${app.orders.pipeline.max-pool-size:8}")
+    private int orderPipelineMaxPoolSize;
+
+    @Value("${app.orders.pipeline.queue-capacity:200}")
+    private int orderPipelineQueueCapacity;
+
+    @Value("${app.outbox.pool-size:4}")
+    private int outboxPoolSize;
+
+    @Value("${app.outbox.queue-capacity:100}")
+    private int outboxQueueCapacity;
+
+    @Value("${app.mail.queue.workers:2}")
+    private int mailWorkers;
+
+    @Value("${app.mail.queue.worker-queue-capacity:5}")
+    private int mailQueueCapacity;
+
+    @Value("${app.notifications.stream.push-pool-size:2}")
+    private int notificationPushPoolSize;
+
+    @Value("${app.notifications.stream.push-queue-capacity:1000}")
+    private int notificationPushQueueCapacity;
+
+    /**
+     * Exécuteur borné des étapes Hedera des commandes : la file est limitée et
+     * les soumissions au-delà sont rejetées (contre-pression) plutôt que mises en attente.
+     * Avec le profil "virtual", les threads du pool sont des threads virtuels ; les bornes restent les mêmes.
+     */
+    @Bean(name = "orderPipelineExecutor")
+    public ThreadPoolTaskExecutor orderPipelineExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(orderPipelineCorePoolSize);
+        executor.setMaxPoolSize(orderPipelineMaxPoolSize);
+        executor.setQueueCapacity(orderPipelineQueueCapacity);
+        executor.setThreadNamePrefix("order-pipeline-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Exécuteur des envois de l'outbox ; le répartiteur ne prend pas plus d'opérations que la file ne peut en recevoir
+     */
+    @Bean(name = "outboxExecutor")
+    public ThreadPoolTaskExecutor outboxExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(outboxPoolSize);
+        executor.setMaxPoolSize(outboxPoolSize);
+        executor.setQueueCapacity(outboxQueueCapacity);
+        executor.setThreadNamePrefix("ledger-outbox-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Workers d'envoi des emails ; chaque tâche envoie un lot sur une connexion SMTP
+     */
+    @Bean(name = "mailExecutor")
+    public ThreadPoolTaskExecutor mailExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(mailWorkers);
+        executor.setMaxPoolSize(mailWorkers);
+        executor.setQueueCapacity(mailQueueCapacity);
+        executor.setThreadNamePrefix("mail-sender-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Envois vers les flux SSE, hors du thread de la requête qui a créé les notifications
+     */
+    @Bean(name = "notificationPushExecutor")
+    public ThreadPoolTaskExecutor notificationPushExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(notificationPushPoolSize);
+        executor.setMaxPoolSize(notificationPushPoolSize);
+        executor.setQueueCapacity(notificationPushQueueCapacity);
+        executor.setThreadNamePrefix("notification-push-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * Tâches de maintenance lancées depuis l'administration : une seule à la fois, sans file d'attente
+     */
+    @Bean(name = "maintenanceExecutor")
+    public ThreadPoolTaskExecutor maintenanceExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(0);
+        executor.setThreadNamePrefix("maintenance-");
+        executor.setVirtualThreads(virtualThreads);
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+}
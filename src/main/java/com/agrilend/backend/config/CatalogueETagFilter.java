@@ -0,0 +1,89 @@
+package com.agrilend.backend.config;
+
+import com.agrilend.backend.service.CatalogueVersions;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * GET conditionnels sur les offres et produits du catalogue : l'ETag est tiré des compteurs de version
+ * du catalogue, et un If-None-Match à jour reçoit 304 sans exécuter le contrôleur ni interroger la base.
+ * Enregistré après la chaîne Spring Security, l'authentification et les rôles restent vérifiés.
+ * Les ETag sont faibles : le corps contient l'horodatage de la réponse, seul le contenu est identique.
+ */
+@Component
+public class CatalogueETagFilter extends OncePerRequestFilter {
+
+    private static final AntPathMatcher PATHS = new AntPathMatcher();
+
+    private static final List<String> OFFER_PATHS = List.of(
+            "/api/buyer/offers", "/api/buyer/offers/search", "/api/buyer/offers/{offerId}",
+            "/api/admin/offers", "/api/admin/offers/pending");
+
+    private static final List<String> PRODUCT_PATHS = List.of(
+            "/api/admin/products", "/api/admin/products/search", "/api/admin/products/{productId}");
+
+    @Autowired
+    private CatalogueVersions catalogueVersions;
+
+    @Value("${app.catalogue.etag.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || !"GET".equals(request.getMethod()) || versionTag(request.getRequestURI()) == null;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String etag = "W/\"" + versionTag(request.getRequestURI()) + "\"";
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        response.setHeader(HttpHeaders.ETAG, etag);
+        if (matches(request.getHeader(HttpHeaders.IF_NONE_MATCH), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    private String versionTag(String path) {
+        if (OFFER_PATHS.stream().anyMatch(pattern -> PATHS.match(pattern, path))) {
+            return catalogueVersions.offersTag();
+        }
+        if (PRODUCT_PATHS.stream().anyMatch(pattern -> PATHS.match(pattern, path))) {
+            return catalogueVersions.productsTag();
+        }
+        return null;
+    }
+
+    /**
+     * Comparaison faible (RFC 9110) : le préfixe W/ est ignoré des deux côtés
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String expected = etag.substring(2);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.startsWith("W/")) {
+                tag = tag.substring(2);
+            }
+            if (tag.equals(expected)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -10,6 +10,8 @@ public class JwtConfig {
     private String secret = "AgrilendSuperSecretKeyForJWTTokenGenerationAndValidationSecurely2024!@#$";
     private int expirationInMs = 86400000; // 24 heures
     private int refreshExpirationInMs = 604800000; // 7 jours
+    private int verifiedTokenCacheSize = 10000;
+    private long verifiedTokenCacheTtlMs = 300000; // 5 minutes
 
     public String getSecret() {
         return secret;
@@ -34,5 +36,20 @@ public class JwtConfig {
     public void setRefreshExpirationInMs(int refreshExpirationInMs) {
         this.refreshExpirationInMs = refreshExpirationInMs;
     }
-}
 
+    public int getVerifiedTokenCacheSize() {
+        return verifiedTokenCacheSize;
+    }
+
+    public void setVerifiedTokenCacheSize(int verifiedTokenCacheSize) {
+        this.verifiedTokenCacheSize = verifiedTokenCacheSize;
+    }
+
+    public long getVerifiedTokenCacheTtlMs() {
+        return verifiedTokenCacheTtlMs;
+    }
+
+    public void setVerifiedTokenCacheTtlMs(long verifiedTokenCacheTtlMs) {
+        this.verifiedTokenCacheTtlMs = verifiedTokenCacheTtlMs;
+    }
+}
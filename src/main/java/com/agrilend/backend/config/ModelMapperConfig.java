@@ -5,6 +5,10 @@ import org.modelmapper.convention.MatchingStrategies;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+/**
+ * ModelMapper générique, conservé en repli : les DTO des chemins chauds
+ * passent par les mappers explicites du paquet {@code mapper}
+ */
 @Configuration
 public class ModelMapperConfig {
 
@@ -3,6 +3,8 @@ package com.agrilend.backend.controller;
 import com.agrilend.backend.dto.common.ApiResponse;
 import com.agrilend.backend.dto.common.PageResponse;
 import com.agrilend.backend.dto.dashboard.DashboardStatsDto;
+import com.agrilend.backend.dto.dashboard.RevenueConsistencyReportDto;
+import com.agrilend.backend.dto.notification.NotificationRetentionReportDto;
 import com.agrilend.backend.dto.offer.OfferDto;
 import com.agrilend.backend.dto.order.OrderDto;
 import com.agrilend.backend.dto.product.ProductDto;
@@ -14,6 +16,7 @@ import com.agrilend.backend.entity.User;
 import com.agrilend.backend.entity.enums.OrderStatus;
 import com.agrilend.backend.security.UserPrincipal;
 import com.agrilend.backend.service.*;
+import com.agrilend.backend.util.KeysetCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -23,6 +26,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
@@ -59,15 +63,27 @@ public class AdminController {
     @Autowired
     private AdminDashboardService adminDashboardService;
 
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    @Autowired
+    private NotificationRetentionService notificationRetentionService;
+
     // Gestion des utilisateurs
     @GetMapping("/users")
-    @Operation(summary = "Obtenir tous les utilisateurs", description = "Récupère la liste paginée de tous les utilisateurs")
+    @Operation(summary = "Obtenir tous les utilisateurs",
+               description = "Récupère la liste paginée de tous les utilisateurs ; tri par défaut : pagination par curseur (nextCursor), total compté sur demande")
     public ResponseEntity<ApiResponse<PageResponse<UserProfileDto>>> getAllUsers(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
-        System.out.println("DEBUG: getAllUsers endpoint hit!");
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean includeTotal) {
+        if (KeysetCursor.isKeysetRequest(page, sortBy, sortDir, cursor)) {
+            PageResponse<UserProfileDto> users = userService.getAllUsers(cursor, size, KeysetCursor.shouldCountTotal(includeTotal, cursor));
+            return ResponseEntity.ok(ApiResponse.success("Utilisateurs récupérés avec succès", users));
+        }
         Sort sort = sortDir.equalsIgnoreCase("desc") ?
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
@@ -275,12 +291,19 @@ public class AdminController {
 
     // Gestion des commandes
     @GetMapping("/orders")
-    @Operation(summary = "Obtenir toutes les commandes", description = "Récupère la liste paginée de toutes les commandes")
+    @Operation(summary = "Obtenir toutes les commandes",
+               description = "Récupère la liste paginée de toutes les commandes ; tri par défaut : pagination par curseur (nextCursor), total compté sur demande")
     public ResponseEntity<ApiResponse<PageResponse<OrderDto>>> getAllOrders(
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean includeTotal) {
+        if (KeysetCursor.isKeysetRequest(page, sortBy, sortDir, cursor)) {
+            PageResponse<OrderDto> orders = orderService.getAllOrders(cursor, size, KeysetCursor.shouldCountTotal(includeTotal, cursor));
+            return ResponseEntity.ok(ApiResponse.success("Commandes récupérées avec succès", orders));
+        }
         Sort sort = sortDir.equalsIgnoreCase("desc") ?
             Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
         Pageable pageable = PageRequest.of(page, size, sort);
@@ -318,10 +341,10 @@ public class AdminController {
     }
 
     @PostMapping("/orders/{orderId}/release-escrow")
-    @Operation(summary = "Libérer le séquestre", description = "Libère les fonds en séquestre pour une commande")
+    @Operation(summary = "Libérer le séquestre", description = "Planifie la libération des fonds en séquestre pour une commande")
     public ResponseEntity<ApiResponse<OrderDto>> releaseEscrow(@PathVariable Long orderId) {
         OrderDto updatedOrder = orderService.releaseEscrow(orderId);
-        return ResponseEntity.ok(ApiResponse.success("Séquestre libéré avec succès", updatedOrder));
+        return ResponseEntity.ok(ApiResponse.success("Libération du séquestre planifiée", updatedOrder));
     }
 
     // =================== Dashboard ===================
@@ -394,5 +417,37 @@ public class AdminController {
         return ResponseEntity.ok(ApiResponse.success("Revenu de la dernière année récupéré avec succès", revenue));
     }
 
+    @PostMapping("/dashboard/revenue/rollup/rebuild")
+    @Operation(summary = "Recalculer l'agrégat du revenu", description = "Recalcule l'agrégat quotidien du revenu depuis l'historique des commandes")
+    public ResponseEntity<ApiResponse<Integer>> rebuildRevenueRollup(
+            @RequestParam("from") String fromStr,
+            @RequestParam("to") String toStr) {
+        int days = revenueRollupService.rebuild(LocalDate.parse(fromStr), LocalDate.parse(toStr));
+        return ResponseEntity.ok(ApiResponse.success("Agrégat du revenu recalculé avec succès", days));
+    }
+
+    @GetMapping("/dashboard/revenue/rollup/check")
+    @Operation(summary = "Vérifier l'agrégat du revenu", description = "Compare l'agrégat quotidien du revenu à la table des commandes")
+    public ResponseEntity<ApiResponse<RevenueConsistencyReportDto>> checkRevenueRollup(
+            @RequestParam("from") String fromStr,
+            @RequestParam("to") String toStr) {
+        RevenueConsistencyReportDto report = revenueRollupService.check(LocalDate.parse(fromStr), LocalDate.parse(toStr));
+        return ResponseEntity.ok(ApiResponse.success("Vérification de l'agrégat du revenu terminée", report));
+    }
+
+    @PostMapping("/notifications/retention/run")
+    @Operation(summary = "Lancer la rétention des notifications", description = "Archive ou supprime en arrière-plan les notifications lues au-delà de l'âge de rétention (202 Accepted)")
+    public ResponseEntity<ApiResponse<String>> runNotificationRetention() {
+        notificationRetentionService.runAsync();
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Rétention des notifications lancée"));
+    }
+
+    @GetMapping("/notifications/retention/last")
+    @Operation(summary = "Bilan de la rétention des notifications", description = "Récupère le bilan de la dernière passe de rétention terminée")
+    public ResponseEntity<ApiResponse<NotificationRetentionReportDto>> getLastNotificationRetention() {
+        NotificationRetentionReportDto report = notificationRetentionService.getLastReport();
+        return ResponseEntity.ok(ApiResponse.success("Bilan de la rétention des notifications récupéré avec succès", report));
+    }
 
 }
@@ -3,13 +3,16 @@ package com.agrilend.backend.controller;
 import com.agrilend.backend.dto.common.ApiResponse;
 import com.agrilend.backend.dto.common.PageResponse;
 import com.agrilend.backend.dto.offer.OfferDto;
+import com.agrilend.backend.dto.offer.OfferSearchResultDto;
 import com.agrilend.backend.dto.order.CreateOrderRequest;
 import com.agrilend.backend.dto.order.OrderDto;
 import com.agrilend.backend.dto.user.UserProfileDto;
 import com.agrilend.backend.security.UserPrincipal;
+import com.agrilend.backend.service.CatalogueSearchService;
 import com.agrilend.backend.service.OfferService;
 import com.agrilend.backend.service.OrderService;
 import com.agrilend.backend.service.UserService;
+import com.agrilend.backend.util.KeysetCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -19,11 +22,13 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
+import java.math.BigDecimal;
 import java.util.List;
 
 @RestController
@@ -43,6 +48,9 @@ public class BuyerController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private CatalogueSearchService catalogueSearchService;
+
     @GetMapping("/profile")
     @Operation(summary = "Obtenir le profil acheteur")
     public ResponseEntity<ApiResponse<UserProfileDto>> getProfile(@AuthenticationPrincipal UserPrincipal userPrincipal) {
@@ -60,16 +68,41 @@ public class BuyerController {
     }
 
     @GetMapping("/offers")
-    @Operation(summary = "Obtenir les offres disponibles")
+    @Operation(summary = "Obtenir les offres disponibles",
+               description = "Pagination par curseur (nextCursor) ; le numéro de page reste accepté sans curseur")
     public ResponseEntity<ApiResponse<PageResponse<OfferDto>>> getAvailableOffers(
             @RequestParam(defaultValue = "0") int page,
-            @RequestParam(defaultValue = "10") int size) {
+            @RequestParam(defaultValue = "10") int size,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean includeTotal) {
+        if (KeysetCursor.isKeysetRequest(page, "createdAt", "desc", cursor)) {
+            PageResponse<OfferDto> offers = offerService.getApprovedOffers(cursor, size, KeysetCursor.shouldCountTotal(includeTotal, cursor));
+            return ResponseEntity.ok(ApiResponse.success("Offres récupérées avec succès", offers));
+        }
         Pageable pageable = PageRequest.of(page, size, Sort.by("createdAt").descending());
         Page<OfferDto> offers = offerService.getApprovedOffers(pageable);
         PageResponse<OfferDto> pageResponse = new PageResponse<>(offers.getContent(), offers.getNumber(), offers.getSize(), offers.getTotalElements(), offers.getTotalPages(), offers.isFirst(), offers.isLast(), offers.isEmpty());
         return ResponseEntity.ok(ApiResponse.success("Offres récupérées avec succès", pageResponse));
     }
 
+    @GetMapping("/offers/search")
+    @Operation(summary = "Rechercher des offres",
+               description = "Recherche plein texte (nom, description, catégorie, localisation...) avec filtres et nombre d'offres par facette")
+    public ResponseEntity<ApiResponse<OfferSearchResultDto>> searchOffers(
+            @RequestParam(required = false) String q,
+            @RequestParam(required = false) String category,
+            @RequestParam(required = false) String subcategory,
+            @RequestParam(required = false) String location,
+            @RequestParam(required = false) String productionMethod,
+            @RequestParam(required = false) BigDecimal minPrice,
+            @RequestParam(required = false) BigDecimal maxPrice,
+            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(defaultValue = "10") int size) {
+        OfferSearchResultDto result = catalogueSearchService.searchOffers(q, category, subcategory, location,
+                productionMethod, minPrice, maxPrice, page, size);
+        return ResponseEntity.ok(ApiResponse.success("Offres récupérées avec succès", result));
+    }
+
     @GetMapping("/offers/{offerId}")
     @Operation(summary = "Obtenir une offre")
     public ResponseEntity<ApiResponse<OfferDto>> getOffer(@PathVariable Long offerId) {
@@ -78,12 +111,25 @@ public class BuyerController {
     }
 
     @PostMapping("/orders")
-    @Operation(summary = "Passer une commande")
+    @Operation(summary = "Passer une commande", description = "Enregistre la commande et lance le séquestre Hedera en arrière-plan (202 Accepted)")
     public ResponseEntity<ApiResponse<OrderDto>> createOrder(
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             @Valid @RequestBody CreateOrderRequest request) {
         OrderDto createdOrder = orderService.createOrder(userPrincipal.getId(), request);
-        return ResponseEntity.ok(ApiResponse.success("Commande créée avec succès", createdOrder));
+        return ResponseEntity.status(HttpStatus.ACCEPTED)
+                .body(ApiResponse.success("Commande acceptée, traitement en cours", createdOrder));
+    }
+
+    @GetMapping("/orders/number/{orderNumber}")
+    @Operation(summary = "Suivre le traitement d'une commande", description = "Récupère le statut et l'étape de traitement d'une commande par son numéro")
+    public ResponseEntity<ApiResponse<OrderDto>> getOrderByNumber(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @PathVariable String orderNumber) {
+        OrderDto order = orderService.getOrderByNumber(orderNumber);
+        if (!order.getBuyerId().equals(userPrincipal.getId())) {
+            return ResponseEntity.status(403).body(ApiResponse.error("Accès non autorisé à cette commande"));
+        }
+        return ResponseEntity.ok(ApiResponse.success("Commande récupérée avec succès", order));
     }
 
     @GetMapping("/orders")
@@ -3,8 +3,11 @@ package com.agrilend.backend.controller;
 import com.agrilend.backend.dto.common.ApiResponse;
 import com.agrilend.backend.dto.common.PageResponse;
 import com.agrilend.backend.dto.notification.NotificationDto;
+import com.agrilend.backend.security.StreamTicketService;
 import com.agrilend.backend.security.UserPrincipal;
 import com.agrilend.backend.service.NotificationService;
+import com.agrilend.backend.service.NotificationStreamService;
+import com.agrilend.backend.util.KeysetCursor;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -13,9 +16,11 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.util.List;
 
@@ -29,6 +34,30 @@ public class NotificationController {
     @Autowired
     private NotificationService notificationService;
 
+    @Autowired
+    private NotificationStreamService notificationStreamService;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
+    @PostMapping("/stream/ticket")
+    @Operation(summary = "Ticket du flux des notifications",
+               description = "Délivre un ticket à usage unique et de courte durée pour ouvrir le flux SSE (/stream?ticket=...)")
+    public ResponseEntity<ApiResponse<String>> createStreamTicket(@AuthenticationPrincipal UserPrincipal userPrincipal) {
+        String ticket = streamTicketService.issue(userPrincipal.getId());
+        return ResponseEntity.ok(ApiResponse.success("Ticket du flux de notifications créé avec succès", ticket));
+    }
+
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Flux des notifications",
+               description = "Flux SSE des nouvelles notifications et du nombre de non lues ; authentification par en-tête Bearer " +
+                             "ou par ticket (paramètre ticket) ; reprise possible via l'en-tête Last-Event-ID")
+    public SseEmitter streamNotifications(
+            @AuthenticationPrincipal UserPrincipal userPrincipal,
+            @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        return notificationStreamService.subscribe(userPrincipal.getId(), lastEventId);
+    }
+
     @GetMapping
     @Operation(summary = "Obtenir les notifications", description = "Récupère toutes les notifications de l'utilisateur connecté")
     public ResponseEntity<ApiResponse<List<NotificationDto>>> getNotifications(
@@ -43,14 +72,23 @@ public class NotificationController {
     }
 
     @GetMapping("/paginated")
-    @Operation(summary = "Obtenir les notifications paginées", description = "Récupère les notifications de l'utilisateur avec pagination")
+    @Operation(summary = "Obtenir les notifications paginées",
+               description = "Récupère les notifications de l'utilisateur avec pagination ; tri par défaut : pagination par curseur (nextCursor), total compté sur demande")
     public ResponseEntity<ApiResponse<PageResponse<NotificationDto>>> getNotificationsPaginated(
             @AuthenticationPrincipal UserPrincipal userPrincipal,
             @RequestParam(defaultValue = "0") int page,
             @RequestParam(defaultValue = "10") int size,
             @RequestParam(defaultValue = "createdAt") String sortBy,
-            @RequestParam(defaultValue = "desc") String sortDir) {
+            @RequestParam(defaultValue = "desc") String sortDir,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Boolean includeTotal) {
         try {
+            if (KeysetCursor.isKeysetRequest(page, sortBy, sortDir, cursor)) {
+                PageResponse<NotificationDto> notifications = notificationService.getUserNotifications(
+                    userPrincipal.getId(), cursor, size, KeysetCursor.shouldCountTotal(includeTotal, cursor));
+                return ResponseEntity.ok(ApiResponse.success("Notifications récupérées avec succès", notifications));
+            }
+
             Sort sort = sortDir.equalsIgnoreCase("desc") ? 
                 Sort.by(sortBy).descending() : Sort.by(sortBy).ascending();
             Pageable pageable = PageRequest.of(page, size, sort);
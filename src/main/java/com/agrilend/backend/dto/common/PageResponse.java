@@ -1,17 +1,21 @@
 package com.agrilend.backend.dto.common;
 
 import java.util.List;
+import java.util.function.Function;
 
 public class PageResponse<T> {
     
     private List<T> content;
     private int page;
     private int size;
-    private long totalElements;
-    private int totalPages;
+    private Long totalElements;
+    private Integer totalPages;
     private boolean first;
     private boolean last;
     private boolean empty;
+    // Pagination par curseur : curseur de la page suivante (null sur la dernière page)
+    private String nextCursor;
+    private boolean hasNext;
 
     public PageResponse() {}
 
@@ -25,6 +29,28 @@ public class PageResponse<T> {
         this.first = first;
         this.last = last;
         this.empty = empty;
+        this.hasNext = !last;
+    }
+
+    /**
+     * Page obtenue par curseur à partir de {@code size + 1} lignes lues ; le total n'est renseigné que s'il a été compté
+     */
+    public static <T> PageResponse<T> ofKeyset(List<T> rows, int size, boolean first,
+                                               Function<T, String> cursorOf, Long totalElements) {
+        boolean hasNext = rows.size() > size;
+        List<T> content = hasNext ? rows.subList(0, size) : rows;
+
+        PageResponse<T> response = new PageResponse<>();
+        response.content = content;
+        response.size = size;
+        response.totalElements = totalElements;
+        response.totalPages = totalElements != null && size > 0 ? (int) ((totalElements + size - 1) / size) : null;
+        response.first = first;
+        response.last = !hasNext;
+        response.empty = content.isEmpty();
+        response.hasNext = hasNext;
+        response.nextCursor = hasNext ? cursorOf.apply(content.get(content.size() - 1)) : null;
+        return response;
     }
 
     public List<T> getContent() {
@@ -51,19 +77,19 @@ public class PageResponse<T> {
         this.size = size;
     }
 
-    public long getTotalElements() {
+    public Long getTotalElements() {
         return totalElements;
     }
 
-    public void setTotalElements(long totalElements) {
+    public void setTotalElements(Long totalElements) {
         this.totalElements = totalElements;
     }
 
-    public int getTotalPages() {
+    public Integer getTotalPages() {
         return totalPages;
     }
 
-    public void setTotalPages(int totalPages) {
+    public void setTotalPages(Integer totalPages) {
         this.totalPages = totalPages;
     }
 
@@ -90,5 +116,20 @@ public class PageResponse<T> {
     public void setEmpty(boolean empty) {
         this.empty = empty;
     }
-}
 
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public void setNextCursor(String nextCursor) {
+        this.nextCursor = nextCursor;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+
+    public void setHasNext(boolean hasNext) {
+        this.hasNext = hasNext;
+    }
+}
@@ -1,6 +1,8 @@
 package com.agrilend.backend.dto.dashboard;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
 
 public class DashboardStatsDto {
 
@@ -37,6 +39,9 @@ public class DashboardStatsDto {
     // Revenue Stats
     private BigDecimal totalRevenueLast30Days;
 
+    // Instantané
+    private LocalDateTime generatedAt;
+
     // Getters and Setters
 
     public long getTotalUsers() {
@@ -206,4 +211,19 @@ public class DashboardStatsDto {
     public void setTotalRevenueLast30Days(BigDecimal totalRevenueLast30Days) {
         this.totalRevenueLast30Days = totalRevenueLast30Days;
     }
+
+    public LocalDateTime getGeneratedAt() {
+        return generatedAt;
+    }
+
+    public void setGeneratedAt(LocalDateTime generatedAt) {
+        this.generatedAt = generatedAt;
+    }
+
+    /**
+     * Âge de l'instantané au moment de la lecture
+     */
+    public long getSnapshotAgeSeconds() {
+        return generatedAt != null ? Duration.between(generatedAt, LocalDateTime.now()).getSeconds() : 0;
+    }
 }
@@ -0,0 +1,124 @@
+package com.agrilend.backend.dto.dashboard;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RevenueConsistencyReportDto {
+
+    private LocalDate from;
+    private LocalDate to;
+    private int checkedDays;
+    private List<Mismatch> mismatches = new ArrayList<>();
+
+    public boolean isConsistent() {
+        return mismatches.isEmpty();
+    }
+
+    // Getters and Setters
+    public LocalDate getFrom() {
+        return from;
+    }
+
+    public void setFrom(LocalDate from) {
+        this.from = from;
+    }
+
+    public LocalDate getTo() {
+        return to;
+    }
+
+    public void setTo(LocalDate to) {
+        this.to = to;
+    }
+
+    public int getCheckedDays() {
+        return checkedDays;
+    }
+
+    public void setCheckedDays(int checkedDays) {
+        this.checkedDays = checkedDays;
+    }
+
+    public List<Mismatch> getMismatches() {
+        return mismatches;
+    }
+
+    public void setMismatches(List<Mismatch> mismatches) {
+        this.mismatches = mismatches;
+    }
+
+    /**
+     * Écart entre l'agrégat et la table des commandes pour un couple (jour, catégorie)
+     */
+    public static class Mismatch {
+
+        private LocalDate day;
+        private String category;
+        private BigDecimal rollupTotal;
+        private BigDecimal rawTotal;
+        private long rollupCount;
+        private long rawCount;
+
+        public Mismatch() {}
+
+        public Mismatch(LocalDate day, String category, BigDecimal rollupTotal, BigDecimal rawTotal,
+                        long rollupCount, long rawCount) {
+            this.day = day;
+            this.category = category;
+            this.rollupTotal = rollupTotal;
+            this.rawTotal = rawTotal;
+            this.rollupCount = rollupCount;
+            this.rawCount = rawCount;
+        }
+
+        public LocalDate getDay() {
+            return day;
+        }
+
+        public void setDay(LocalDate day) {
+            this.day = day;
+        }
+
+        public String getCategory() {
+            return category;
+        }
+
+        public void setCategory(String category) {
+            this.category = category;
+        }
+
+        public BigDecimal getRollupTotal() {
+            return rollupTotal;
+        }
+
+        public void setRollupTotal(BigDecimal rollupTotal) {
+            this.rollupTotal = rollupTotal;
+        }
+
+        public BigDecimal getRawTotal() {
+            return rawTotal;
+        }
+
+        public void setRawTotal(BigDecimal rawTotal) {
+            this.rawTotal = rawTotal;
+        }
+
+        public long getRollupCount() {
+            return rollupCount;
+        }
+
+        public void setRollupCount(long rollupCount) {
+            this.rollupCount = rollupCount;
+        }
+
+        public long getRawCount() {
+            return rawCount;
+        }
+
+        public void setRawCount(long rawCount) {
+            this.rawCount = rawCount;
+        }
+    }
+}
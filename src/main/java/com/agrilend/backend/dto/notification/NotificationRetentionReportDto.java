@@ -0,0 +1,86 @@
+package com.agrilend.backend.dto.notification;
+
+import java.time.LocalDateTime;
+
+/**
+ * Bilan d'une passe de rétention des notifications lues
+ */
+public class NotificationRetentionReportDto {
+
+    private String mode;
+    private LocalDateTime cutoff;
+    private int batchSize;
+    private int batches;
+    private long rowsProcessed;
+    private long durationMs;
+    private double rowsPerSecond;
+    private boolean complete;
+
+    // Getters and Setters
+    public String getMode() {
+        return mode;
+    }
+
+    public void setMode(String mode) {
+        this.mode = mode;
+    }
+
+    public LocalDateTime getCutoff() {
+        return cutoff;
+    }
+
+    public void setCutoff(LocalDateTime cutoff) {
+        this.cutoff = cutoff;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public int getBatches() {
+        return batches;
+    }
+
+    public void setBatches(int batches) {
+        this.batches = batches;
+    }
+
+    public long getRowsProcessed() {
+        return rowsProcessed;
+    }
+
+    public void setRowsProcessed(long rowsProcessed) {
+        this.rowsProcessed = rowsProcessed;
+    }
+
+    public long getDurationMs() {
+        return durationMs;
+    }
+
+    public void setDurationMs(long durationMs) {
+        this.durationMs = durationMs;
+    }
+
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public void setRowsPerSecond(double rowsPerSecond) {
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    /**
+     * false si la passe s'est arrêtée sur la limite de lots alors que des lignes restaient à traiter
+     */
+    public boolean isComplete() {
+        return complete;
+    }
+
+    public void setComplete(boolean complete) {
+        this.complete = complete;
+    }
+}
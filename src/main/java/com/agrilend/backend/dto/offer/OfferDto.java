@@ -1,6 +1,8 @@
 package com.agrilend.backend.dto.offer;
 
 import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.ProductUnit;
+import com.agrilend.backend.entity.enums.ProductionMethod;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotNull;
 import jakarta.validation.constraints.Positive;
@@ -24,6 +26,9 @@ public class OfferDto {
     @Future(message = "La date de disponibilité doit être dans le futur")
     private LocalDate availabilityDate;
 
+    // Facultative : l'offre expire aussi 30 jours après sa date de disponibilité, au premier des deux termes
+    private LocalDate expiryDate;
+
     @Positive(message = "Le prix unitaire suggéré doit être positif")
     private BigDecimal suggestedUnitPrice;
 
@@ -51,6 +56,36 @@ public class OfferDto {
 
     public OfferDto() {}
 
+    /**
+     * Constructeur utilisé par les projections JPQL de {@code OfferRepository}
+     */
+    public OfferDto(Long id, Long productId, BigDecimal availableQuantity, LocalDate availabilityDate,
+                    LocalDate expiryDate, BigDecimal suggestedUnitPrice, BigDecimal finalUnitPrice, OfferStatus status, String notes,
+                    String productName, String productDescription, String productCategory, ProductUnit productUnit,
+                    String productImageUrl, ProductionMethod productionMethod, Long farmerId, String farmerName,
+                    String farmerEmail, LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.productId = productId;
+        this.availableQuantity = availableQuantity;
+        this.availabilityDate = availabilityDate;
+        this.expiryDate = expiryDate;
+        this.suggestedUnitPrice = suggestedUnitPrice;
+        this.finalUnitPrice = finalUnitPrice;
+        this.status = status;
+        this.notes = notes;
+        this.productName = productName;
+        this.productDescription = productDescription;
+        this.productCategory = productCategory;
+        this.productUnit = productUnit != null ? productUnit.name() : null;
+        this.productImageUrl = productImageUrl;
+        this.productionMethod = productionMethod != null ? productionMethod.name() : null;
+        this.farmerId = farmerId;
+        this.farmerName = farmerName;
+        this.farmerEmail = farmerEmail;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     public Long getId() {
         return id;
     }
@@ -83,6 +118,14 @@ public class OfferDto {
         this.availabilityDate = availabilityDate;
     }
 
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+
     public BigDecimal getSuggestedUnitPrice() {
         return suggestedUnitPrice;
     }
@@ -0,0 +1,32 @@
+package com.agrilend.backend.dto.offer;
+
+import com.agrilend.backend.dto.common.PageResponse;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Résultat d'une recherche d'offres : page de résultats et nombre d'offres par valeur de chaque facette
+ */
+public class OfferSearchResultDto {
+
+    private PageResponse<OfferDto> results;
+    private Map<String, Map<String, Long>> facets = new LinkedHashMap<>();
+
+    // Getters and Setters
+    public PageResponse<OfferDto> getResults() {
+        return results;
+    }
+
+    public void setResults(PageResponse<OfferDto> results) {
+        this.results = results;
+    }
+
+    public Map<String, Map<String, Long>> getFacets() {
+        return facets;
+    }
+
+    public void setFacets(Map<String, Map<String, Long>> facets) {
+        this.facets = facets;
+    }
+}
@@ -1,6 +1,8 @@
 package com.agrilend.backend.dto.order;
 
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
 import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.entity.enums.ProductUnit;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -14,6 +16,7 @@ public class OrderDto {
     private BigDecimal unitPrice;
     private BigDecimal totalAmount;
     private OrderStatus status;
+    private OrderProcessingStage processingStage;
     private String deliveryAddress;
     private String notes;
     
@@ -36,6 +39,41 @@ public class OrderDto {
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
 
+    public OrderDto() {}
+
+    /**
+     * Constructeur utilisé par les projections JPQL de {@code OrderRepository}
+     */
+    public OrderDto(Long id, String orderNumber, Long offerId, BigDecimal orderedQuantity, BigDecimal unitPrice,
+                    BigDecimal totalAmount, OrderStatus status, OrderProcessingStage processingStage,
+                    String deliveryAddress, String notes, String productName, ProductUnit productUnit,
+                    Long farmerId, String farmerName, Long buyerId, String buyerName, String buyerEmail,
+                    String escrowTransactionId, LocalDateTime escrowStartDate, LocalDateTime escrowEndDate,
+                    LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.orderNumber = orderNumber;
+        this.offerId = offerId;
+        this.orderedQuantity = orderedQuantity;
+        this.unitPrice = unitPrice;
+        this.totalAmount = totalAmount;
+        this.status = status;
+        this.processingStage = processingStage;
+        this.deliveryAddress = deliveryAddress;
+        this.notes = notes;
+        this.productName = productName;
+        this.productUnit = productUnit != null ? productUnit.name() : null;
+        this.farmerId = farmerId;
+        this.farmerName = farmerName;
+        this.buyerId = buyerId;
+        this.buyerName = buyerName;
+        this.buyerEmail = buyerEmail;
+        this.escrowTransactionId = escrowTransactionId;
+        this.escrowStartDate = escrowStartDate;
+        this.escrowEndDate = escrowEndDate;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
+
     // Getters and Setters
 
     public Long getId() {
@@ -94,6 +132,14 @@ public class OrderDto {
         this.status = status;
     }
 
+    public OrderProcessingStage getProcessingStage() {
+        return processingStage;
+    }
+
+    public void setProcessingStage(OrderProcessingStage processingStage) {
+        this.processingStage = processingStage;
+    }
+
     public String getDeliveryAddress() {
         return deliveryAddress;
     }
@@ -0,0 +1,132 @@
+package com.agrilend.backend.dto.tokenization;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Résultat d'une distribution de tokens, destinataire par destinataire
+ */
+public class TokenDistributionResultDto {
+
+    private Long receiptId;
+    private String tokenId;
+    private int submittedTransactions;
+    private List<RecipientOutcome> outcomes = new ArrayList<>();
+
+    public TokenDistributionResultDto() {
+    }
+
+    public TokenDistributionResultDto(Long receiptId, String tokenId) {
+        this.receiptId = receiptId;
+        this.tokenId = tokenId;
+    }
+
+    public long getSucceeded() {
+        return outcomes.stream().filter(RecipientOutcome::isSuccess).count();
+    }
+
+    public long getFailed() {
+        return outcomes.size() - getSucceeded();
+    }
+
+    public boolean isPartialFailure() {
+        long failed = getFailed();
+        return failed > 0 && failed < outcomes.size();
+    }
+
+    // Getters and Setters
+
+    public Long getReceiptId() {
+        return receiptId;
+    }
+
+    public void setReceiptId(Long receiptId) {
+        this.receiptId = receiptId;
+    }
+
+    public String getTokenId() {
+        return tokenId;
+    }
+
+    public void setTokenId(String tokenId) {
+        this.tokenId = tokenId;
+    }
+
+    public int getSubmittedTransactions() {
+        return submittedTransactions;
+    }
+
+    public void setSubmittedTransactions(int submittedTransactions) {
+        this.submittedTransactions = submittedTransactions;
+    }
+
+    public List<RecipientOutcome> getOutcomes() {
+        return outcomes;
+    }
+
+    public void setOutcomes(List<RecipientOutcome> outcomes) {
+        this.outcomes = outcomes;
+    }
+
+    public static class RecipientOutcome {
+
+        private String recipientAccountId;
+        private BigDecimal amount;
+        private boolean success;
+        private String hederaTransactionId;
+        private String error;
+
+        public RecipientOutcome() {
+        }
+
+        public RecipientOutcome(String recipientAccountId, BigDecimal amount, boolean success,
+                                String hederaTransactionId, String error) {
+            this.recipientAccountId = recipientAccountId;
+            this.amount = amount;
+            this.success = success;
+            this.hederaTransactionId = hederaTransactionId;
+            this.error = error;
+        }
+
+        public String getRecipientAccountId() {
+            return recipientAccountId;
+        }
+
+        public void setRecipientAccountId(String recipientAccountId) {
+            this.recipientAccountId = recipientAccountId;
+        }
+
+        public BigDecimal getAmount() {
+            return amount;
+        }
+
+        public void setAmount(BigDecimal amount) {
+            this.amount = amount;
+        }
+
+        public boolean isSuccess() {
+            return success;
+        }
+
+        public void setSuccess(boolean success) {
+            this.success = success;
+        }
+
+        public String getHederaTransactionId() {
+            return hederaTransactionId;
+        }
+
+        public void setHederaTransactionId(String hederaTransactionId) {
+            this.hederaTransactionId = hederaTransactionId;
+        }
+
+        public String getError() {
+            return error;
+        }
+
+        public void setError(String error) {
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package com.agrilend.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.time.LocalDateTime;
+
+/**
+ * Compte Hedera créé à l'avance et mis en réserve pour les inscriptions et premières commandes.
+ * La clé privée est stockée chiffrée.
+ */
+@Entity
+@Table(name = "hedera_account_pool",
+       indexes = @Index(name = "idx_account_pool_status", columnList = "status, id"))
+public class HederaPooledAccount {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false, unique = true, length = 50)
+    private String accountId;
+
+    @Column(name = "encrypted_private_key", nullable = false, length = 512)
+    private String encryptedPrivateKey;
+
+    @Column(name = "public_key", length = 256)
+    private String publicKey;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 20)
+    private PoolStatus status = PoolStatus.AVAILABLE;
+
+    @Column(name = "claim_token", unique = true, length = 36)
+    private String claimToken;
+
+    @Column(name = "created_at", updatable = false)
+    private LocalDateTime createdAt;
+
+    @Column(name = "claimed_at")
+    private LocalDateTime claimedAt;
+
+    @PrePersist
+    protected void onCreate() {
+        createdAt = LocalDateTime.now();
+    }
+
+    // Constructeurs
+    public HederaPooledAccount() {
+    }
+
+    public HederaPooledAccount(String accountId, String encryptedPrivateKey, String publicKey) {
+        this.accountId = accountId;
+        this.encryptedPrivateKey = encryptedPrivateKey;
+        this.publicKey = publicKey;
+    }
+
+    // Getters et Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getAccountId() {
+        return accountId;
+    }
+
+    public void setAccountId(String accountId) {
+        this.accountId = accountId;
+    }
+
+    public String getEncryptedPrivateKey() {
+        return encryptedPrivateKey;
+    }
+
+    public void setEncryptedPrivateKey(String encryptedPrivateKey) {
+        this.encryptedPrivateKey = encryptedPrivateKey;
+    }
+
+    public String getPublicKey() {
+        return publicKey;
+    }
+
+    public void setPublicKey(String publicKey) {
+        this.publicKey = publicKey;
+    }
+
+    public PoolStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(PoolStatus status) {
+        this.status = status;
+    }
+
+    public String getClaimToken() {
+        return claimToken;
+    }
+
+    public void setClaimToken(String claimToken) {
+        this.claimToken = claimToken;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getClaimedAt() {
+        return claimedAt;
+    }
+
+    public void setClaimedAt(LocalDateTime claimedAt) {
+        this.claimedAt = claimedAt;
+    }
+
+    /**
+     * Énumération des statuts d'un compte de la réserve
+     */
+    public enum PoolStatus {
+        AVAILABLE,  // Disponible
+        CLAIMED     // Attribué à un utilisateur
+    }
+}
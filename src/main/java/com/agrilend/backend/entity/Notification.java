@@ -10,7 +10,12 @@ import java.time.LocalDateTime;
  * Entité représentant une notification
  */
 @Entity
-@Table(name = "notifications")
+@Table(name = "notifications",
+       indexes = {
+           @Index(name = "idx_user_read", columnList = "user_id, is_read"),
+           @Index(name = "idx_notifications_retention", columnList = "is_read, created_at"),
+           @Index(name = "idx_notifications_user_created", columnList = "user_id, created_at, id")
+       })
 public class Notification {
 
     @Id
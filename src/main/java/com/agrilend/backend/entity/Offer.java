@@ -45,6 +45,9 @@ public class Offer {
     @Column(name = "availability_date")
     private LocalDate availabilityDate;
 
+    @Column(name = "expiry_date")
+    private LocalDate expiryDate;
+
     @Enumerated(EnumType.STRING)
     private OfferStatus status = OfferStatus.DRAFT;
 
@@ -154,6 +157,14 @@ public class Offer {
         this.availabilityDate = availabilityDate;
     }
 
+    public LocalDate getExpiryDate() {
+        return expiryDate;
+    }
+
+    public void setExpiryDate(LocalDate expiryDate) {
+        this.expiryDate = expiryDate;
+    }
+
     public OfferStatus getStatus() {
         return status;
     }
@@ -1,5 +1,6 @@
 package com.agrilend.backend.entity;
 
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
 import com.agrilend.backend.entity.enums.OrderStatus;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotNull;
@@ -51,6 +52,10 @@ public class Order {
     @Enumerated(EnumType.STRING)
     private OrderStatus status = OrderStatus.PENDING;
 
+    @Enumerated(EnumType.STRING)
+    @Column(name = "processing_stage")
+    private OrderProcessingStage processingStage;
+
     @Column(name = "delivery_address", columnDefinition = "TEXT")
     private String deliveryAddress;
 
@@ -60,6 +65,9 @@ public class Order {
     @Column(name = "cancellation_reason", columnDefinition = "TEXT")
     private String cancellationReason;
 
+    @Column(name = "reservation_expires_at")
+    private LocalDateTime reservationExpiresAt;
+
     @Column(name = "escrow_transaction_id")
     private String escrowTransactionId;
 
@@ -89,7 +97,9 @@ public class Order {
     protected void onCreate() {
         createdAt = LocalDateTime.now();
         updatedAt = LocalDateTime.now();
-        orderNumber = "AGL-" + createdAt.getYear() + "-" + System.currentTimeMillis(); // Génération simple
+        if (orderNumber == null) {
+            orderNumber = "AGL-" + createdAt.getYear() + "-" + System.currentTimeMillis(); // Génération simple
+        }
     }
 
     @PreUpdate
@@ -171,6 +181,14 @@ public class Order {
         this.status = status;
     }
 
+    public OrderProcessingStage getProcessingStage() {
+        return processingStage;
+    }
+
+    public void setProcessingStage(OrderProcessingStage processingStage) {
+        this.processingStage = processingStage;
+    }
+
     public String getDeliveryAddress() {
         return deliveryAddress;
     }
@@ -195,6 +213,14 @@ public class Order {
         this.cancellationReason = cancellationReason;
     }
 
+    public LocalDateTime getReservationExpiresAt() {
+        return reservationExpiresAt;
+    }
+
+    public void setReservationExpiresAt(LocalDateTime reservationExpiresAt) {
+        this.reservationExpiresAt = reservationExpiresAt;
+    }
+
     public String getEscrowTransactionId() {
         return escrowTransactionId;
     }
@@ -0,0 +1,102 @@
+package com.agrilend.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * Agrégat quotidien du chiffre d'affaires par catégorie de produit,
+ * maintenu à chaque création de commande
+ */
+@Entity
+@Table(name = "revenue_daily_rollups",
+       uniqueConstraints = @UniqueConstraint(name = "uk_rollup_day_category", columnNames = {"rollup_day", "category"}))
+public class RevenueDailyRollup {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "rollup_day", nullable = false)
+    private LocalDate day;
+
+    @Column(name = "category", nullable = false, length = 50)
+    private String category;
+
+    @Column(name = "total_amount", nullable = false, precision = 15, scale = 2)
+    private BigDecimal totalAmount = BigDecimal.ZERO;
+
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @PrePersist
+    @PreUpdate
+    protected void onSave() {
+        updatedAt = LocalDateTime.now();
+    }
+
+    // Constructeurs
+    public RevenueDailyRollup() {
+    }
+
+    public RevenueDailyRollup(LocalDate day, String category, BigDecimal totalAmount, long orderCount) {
+        this.day = day;
+        this.category = category;
+        this.totalAmount = totalAmount;
+        this.orderCount = orderCount;
+    }
+
+    // Getters et Setters
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public LocalDate getDay() {
+        return day;
+    }
+
+    public void setDay(LocalDate day) {
+        this.day = day;
+    }
+
+    public String getCategory() {
+        return category;
+    }
+
+    public void setCategory(String category) {
+        this.category = category;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public void setTotalAmount(BigDecimal totalAmount) {
+        this.totalAmount = totalAmount;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public void setOrderCount(long orderCount) {
+        this.orderCount = orderCount;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -42,6 +42,29 @@ public class Transaction {
     @Enumerated(EnumType.STRING)
     private TransactionStatus status = TransactionStatus.PENDING;
 
+    // --- Outbox : opérations Hedera en attente d'envoi ---
+    @Column(name = "idempotency_key", unique = true, length = 100)
+    private String idempotencyKey;
+
+    @Column(name = "fee_amount", precision = 19, scale = 8)
+    private BigDecimal feeAmount;
+
+    @Column(name = "attempts", nullable = false)
+    private int attempts = 0;
+
+    @Column(name = "next_attempt_at")
+    private LocalDateTime nextAttemptAt;
+
+    @Column(name = "lease_expires_at")
+    private LocalDateTime leaseExpiresAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "settlement_batch_id")
+    private SettlementBatch settlementBatch;
+
     @ManyToOne
     @JoinColumn(name = "warehouse_receipt_id")
     private WarehouseReceipt warehouseReceipt;
@@ -141,6 +164,14 @@ public class Transaction {
         this.status = status;
     }
 
+    public SettlementBatch getSettlementBatch() {
+        return settlementBatch;
+    }
+
+    public void setSettlementBatch(SettlementBatch settlementBatch) {
+        this.settlementBatch = settlementBatch;
+    }
+
     public WarehouseReceipt getWarehouseReceipt() {
         return warehouseReceipt;
     }
@@ -173,11 +204,60 @@ public class Transaction {
         this.updatedAt = updatedAt;
     }
 
+    public String getIdempotencyKey() {
+        return idempotencyKey;
+    }
+
+    public void setIdempotencyKey(String idempotencyKey) {
+        this.idempotencyKey = idempotencyKey;
+    }
+
+    public BigDecimal getFeeAmount() {
+        return feeAmount;
+    }
+
+    public void setFeeAmount(BigDecimal feeAmount) {
+        this.feeAmount = feeAmount;
+    }
+
+    public int getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public LocalDateTime getNextAttemptAt() {
+        return nextAttemptAt;
+    }
+
+    public void setNextAttemptAt(LocalDateTime nextAttemptAt) {
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public LocalDateTime getLeaseExpiresAt() {
+        return leaseExpiresAt;
+    }
+
+    public void setLeaseExpiresAt(LocalDateTime leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+
     /**
      * Énumération des statuts de transaction
      */
     public enum TransactionStatus {
         PENDING,    // En attente
+        PROCESSING, // En cours d'envoi (bail détenu par un worker)
         SUCCESS,    // Réussie
         FAILED,     // Échouée
         CANCELLED   // Annulée
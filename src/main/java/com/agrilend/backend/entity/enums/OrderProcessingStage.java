@@ -0,0 +1,14 @@
+package com.agrilend.backend.entity.enums;
+
+public enum OrderProcessingStage {
+    QUEUED,         // En file d'attente
+    ACCOUNT_READY,  // Compte Hedera de l'acheteur prêt
+    FUNDED,         // Compte de l'acheteur alimenté
+    ESCROW_QUEUED,  // Dépôt en séquestre en file d'envoi Hedera
+    ESCROWED,       // Fonds placés en séquestre
+    RELEASE_QUEUED, // Libération du séquestre en file d'envoi Hedera
+    RELEASED,       // Séquestre libéré vers l'agriculteur
+    REFUND_QUEUED,  // Remboursement du séquestre expiré en file d'envoi Hedera
+    REFUNDED,       // Séquestre remboursé à l'acheteur
+    FAILED          // Échec du traitement
+}
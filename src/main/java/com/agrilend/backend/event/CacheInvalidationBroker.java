@@ -0,0 +1,14 @@
+package com.agrilend.backend.event;
+
+import java.util.function.Consumer;
+
+/**
+ * Canal de diffusion des invalidations de cache entre instances de l'application.
+ * Un déploiement sur plusieurs nœuds fournit une implémentation @Primary (Redis, JMS...).
+ */
+public interface CacheInvalidationBroker {
+
+    void publish(CacheInvalidationMessage message);
+
+    void subscribe(Consumer<CacheInvalidationMessage> listener);
+}
@@ -0,0 +1,55 @@
+package com.agrilend.backend.event;
+
+/**
+ * Invalidation diffusée aux autres instances de l'application par le {@link CacheInvalidationBroker}
+ */
+public class CacheInvalidationMessage {
+
+    public static final String OFFERS = "offers";
+    public static final String PRODUCTS = "products";
+    public static final String FARMERS = "farmers";
+
+    private final String region;
+    private final String originNodeId;
+    private final Long entityId;
+    private final boolean listingChanged;
+    private final long publishedAtMillis;
+
+    public CacheInvalidationMessage(String region, String originNodeId, Long entityId, boolean listingChanged,
+                                    long publishedAtMillis) {
+        this.region = region;
+        this.originNodeId = originNodeId;
+        this.entityId = entityId;
+        this.listingChanged = listingChanged;
+        this.publishedAtMillis = publishedAtMillis;
+    }
+
+    /**
+     * Cache concerné : {@link #OFFERS}, {@link #PRODUCTS}, ou {@link #FARMERS} pour les offres d'un agriculteur
+     */
+    public String getRegion() {
+        return region;
+    }
+
+    public String getOriginNodeId() {
+        return originNodeId;
+    }
+
+    /**
+     * Identifiant de l'offre, du produit ou de l'agriculteur selon la région
+     */
+    public Long getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * Vrai si l'ensemble des offres listées a changé (décalage de toutes les pages)
+     */
+    public boolean isListingChanged() {
+        return listingChanged;
+    }
+
+    public long getPublishedAtMillis() {
+        return publishedAtMillis;
+    }
+}
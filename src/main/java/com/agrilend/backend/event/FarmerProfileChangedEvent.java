@@ -0,0 +1,17 @@
+package com.agrilend.backend.event;
+
+/**
+ * Publié lorsque le nom ou la localisation d'un agriculteur change : ses offres reprennent ces informations
+ */
+public class FarmerProfileChangedEvent {
+
+    private final Long farmerId;
+
+    public FarmerProfileChangedEvent(Long farmerId) {
+        this.farmerId = farmerId;
+    }
+
+    public Long getFarmerId() {
+        return farmerId;
+    }
+}
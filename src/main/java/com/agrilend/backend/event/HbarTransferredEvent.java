@@ -0,0 +1,27 @@
+package com.agrilend.backend.event;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publié après un transfert HBAR accepté par le réseau (ou par le simulateur) ; montants en tinybars par compte
+ */
+public class HbarTransferredEvent {
+
+    private final String transactionId;
+    private final Map<String, Long> tinybarTransfers;
+
+    public HbarTransferredEvent(String transactionId, Map<String, Long> tinybarTransfers) {
+        this.transactionId = transactionId;
+        this.tinybarTransfers = Collections.unmodifiableMap(new LinkedHashMap<>(tinybarTransfers));
+    }
+
+    public String getTransactionId() {
+        return transactionId;
+    }
+
+    public Map<String, Long> getTinybarTransfers() {
+        return tinybarTransfers;
+    }
+}
@@ -0,0 +1,36 @@
+package com.agrilend.backend.event;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Diffusion en mémoire : suffit pour une instance unique, et relie plusieurs caches d'un même processus
+ */
+@Component
+public class LocalCacheInvalidationBroker implements CacheInvalidationBroker {
+
+    private static final Logger logger = LoggerFactory.getLogger(LocalCacheInvalidationBroker.class);
+
+    private final List<Consumer<CacheInvalidationMessage>> listeners = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void publish(CacheInvalidationMessage message) {
+        for (Consumer<CacheInvalidationMessage> listener : listeners) {
+            try {
+                listener.accept(message);
+            } catch (RuntimeException e) {
+                logger.error("Erreur lors de la diffusion d'une invalidation de cache", e);
+            }
+        }
+    }
+
+    @Override
+    public void subscribe(Consumer<CacheInvalidationMessage> listener) {
+        listeners.add(listener);
+    }
+}
@@ -0,0 +1,21 @@
+package com.agrilend.backend.event;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Publié lors de la création de notifications ; nombre de notifications créées par utilisateur
+ */
+public class NotificationsCreatedEvent {
+
+    private final Map<Long, Long> countsByUser;
+
+    public NotificationsCreatedEvent(Map<Long, Long> countsByUser) {
+        this.countsByUser = Collections.unmodifiableMap(new LinkedHashMap<>(countsByUser));
+    }
+
+    public Map<Long, Long> getCountsByUser() {
+        return countsByUser;
+    }
+}
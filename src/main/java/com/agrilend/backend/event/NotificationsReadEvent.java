@@ -0,0 +1,29 @@
+package com.agrilend.backend.event;
+
+/**
+ * Publié lorsqu'un utilisateur marque des notifications comme lues ; {@code allRead} : plus aucune non lue
+ */
+public class NotificationsReadEvent {
+
+    private final Long userId;
+    private final long readCount;
+    private final boolean allRead;
+
+    public NotificationsReadEvent(Long userId, long readCount, boolean allRead) {
+        this.userId = userId;
+        this.readCount = readCount;
+        this.allRead = allRead;
+    }
+
+    public Long getUserId() {
+        return userId;
+    }
+
+    public long getReadCount() {
+        return readCount;
+    }
+
+    public boolean isAllRead() {
+        return allRead;
+    }
+}
@@ -0,0 +1,32 @@
+package com.agrilend.backend.event;
+
+/**
+ * Publié lorsqu'une offre est créée, modifiée, change de statut ou de stock, ou est supprimée
+ */
+public class OfferChangedEvent {
+
+    private final Long offerId;
+    private final Change change;
+
+    public OfferChangedEvent(Long offerId, Change change) {
+        this.offerId = offerId;
+        this.change = change;
+    }
+
+    public Long getOfferId() {
+        return offerId;
+    }
+
+    public Change getChange() {
+        return change;
+    }
+
+    public enum Change {
+        CREATED,         // Création (en attente de validation)
+        UPDATED,         // Modification des informations
+        DELETED,         // Suppression
+        STATUS_CHANGED,  // Validation ou rejet
+        STOCK_RESERVED,  // Quantité réservée par une commande, l'offre peut passer à SOLD_OUT
+        STOCK_RELEASED   // Quantité restituée, l'offre peut redevenir ACTIVE
+    }
+}
@@ -0,0 +1,17 @@
+package com.agrilend.backend.event;
+
+/**
+ * Publié lorsqu'un produit du catalogue est créé, modifié, activé ou désactivé
+ */
+public class ProductChangedEvent {
+
+    private final Long productId;
+
+    public ProductChangedEvent(Long productId) {
+        this.productId = productId;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+}
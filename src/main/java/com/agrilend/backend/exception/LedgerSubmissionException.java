@@ -0,0 +1,23 @@
+package com.agrilend.backend.exception;
+
+/**
+ * Échec d'envoi d'une opération au registre Hedera ; {@code retryable} indique si une nouvelle tentative a un sens
+ */
+public class LedgerSubmissionException extends RuntimeException {
+
+    private final boolean retryable;
+
+    public LedgerSubmissionException(String message, boolean retryable) {
+        super(message);
+        this.retryable = retryable;
+    }
+
+    public LedgerSubmissionException(String message, boolean retryable, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+}
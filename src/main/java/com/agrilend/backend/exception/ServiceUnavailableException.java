@@ -0,0 +1,11 @@
+package com.agrilend.backend.exception;
+
+/**
+ * Levée lorsqu'un traitement est temporairement refusé faute de capacité
+ */
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String message) {
+        super(message);
+    }
+}
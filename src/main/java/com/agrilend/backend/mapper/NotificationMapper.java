@@ -0,0 +1,27 @@
+package com.agrilend.backend.mapper;
+
+import com.agrilend.backend.dto.notification.NotificationDto;
+import com.agrilend.backend.entity.Notification;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conversion explicite Notification -> NotificationDto, sans réflexion
+ */
+@Component
+public class NotificationMapper {
+
+    public NotificationDto toDto(Notification notification) {
+        NotificationDto dto = new NotificationDto();
+        dto.setId(notification.getId());
+        // getId() sur le proxy LAZY n'initialise pas l'utilisateur
+        dto.setUserId(notification.getUser() != null ? notification.getUser().getId() : null);
+        dto.setTitle(notification.getTitle());
+        dto.setMessage(notification.getMessage());
+        dto.setType(notification.getType());
+        dto.setRead(notification.isRead());
+        dto.setRelatedEntityType(notification.getRelatedEntityType());
+        dto.setRelatedEntityId(notification.getRelatedEntityId());
+        dto.setCreatedAt(notification.getCreatedAt());
+        return dto;
+    }
+}
@@ -0,0 +1,48 @@
+package com.agrilend.backend.mapper;
+
+import com.agrilend.backend.dto.offer.OfferDto;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.User;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conversion explicite Offer -> OfferDto, sans réflexion
+ */
+@Component
+public class OfferMapper {
+
+    public OfferDto toDto(Offer offer) {
+        OfferDto dto = new OfferDto();
+        dto.setId(offer.getId());
+        dto.setAvailableQuantity(offer.getAvailableQuantity());
+        dto.setAvailabilityDate(offer.getAvailabilityDate());
+        dto.setExpiryDate(offer.getExpiryDate());
+        dto.setSuggestedUnitPrice(offer.getSuggestedUnitPrice());
+        dto.setFinalUnitPrice(offer.getFinalPriceBuyer());
+        dto.setStatus(offer.getStatus());
+        dto.setNotes(offer.getNotes());
+        dto.setCreatedAt(offer.getCreatedAt());
+        dto.setUpdatedAt(offer.getUpdatedAt());
+        if (offer.getProductionMethod() != null) {
+            dto.setProductionMethod(offer.getProductionMethod().name());
+        }
+
+        Product product = offer.getProduct();
+        dto.setProductId(product.getId());
+        dto.setProductName(product.getName());
+        dto.setProductDescription(product.getDescription());
+        dto.setProductCategory(product.getCategory());
+        dto.setProductUnit(product.getUnit() != null ? product.getUnit().name() : null);
+        dto.setProductImageUrl(product.getImageUrl());
+
+        Farmer farmer = offer.getFarmer();
+        User farmerUser = farmer.getUser();
+        dto.setFarmerId(farmer.getId());
+        dto.setFarmerName(farmerUser.getFirstName() + " " + farmerUser.getLastName());
+        dto.setFarmerEmail(farmerUser.getEmail());
+
+        return dto;
+    }
+}
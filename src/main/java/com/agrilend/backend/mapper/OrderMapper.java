@@ -0,0 +1,51 @@
+package com.agrilend.backend.mapper;
+
+import com.agrilend.backend.dto.order.OrderDto;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.User;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conversion explicite Order -> OrderDto, sans réflexion
+ */
+@Component
+public class OrderMapper {
+
+    public OrderDto toDto(Order order) {
+        OrderDto dto = new OrderDto();
+        dto.setId(order.getId());
+        dto.setOrderNumber(order.getOrderNumber());
+        dto.setOrderedQuantity(order.getOrderedQuantity());
+        dto.setUnitPrice(order.getUnitPrice());
+        dto.setTotalAmount(order.getTotalAmount());
+        dto.setStatus(order.getStatus());
+        dto.setProcessingStage(order.getProcessingStage());
+        dto.setDeliveryAddress(order.getDeliveryAddress());
+        dto.setNotes(order.getNotes());
+        dto.setEscrowTransactionId(order.getEscrowTransactionId());
+        dto.setEscrowStartDate(order.getEscrowStartDate());
+        dto.setEscrowEndDate(order.getEscrowEndDate());
+        dto.setCreatedAt(order.getCreatedAt());
+        dto.setUpdatedAt(order.getUpdatedAt());
+
+        Offer offer = order.getOffer();
+        Product product = offer.getProduct();
+        Farmer farmer = offer.getFarmer();
+        User farmerUser = farmer.getUser();
+        User buyerUser = order.getBuyer().getUser();
+
+        dto.setOfferId(offer.getId());
+        dto.setProductName(product.getName());
+        dto.setProductUnit(product.getUnit() != null ? product.getUnit().name() : null);
+        dto.setFarmerId(farmer.getId());
+        dto.setFarmerName(farmerUser.getFirstName() + " " + farmerUser.getLastName());
+        dto.setBuyerId(order.getBuyer().getId());
+        dto.setBuyerName(buyerUser.getFirstName() + " " + buyerUser.getLastName());
+        dto.setBuyerEmail(buyerUser.getEmail());
+
+        return dto;
+    }
+}
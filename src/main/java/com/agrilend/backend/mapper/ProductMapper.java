@@ -0,0 +1,44 @@
+package com.agrilend.backend.mapper;
+
+import com.agrilend.backend.dto.product.ProductDto;
+import com.agrilend.backend.entity.Product;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conversion explicite Product <-> ProductDto, sans réflexion
+ */
+@Component
+public class ProductMapper {
+
+    public ProductDto toDto(Product product) {
+        ProductDto dto = new ProductDto();
+        dto.setId(product.getId());
+        dto.setName(product.getName());
+        dto.setDescription(product.getDescription());
+        dto.setCategory(product.getCategory());
+        dto.setSubcategory(product.getSubcategory());
+        dto.setUnit(product.getUnit());
+        dto.setImageUrl(product.getImageUrl());
+        dto.setActive(Boolean.TRUE.equals(product.getIsActive()));
+        dto.setCreatedAt(product.getCreatedAt());
+        dto.setUpdatedAt(product.getUpdatedAt());
+        return dto;
+    }
+
+    /**
+     * Nouvelle entité à partir du DTO ; l'identifiant et les dates sont gérés par JPA
+     */
+    public Product toEntity(ProductDto dto) {
+        Product product = new Product();
+        product.setName(dto.getName());
+        product.setDescription(dto.getDescription());
+        product.setCategory(dto.getCategory());
+        product.setSubcategory(dto.getSubcategory());
+        if (dto.getUnit() != null) {
+            product.setUnit(dto.getUnit());
+        }
+        product.setImageUrl(dto.getImageUrl());
+        product.setIsActive(dto.isActive());
+        return product;
+    }
+}
@@ -0,0 +1,41 @@
+package com.agrilend.backend.mapper;
+
+import com.agrilend.backend.dto.user.UserProfileDto;
+import com.agrilend.backend.entity.Buyer;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.User;
+import org.springframework.stereotype.Component;
+
+/**
+ * Conversion explicite User -> UserProfileDto, sans réflexion
+ */
+@Component
+public class UserMapper {
+
+    public UserProfileDto toProfileDto(User user) {
+        UserProfileDto dto = new UserProfileDto();
+        dto.setId(user.getId());
+        dto.setFirstName(user.getFirstName());
+        dto.setLastName(user.getLastName());
+        dto.setEmail(user.getEmail());
+        dto.setPhone(user.getPhone());
+        dto.setRole(user.getRole());
+        dto.setHederaAccountId(user.getHederaAccountId());
+        dto.setActive(Boolean.TRUE.equals(user.getIsActive()));
+        dto.setCreatedAt(user.getCreatedAt());
+        dto.setUpdatedAt(user.getUpdatedAt());
+        return dto;
+    }
+
+    public void applyFarmerProfile(UserProfileDto dto, Farmer farmer) {
+        dto.setFarmName(farmer.getFarmName());
+        dto.setFarmLocation(farmer.getFarmLocation());
+        dto.setFarmSize(farmer.getFarmSize());
+    }
+
+    public void applyBuyerProfile(UserProfileDto dto, Buyer buyer) {
+        dto.setCompanyName(buyer.getCompanyName());
+        dto.setCompanyAddress(buyer.getCompanyAddress());
+        dto.setActivityType(buyer.getActivityType());
+    }
+}
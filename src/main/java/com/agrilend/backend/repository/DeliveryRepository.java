@@ -3,6 +3,7 @@ package com.agrilend.backend.repository;
 import com.agrilend.backend.entity.Delivery;
 import com.agrilend.backend.entity.enums.DeliveryStatus;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -13,10 +14,14 @@ public interface DeliveryRepository extends JpaRepository<Delivery, Long> {
 
     long countByDeliveryStatus(DeliveryStatus status);
 
+    boolean existsByOrderIdAndDeliveryStatus(Long orderId, DeliveryStatus status);
+
     long countByDeliveryStatusAndCreatedAtBetween(DeliveryStatus status, LocalDateTime startDate, LocalDateTime endDate);
 
     List<Delivery> findByDeliveryStatusAndCreatedAtBetween(DeliveryStatus status, LocalDateTime startDate, LocalDateTime endDate);
 
     // count() is inherited from JpaRepository
 
-}
\ No newline at end of file
+    @Query("SELECT d.deliveryStatus, COUNT(d) FROM Delivery d GROUP BY d.deliveryStatus")
+    List<Object[]> countGroupByDeliveryStatus();
+}
@@ -0,0 +1,27 @@
+package com.agrilend.backend.repository;
+
+import com.agrilend.backend.entity.HederaPooledAccount;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+public interface HederaPooledAccountRepository extends JpaRepository<HederaPooledAccount, Long> {
+
+    long countByStatus(HederaPooledAccount.PoolStatus status);
+
+    /**
+     * Réserve le plus ancien compte disponible en une seule mise à jour (0 si la réserve est vide)
+     */
+    @Modifying
+    @Query(value = "UPDATE hedera_account_pool SET status = 'CLAIMED', claim_token = :claimToken, claimed_at = :now " +
+                   "WHERE status = 'AVAILABLE' ORDER BY id LIMIT 1", nativeQuery = true)
+    int claimOne(@Param("claimToken") String claimToken, @Param("now") LocalDateTime now);
+
+    Optional<HederaPooledAccount> findByClaimToken(String claimToken);
+}
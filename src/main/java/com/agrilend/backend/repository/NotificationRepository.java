@@ -4,8 +4,12 @@ import com.agrilend.backend.entity.Notification;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -16,7 +20,32 @@ public interface NotificationRepository extends JpaRepository<Notification, Long
     Page<Notification> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     
     List<Notification> findByUserIdAndIsReadFalse(Long userId);
+
+    /**
+     * Pagination par clé (createdAt, id) décroissante : première page, puis pages suivantes après un curseur
+     */
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findByUserIdKeyset(@Param("userId") Long userId, Pageable pageable);
+
+    @Query("SELECT n FROM Notification n WHERE n.user.id = :userId " +
+           "AND (n.createdAt < :createdAt OR (n.createdAt = :createdAt AND n.id < :id)) " +
+           "ORDER BY n.createdAt DESC, n.id DESC")
+    List<Notification> findByUserIdKeysetAfter(@Param("userId") Long userId, @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id, Pageable pageable);
     
     long countByUserIdAndIsReadFalse(Long userId);
-    
+
+    long countByUserId(Long userId);
+
+    @Modifying
+    @Query("UPDATE Notification n SET n.isRead = true WHERE n.user.id = :userId AND n.isRead = false")
+    int markAllAsReadByUserId(@Param("userId") Long userId);
+
+    /**
+     * Notifications d'un utilisateur postérieures à un identifiant, pour la reprise des flux
+     */
+    List<Notification> findByUserIdAndIdGreaterThanOrderByIdAsc(Long userId, Long id, Pageable pageable);
+
+    @Query("SELECT COALESCE(MAX(n.id), 0) FROM Notification n WHERE n.user.id = :userId")
+    long findMaxIdByUserId(@Param("userId") Long userId);
 }
@@ -1,21 +1,118 @@
 package com.agrilend.backend.repository;
 
+import com.agrilend.backend.dto.offer.OfferDto;
 import com.agrilend.backend.entity.Offer;
 import com.agrilend.backend.entity.enums.OfferStatus;
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OfferRepository extends JpaRepository<Offer, Long> {
 
+    /** Valeur de jakarta.persistence.lock.timeout traduite en SKIP LOCKED par Hibernate (LockOptions.SKIP_LOCKED) */
+    String SKIP_LOCKED = "-2";
+
+    /**
+     * Projection {@link OfferDto} : produit et agriculteur en une seule requête
+     */
+    String OFFER_DTO_SELECT = "SELECT new com.agrilend.backend.dto.offer.OfferDto(" +
+            "o.id, p.id, o.availableQuantity, o.availabilityDate, o.expiryDate, o.suggestedUnitPrice, o.finalPriceBuyer, o.status, o.notes, " +
+            "p.name, p.description, p.category, p.unit, p.imageUrl, o.productionMethod, " +
+            "f.id, CONCAT(fu.firstName, ' ', fu.lastName), fu.email, o.createdAt, o.updatedAt) " +
+            "FROM Offer o JOIN o.product p JOIN o.farmer f JOIN f.user fu ";
+
+    @Query(value = OFFER_DTO_SELECT, countQuery = "SELECT COUNT(o) FROM Offer o")
+    Page<OfferDto> findAllDtos(Pageable pageable);
+
+    @Query(value = OFFER_DTO_SELECT + "WHERE o.status = :status",
+           countQuery = "SELECT COUNT(o) FROM Offer o WHERE o.status = :status")
+    Page<OfferDto> findDtosByStatus(@Param("status") OfferStatus status, Pageable pageable);
+
+    /**
+     * Pagination par clé (createdAt, id) décroissante : première page, puis pages suivantes après un curseur
+     */
+    @Query(OFFER_DTO_SELECT + "WHERE o.status = :status ORDER BY o.createdAt DESC, o.id DESC")
+    List<OfferDto> findDtosByStatusKeyset(@Param("status") OfferStatus status, Pageable pageable);
+
+    @Query(OFFER_DTO_SELECT + "WHERE o.status = :status " +
+           "AND (o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id)) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OfferDto> findDtosByStatusKeysetAfter(@Param("status") OfferStatus status, @Param("createdAt") LocalDateTime createdAt,
+                                               @Param("id") Long id, Pageable pageable);
+
+    @Query(OFFER_DTO_SELECT + "WHERE f.id = :farmerId")
+    List<OfferDto> findDtosByFarmerId(@Param("farmerId") Long farmerId);
+
+    @Query(OFFER_DTO_SELECT + "WHERE o.id = :offerId")
+    Optional<OfferDto> findDtoById(@Param("offerId") Long offerId);
+
     List<Offer> findByFarmerId(Long farmerId);
 
+    /**
+     * Offre avec produit et agriculteur chargés, pour l'index de recherche
+     */
+    @Query("SELECT o FROM Offer o JOIN FETCH o.product JOIN FETCH o.farmer f JOIN FETCH f.user WHERE o.id = :offerId")
+    Optional<Offer> findForIndexing(@Param("offerId") Long offerId);
+
+    @Query("SELECT o FROM Offer o JOIN FETCH o.product JOIN FETCH o.farmer f JOIN FETCH f.user " +
+           "WHERE o.status = :status AND o.id > :afterId ORDER BY o.id ASC")
+    List<Offer> findForIndexingAfter(@Param("status") OfferStatus status, @Param("afterId") Long afterId, Pageable pageable);
+
+    /**
+     * Offres arrivées à leur date d'expiration (index status, expiry_date, id), verrouillées en sautant
+     * celles déjà prises par une autre instance (SKIP LOCKED)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT o FROM Offer o WHERE o.status = :status AND o.expiryDate < :today ORDER BY o.expiryDate ASC, o.id ASC")
+    List<Offer> lockPastExpiryDate(@Param("status") OfferStatus status, @Param("today") LocalDate today, Pageable pageable);
+
+    /**
+     * Offres dont la disponibilité est dépassée, qu'elles aient ou non une date d'expiration
+     * (index status, availability_date, id)
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = SKIP_LOCKED))
+    @Query("SELECT o FROM Offer o WHERE o.status = :status AND o.availabilityDate < :cutoff " +
+           "ORDER BY o.availabilityDate ASC, o.id ASC")
+    List<Offer> lockPastAvailability(@Param("status") OfferStatus status, @Param("cutoff") LocalDate cutoff, Pageable pageable);
+
+    @Modifying(clearAutomatically = true)
+    @Query("UPDATE Offer o SET o.status = :expired, o.updatedAt = :now WHERE o.id IN :ids AND o.status = :active")
+    int expireIfActive(@Param("ids") List<Long> ids, @Param("active") OfferStatus active,
+                       @Param("expired") OfferStatus expired, @Param("now") LocalDateTime now);
+
+    @Query("SELECT o FROM Offer o JOIN FETCH o.product JOIN FETCH o.farmer f JOIN FETCH f.user " +
+           "WHERE o.id IN :ids AND o.status = :status")
+    List<Offer> findWithFarmerByIdInAndStatus(@Param("ids") List<Long> ids, @Param("status") OfferStatus status);
+
+    @Query("SELECT o.status FROM Offer o WHERE o.id = :offerId")
+    Optional<OfferStatus> findStatusById(@Param("offerId") Long offerId);
+
+    @Query("SELECT o.id FROM Offer o WHERE o.product.id = :productId AND o.status = :status")
+    List<Long> findIdsByProductIdAndStatus(@Param("productId") Long productId, @Param("status") OfferStatus status);
+
+    @Query("SELECT o.id FROM Offer o WHERE o.farmer.id = :farmerId")
+    List<Long> findIdsByFarmerId(@Param("farmerId") Long farmerId);
+
+    @Query("SELECT o.id FROM Offer o WHERE o.farmer.id = :farmerId AND o.status = :status")
+    List<Long> findIdsByFarmerIdAndStatus(@Param("farmerId") Long farmerId, @Param("status") OfferStatus status);
+
     Page<Offer> findByStatus(OfferStatus status, Pageable pageable);
 
     List<Offer> findByStatus(OfferStatus status);
@@ -27,4 +124,29 @@ public interface OfferRepository extends JpaRepository<Offer, Long> {
 
     @Query("SELECT o FROM Offer o WHERE o.farmer.id = :farmerId ORDER BY o.createdAt DESC")
     List<Offer> findByFarmerIdOrderByCreatedAtDesc(@Param("farmerId") Long farmerId);
-}
\ No newline at end of file
+
+    /**
+     * Décrémente atomiquement le stock si l'offre est active et la quantité suffisante.
+     * Le statut est évalué avant la quantité (MySQL applique les SET de gauche à droite).
+     */
+    @Modifying
+    @Query("UPDATE Offer o SET o.status = CASE WHEN o.availableQuantity = :quantity THEN :soldOut ELSE o.status END, " +
+           "o.availableQuantity = o.availableQuantity - :quantity, o.updatedAt = :now " +
+           "WHERE o.id = :offerId AND o.status = :active AND o.availableQuantity >= :quantity")
+    int reserveQuantity(@Param("offerId") Long offerId, @Param("quantity") BigDecimal quantity,
+                        @Param("active") OfferStatus active, @Param("soldOut") OfferStatus soldOut,
+                        @Param("now") LocalDateTime now);
+
+    /**
+     * Restitue une quantité réservée et réactive l'offre si elle était épuisée
+     */
+    @Modifying
+    @Query("UPDATE Offer o SET o.status = CASE WHEN o.status = :soldOut THEN :active ELSE o.status END, " +
+           "o.availableQuantity = o.availableQuantity + :quantity, o.updatedAt = :now WHERE o.id = :offerId")
+    int releaseQuantity(@Param("offerId") Long offerId, @Param("quantity") BigDecimal quantity,
+                        @Param("active") OfferStatus active, @Param("soldOut") OfferStatus soldOut,
+                        @Param("now") LocalDateTime now);
+
+    @Query("SELECT o.status, COUNT(o) FROM Offer o GROUP BY o.status")
+    List<Object[]> countGroupByStatus();
+}
@@ -1,23 +1,73 @@
 package com.agrilend.backend.repository;
 
+import com.agrilend.backend.dto.order.OrderDto;
 import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
 import com.agrilend.backend.entity.enums.OrderStatus;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
 @Repository
 public interface OrderRepository extends JpaRepository<Order, Long> {
 
+    /**
+     * Projection {@link OrderDto} : offre, produit, agriculteur et acheteur en une seule requête
+     */
+    String ORDER_DTO_SELECT = "SELECT new com.agrilend.backend.dto.order.OrderDto(" +
+            "o.id, o.orderNumber, off.id, o.orderedQuantity, o.unitPrice, o.totalAmount, o.status, o.processingStage, " +
+            "o.deliveryAddress, o.notes, p.name, p.unit, f.id, CONCAT(fu.firstName, ' ', fu.lastName), " +
+            "b.id, CONCAT(bu.firstName, ' ', bu.lastName), bu.email, " +
+            "o.escrowTransactionId, o.escrowStartDate, o.escrowEndDate, o.createdAt, o.updatedAt) " +
+            "FROM Order o JOIN o.offer off JOIN off.product p JOIN off.farmer f JOIN f.user fu " +
+            "JOIN o.buyer b JOIN b.user bu ";
+
+    @Query(value = ORDER_DTO_SELECT, countQuery = "SELECT COUNT(o) FROM Order o")
+    Page<OrderDto> findAllDtos(Pageable pageable);
+
+    @Query(value = ORDER_DTO_SELECT + "WHERE o.status = :status",
+           countQuery = "SELECT COUNT(o) FROM Order o WHERE o.status = :status")
+    Page<OrderDto> findDtosByStatus(@Param("status") OrderStatus status, Pageable pageable);
+
+    /**
+     * Pagination par clé (createdAt, id) décroissante : première page, puis pages suivantes après un curseur
+     */
+    @Query(ORDER_DTO_SELECT + "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderDto> findAllDtosKeyset(Pageable pageable);
+
+    @Query(ORDER_DTO_SELECT + "WHERE o.createdAt < :createdAt OR (o.createdAt = :createdAt AND o.id < :id) " +
+           "ORDER BY o.createdAt DESC, o.id DESC")
+    List<OrderDto> findAllDtosKeysetAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
+    @Query(ORDER_DTO_SELECT + "WHERE b.id = :buyerId")
+    List<OrderDto> findDtosByBuyerId(@Param("buyerId") Long buyerId);
+
+    @Query(ORDER_DTO_SELECT + "WHERE f.id = :farmerId")
+    List<OrderDto> findDtosByFarmerId(@Param("farmerId") Long farmerId);
+
+    @Query(ORDER_DTO_SELECT + "WHERE o.id = :orderId")
+    Optional<OrderDto> findDtoById(@Param("orderId") Long orderId);
+
+    @Query(ORDER_DTO_SELECT + "WHERE o.orderNumber = :orderNumber")
+    Optional<OrderDto> findDtoByOrderNumber(@Param("orderNumber") String orderNumber);
+
     List<Order> findByBuyerId(Long buyerId);
 
+    Optional<Order> findByOrderNumber(String orderNumber);
+
+    @Query("SELECT o FROM Order o JOIN FETCH o.buyer b JOIN FETCH b.user WHERE o.id = :orderId")
+    Optional<Order> findByIdWithBuyer(@Param("orderId") Long orderId);
+
     List<Order> findByOfferFarmerId(Long farmerId);
 
     Page<Order> findByStatus(OrderStatus status, Pageable pageable);
@@ -41,4 +91,102 @@ public interface OrderRepository extends JpaRepository<Order, Long> {
     @Query("SELECT p.category, SUM(o.totalAmount) FROM Order o JOIN o.offer off JOIN off.product p GROUP BY p.category")
     List<Object[]> sumTotalAmountByCategory();
 
-}
\ No newline at end of file
+    @Query("SELECT p.category, SUM(o.totalAmount), COUNT(o) FROM Order o JOIN o.offer off JOIN off.product p " +
+           "WHERE o.createdAt >= :start AND o.createdAt < :end GROUP BY p.category")
+    List<Object[]> sumTotalAmountAndCountByCategoryBetween(@Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+
+    /**
+     * Commandes dont la réservation a expiré avant que le pipeline n'engage de transfert Hedera
+     */
+    @Query("SELECT o.id FROM Order o WHERE o.status = :status AND o.processingStage = :stage AND o.reservationExpiresAt < :now " +
+           "ORDER BY o.reservationExpiresAt ASC")
+    List<Long> findIdsWithExpiredReservation(@Param("status") OrderStatus status, @Param("stage") OrderProcessingStage stage,
+                                             @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT o.id FROM Order o WHERE o.id IN :ids AND o.status = :status")
+    List<Long> findIdsByIdInAndStatus(@Param("ids") Collection<Long> ids, @Param("status") OrderStatus status);
+
+    /**
+     * Annule une commande uniquement si elle est encore PENDING (retourne 0 sinon)
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :cancelled, o.processingStage = :stage, o.cancellationReason = :reason, " +
+           "o.reservationExpiresAt = NULL, o.updatedAt = :now WHERE o.id = :orderId AND o.status = :pending")
+    int cancelIfPending(@Param("orderId") Long orderId, @Param("reason") String reason,
+                        @Param("pending") OrderStatus pending, @Param("cancelled") OrderStatus cancelled,
+                        @Param("stage") OrderProcessingStage stage, @Param("now") LocalDateTime now);
+
+    /**
+     * Annule une commande PENDING dont la réservation a expiré, uniquement si elle est encore à l'étape
+     * {@code queued} : au-delà, le compte de l'acheteur est en cours d'alimentation (retourne 0)
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :cancelled, o.processingStage = :stage, o.cancellationReason = :reason, " +
+           "o.reservationExpiresAt = NULL, o.updatedAt = :now WHERE o.id = :orderId AND o.status = :pending " +
+           "AND o.processingStage = :queued AND o.reservationExpiresAt < :now")
+    int cancelIfReservationExpired(@Param("orderId") Long orderId, @Param("reason") String reason,
+                                   @Param("pending") OrderStatus pending, @Param("queued") OrderProcessingStage queued,
+                                   @Param("cancelled") OrderStatus cancelled, @Param("stage") OrderProcessingStage stage,
+                                   @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.processingStage = :stage, o.updatedAt = :now WHERE o.id = :orderId AND o.status = :pending")
+    int updateStageIfPending(@Param("orderId") Long orderId, @Param("stage") OrderProcessingStage stage,
+                             @Param("pending") OrderStatus pending, @Param("now") LocalDateTime now);
+
+    /**
+     * Passe une commande PENDING en séquestre et confirme sa réservation de stock
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :inEscrow, o.processingStage = :stage, o.escrowTransactionId = :txId, " +
+           "o.escrowStartDate = :startDate, o.escrowEndDate = :endDate, o.reservationExpiresAt = NULL, o.updatedAt = :startDate " +
+           "WHERE o.id = :orderId AND o.status = :pending")
+    int markInEscrowIfPending(@Param("orderId") Long orderId, @Param("txId") String txId,
+                              @Param("startDate") LocalDateTime startDate, @Param("endDate") LocalDateTime endDate,
+                              @Param("pending") OrderStatus pending, @Param("inEscrow") OrderStatus inEscrow,
+                              @Param("stage") OrderProcessingStage stage);
+
+    @Query("SELECT o.status, COUNT(o) FROM Order o GROUP BY o.status")
+    List<Object[]> countGroupByStatus();
+
+    /**
+     * Dépôt en séquestre confié à l'outbox : la réservation ne doit plus expirer pendant les tentatives
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.processingStage = :stage, o.reservationExpiresAt = NULL, o.updatedAt = :now " +
+           "WHERE o.id = :orderId AND o.status = :pending")
+    int markEscrowQueuedIfPending(@Param("orderId") Long orderId, @Param("stage") OrderProcessingStage stage,
+                                  @Param("pending") OrderStatus pending, @Param("now") LocalDateTime now);
+
+    /**
+     * Libération manuelle ; refusée si une libération ou le remboursement d'expiration est déjà en file
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.processingStage = :queued, o.updatedAt = :now WHERE o.id = :orderId AND o.status = :inEscrow " +
+           "AND (o.processingStage IS NULL OR o.processingStage NOT IN (:queued, :refundQueued))")
+    int markReleaseQueued(@Param("orderId") Long orderId, @Param("queued") OrderProcessingStage queued,
+                          @Param("refundQueued") OrderProcessingStage refundQueued,
+                          @Param("inEscrow") OrderStatus inEscrow, @Param("now") LocalDateTime now);
+
+    /**
+     * Règlement d'un séquestre expiré, seulement si aucune libération ou remboursement n'est déjà en cours
+     */
+    @Modifying
+    @Query("UPDATE Order o SET o.processingStage = :queued, o.updatedAt = :now WHERE o.id = :orderId AND o.status = :inEscrow " +
+           "AND (o.processingStage IS NULL OR o.processingStage = :escrowed)")
+    int markExpiredEscrowQueued(@Param("orderId") Long orderId, @Param("queued") OrderProcessingStage queued,
+                                @Param("escrowed") OrderProcessingStage escrowed,
+                                @Param("inEscrow") OrderStatus inEscrow, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.status = :released, o.processingStage = :stage, o.updatedAt = :now " +
+           "WHERE o.id = :orderId AND o.status = :inEscrow")
+    int markReleasedIfInEscrow(@Param("orderId") Long orderId, @Param("inEscrow") OrderStatus inEscrow,
+                               @Param("released") OrderStatus released, @Param("stage") OrderProcessingStage stage,
+                               @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Order o SET o.processingStage = :stage, o.updatedAt = :now WHERE o.id = :orderId AND o.status = :status")
+    int updateStageIfStatus(@Param("orderId") Long orderId, @Param("stage") OrderProcessingStage stage,
+                            @Param("status") OrderStatus status, @Param("now") LocalDateTime now);
+}
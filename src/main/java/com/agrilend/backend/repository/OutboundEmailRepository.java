@@ -0,0 +1,52 @@
+package com.agrilend.backend.repository;
+
+import com.agrilend.backend.entity.OutboundEmail;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface OutboundEmailRepository extends JpaRepository<OutboundEmail, Long> {
+
+    /**
+     * Un email identique a-t-il déjà été mis en file depuis {@code since} ?
+     */
+    boolean existsByDedupKeyAndCreatedAtAfter(String dedupKey, LocalDateTime since);
+
+    @Query("SELECT e.id FROM OutboundEmail e WHERE e.status = :status AND e.nextAttemptAt <= :now ORDER BY e.nextAttemptAt ASC")
+    List<Long> findDueIds(@Param("status") OutboundEmail.EmailStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE OutboundEmail e SET e.status = :sending, e.attempts = e.attempts + 1, e.leaseExpiresAt = :lease " +
+           "WHERE e.id = :id AND e.status = :pending")
+    int claim(@Param("id") Long id, @Param("pending") OutboundEmail.EmailStatus pending,
+              @Param("sending") OutboundEmail.EmailStatus sending, @Param("lease") LocalDateTime lease);
+
+    @Query("SELECT e FROM OutboundEmail e WHERE e.id IN :ids AND e.status = :sending AND e.leaseExpiresAt = :lease")
+    List<OutboundEmail> findClaimed(@Param("ids") List<Long> ids, @Param("sending") OutboundEmail.EmailStatus sending,
+                                    @Param("lease") LocalDateTime lease);
+
+    @Modifying
+    @Query("UPDATE OutboundEmail e SET e.status = :status, e.leaseExpiresAt = NULL, e.lastError = :error, " +
+           "e.nextAttemptAt = :nextAttemptAt, e.sentAt = :sentAt " +
+           "WHERE e.id = :id AND e.status = :sending AND e.leaseExpiresAt = :lease")
+    int finish(@Param("id") Long id, @Param("sending") OutboundEmail.EmailStatus sending,
+               @Param("lease") LocalDateTime lease, @Param("status") OutboundEmail.EmailStatus status,
+               @Param("error") String error, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+               @Param("sentAt") LocalDateTime sentAt);
+
+    /**
+     * Remet en file les emails dont le worker a disparu (bail expiré)
+     */
+    @Modifying
+    @Query("UPDATE OutboundEmail e SET e.status = :pending, e.leaseExpiresAt = NULL, e.nextAttemptAt = :now " +
+           "WHERE e.status = :sending AND e.leaseExpiresAt < :now")
+    int recoverExpiredLeases(@Param("sending") OutboundEmail.EmailStatus sending,
+                             @Param("pending") OutboundEmail.EmailStatus pending, @Param("now") LocalDateTime now);
+}
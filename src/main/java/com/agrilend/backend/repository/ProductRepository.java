@@ -6,11 +6,18 @@ import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
+
 @Repository
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
     Page<Product> findByNameContainingIgnoreCaseOrCategoryContainingIgnoreCase(String name, String category, Pageable pageable);
 
+    /**
+     * Parcours par identifiant croissant, pour la construction de l'index de recherche
+     */
+    List<Product> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
     // count() is inherited from JpaRepository
 
 }
\ No newline at end of file
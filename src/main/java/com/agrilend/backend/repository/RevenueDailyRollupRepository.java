@@ -0,0 +1,43 @@
+package com.agrilend.backend.repository;
+
+import com.agrilend.backend.entity.RevenueDailyRollup;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+@Repository
+public interface RevenueDailyRollupRepository extends JpaRepository<RevenueDailyRollup, Long> {
+
+    /**
+     * Incrément atomique de l'agrégat (jour, catégorie), créé au premier passage.
+     * Upsert propre à MySQL (ON DUPLICATE KEY UPDATE sur uk_rollup_day_category) ; H2 l'accepte en MODE=MySQL.
+     */
+    @Modifying
+    @Query(value = "INSERT INTO revenue_daily_rollups (rollup_day, category, total_amount, order_count, updated_at) " +
+                   "VALUES (:day, :category, :amount, 1, NOW()) " +
+                   "ON DUPLICATE KEY UPDATE total_amount = total_amount + :amount, order_count = order_count + 1, updated_at = NOW()",
+           nativeQuery = true)
+    int addOrder(@Param("day") LocalDate day, @Param("category") String category, @Param("amount") BigDecimal amount);
+
+    @Modifying
+    @Query("DELETE FROM RevenueDailyRollup r WHERE r.day = :day")
+    int deleteByDay(@Param("day") LocalDate day);
+
+    List<RevenueDailyRollup> findByDay(LocalDate day);
+
+    @Query("SELECT SUM(r.totalAmount) FROM RevenueDailyRollup r WHERE r.day BETWEEN :startDay AND :endDay")
+    BigDecimal sumTotalAmountBetween(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    @Query("SELECT r.day, SUM(r.totalAmount) FROM RevenueDailyRollup r WHERE r.day BETWEEN :startDay AND :endDay " +
+           "GROUP BY r.day ORDER BY r.day")
+    List<Object[]> sumTotalAmountByDayBetween(@Param("startDay") LocalDate startDay, @Param("endDay") LocalDate endDay);
+
+    @Query("SELECT r.category, SUM(r.totalAmount) FROM RevenueDailyRollup r GROUP BY r.category")
+    List<Object[]> sumTotalAmountByCategory();
+}
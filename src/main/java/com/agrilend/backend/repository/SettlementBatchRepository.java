@@ -0,0 +1,53 @@
+package com.agrilend.backend.repository;
+
+import com.agrilend.backend.entity.SettlementBatch;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface SettlementBatchRepository extends JpaRepository<SettlementBatch, Long> {
+
+    /**
+     * Lots ouverts dont le worker a disparu (bail expiré)
+     */
+    @Query("SELECT b.id FROM SettlementBatch b WHERE b.status = :open AND b.leaseExpiresAt < :now ORDER BY b.id ASC")
+    List<Long> findStaleIds(@Param("open") SettlementBatch.BatchStatus open, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE SettlementBatch b SET b.leaseExpiresAt = :newLease, b.updatedAt = :now " +
+           "WHERE b.id = :id AND b.status = :open AND b.leaseExpiresAt = :oldLease")
+    int renewLease(@Param("id") Long id, @Param("open") SettlementBatch.BatchStatus open,
+                   @Param("oldLease") LocalDateTime oldLease, @Param("newLease") LocalDateTime newLease,
+                   @Param("now") LocalDateTime now);
+
+    /**
+     * Garde le lot ouvert avec son identifiant Hedera : il sera repris par la récupération à l'échéance du nouveau bail
+     */
+    @Modifying
+    @Query("UPDATE SettlementBatch b SET b.leaseExpiresAt = :newLease, b.lastError = :error, b.updatedAt = :now " +
+           "WHERE b.id = :id AND b.status = :open AND b.leaseExpiresAt = :lease")
+    int deferRetry(@Param("id") Long id, @Param("open") SettlementBatch.BatchStatus open,
+                   @Param("lease") LocalDateTime lease, @Param("newLease") LocalDateTime newLease,
+                   @Param("error") String error, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SettlementBatch b SET b.hederaTransactionId = :txId, b.attempts = b.attempts + 1, b.updatedAt = :now " +
+           "WHERE b.id = :id AND b.status = :open AND b.leaseExpiresAt = :lease")
+    int assignHederaTransactionId(@Param("id") Long id, @Param("txId") String txId,
+                                  @Param("open") SettlementBatch.BatchStatus open,
+                                  @Param("lease") LocalDateTime lease, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE SettlementBatch b SET b.status = :status, b.lastError = :error, b.leaseExpiresAt = NULL, b.updatedAt = :now " +
+           "WHERE b.id = :id AND b.status = :open AND b.leaseExpiresAt = :lease")
+    int finish(@Param("id") Long id, @Param("open") SettlementBatch.BatchStatus open,
+               @Param("lease") LocalDateTime lease, @Param("status") SettlementBatch.BatchStatus status,
+               @Param("error") String error, @Param("now") LocalDateTime now);
+}
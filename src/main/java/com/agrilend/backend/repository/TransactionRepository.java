@@ -1,8 +1,11 @@
 package com.agrilend.backend.repository;
 
+import com.agrilend.backend.entity.SettlementBatch;
 import com.agrilend.backend.entity.Transaction;
 import com.agrilend.backend.entity.enums.TransactionType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -15,9 +18,9 @@ import java.util.Optional;
 public interface TransactionRepository extends JpaRepository<Transaction, Long> {
 
     /**
-     * Trouve une transaction par son ID Hedera
+     * Trouve les transactions d'un ID Hedera (plusieurs lignes pour un transfert multi-destinataires)
      */
-    Optional<Transaction> findByHederaTransactionId(String hederaTransactionId);
+    List<Transaction> findByHederaTransactionId(String hederaTransactionId);
 
     /**
      * Trouve une transaction par son schedule ID
@@ -72,4 +75,104 @@ public interface TransactionRepository extends JpaRepository<Transaction, Long>
     @Query("SELECT COUNT(t) FROM Transaction t WHERE t.type = :type AND t.status = :status")
     Long countByTypeAndStatus(@Param("type") TransactionType type, 
                              @Param("status") Transaction.TransactionStatus status);
-}
\ No newline at end of file
+
+    @Query("SELECT t.status, COUNT(t) FROM Transaction t GROUP BY t.status")
+    List<Object[]> countGroupByStatus();
+
+    Optional<Transaction> findByIdempotencyKey(String idempotencyKey);
+
+    /**
+     * Opérations de l'outbox dont la prochaine tentative est échue
+     */
+    @Query("SELECT t.id FROM Transaction t WHERE t.status = :status AND t.nextAttemptAt <= :now ORDER BY t.nextAttemptAt ASC")
+    List<Long> findDueIds(@Param("status") Transaction.TransactionStatus status, @Param("now") LocalDateTime now, Pageable pageable);
+
+    @Query("SELECT t.id FROM Transaction t WHERE t.status = :status AND t.nextAttemptAt <= :now AND t.type <> :excluded " +
+           "ORDER BY t.nextAttemptAt ASC")
+    List<Long> findDueIdsExcludingType(@Param("status") Transaction.TransactionStatus status, @Param("now") LocalDateTime now,
+                                       @Param("excluded") TransactionType excluded, Pageable pageable);
+
+    @Query("SELECT t.id FROM Transaction t WHERE t.status = :status AND t.nextAttemptAt <= :now AND t.type = :type " +
+           "ORDER BY t.nextAttemptAt ASC")
+    List<Long> findDueIdsByType(@Param("status") Transaction.TransactionStatus status, @Param("now") LocalDateTime now,
+                                @Param("type") TransactionType type, Pageable pageable);
+
+    /**
+     * Nombre d'opérations échues d'un type et échéance de la plus ancienne
+     */
+    @Query("SELECT COUNT(t), MIN(t.nextAttemptAt) FROM Transaction t WHERE t.status = :status AND t.nextAttemptAt <= :now " +
+           "AND t.type = :type")
+    List<Object[]> countAndOldestDueByType(@Param("status") Transaction.TransactionStatus status, @Param("now") LocalDateTime now,
+                                     @Param("type") TransactionType type);
+
+    /**
+     * Prend le bail d'une opération PENDING (retourne 0 si un autre worker l'a déjà prise)
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :processing, t.attempts = t.attempts + 1, t.leaseExpiresAt = :leaseUntil, " +
+           "t.updatedAt = :now WHERE t.id = :id AND t.status = :pending")
+    int claim(@Param("id") Long id, @Param("pending") Transaction.TransactionStatus pending,
+              @Param("processing") Transaction.TransactionStatus processing,
+              @Param("leaseUntil") LocalDateTime leaseUntil, @Param("now") LocalDateTime now);
+
+    /**
+     * Clôt une tentative : SUCCESS, FAILED, CANCELLED, ou PENDING avec une nouvelle échéance.
+     * L'échéance du bail sert de jeton : un worker dont le bail a été repris n'écrit plus rien.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :status, t.leaseExpiresAt = NULL, t.lastError = :error, " +
+           "t.nextAttemptAt = :nextAttemptAt, t.updatedAt = :now " +
+           "WHERE t.id = :id AND t.status = :processing AND t.leaseExpiresAt = :lease")
+    int finishAttempt(@Param("id") Long id, @Param("processing") Transaction.TransactionStatus processing,
+                      @Param("lease") LocalDateTime lease, @Param("status") Transaction.TransactionStatus status,
+                      @Param("error") String error, @Param("nextAttemptAt") LocalDateTime nextAttemptAt,
+                      @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.hederaTransactionId = :txId, t.updatedAt = :now " +
+           "WHERE t.id = :id AND t.status = :processing AND t.leaseExpiresAt = :lease")
+    int assignHederaTransactionId(@Param("id") Long id, @Param("txId") String txId,
+                                  @Param("processing") Transaction.TransactionStatus processing,
+                                  @Param("lease") LocalDateTime lease, @Param("now") LocalDateTime now);
+
+    @Query("SELECT t FROM Transaction t LEFT JOIN FETCH t.order o LEFT JOIN FETCH o.buyer b LEFT JOIN FETCH b.user " +
+           "WHERE t.id = :id")
+    Optional<Transaction> findByIdWithOrder(@Param("id") Long id);
+
+    /**
+     * Remet en file les opérations dont le worker a disparu (bail expiré).
+     * Les membres d'un lot de règlement sont repris avec leur lot.
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.status = :pending, t.leaseExpiresAt = NULL, t.nextAttemptAt = :now, t.updatedAt = :now " +
+           "WHERE t.status = :processing AND t.leaseExpiresAt < :now AND t.settlementBatch IS NULL")
+    int recoverExpiredLeases(@Param("processing") Transaction.TransactionStatus processing,
+                             @Param("pending") Transaction.TransactionStatus pending, @Param("now") LocalDateTime now);
+
+    // --- Lots de règlement ---
+
+    @Query("SELECT t FROM Transaction t WHERE t.settlementBatch.id = :batchId ORDER BY t.id ASC")
+    List<Transaction> findBySettlementBatchId(@Param("batchId") Long batchId);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.settlementBatch = :batch, t.updatedAt = :now " +
+           "WHERE t.id IN :ids AND t.status = :processing AND t.leaseExpiresAt = :lease AND t.settlementBatch IS NULL")
+    int attachToBatch(@Param("ids") List<Long> ids, @Param("batch") SettlementBatch batch,
+                      @Param("processing") Transaction.TransactionStatus processing,
+                      @Param("lease") LocalDateTime lease, @Param("now") LocalDateTime now);
+
+    @Modifying
+    @Query("UPDATE Transaction t SET t.leaseExpiresAt = :lease, t.updatedAt = :now " +
+           "WHERE t.settlementBatch.id = :batchId AND t.status = :processing")
+    int renewBatchLease(@Param("batchId") Long batchId, @Param("processing") Transaction.TransactionStatus processing,
+                        @Param("lease") LocalDateTime lease, @Param("now") LocalDateTime now);
+
+    /**
+     * Détache d'un lot abandonné les membres non réglés pour qu'ils puissent rejoindre un autre lot
+     */
+    @Modifying
+    @Query("UPDATE Transaction t SET t.settlementBatch = NULL, t.updatedAt = :now " +
+           "WHERE t.settlementBatch.id = :batchId AND t.status <> :success")
+    int detachFromBatch(@Param("batchId") Long batchId, @Param("success") Transaction.TransactionStatus success,
+                        @Param("now") LocalDateTime now);
+}
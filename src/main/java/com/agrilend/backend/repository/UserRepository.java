@@ -5,8 +5,11 @@ import com.agrilend.backend.entity.enums.UserRole;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
 
@@ -19,12 +22,33 @@ public interface UserRepository extends JpaRepository<User, Long> {
 
     List<User> findAllByRole(UserRole role);
 
+    @Query("SELECT u.email FROM User u WHERE u.id = :id")
+    Optional<String> findEmailById(@Param("id") Long id);
+
+    /**
+     * Identifiant et email des utilisateurs d'un rôle, sans charger les entités
+     */
+    @Query("SELECT u.id, u.email FROM User u WHERE u.role = :role")
+    List<Object[]> findIdAndEmailByRole(@Param("role") UserRole role);
+
     Page<User> findByRole(UserRole role, Pageable pageable);
 
+    /**
+     * Pagination par clé (createdAt, id) décroissante : première page, puis pages suivantes après un curseur
+     */
+    @Query("SELECT u FROM User u ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findAllKeyset(Pageable pageable);
+
+    @Query("SELECT u FROM User u WHERE u.createdAt < :createdAt OR (u.createdAt = :createdAt AND u.id < :id) " +
+           "ORDER BY u.createdAt DESC, u.id DESC")
+    List<User> findAllKeysetAfter(@Param("createdAt") LocalDateTime createdAt, @Param("id") Long id, Pageable pageable);
+
     long countByIsActiveTrue();
 
     long countByIsActiveFalse();
 
     long countByEmailVerifiedFalse();
 
-}
\ No newline at end of file
+    @Query("SELECT u.role, u.isActive, u.emailVerified, COUNT(u) FROM User u GROUP BY u.role, u.isActive, u.emailVerified")
+    List<Object[]> countGroupByRoleAndFlags();
+}
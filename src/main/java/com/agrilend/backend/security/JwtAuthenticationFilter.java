@@ -1,10 +1,12 @@
 package com.agrilend.backend.security;
 
+import io.jsonwebtoken.Claims;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -19,23 +21,43 @@ import java.io.IOException;
 @Component
 public class JwtAuthenticationFilter extends OncePerRequestFilter {
 
+    private static final String STREAM_PATH = "/api/notifications/stream";
+
     @Autowired
     private JwtTokenProvider tokenProvider;
 
     @Autowired
     private UserDetailsService userDetailsService;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private StreamTicketService streamTicketService;
+
+    /**
+     * database : principal relu par email à chaque requête ; cached : principal mis en cache par userId
+     */
+    @Value("${app.security.principal-resolution:cached}")
+    private String principalResolution;
+
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, 
                                   FilterChain filterChain) throws ServletException, IOException {
         try {
             String jwt = getJwtFromRequest(request);
 
-            if (StringUtils.hasText(jwt) && tokenProvider.validateToken(jwt)) {
-                String username = tokenProvider.getUsernameFromToken(jwt);
+            Claims claims = StringUtils.hasText(jwt) ? tokenProvider.parseClaims(jwt) : null;
 
-                UserDetails userDetails = userDetailsService.loadUserByUsername(username);
-                UsernamePasswordAuthenticationToken authentication = 
+            UserDetails userDetails = null;
+            if (claims != null) {
+                userDetails = resolvePrincipal(claims);
+            } else if (STREAM_PATH.equals(request.getRequestURI())) {
+                userDetails = resolveStreamTicket(request);
+            }
+
+            if (userDetails != null && userDetails.isEnabled()) {
+                UsernamePasswordAuthenticationToken authentication =
                     new UsernamePasswordAuthenticationToken(userDetails, null, userDetails.getAuthorities());
                 authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
 
@@ -48,6 +70,22 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         filterChain.doFilter(request, response);
     }
 
+    private UserDetails resolvePrincipal(Claims claims) {
+        if ("database".equalsIgnoreCase(principalResolution)) {
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
+        return principalCache.get(tokenProvider.getUserId(claims));
+    }
+
+    /**
+     * EventSource ne permet pas d'en-têtes : le flux SSE s'ouvre avec un ticket à usage unique
+     */
+    private UserDetails resolveStreamTicket(HttpServletRequest request) {
+        String ticket = request.getParameter("ticket");
+        Long userId = StringUtils.hasText(ticket) ? streamTicketService.redeem(ticket) : null;
+        return userId != null ? principalCache.get(userId) : null;
+    }
+
     private String getJwtFromRequest(HttpServletRequest request) {
         String bearerToken = request.getHeader("Authorization");
         if (StringUtils.hasText(bearerToken) && bearerToken.startsWith("Bearer ")) {
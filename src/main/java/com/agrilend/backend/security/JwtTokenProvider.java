@@ -1,25 +1,48 @@
 package com.agrilend.backend.security;
 
 import com.agrilend.backend.config.JwtConfig;
+import com.agrilend.backend.util.BoundedTtlCache;
 import io.jsonwebtoken.*;
 import io.jsonwebtoken.security.Keys;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.stereotype.Component;
 
 import javax.crypto.SecretKey;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Date;
+import java.util.HexFormat;
 import java.util.stream.Collectors;
 
 @Component
 public class JwtTokenProvider {
 
+    private static final Logger logger = LoggerFactory.getLogger(JwtTokenProvider.class);
+
     @Autowired
     private JwtConfig jwtConfig;
 
-    private SecretKey getSigningKey() {
-        return Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes());
+    // Clé dérivée une seule fois ; le parseur JJWT est immuable et partagé entre threads
+    private SecretKey signingKey;
+    private JwtParser parser;
+
+    // Empreintes SHA-256 des tokens déjà vérifiés, pour éviter de recalculer le HMAC des tokens fréquents
+    private BoundedTtlCache<String, Claims> verifiedTokens;
+
+    @PostConstruct
+    public void init() {
+        this.signingKey = Keys.hmacShaKeyFor(jwtConfig.getSecret().getBytes());
+        this.parser = Jwts.parserBuilder()
+                .setSigningKey(signingKey)
+                .build();
+        this.verifiedTokens = new BoundedTtlCache<>(jwtConfig.getVerifiedTokenCacheSize(),
+                jwtConfig.getVerifiedTokenCacheTtlMs());
     }
 
     public String generateToken(Authentication authentication) {
@@ -37,7 +60,7 @@ public class JwtTokenProvider {
                 .claim("role", userPrincipal.getRole())
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
@@ -51,59 +74,74 @@ public class JwtTokenProvider {
                 .claim("type", "refresh")
                 .setIssuedAt(new Date())
                 .setExpiration(expiryDate)
-                .signWith(getSigningKey(), SignatureAlgorithm.HS512)
+                .signWith(signingKey, SignatureAlgorithm.HS512)
                 .compact();
     }
 
-    public String getUsernameFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-
-        return claims.getSubject();
-    }
-
-    public Long getUserIdFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+    /**
+     * Vérifie le token et retourne ses claims en une seule passe, ou null s'il est invalide
+     */
+    public Claims parseClaims(String authToken) {
+        if (authToken == null || authToken.isEmpty()) {
+            logger.debug("JWT claims string est vide");
+            return null;
+        }
 
-        return Long.valueOf(claims.get("userId").toString());
-    }
+        String digest = digest(authToken);
+        Claims cached = verifiedTokens.get(digest);
+        if (cached != null) {
+            if (cached.getExpiration() == null || cached.getExpiration().after(new Date())) {
+                return cached;
+            }
+            verifiedTokens.invalidate(digest);
+            logger.debug("Token JWT expiré");
+            return null;
+        }
 
-    public boolean validateToken(String authToken) {
         try {
-            Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(authToken);
-            return true;
+            Claims claims = parser.parseClaimsJws(authToken).getBody();
+            verifiedTokens.put(digest, claims);
+            return claims;
         } catch (SecurityException ex) {
-            System.err.println("Signature JWT invalide");
+            logger.debug("Signature JWT invalide");
         } catch (MalformedJwtException ex) {
-            System.err.println("Token JWT invalide");
+            logger.debug("Token JWT invalide");
         } catch (ExpiredJwtException ex) {
-            System.err.println("Token JWT expiré");
+            logger.debug("Token JWT expiré");
         } catch (UnsupportedJwtException ex) {
-            System.err.println("Token JWT non supporté");
+            logger.debug("Token JWT non supporté");
         } catch (IllegalArgumentException ex) {
-            System.err.println("JWT claims string est vide");
+            logger.debug("JWT claims string est vide");
         }
-        return false;
+        return null;
+    }
+
+    public Long getUserId(Claims claims) {
+        return Long.valueOf(claims.get("userId").toString());
+    }
+
+    public String getUsernameFromToken(String token) {
+        return parser.parseClaimsJws(token).getBody().getSubject();
+    }
+
+    public Long getUserIdFromToken(String token) {
+        return getUserId(parser.parseClaimsJws(token).getBody());
+    }
+
+    public boolean validateToken(String authToken) {
+        return parseClaims(authToken) != null;
     }
 
     public Date getExpirationDateFromToken(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
+        return parser.parseClaimsJws(token).getBody().getExpiration();
+    }
 
-        return claims.getExpiration();
+    private String digest(String token) {
+        try {
+            MessageDigest sha256 = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(sha256.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
     }
 }
-
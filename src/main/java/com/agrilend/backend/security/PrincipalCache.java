@@ -0,0 +1,86 @@
+package com.agrilend.backend.security;
+
+import com.agrilend.backend.entity.User;
+import com.agrilend.backend.repository.UserRepository;
+import com.agrilend.backend.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Principaux authentifiés indexés par la claim userId du JWT.
+ * Un principal absent ou expiré est rechargé par clé primaire ; les modifications de compte l'évincent,
+ * et un rechargement en cours pendant une éviction n'est pas mis en cache.
+ */
+@Component
+public class PrincipalCache {
+
+    @Autowired
+    private UserRepository userRepository;
+
+    private final BoundedTtlCache<Long, UserPrincipal> cache;
+    // Incrémenté à chaque éviction : un principal relu avant (rôle changé, compte désactivé) n'est pas mis en cache.
+    // Le verrou rend la vérification de la génération et l'insertion indivisibles face à une éviction.
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantReadWriteLock evictionLock = new ReentrantReadWriteLock();
+
+    public PrincipalCache(@Value("${app.security.principal-cache.max-size:10000}") int maxSize,
+                          @Value("${app.security.principal-cache.ttl-seconds:60}") long ttlSeconds) {
+        this.cache = new BoundedTtlCache<>(maxSize, ttlSeconds * 1000);
+    }
+
+    /**
+     * Principal de l'utilisateur, ou null s'il n'existe plus
+     */
+    public UserPrincipal get(Long userId) {
+        UserPrincipal principal = cache.get(userId);
+        if (principal == null) {
+            long loadGeneration = generation.get();
+            User user = userRepository.findById(userId).orElse(null);
+            if (user == null) {
+                return null;
+            }
+            principal = UserPrincipal.create(user).withoutPassword();
+            evictionLock.readLock().lock();
+            try {
+                if (generation.get() == loadGeneration) {
+                    cache.put(userId, principal);
+                }
+            } finally {
+                evictionLock.readLock().unlock();
+            }
+        }
+        return principal;
+    }
+
+    /**
+     * Évince immédiatement, puis de nouveau après la validation de la transaction courante
+     * pour ne pas conserver un état relu avant le commit
+     */
+    public void evict(Long userId) {
+        invalidate(userId);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(userId);
+                }
+            });
+        }
+    }
+
+    private void invalidate(Long userId) {
+        evictionLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            cache.invalidate(userId);
+        } finally {
+            evictionLock.writeLock().unlock();
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.agrilend.backend.security;
+
+import com.agrilend.backend.util.BoundedTtlCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.security.SecureRandom;
+import java.util.Base64;
+
+/**
+ * Tickets d'ouverture du flux SSE des notifications. EventSource ne permet pas d'en-têtes : plutôt que
+ * le JWT dans l'URL (journaux d'accès, historique), le client obtient un ticket aléatoire à usage unique
+ * et de courte durée, consommé à l'ouverture du flux. Les tickets sont gardés par l'instance qui les émet.
+ */
+@Component
+public class StreamTicketService {
+
+    private final SecureRandom random = new SecureRandom();
+    private final BoundedTtlCache<String, Long> tickets;
+
+    public StreamTicketService(@Value("${app.notifications.stream.ticket-max-size:10000}") int maxSize,
+                               @Value("${app.notifications.stream.ticket-ttl-ms:30000}") long ttlMs) {
+        this.tickets = new BoundedTtlCache<>(maxSize, ttlMs);
+    }
+
+    public String issue(Long userId) {
+        byte[] raw = new byte[32];
+        random.nextBytes(raw);
+        String ticket = Base64.getUrlEncoder().withoutPadding().encodeToString(raw);
+        tickets.put(ticket, userId);
+        return ticket;
+    }
+
+    /**
+     * Identifiant de l'utilisateur du ticket, ou null s'il est inconnu, expiré ou déjà utilisé
+     */
+    public Long redeem(String ticket) {
+        return tickets.remove(ticket);
+    }
+}
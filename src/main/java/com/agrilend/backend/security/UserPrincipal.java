@@ -43,6 +43,13 @@ public class UserPrincipal implements UserDetails {
         );
     }
 
+    /**
+     * Copie sans le mot de passe haché, pour les principaux conservés en cache
+     */
+    public UserPrincipal withoutPassword() {
+        return new UserPrincipal(id, email, null, role, enabled, authorities);
+    }
+
     public Long getId() {
         return id;
     }
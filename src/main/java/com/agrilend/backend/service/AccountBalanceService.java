@@ -0,0 +1,115 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.event.HbarTransferredEvent;
+import com.agrilend.backend.util.BoundedTtlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Soldes HBAR des comptes, avec un cache court par compte.
+ * Les lectures simultanées d'un même compte partagent une seule requête, et les transferts
+ * soumis par l'application mettent à jour le cache sans attendre une nouvelle lecture du réseau.
+ */
+@Service
+public class AccountBalanceService {
+
+    @Autowired
+    private HederaService hederaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.hedera.balance-cache.max-size:10000}")
+    private int maxSize;
+
+    @Value("${app.hedera.balance-cache.ttl-ms:5000}")
+    private long ttlMs;
+
+    private BoundedTtlCache<String, Long> cache;
+    private final ConcurrentHashMap<String, CompletableFuture<Long>> inFlight = new ConcurrentHashMap<>();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        cache = new BoundedTtlCache<>(maxSize, ttlMs);
+        hits = Counter.builder("agrilend.hedera.balance_cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("agrilend.hedera.balance_cache.requests").tag("result", "miss").register(meterRegistry);
+    }
+
+    /**
+     * Solde du compte en HBAR
+     */
+    public BigDecimal getBalance(String accountId) {
+        return HederaService.fromTinybars(getBalanceTinybars(accountId));
+    }
+
+    public long getBalanceTinybars(String accountId) {
+        Long cached = cache.get(accountId);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+
+        CompletableFuture<Long> query = new CompletableFuture<>();
+        CompletableFuture<Long> pending = inFlight.putIfAbsent(accountId, query);
+        if (pending != null) {
+            return await(pending);
+        }
+
+        try {
+            long tinybars = hederaService.getAccountBalanceTinybars(accountId);
+            // Un transfert arrivé pendant la lecture retire la requête : sa valeur n'est alors pas mise en cache
+            if (inFlight.remove(accountId, query)) {
+                cache.put(accountId, tinybars);
+            }
+            query.complete(tinybars);
+            return tinybars;
+        } catch (RuntimeException e) {
+            inFlight.remove(accountId, query);
+            query.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public void invalidate(String accountId) {
+        inFlight.remove(accountId);
+        cache.invalidate(accountId);
+    }
+
+    /**
+     * Applique aux soldes en cache un transfert soumis par l'application
+     */
+    @EventListener
+    public void onHbarTransferred(HbarTransferredEvent event) {
+        event.getTinybarTransfers().forEach((accountId, tinybars) -> {
+            if (accountId != null) {
+                inFlight.remove(accountId);
+                cache.update(accountId, balance -> balance + tinybars);
+            }
+        });
+    }
+
+    private static long await(CompletableFuture<Long> pending) {
+        try {
+            return pending.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+}
@@ -9,16 +9,20 @@ import com.agrilend.backend.entity.enums.TransactionType;
 import com.agrilend.backend.entity.enums.UserRole;
 import com.agrilend.backend.repository.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
 @Service
 @Transactional(readOnly = true)
@@ -27,10 +31,6 @@ public class AdminDashboardService {
     @Autowired
     private UserRepository userRepository;
     @Autowired
-    private FarmerRepository farmerRepository;
-    @Autowired
-    private BuyerRepository buyerRepository;
-    @Autowired
     private OfferRepository offerRepository;
     @Autowired
     private OrderRepository orderRepository;
@@ -40,76 +40,138 @@ public class AdminDashboardService {
     private DeliveryRepository deliveryRepository;
     @Autowired
     private ProductRepository productRepository;
+    @Autowired
+    private RevenueDailyRollupRepository revenueRollupRepository;
+
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM");
+
+    @Value("${app.dashboard.stats-ttl-seconds:60}")
+    private long statsTtlSeconds;
 
+    private final AtomicReference<DashboardStatsDto> statsSnapshot = new AtomicReference<>();
+
+    /**
+     * Instantané des statistiques, rafraîchi en tâche de fond ; recalculé ici seulement s'il est absent ou périmé
+     */
     public DashboardStatsDto getDashboardStats() {
+        DashboardStatsDto snapshot = statsSnapshot.get();
+        if (snapshot == null || snapshot.getSnapshotAgeSeconds() >= statsTtlSeconds) {
+            snapshot = computeDashboardStats();
+            statsSnapshot.set(snapshot);
+        }
+        return snapshot;
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.stats-refresh-interval-ms:30000}")
+    public void refreshDashboardStats() {
+        statsSnapshot.set(computeDashboardStats());
+    }
+
+    private DashboardStatsDto computeDashboardStats() {
         DashboardStatsDto stats = new DashboardStatsDto();
 
-        // User Stats
-        stats.setTotalUsers(userRepository.count());
-        stats.setTotalActiveUsers(userRepository.countByIsActiveTrue());
-        stats.setTotalInactiveUsers(userRepository.countByIsActiveFalse());
-        stats.setTotalPendingUsers(userRepository.countByEmailVerifiedFalse());
-        stats.setTotalActiveFarmers(farmerRepository.countByUser_IsActiveTrue());
-        stats.setTotalActiveBuyers(buyerRepository.countByUser_IsActiveTrue());
+        // User Stats (une requête groupée par rôle, activation et vérification)
+        long totalUsers = 0, activeUsers = 0, inactiveUsers = 0, pendingUsers = 0, activeFarmers = 0, activeBuyers = 0;
+        for (Object[] row : userRepository.countGroupByRoleAndFlags()) {
+            UserRole role = (UserRole) row[0];
+            Boolean isActive = (Boolean) row[1];
+            Boolean emailVerified = (Boolean) row[2];
+            long count = ((Number) row[3]).longValue();
+            totalUsers += count;
+            if (Boolean.TRUE.equals(isActive)) {
+                activeUsers += count;
+                if (role == UserRole.FARMER) {
+                    activeFarmers += count;
+                } else if (role == UserRole.BUYER) {
+                    activeBuyers += count;
+                }
+            } else if (Boolean.FALSE.equals(isActive)) {
+                inactiveUsers += count;
+            }
+            if (Boolean.FALSE.equals(emailVerified)) {
+                pendingUsers += count;
+            }
+        }
+        stats.setTotalUsers(totalUsers);
+        stats.setTotalActiveUsers(activeUsers);
+        stats.setTotalInactiveUsers(inactiveUsers);
+        stats.setTotalPendingUsers(pendingUsers);
+        stats.setTotalActiveFarmers(activeFarmers);
+        stats.setTotalActiveBuyers(activeBuyers);
 
         // Offer Stats
-        stats.setTotalOffers(offerRepository.count());
-        stats.setTotalPendingOffers(offerRepository.countByStatus(OfferStatus.PENDING_VALIDATION));
-        stats.setTotalApprovedOffers(offerRepository.countByStatus(OfferStatus.ACTIVE));
-        stats.setTotalRejectedOffers(offerRepository.countByStatus(OfferStatus.REJECTED));
+        Map<Object, Long> offers = countsByStatus(offerRepository.countGroupByStatus());
+        stats.setTotalOffers(total(offers));
+        stats.setTotalPendingOffers(offers.getOrDefault(OfferStatus.PENDING_VALIDATION, 0L));
+        stats.setTotalApprovedOffers(offers.getOrDefault(OfferStatus.ACTIVE, 0L));
+        stats.setTotalRejectedOffers(offers.getOrDefault(OfferStatus.REJECTED, 0L));
 
         // Order Stats
-        stats.setTotalOrders(orderRepository.count());
-        stats.setTotalPendingOrders(orderRepository.countByStatus(OrderStatus.PENDING));
-        stats.setTotalDeliveredOrders(orderRepository.countByStatus(OrderStatus.DELIVERED));
+        Map<Object, Long> orders = countsByStatus(orderRepository.countGroupByStatus());
+        stats.setTotalOrders(total(orders));
+        stats.setTotalPendingOrders(orders.getOrDefault(OrderStatus.PENDING, 0L));
+        stats.setTotalDeliveredOrders(orders.getOrDefault(OrderStatus.DELIVERED, 0L));
 
         // Transaction Stats
-        stats.setTotalTransactions(transactionRepository.count());
-        stats.setTotalPendingTransactions(transactionRepository.countByStatus(Transaction.TransactionStatus.PENDING));
-        stats.setTotalCompletedTransactions(transactionRepository.countByStatus(Transaction.TransactionStatus.SUCCESS));
-       // stats.setTotalEscrowedTransactions(transactionRepository.countByStatus(Transaction.TransactionStatus.IN_ESCROW));
+        Map<Object, Long> transactions = countsByStatus(transactionRepository.countGroupByStatus());
+        stats.setTotalTransactions(total(transactions));
+        stats.setTotalPendingTransactions(transactions.getOrDefault(Transaction.TransactionStatus.PENDING, 0L));
+        stats.setTotalCompletedTransactions(transactions.getOrDefault(Transaction.TransactionStatus.SUCCESS, 0L));
 
         // Delivery Stats
-        stats.setTotalDeliveries(deliveryRepository.count());
-        stats.setTotalScheduledDeliveries(deliveryRepository.countByDeliveryStatus(DeliveryStatus.SCHEDULED));
-        stats.setTotalDeliveredDeliveries(deliveryRepository.countByDeliveryStatus(DeliveryStatus.DELIVERED));
+        Map<Object, Long> deliveries = countsByStatus(deliveryRepository.countGroupByDeliveryStatus());
+        stats.setTotalDeliveries(total(deliveries));
+        stats.setTotalScheduledDeliveries(deliveries.getOrDefault(DeliveryStatus.SCHEDULED, 0L));
+        stats.setTotalDeliveredDeliveries(deliveries.getOrDefault(DeliveryStatus.DELIVERED, 0L));
 
-        // Revenue Stats (Last 30 days example)
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        stats.setTotalRevenueLast30Days(orderRepository.sumTotalAmountByCreatedAtAfter(thirtyDaysAgo));
+        // Revenue Stats (Last 30 days, aujourd'hui compris, depuis l'agrégat quotidien)
+        LocalDate today = LocalDate.now();
+        stats.setTotalRevenueLast30Days(sumRevenue(today.minusDays(29), today));
 
+        stats.setGeneratedAt(LocalDateTime.now());
         return stats;
     }
 
+    private Map<Object, Long> countsByStatus(List<Object[]> rows) {
+        Map<Object, Long> counts = new HashMap<>();
+        for (Object[] row : rows) {
+            counts.put(row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+
+    private long total(Map<Object, Long> counts) {
+        long total = 0;
+        for (long count : counts.values()) {
+            total += count;
+        }
+        return total;
+    }
+
     public Map<LocalDate, BigDecimal> getDailyRevenue(LocalDate date) {
-        LocalDateTime startOfDay = date.atStartOfDay();
-        LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-        BigDecimal revenue = orderRepository.sumTotalAmountByCreatedAtBetween(startOfDay, endOfDay);
         Map<LocalDate, BigDecimal> result = new HashMap<>();
-        result.put(date, revenue != null ? revenue : BigDecimal.ZERO);
+        result.put(date, sumRevenue(date, date));
         return result;
     }
 
     public Map<String, BigDecimal> getMonthlyRevenue(int year, int month) {
-        LocalDateTime startOfMonth = LocalDateTime.of(year, month, 1, 0, 0);
-        LocalDateTime endOfMonth = startOfMonth.plusMonths(1).minusNanos(1);
-        BigDecimal revenue = orderRepository.sumTotalAmountByCreatedAtBetween(startOfMonth, endOfMonth);
+        LocalDate startOfMonth = LocalDate.of(year, month, 1);
+        LocalDate endOfMonth = startOfMonth.plusMonths(1).minusDays(1);
         Map<String, BigDecimal> result = new HashMap<>();
-        result.put(String.format("%d-%02d", year, month), revenue != null ? revenue : BigDecimal.ZERO);
+        result.put(String.format("%d-%02d", year, month), sumRevenue(startOfMonth, endOfMonth));
         return result;
     }
 
     public Map<String, BigDecimal> getYearlyRevenue(int year) {
-        LocalDateTime startOfYear = LocalDateTime.of(year, 1, 1, 0, 0);
-        LocalDateTime endOfYear = startOfYear.plusYears(1).minusNanos(1);
-        BigDecimal revenue = orderRepository.sumTotalAmountByCreatedAtBetween(startOfYear, endOfYear);
+        LocalDate startOfYear = LocalDate.of(year, 1, 1);
+        LocalDate endOfYear = startOfYear.plusYears(1).minusDays(1);
         Map<String, BigDecimal> result = new HashMap<>();
-        result.put(String.valueOf(year), revenue != null ? revenue : BigDecimal.ZERO);
+        result.put(String.valueOf(year), sumRevenue(startOfYear, endOfYear));
         return result;
     }
 
     public Map<String, BigDecimal> getRevenueByCategory() {
-        List<Object[]> results = orderRepository.sumTotalAmountByCategory();
+        List<Object[]> results = revenueRollupRepository.sumTotalAmountByCategory();
         Map<String, BigDecimal> revenueByCategory = new HashMap<>();
         for (Object[] result : results) {
             String category = (String) result[0];
@@ -120,54 +182,57 @@ public class AdminDashboardService {
     }
 
     public Map<LocalDate, BigDecimal> getRevenueLast7Days() {
-        Map<LocalDate, BigDecimal> result = new HashMap<>();
-        LocalDate today = LocalDate.now();
-        for (int i = 6; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-            BigDecimal revenue = orderRepository.sumTotalAmountByCreatedAtBetween(startOfDay, endOfDay);
-            result.put(date, revenue != null ? revenue : BigDecimal.ZERO);
-        }
-        return result;
+        return getDailyRevenueSeries(7);
     }
 
     public Map<LocalDate, BigDecimal> getRevenueLast30Days() {
-        Map<LocalDate, BigDecimal> result = new HashMap<>();
-        LocalDate today = LocalDate.now();
-        for (int i = 29; i >= 0; i--) {
-            LocalDate date = today.minusDays(i);
-            LocalDateTime startOfDay = date.atStartOfDay();
-            LocalDateTime endOfDay = date.atTime(LocalTime.MAX);
-            BigDecimal revenue = orderRepository.sumTotalAmountByCreatedAtBetween(startOfDay, endOfDay);
-            result.put(date, revenue != null ? revenue : BigDecimal.ZERO);
-        }
-        return result;
+        return getDailyRevenueSeries(30);
     }
 
     public Map<String, BigDecimal> getRevenueLast3Months() {
-        Map<String, BigDecimal> result = new HashMap<>();
+        return getMonthlyRevenueSeries(3);
+    }
+
+    public Map<String, BigDecimal> getRevenueLastYear() {
+        return getMonthlyRevenueSeries(12);
+    }
+
+    /**
+     * Série quotidienne sur les {@code days} derniers jours, en une requête sur l'agrégat
+     */
+    private Map<LocalDate, BigDecimal> getDailyRevenueSeries(int days) {
         LocalDate today = LocalDate.now();
-        for (int i = 2; i >= 0; i--) {
-            LocalDate monthStart = today.minusMonths(i).withDayOfMonth(1);
-            LocalDateTime startOfMonth = monthStart.atStartOfDay();
-            LocalDateTime endOfMonth = monthStart.plusMonths(1).atStartOfDay().minusNanos(1);
-            BigDecimal revenue = orderRepository.sumTotalAmountByCreatedAtBetween(startOfMonth, endOfMonth);
-            result.put(monthStart.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM")), revenue != null ? revenue : BigDecimal.ZERO);
+        LocalDate firstDay = today.minusDays(days - 1);
+        Map<LocalDate, BigDecimal> result = new LinkedHashMap<>();
+        for (LocalDate date = firstDay; !date.isAfter(today); date = date.plusDays(1)) {
+            result.put(date, BigDecimal.ZERO);
+        }
+        for (Object[] row : revenueRollupRepository.sumTotalAmountByDayBetween(firstDay, today)) {
+            result.put((LocalDate) row[0], (BigDecimal) row[1]);
         }
         return result;
     }
 
-    public Map<String, BigDecimal> getRevenueLastYear() {
-        Map<String, BigDecimal> result = new HashMap<>();
+    /**
+     * Série mensuelle sur les {@code months} derniers mois, regroupée à partir des lignes quotidiennes
+     */
+    private Map<String, BigDecimal> getMonthlyRevenueSeries(int months) {
         LocalDate today = LocalDate.now();
-        for (int i = 11; i >= 0; i--) {
-            LocalDate monthStart = today.minusMonths(i).withDayOfMonth(1);
-            LocalDateTime startOfMonth = monthStart.atStartOfDay();
-            LocalDateTime endOfMonth = monthStart.plusMonths(1).atStartOfDay().minusNanos(1);
-            BigDecimal revenue = orderRepository.sumTotalAmountByCreatedAtBetween(startOfMonth, endOfMonth);
-            result.put(monthStart.format(java.time.format.DateTimeFormatter.ofPattern("yyyy-MM")), revenue != null ? revenue : BigDecimal.ZERO);
+        LocalDate firstMonth = today.minusMonths(months - 1).withDayOfMonth(1);
+        Map<String, BigDecimal> result = new LinkedHashMap<>();
+        for (int i = 0; i < months; i++) {
+            result.put(firstMonth.plusMonths(i).format(MONTH_FORMAT), BigDecimal.ZERO);
+        }
+        LocalDate lastDay = today.withDayOfMonth(today.lengthOfMonth());
+        for (Object[] row : revenueRollupRepository.sumTotalAmountByDayBetween(firstMonth, lastDay)) {
+            String month = ((LocalDate) row[0]).format(MONTH_FORMAT);
+            result.merge(month, (BigDecimal) row[1], BigDecimal::add);
         }
         return result;
     }
+
+    private BigDecimal sumRevenue(LocalDate startDay, LocalDate endDay) {
+        BigDecimal revenue = revenueRollupRepository.sumTotalAmountBetween(startDay, endDay);
+        return revenue != null ? revenue : BigDecimal.ZERO;
+    }
 }
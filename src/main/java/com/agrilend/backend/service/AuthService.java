@@ -12,6 +12,7 @@ import com.agrilend.backend.repository.FarmerRepository;
 import com.agrilend.backend.repository.UserRepository;
 import com.agrilend.backend.security.JwtTokenProvider;
 import com.agrilend.backend.service.HederaService.HederaAccountInfo;
+import io.jsonwebtoken.Claims;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -52,7 +53,7 @@ public class AuthService {
     private NotificationService notificationService;
 
     @Autowired
-    private HederaService hederaService;
+    private HederaAccountPoolService hederaAccountPoolService;
 
     public JwtAuthenticationResponse authenticateUser(LoginRequest loginRequest) {
         Authentication authentication = authenticationManager.authenticate(
@@ -95,8 +96,8 @@ public class AuthService {
         user.setRole(signUpRequest.getRole());
         user.setIsActive(true);
 
-        // Create Hedera Account
-        HederaAccountInfo hederaAccount = hederaService.createAccount(user.getEmail());
+        // Hedera account: taken from the pre-provisioned pool, created inline if the pool is empty
+        HederaAccountInfo hederaAccount = hederaAccountPoolService.acquire(user.getEmail());
         user.setHederaAccountId(hederaAccount.getAccountId());
         user.setHederaPrivateKey(hederaAccount.getPrivateKey()); // IMPORTANT: Secure this key properly
 
@@ -127,11 +128,12 @@ public class AuthService {
     }
 
     public JwtAuthenticationResponse refreshToken(String refreshToken) {
-        if (!tokenProvider.validateToken(refreshToken)) {
+        Claims claims = tokenProvider.parseClaims(refreshToken);
+        if (claims == null) {
             throw new RuntimeException("Token de rafraîchissement invalide");
         }
 
-        String username = tokenProvider.getUsernameFromToken(refreshToken);
+        String username = claims.getSubject();
         User user = userRepository.findByEmail(username)
             .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé"));
 
@@ -0,0 +1,283 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.common.PageResponse;
+import com.agrilend.backend.dto.offer.OfferDto;
+import com.agrilend.backend.dto.offer.OfferSearchResultDto;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.event.FarmerProfileChangedEvent;
+import com.agrilend.backend.event.OfferChangedEvent;
+import com.agrilend.backend.event.ProductChangedEvent;
+import com.agrilend.backend.mapper.OfferMapper;
+import com.agrilend.backend.repository.OfferRepository;
+import com.agrilend.backend.repository.ProductRepository;
+import com.agrilend.backend.util.InvertedIndex;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Index de recherche en mémoire des offres actives et des produits, à la place des LIKE '%...%'
+ * qui ne peuvent pas utiliser les index de la base. Construit au démarrage, puis tenu à jour
+ * offre par offre à chaque changement validé.
+ */
+@Service
+public class CatalogueSearchService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CatalogueSearchService.class);
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private OfferMapper offerMapper;
+
+    @Autowired
+    private CatalogueVersions catalogueVersions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.search.rebuild-batch-size:1000}")
+    private int rebuildBatchSize;
+
+    /**
+     * Bornes des tranches de prix (prix acheteur), par ordre croissant
+     */
+    @Value("${app.search.price-buckets:500,1000,2500,5000,10000}")
+    private List<BigDecimal> priceBuckets;
+
+    private final InvertedIndex<IndexedOffer> offerIndex = new InvertedIndex<>();
+    private final InvertedIndex<Long> productIndex = new InvertedIndex<>();
+
+    private volatile boolean ready;
+    private Timer offerSearchTimer;
+
+    @PostConstruct
+    public void init() {
+        priceBuckets = priceBuckets.stream().sorted().collect(Collectors.toList());
+        Gauge.builder("agrilend.search.index.size", offerIndex, InvertedIndex::size)
+                .description("Documents dans l'index de recherche")
+                .tag("index", "offers")
+                .register(meterRegistry);
+        Gauge.builder("agrilend.search.index.size", productIndex, InvertedIndex::size)
+                .description("Documents dans l'index de recherche")
+                .tag("index", "products")
+                .register(meterRegistry);
+        offerSearchTimer = Timer.builder("agrilend.search.offers.query")
+                .description("Durée d'une recherche d'offres avec facettes")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Construit les deux index par lots d'identifiants croissants
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuild() {
+        long start = System.currentTimeMillis();
+        offerIndex.clear();
+        productIndex.clear();
+
+        long afterId = 0;
+        List<Offer> offers;
+        do {
+            offers = offerRepository.findForIndexingAfter(OfferStatus.ACTIVE, afterId, PageRequest.of(0, rebuildBatchSize));
+            for (Offer offer : offers) {
+                indexOffer(offer);
+                afterId = offer.getId();
+            }
+        } while (offers.size() == rebuildBatchSize);
+
+        afterId = 0;
+        List<Product> products;
+        do {
+            products = productRepository.findByIdGreaterThanOrderByIdAsc(afterId, PageRequest.of(0, rebuildBatchSize));
+            for (Product product : products) {
+                indexProduct(product);
+                afterId = product.getId();
+            }
+        } while (products.size() == rebuildBatchSize);
+
+        ready = true;
+        catalogueVersions.offersChanged();
+        catalogueVersions.productsChanged();
+        logger.info("Index de recherche construit: {} offre(s), {} produit(s) en {} ms",
+                offerIndex.size(), productIndex.size(), System.currentTimeMillis() - start);
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    /**
+     * Réindexe l'offre après validation du changement : une offre qui n'est plus ACTIVE sort de l'index.
+     * Passe avant les caches, qui incrémentent la version du catalogue utilisée comme ETag.
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChanged(OfferChangedEvent event) {
+        reindexOffer(event.getOfferId());
+    }
+
+    /**
+     * Réindexe le produit et les offres actives qui le reprennent (nom, catégorie...)
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        productRepository.findById(event.getProductId())
+                .ifPresentOrElse(this::indexProduct, () -> productIndex.remove(event.getProductId()));
+        offerRepository.findIdsByProductIdAndStatus(event.getProductId(), OfferStatus.ACTIVE)
+                .forEach(this::reindexOffer);
+    }
+
+    /**
+     * Réindexe les offres actives de l'agriculteur : nom et localisation figurent dans le DTO et les facettes
+     */
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFarmerProfileChanged(FarmerProfileChangedEvent event) {
+        offerRepository.findIdsByFarmerIdAndStatus(event.getFarmerId(), OfferStatus.ACTIVE)
+                .forEach(this::reindexOffer);
+    }
+
+    /**
+     * Recherche plein texte des offres actives, avec filtres et nombre d'offres par valeur de facette.
+     * Les facettes sont calculées sur les offres correspondant à la requête et aux filtres.
+     */
+    public OfferSearchResultDto searchOffers(String query, String category, String subcategory, String location,
+                                             String productionMethod, BigDecimal minPrice, BigDecimal maxPrice,
+                                             int page, int size) {
+        return offerSearchTimer.record(() -> {
+            Predicate<IndexedOffer> filter = offer ->
+                    matches(category, offer.dto.getProductCategory())
+                            && matches(subcategory, offer.subcategory)
+                            && matches(location, offer.location)
+                            && matches(productionMethod, offer.dto.getProductionMethod())
+                            && (minPrice == null || (offer.price != null && offer.price.compareTo(minPrice) >= 0))
+                            && (maxPrice == null || (offer.price != null && offer.price.compareTo(maxPrice) <= 0));
+            List<IndexedOffer> matches = offerIndex.search(query, filter);
+
+            int from = Math.min(Math.max(page, 0) * Math.max(size, 0), matches.size());
+            int to = Math.min(from + size, matches.size());
+            List<OfferDto> content = matches.subList(from, to).stream()
+                    .map(offer -> offer.dto)
+                    .collect(Collectors.toList());
+            int totalPages = size > 0 ? (matches.size() + size - 1) / size : 0;
+
+            OfferSearchResultDto result = new OfferSearchResultDto();
+            result.setResults(new PageResponse<>(content, page, size, matches.size(), totalPages,
+                    page == 0, to >= matches.size(), content.isEmpty()));
+            result.getFacets().put("category", facet(matches, offer -> offer.dto.getProductCategory()));
+            result.getFacets().put("subcategory", facet(matches, offer -> offer.subcategory));
+            result.getFacets().put("location", facet(matches, offer -> offer.location));
+            result.getFacets().put("productionMethod", facet(matches, offer -> offer.dto.getProductionMethod()));
+            result.getFacets().put("priceRange", facet(matches, offer -> offer.priceRange));
+            return result;
+        });
+    }
+
+    /**
+     * Identifiants des produits (actifs ou non) correspondant à la requête, par pertinence
+     */
+    public List<Long> searchProductIds(String query) {
+        return productIndex.search(query, null);
+    }
+
+    private void reindexOffer(Long offerId) {
+        Optional<Offer> offer = offerRepository.findForIndexing(offerId);
+        if (offer.isPresent() && offer.get().getStatus() == OfferStatus.ACTIVE) {
+            indexOffer(offer.get());
+        } else {
+            offerIndex.remove(offerId);
+        }
+    }
+
+    private void indexOffer(Offer offer) {
+        OfferDto dto = offerMapper.toDto(offer);
+        Product product = offer.getProduct();
+        String location = offer.getFarmer().getFarmLocation();
+        BigDecimal price = dto.getFinalUnitPrice() != null ? dto.getFinalUnitPrice() : dto.getSuggestedUnitPrice();
+        IndexedOffer document = new IndexedOffer(dto, product.getSubcategory(), location, price, priceRange(price));
+        offerIndex.put(offer.getId(), document, product.getName(), product.getDescription(), product.getCategory(),
+                product.getSubcategory(), location, dto.getProductionMethod(), offer.getNotes());
+    }
+
+    private void indexProduct(Product product) {
+        productIndex.put(product.getId(), product.getId(), product.getName(), product.getDescription(),
+                product.getCategory(), product.getSubcategory());
+    }
+
+    /**
+     * Libellé de la tranche de prix : "<500", "500-1000", ..., "10000+"
+     */
+    private String priceRange(BigDecimal price) {
+        if (price == null || priceBuckets.isEmpty()) {
+            return null;
+        }
+        BigDecimal lower = null;
+        for (BigDecimal bound : priceBuckets) {
+            if (price.compareTo(bound) < 0) {
+                return lower == null ? "<" + bound.toPlainString() : lower.toPlainString() + "-" + bound.toPlainString();
+            }
+            lower = bound;
+        }
+        return lower.toPlainString() + "+";
+    }
+
+    private static boolean matches(String expected, String actual) {
+        return expected == null || expected.isBlank() || expected.equalsIgnoreCase(actual);
+    }
+
+    private static Map<String, Long> facet(List<IndexedOffer> offers, Function<IndexedOffer, String> value) {
+        Map<String, Long> counts = offers.stream()
+                .map(value)
+                .filter(Objects::nonNull)
+                .collect(Collectors.groupingBy(Function.identity(), Collectors.counting()));
+        // Valeurs les plus fréquentes en premier
+        return counts.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed().thenComparing(Map.Entry.comparingByKey()))
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue, (a, b) -> a, LinkedHashMap::new));
+    }
+
+    /**
+     * Offre indexée : le DTO renvoyé tel quel et les champs de facette absents du DTO
+     */
+    static class IndexedOffer {
+        private final OfferDto dto;
+        private final String subcategory;
+        private final String location;
+        private final BigDecimal price;
+        private final String priceRange;
+
+        IndexedOffer(OfferDto dto, String subcategory, String location, BigDecimal price, String priceRange) {
+            this.dto = dto;
+            this.subcategory = subcategory;
+            this.location = location;
+            this.price = price;
+            this.priceRange = priceRange;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.agrilend.backend.service;
+
+import org.springframework.stereotype.Service;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Compteurs de version des collections d'offres et de produits, incrémentés après l'invalidation
+ * des caches et la mise à jour de l'index de recherche. Les offres reprenant le nom de l'agriculteur,
+ * un changement de son profil fait aussi avancer leur version. Ils servent d'ETag aux GET du catalogue,
+ * ce qui permet de répondre 304 sans interroger la base.
+ * <p>
+ * Les compteurs ne sont pas tirés de la base : ils n'avancent que sur les changements validés par cette
+ * instance ou reçus via {@link com.agrilend.backend.event.CacheInvalidationBroker}. Avec le broker en
+ * mémoire fourni par défaut, la fonctionnalité est donc réservée à une instance unique ; sur plusieurs nœuds,
+ * fournir un broker partagé ou désactiver les ETag (app.catalogue.etag.enabled=false), sinon une instance
+ * répondrait 304 pour un contenu modifié sur une autre.
+ */
+@Service
+public class CatalogueVersions {
+
+    // Distingue les instances et les redémarrages : deux compteurs égaux ne désignent pas le même contenu
+    private final String epoch = Long.toString(UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE, 36);
+
+    private final AtomicLong offers = new AtomicLong();
+    private final AtomicLong products = new AtomicLong();
+
+    public void offersChanged() {
+        offers.incrementAndGet();
+    }
+
+    public void productsChanged() {
+        products.incrementAndGet();
+    }
+
+    /**
+     * Les offres reprennent le nom et la catégorie du produit : leur version suit aussi celle des produits
+     */
+    public String offersTag() {
+        return epoch + "-o" + offers.get() + "-p" + products.get();
+    }
+
+    public String productsTag() {
+        return epoch + "-p" + products.get();
+    }
+}
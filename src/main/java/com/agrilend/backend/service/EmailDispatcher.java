@@ -0,0 +1,228 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.OutboundEmail;
+import com.agrilend.backend.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.mail.MessagingException;
+import jakarta.mail.SendFailedException;
+import jakarta.mail.internet.MimeMessage;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.MailException;
+import org.springframework.mail.MailParseException;
+import org.springframework.mail.MailPreparationException;
+import org.springframework.mail.MailSendException;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMessageHelper;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.regex.Pattern;
+
+/**
+ * Vide la file des emails sortants. Chaque worker envoie un lot de messages sur une seule
+ * connexion SMTP ; le débit vers le fournisseur est borné par un seau à jetons.
+ */
+@Service
+public class EmailDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailDispatcher.class);
+    // Réponse SMTP 5xx : refus définitif du serveur
+    private static final Pattern PERMANENT_SMTP_REPLY = Pattern.compile("^5\\d\\d[ -].*", Pattern.DOTALL);
+
+    @Autowired
+    private EmailQueueService emailQueueService;
+
+    @Autowired(required = false)
+    private JavaMailSender mailSender;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("mailExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${app.mail.from:noreply@agrilend.com}")
+    private String from;
+
+    @Value("${app.mail.queue.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.mail.queue.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.mail.queue.messages-per-connection:20}")
+    private int messagesPerConnection;
+
+    @Value("${app.mail.queue.rate-per-second:5}")
+    private double ratePerSecond;
+
+    @Value("${app.mail.queue.burst:20}")
+    private int burst;
+
+    private String provider;
+    private TokenBucket rateLimiter;
+
+    private Counter sentCounter;
+    private Counter retriedCounter;
+    private Counter abandonedCounter;
+    private Timer connectionTimer;
+
+    @PostConstruct
+    public void init() {
+        provider = mailSender instanceof JavaMailSenderImpl impl && impl.getHost() != null ? impl.getHost() : "default";
+        rateLimiter = new TokenBucket(burst, ratePerSecond);
+        sentCounter = Counter.builder("agrilend.mail.sent")
+                .tag("provider", provider)
+                .register(meterRegistry);
+        retriedCounter = Counter.builder("agrilend.mail.failed")
+                .tag("provider", provider)
+                .tag("outcome", "retry")
+                .register(meterRegistry);
+        abandonedCounter = Counter.builder("agrilend.mail.failed")
+                .tag("provider", provider)
+                .tag("outcome", "abandoned")
+                .register(meterRegistry);
+        connectionTimer = Timer.builder("agrilend.mail.connection")
+                .description("Durée d'envoi d'un lot de messages sur une connexion SMTP")
+                .tag("provider", provider)
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.queue.poll-interval-ms:2000}")
+    public void dispatch() {
+        if (!enabled || mailSender == null) {
+            return;
+        }
+        int wanted = Math.min(batchSize, executor.getThreadPoolExecutor().getQueue().remainingCapacity() * messagesPerConnection);
+        if (wanted <= 0) {
+            return;
+        }
+        int granted = rateLimiter.tryAcquireUpTo(wanted);
+        if (granted == 0) {
+            return;
+        }
+
+        EmailQueueService.Claim claim = emailQueueService.claimDue(granted);
+        rateLimiter.refund(granted - claim.getIds().size());
+        List<Long> ids = claim.getIds();
+        for (int start = 0; start < ids.size(); start += messagesPerConnection) {
+            List<Long> chunk = List.copyOf(ids.subList(start, Math.min(start + messagesPerConnection, ids.size())));
+            try {
+                executor.execute(() -> sendBatch(chunk, claim.getLease()));
+            } catch (RejectedExecutionException e) {
+                chunk.forEach(id -> emailQueueService.releaseClaim(id, claim.getLease()));
+                rateLimiter.refund(chunk.size());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.mail.queue.lease-recovery-interval-ms:60000}")
+    public void recoverExpiredLeases() {
+        int recovered = emailQueueService.recoverExpiredLeases();
+        if (recovered > 0) {
+            logger.warn("{} email(s) remis en file après expiration du bail", recovered);
+        }
+    }
+
+    /**
+     * Envoie les emails d'un lot sur une seule connexion SMTP
+     */
+    void sendBatch(List<Long> ids, LocalDateTime lease) {
+        List<OutboundEmail> emails = emailQueueService.findClaimed(ids, lease);
+        rateLimiter.refund(ids.size() - emails.size());
+
+        Map<MimeMessage, OutboundEmail> batch = new LinkedHashMap<>();
+        for (OutboundEmail email : emails) {
+            try {
+                batch.put(toMimeMessage(email), email);
+            } catch (MessagingException | MailException e) {
+                fail(email, lease, e, false);
+            }
+        }
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        Timer.Sample sample = Timer.start(meterRegistry);
+        try {
+            // JavaMailSenderImpl ouvre une seule connexion pour l'ensemble des messages passés ensemble
+            mailSender.send(batch.keySet().toArray(new MimeMessage[0]));
+            batch.values().forEach(email -> sent(email, lease));
+        } catch (MailSendException e) {
+            Map<Object, Exception> failures = e.getFailedMessages();
+            if (failures.isEmpty()) {
+                // Seule la fermeture de la connexion a échoué : les messages sont partis
+                logger.warn("Fermeture de la connexion SMTP en échec après l'envoi: {}", e.getMessage());
+            }
+            batch.forEach((message, email) -> {
+                Exception failure = failures.get(message);
+                if (failure == null) {
+                    sent(email, lease);
+                } else {
+                    fail(email, lease, failure, isRetryable(failure));
+                }
+            });
+        } catch (MailException e) {
+            batch.values().forEach(email -> fail(email, lease, e, isRetryable(e)));
+        } finally {
+            sample.stop(connectionTimer);
+        }
+    }
+
+    private MimeMessage toMimeMessage(OutboundEmail email) throws MessagingException {
+        MimeMessage message = mailSender.createMimeMessage();
+        MimeMessageHelper helper = new MimeMessageHelper(message, "UTF-8");
+        helper.setFrom(from);
+        helper.setTo(email.getRecipient());
+        helper.setSubject(email.getSubject());
+        helper.setText(email.getBody());
+        return message;
+    }
+
+    private void sent(OutboundEmail email, LocalDateTime lease) {
+        emailQueueService.markSent(email.getId(), lease);
+        sentCounter.increment();
+    }
+
+    private void fail(OutboundEmail email, LocalDateTime lease, Exception error, boolean retryable) {
+        boolean abandoned = emailQueueService.markAttemptFailed(email.getId(), lease, email.getAttempts(),
+                error.getMessage(), retryable);
+        (abandoned ? abandonedCounter : retriedCounter).increment();
+    }
+
+    /**
+     * Les erreurs de connexion et les réponses 4xx sont transitoires ; une adresse refusée,
+     * un message invalide ou une réponse 5xx ne le sont pas
+     */
+    static boolean isRetryable(Throwable error) {
+        for (Throwable current = error; current != null; current = current.getCause()) {
+            if (current instanceof MailParseException || current instanceof MailPreparationException) {
+                return false;
+            }
+            if (current instanceof SendFailedException sendFailed
+                    && sendFailed.getInvalidAddresses() != null && sendFailed.getInvalidAddresses().length > 0) {
+                return false;
+            }
+            if (current instanceof MessagingException && current.getMessage() != null
+                    && PERMANENT_SMTP_REPLY.matcher(current.getMessage().trim()).matches()) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
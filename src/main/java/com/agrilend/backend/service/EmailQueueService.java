@@ -0,0 +1,253 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.OutboundEmail;
+import com.agrilend.backend.repository.OutboundEmailRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * File persistante des emails sortants. Les emails demandés pendant une transaction métier
+ * ne sont enregistrés qu'après sa validation, puis envoyés par {@link EmailDispatcher}.
+ */
+@Service
+public class EmailQueueService {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailQueueService.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.mail.queue.dedup-window-minutes:10}")
+    private long dedupWindowMinutes;
+
+    @Value("${app.mail.queue.max-attempts:6}")
+    private int maxAttempts;
+
+    @Value("${app.mail.queue.base-backoff-ms:5000}")
+    private long baseBackoffMs;
+
+    @Value("${app.mail.queue.max-backoff-ms:600000}")
+    private long maxBackoffMs;
+
+    @Value("${app.mail.queue.lease-seconds:120}")
+    private long leaseSeconds;
+
+    // Clé des emails en attente de validation de la transaction courante
+    private final Object pendingResourceKey = new Object();
+    private final TransactionTemplate requiresNew;
+
+    private Counter enqueuedCounter;
+    private Counter deduplicatedCounter;
+
+    public EmailQueueService(PlatformTransactionManager transactionManager) {
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void init() {
+        enqueuedCounter = Counter.builder("agrilend.mail.enqueued")
+                .description("Emails mis en file d'envoi")
+                .register(meterRegistry);
+        deduplicatedCounter = Counter.builder("agrilend.mail.deduplicated")
+                .description("Emails ignorés car identiques à un email récent")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Met un email en file. Dans une transaction, l'email n'est enregistré qu'après sa validation :
+     * une transaction annulée n'envoie rien.
+     */
+    public void enqueue(String to, String subject, String text) {
+        if (to == null || to.isBlank()) {
+            logger.warn("Email sans destinataire ignoré: {}", subject);
+            return;
+        }
+        OutboundEmail email = new OutboundEmail(to, subject, text, dedupKey(to, subject, text));
+
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            persist(List.of(email));
+            return;
+        }
+
+        @SuppressWarnings("unchecked")
+        List<OutboundEmail> pending = (List<OutboundEmail>) TransactionSynchronizationManager.getResource(pendingResourceKey);
+        if (pending == null) {
+            List<OutboundEmail> batch = new ArrayList<>();
+            TransactionSynchronizationManager.bindResource(pendingResourceKey, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    persist(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(pendingResourceKey);
+                }
+            });
+            pending = batch;
+        }
+        pending.add(email);
+    }
+
+    /**
+     * Enregistre les emails dans une transaction distincte, en écartant les doublons récents
+     */
+    private void persist(List<OutboundEmail> emails) {
+        if (emails.isEmpty()) {
+            return;
+        }
+        try {
+            requiresNew.executeWithoutResult(status -> {
+                LocalDateTime since = LocalDateTime.now().minusMinutes(dedupWindowMinutes);
+                Set<String> seen = new HashSet<>();
+                List<OutboundEmail> toSave = new ArrayList<>(emails.size());
+                for (OutboundEmail email : emails) {
+                    if (!seen.add(email.getDedupKey())
+                            || outboundEmailRepository.existsByDedupKeyAndCreatedAtAfter(email.getDedupKey(), since)) {
+                        deduplicatedCounter.increment();
+                        continue;
+                    }
+                    toSave.add(email);
+                }
+                outboundEmailRepository.saveAll(toSave);
+                enqueuedCounter.increment(toSave.size());
+            });
+        } catch (RuntimeException e) {
+            // La transaction métier est déjà validée : on ne la fait pas échouer pour un email
+            logger.error("Impossible de mettre en file {} email(s): {}", emails.size(), e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Prend le bail d'au plus {@code limit} emails échus ; l'échéance du bail retournée sert de jeton
+     */
+    @Transactional
+    public Claim claimDue(int limit) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime lease = now.plusSeconds(leaseSeconds).truncatedTo(ChronoUnit.SECONDS);
+        List<Long> claimed = new ArrayList<>();
+        for (Long id : outboundEmailRepository.findDueIds(OutboundEmail.EmailStatus.PENDING, now, PageRequest.of(0, limit))) {
+            if (outboundEmailRepository.claim(id, OutboundEmail.EmailStatus.PENDING,
+                    OutboundEmail.EmailStatus.SENDING, lease) == 1) {
+                claimed.add(id);
+            }
+        }
+        return new Claim(claimed, lease);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OutboundEmail> findClaimed(List<Long> ids, LocalDateTime lease) {
+        return outboundEmailRepository.findClaimed(ids, OutboundEmail.EmailStatus.SENDING, lease);
+    }
+
+    @Transactional
+    public int recoverExpiredLeases() {
+        return outboundEmailRepository.recoverExpiredLeases(OutboundEmail.EmailStatus.SENDING,
+                OutboundEmail.EmailStatus.PENDING, LocalDateTime.now());
+    }
+
+    @Transactional
+    public void markSent(Long id, LocalDateTime lease) {
+        outboundEmailRepository.finish(id, OutboundEmail.EmailStatus.SENDING, lease, OutboundEmail.EmailStatus.SENT,
+                null, null, LocalDateTime.now());
+    }
+
+    /**
+     * Remet immédiatement l'email en file lorsque les workers sont saturés
+     */
+    @Transactional
+    public void releaseClaim(Long id, LocalDateTime lease) {
+        outboundEmailRepository.finish(id, OutboundEmail.EmailStatus.SENDING, lease, OutboundEmail.EmailStatus.PENDING,
+                null, LocalDateTime.now(), null);
+    }
+
+    /**
+     * Enregistre l'échec d'une tentative ; retourne true si l'email est définitivement abandonné
+     */
+    @Transactional
+    public boolean markAttemptFailed(Long id, LocalDateTime lease, int attempts, String error, boolean retryable) {
+        String truncated = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        if (retryable && attempts < maxAttempts) {
+            LocalDateTime nextAttemptAt = LocalDateTime.now().plusNanos(backoffMillis(attempts) * 1_000_000L);
+            outboundEmailRepository.finish(id, OutboundEmail.EmailStatus.SENDING, lease, OutboundEmail.EmailStatus.PENDING,
+                    truncated, nextAttemptAt, null);
+            logger.warn("Email {} en échec (tentative {}/{}), nouvelle tentative à {}: {}",
+                    id, attempts, maxAttempts, nextAttemptAt, error);
+            return false;
+        }
+        outboundEmailRepository.finish(id, OutboundEmail.EmailStatus.SENDING, lease, OutboundEmail.EmailStatus.FAILED,
+                truncated, null, null);
+        logger.error("Email {} abandonné après {} tentative(s): {}", id, attempts, error);
+        return true;
+    }
+
+    /**
+     * Backoff exponentiel plafonné, avec une gigue pleine pour que les reprises d'un même incident ne se synchronisent pas
+     */
+    long backoffMillis(int attempts) {
+        long exponential = baseBackoffMs << Math.min(Math.max(attempts - 1, 0), 20);
+        long capped = Math.min(exponential, maxBackoffMs);
+        return capped / 2 + ThreadLocalRandom.current().nextLong(capped / 2 + 1);
+    }
+
+    private static String dedupKey(String to, String subject, String text) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(to.trim().toLowerCase().getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(subject).getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(String.valueOf(text).getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 indisponible", e);
+        }
+    }
+
+    /**
+     * Lot d'emails pris par un même appel, avec l'échéance de leur bail
+     */
+    public static class Claim {
+        private final List<Long> ids;
+        private final LocalDateTime lease;
+
+        public Claim(List<Long> ids, LocalDateTime lease) {
+            this.ids = ids;
+            this.lease = lease;
+        }
+
+        public List<Long> getIds() { return ids; }
+        public LocalDateTime getLease() { return lease; }
+    }
+}
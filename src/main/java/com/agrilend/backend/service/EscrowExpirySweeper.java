@@ -0,0 +1,242 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.Transaction;
+import com.agrilend.backend.entity.enums.DeliveryStatus;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.repository.DeliveryRepository;
+import com.agrilend.backend.repository.OrderRepository;
+import com.agrilend.backend.util.JdbcBatches;
+import com.agrilend.backend.util.TokenBucket;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Règlement des séquestres arrivés à échéance : une commande livrée est libérée vers l'agriculteur,
+ * les autres sont remboursées à l'acheteur. Les commandes sont parcourues par lots bornés
+ * (curseur escrow_end_date, id) et verrouillées avec SKIP LOCKED, ce qui permet à plusieurs
+ * instances de se partager le travail ; les transferts passent par l'outbox Hedera.
+ */
+@Service
+public class EscrowExpirySweeper {
+
+    private static final Logger logger = LoggerFactory.getLogger(EscrowExpirySweeper.class);
+
+    private static final String EXPIRED_CONDITION =
+            "status = 'IN_ESCROW' AND (processing_stage IS NULL OR processing_stage = 'ESCROWED') AND escrow_end_date < ?";
+
+    private static final String CLAIM_FIRST_SQL =
+            "SELECT id, escrow_end_date FROM orders WHERE " + EXPIRED_CONDITION +
+            " ORDER BY escrow_end_date, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String CLAIM_AFTER_SQL =
+            "SELECT id, escrow_end_date FROM orders WHERE " + EXPIRED_CONDITION +
+            " AND (escrow_end_date > ? OR (escrow_end_date = ? AND id > ?))" +
+            " ORDER BY escrow_end_date, id LIMIT ? FOR UPDATE SKIP LOCKED";
+
+    private static final String OLDEST_EXPIRED_SQL = "SELECT MIN(escrow_end_date) FROM orders WHERE " + EXPIRED_CONDITION;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private DeliveryRepository deliveryRepository;
+
+    @Autowired
+    private EscrowService escrowService;
+
+    @Autowired
+    private TransactionOutboxService transactionOutboxService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.escrow.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.escrow.expiry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.escrow.expiry.max-batches-per-run:50}")
+    private int maxBatchesPerRun;
+
+    /**
+     * Débit maximal de règlements mis en file, pour ne pas saturer l'outbox et le réseau Hedera
+     */
+    @Value("${app.escrow.expiry.max-per-second:20}")
+    private double maxPerSecond;
+
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    private TokenBucket throttle;
+    private Counter releasedCounter;
+    private Counter refundedCounter;
+    private Counter failedCounter;
+    private Timer runTimer;
+
+    public EscrowExpirySweeper(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        throttle = new TokenBucket(batchSize, maxPerSecond);
+        releasedCounter = settled("release");
+        refundedCounter = settled("refund");
+        failedCounter = settled("failed");
+        runTimer = Timer.builder("agrilend.escrow.expiry.run")
+                .description("Durée d'une passe de règlement des séquestres expirés")
+                .register(meterRegistry);
+        Gauge.builder("agrilend.escrow.expiry.lag", lagSeconds, AtomicLong::get)
+                .description("Retard du plus ancien séquestre expiré non encore réglé")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.escrow.expiry.sweep-interval-ms:60000}")
+    public void sweep() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            runTimer.record(this::run);
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void run() {
+        LocalDateTime now = LocalDateTime.now();
+        updateLag(now);
+
+        Cursor cursor = new Cursor();
+        int settled = 0;
+        for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+            int granted = throttle.tryAcquireUpTo(batchSize);
+            if (granted == 0) {
+                break;
+            }
+            Integer claimed = transactionTemplate.execute(status -> processBatch(now, cursor, granted));
+            int count = claimed != null ? claimed : 0;
+            throttle.refund(granted - count);
+            settled += count;
+            if (count < granted) {
+                break;
+            }
+        }
+
+        if (settled > 0) {
+            logger.info("Séquestres expirés: {} commande(s) mise(s) en règlement", settled);
+            updateLag(LocalDateTime.now());
+        }
+    }
+
+    /**
+     * Verrouille un lot de commandes expirées et met leur règlement en file dans la même transaction ;
+     * les verrous sont libérés à la validation, une fois l'étape de traitement avancée
+     */
+    private int processBatch(LocalDateTime now, Cursor cursor, int limit) {
+        Calendar utc = JdbcBatches.utcCalendar();
+        List<Long> ids = jdbcTemplate.query(cursor.id == null ? CLAIM_FIRST_SQL : CLAIM_AFTER_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(now), utc);
+            if (cursor.id == null) {
+                ps.setInt(2, limit);
+            } else {
+                ps.setTimestamp(2, Timestamp.valueOf(cursor.escrowEndDate), utc);
+                ps.setTimestamp(3, Timestamp.valueOf(cursor.escrowEndDate), utc);
+                ps.setLong(4, cursor.id);
+                ps.setInt(5, limit);
+            }
+        }, (rs, rowNum) -> {
+            // Le curseur avance même sur les commandes en échec, pour ne pas les relire dans la même passe
+            cursor.escrowEndDate = rs.getTimestamp(2, utc).toLocalDateTime();
+            cursor.id = rs.getLong(1);
+            return cursor.id;
+        });
+
+        for (Long orderId : ids) {
+            settle(orderId, now);
+        }
+        return ids.size();
+    }
+
+    private void settle(Long orderId, LocalDateTime now) {
+        Order order = orderRepository.findById(orderId).orElse(null);
+        if (order == null) {
+            return;
+        }
+        boolean delivered = deliveryRepository.existsByOrderIdAndDeliveryStatus(orderId, DeliveryStatus.DELIVERED);
+        Transaction operation;
+        try {
+            operation = delivered ? escrowService.prepareRelease(order) : escrowService.prepareRefund(order);
+        } catch (IllegalStateException e) {
+            orderRepository.updateStageIfStatus(orderId, OrderProcessingStage.FAILED, OrderStatus.IN_ESCROW, now);
+            failedCounter.increment();
+            logger.error("Séquestre expiré de la commande {} non réglé, intervention manuelle requise: {}",
+                    orderId, e.getMessage());
+            return;
+        }
+
+        OrderProcessingStage stage = delivered ? OrderProcessingStage.RELEASE_QUEUED : OrderProcessingStage.REFUND_QUEUED;
+        if (orderRepository.markExpiredEscrowQueued(orderId, stage, OrderProcessingStage.ESCROWED,
+                OrderStatus.IN_ESCROW, now) == 0) {
+            return;
+        }
+        if (delivered) {
+            transactionOutboxService.enqueue(operation, "ESCROW_RELEASE:" + orderId);
+            releasedCounter.increment();
+        } else {
+            transactionOutboxService.enqueue(operation, "REFUND:" + orderId);
+            refundedCounter.increment();
+        }
+    }
+
+    private void updateLag(LocalDateTime now) {
+        Calendar utc = JdbcBatches.utcCalendar();
+        Timestamp oldest = jdbcTemplate.query(OLDEST_EXPIRED_SQL,
+                ps -> ps.setTimestamp(1, Timestamp.valueOf(now), utc),
+                rs -> rs.next() ? rs.getTimestamp(1, utc) : null);
+        lagSeconds.set(oldest != null ? Math.max(0, Duration.between(oldest.toLocalDateTime(), now).getSeconds()) : 0);
+    }
+
+    private Counter settled(String action) {
+        return Counter.builder("agrilend.escrow.expiry.settled")
+                .description("Séquestres expirés mis en règlement")
+                .tag("action", action)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Position (escrow_end_date, id) de la dernière commande lue pendant la passe
+     */
+    private static final class Cursor {
+        private LocalDateTime escrowEndDate;
+        private Long id;
+    }
+}
@@ -1,7 +1,9 @@
 package com.agrilend.backend.service;
 
 import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.Transaction;
 import com.agrilend.backend.entity.User;
+import com.agrilend.backend.entity.enums.TransactionType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -9,7 +11,15 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Règles du séquestre : préparation des écritures d'outbox (sans appel réseau)
+ * puis exécution des transferts sous leur identifiant Hedera pré-généré
+ */
 @Service
 public class EscrowService {
 
@@ -25,88 +35,160 @@ public class EscrowService {
     @Value("${hedera.operator.account-id:}")
     private String operatorAccountId;
 
-    public String initiateEscrow(Order order) {
-        try {
-            logger.info("Initiation du séquestre pour la commande: {}", order.getId());
-
-            User buyerUser = order.getBuyer().getUser();
-            String buyerAccountId = buyerUser.getHederaAccountId();
-            String buyerPrivateKey = buyerUser.getHederaPrivateKey();
-            logger.info("Buyer Account ID: {}", buyerAccountId);
-
-            if (buyerAccountId == null || buyerAccountId.isEmpty() || buyerPrivateKey == null || buyerPrivateKey.isEmpty()) {
-                throw new IllegalStateException("L'acheteur n'a pas de compte ou de clé privée Hedera configuré");
-            }
-
-            BigDecimal amountInHbar = order.getTotalAmount();
-            logger.info("Amount in HBAR: {}", amountInHbar);
-
-            BigDecimal buyerBalance = hederaService.getAccountBalance(buyerAccountId);
-            logger.info("Buyer Balance: {}", buyerBalance);
-
-            if (buyerBalance.compareTo(amountInHbar) < 0) {
-                throw new IllegalStateException("Solde insuffisant sur le compte Hedera de l'acheteur");
-            }
-
-            if (escrowAccountId == null || escrowAccountId.isEmpty()) {
-                String simulatedTxId = "simulated_tx_" + System.currentTimeMillis();
-                logger.warn("Mode simulation - Escrow initiated: {} for order: {}", simulatedTxId, order.getId());
-                return simulatedTxId;
-            }
-
-            logger.info("Attempting HBAR transfer from {} to {} for amount {}", buyerAccountId, escrowAccountId, amountInHbar);
-            String transactionId = hederaService.transferHbar(
-                buyerAccountId,
-                buyerPrivateKey,
-                escrowAccountId,
-                amountInHbar
-            );
-            logger.info("HBAR transfer completed. Transaction ID: {}", transactionId);
-
-            logger.info("Séquestre initié avec succès pour la commande: {} (TX: {})", order.getId(), transactionId);
-            return transactionId;
+    /**
+     * Écriture de dépôt en séquestre : acheteur -> compte de séquestre
+     */
+    public Transaction prepareDeposit(Order order) {
+        User buyerUser = order.getBuyer().getUser();
+        String buyerAccountId = buyerUser.getHederaAccountId();
+        if (buyerAccountId == null || buyerAccountId.isEmpty() || buyerUser.getHederaPrivateKey() == null
+                || buyerUser.getHederaPrivateKey().isEmpty()) {
+            throw new IllegalStateException("L'acheteur n'a pas de compte ou de clé privée Hedera configuré");
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setOrder(order);
+        transaction.setType(TransactionType.ESCROW_DEPOSIT);
+        transaction.setAmount(order.getTotalAmount());
+        transaction.setFromAccount(buyerAccountId);
+        transaction.setToAccount(isSimulated() ? null : escrowAccountId);
+        return transaction;
+    }
+
+    /**
+     * Écriture de libération : séquestre -> agriculteur, frais de plateforme -> compte opérateur
+     */
+    public Transaction prepareRelease(Order order) {
+        User farmerUser = order.getOffer().getFarmer().getUser();
+        String farmerAccountId = farmerUser.getHederaAccountId();
+        if (farmerAccountId == null || farmerAccountId.isEmpty()) {
+            throw new IllegalStateException("L'agriculteur n'a pas de compte Hedera configuré");
+        }
+
+        Transaction transaction = new Transaction();
+        transaction.setOrder(order);
+        transaction.setType(TransactionType.ESCROW_RELEASE);
+        transaction.setAmount(order.getTotalAmount());
+        transaction.setFeeAmount(order.getTotalAmount().multiply(PLATFORM_FEE_PERCENTAGE));
+        transaction.setFromAccount(isSimulated() ? null : escrowAccountId);
+        transaction.setToAccount(farmerAccountId);
+        return transaction;
+    }
 
-        } catch (Exception e) {
-            logger.error("Failed to initiate escrow for order: {}", order.getId(), e);
-            throw new RuntimeException("Failed to initiate escrow: " + e.getMessage(), e);
+    /**
+     * Écriture de remboursement d'un séquestre expiré : compte de séquestre -> acheteur, sans frais
+     */
+    public Transaction prepareRefund(Order order) {
+        User buyerUser = order.getBuyer().getUser();
+        String buyerAccountId = buyerUser.getHederaAccountId();
+        if (buyerAccountId == null || buyerAccountId.isEmpty()) {
+            throw new IllegalStateException("L'acheteur n'a pas de compte Hedera configuré");
         }
+
+        Transaction transaction = new Transaction();
+        transaction.setOrder(order);
+        transaction.setType(TransactionType.REFUND);
+        transaction.setAmount(order.getTotalAmount());
+        transaction.setFromAccount(isSimulated() ? null : escrowAccountId);
+        transaction.setToAccount(buyerAccountId);
+        return transaction;
     }
 
-    public String releaseEscrow(Order order) {
-        try {
-            logger.info("Releasing escrow for order: {}", order.getId());
+    /**
+     * Exécute un dépôt préparé, signé par la clé de l'acheteur
+     */
+    public String executeDeposit(Transaction transaction, String buyerPrivateKey) {
+        if (transaction.getToAccount() == null) {
+            logger.warn("Mode simulation - Escrow initiated: {} for order: {}",
+                    transaction.getHederaTransactionId(), transaction.getOrder().getId());
+            return transaction.getHederaTransactionId();
+        }
+
+        long tinybars = HederaService.toTinybars(transaction.getAmount());
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        transfers.put(transaction.getFromAccount(), -tinybars);
+        transfers.put(transaction.getToAccount(), tinybars);
+        return hederaService.submitHbarTransfer(transaction.getHederaTransactionId(), transfers,
+                Collections.singletonList(buyerPrivateKey), "Escrow deposit " + transaction.getIdempotencyKey());
+    }
 
-            User farmerUser = order.getOffer().getFarmer().getUser();
-            String farmerAccountId = farmerUser.getHederaAccountId();
+    /**
+     * Exécute une libération préparée, signée par la clé de l'opérateur qui contrôle le séquestre
+     */
+    public String executeRelease(Transaction transaction) {
+        if (transaction.getFromAccount() == null) {
+            logger.warn("Mode simulation - Escrow released: {} for order: {}",
+                    transaction.getHederaTransactionId(), transaction.getOrder().getId());
+            return transaction.getHederaTransactionId();
+        }
 
-            if (farmerAccountId == null || farmerAccountId.isEmpty()) {
-                throw new IllegalStateException("L'agriculteur n'a pas de compte Hedera configuré");
-            }
+        long platformTinybars = HederaService.toTinybars(transaction.getFeeAmount());
+        long farmerTinybars = HederaService.toTinybars(transaction.getAmount()) - platformTinybars;
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        transfers.put(transaction.getFromAccount(), -(farmerTinybars + platformTinybars));
+        transfers.merge(transaction.getToAccount(), farmerTinybars, Long::sum);
+        transfers.merge(operatorAccountId, platformTinybars, Long::sum);
+        return hederaService.submitHbarTransfer(transaction.getHederaTransactionId(), transfers,
+                operatorSigner(), "Escrow release " + transaction.getIdempotencyKey());
+    }
 
-            BigDecimal totalAmount = order.getTotalAmount();
-            BigDecimal platformFee = totalAmount.multiply(PLATFORM_FEE_PERCENTAGE);
-            BigDecimal farmerAmount = totalAmount.subtract(platformFee);
+    /**
+     * Exécute un remboursement préparé, signé par la clé de l'opérateur qui contrôle le séquestre
+     */
+    public String executeRefund(Transaction transaction) {
+        if (transaction.getFromAccount() == null) {
+            logger.warn("Mode simulation - Escrow refunded: {} for order: {}",
+                    transaction.getHederaTransactionId(), transaction.getOrder().getId());
+            return transaction.getHederaTransactionId();
+        }
 
-            if (escrowAccountId == null || escrowAccountId.isEmpty()) {
-                String simulatedTxId = "simulated_tx_" + System.currentTimeMillis();
-                logger.warn("Mode simulation - Escrow released: {} for order: {}", simulatedTxId, order.getId());
-                return simulatedTxId;
-            }
+        long tinybars = HederaService.toTinybars(transaction.getAmount());
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        transfers.put(transaction.getFromAccount(), -tinybars);
+        transfers.put(transaction.getToAccount(), tinybars);
+        return hederaService.submitHbarTransfer(transaction.getHederaTransactionId(), transfers,
+                operatorSigner(), "Escrow refund " + transaction.getIdempotencyKey());
+    }
 
-            String transactionId = hederaService.releaseFromEscrow(
-                escrowAccountId,
-                farmerAccountId,
-                farmerAmount,
-                operatorAccountId, // Platform fees go to the operator account
-                platformFee
-            );
+    /**
+     * Transferts nets d'un lot de libérations : un débit unique du séquestre, un crédit par agriculteur
+     * (commandes d'un même agriculteur cumulées) et un crédit unique des frais de plateforme
+     */
+    public Map<String, Long> buildSettlementTransfers(List<Transaction> releases) {
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        long escrowDebit = 0;
+        long platformTinybars = 0;
+        for (Transaction release : releases) {
+            long fee = HederaService.toTinybars(release.getFeeAmount());
+            long total = HederaService.toTinybars(release.getAmount());
+            transfers.merge(release.getToAccount(), total - fee, Long::sum);
+            escrowDebit += total;
+            platformTinybars += fee;
+        }
+        transfers.merge(operatorAccountId, platformTinybars, Long::sum);
+        transfers.merge(releases.get(0).getFromAccount(), -escrowDebit, Long::sum);
+        return transfers;
+    }
 
-            logger.info("Escrow released successfully for order: {} (TX: {})", order.getId(), transactionId);
+    /**
+     * Exécute un lot de libérations en une seule transaction Hedera, signée par la clé de l'opérateur
+     */
+    public String executeSettlement(List<Transaction> releases, String transactionId) {
+        if (releases.get(0).getFromAccount() == null) {
+            logger.warn("Mode simulation - Escrow settlement: {} for {} order(s)", transactionId, releases.size());
             return transactionId;
-
-        } catch (Exception e) {
-            logger.error("Failed to release escrow for order: {}", order.getId(), e);
-            throw new RuntimeException("Failed to release escrow: " + e.getMessage(), e);
         }
+        return hederaService.submitHbarTransfer(transactionId, buildSettlementTransfers(releases),
+                operatorSigner(), "Escrow settlement (" + releases.size() + " orders)");
+    }
+
+    private List<String> operatorSigner() {
+        return hederaService.getOperatorKey() != null
+                ? Collections.singletonList(hederaService.getOperatorKey().toString())
+                : Collections.emptyList();
+    }
+
+    private boolean isSimulated() {
+        return escrowAccountId == null || escrowAccountId.isEmpty();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,459 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.SettlementBatch;
+import com.agrilend.backend.entity.Transaction;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.entity.enums.TransactionType;
+import com.agrilend.backend.exception.LedgerSubmissionException;
+import com.agrilend.backend.repository.OrderRepository;
+import com.agrilend.backend.repository.SettlementBatchRepository;
+import com.agrilend.backend.repository.TransactionRepository;
+import com.hedera.hashgraph.sdk.Status;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Regroupe les libérations de séquestre en attente dans l'outbox en transferts Hedera multi-destinataires.
+ * Un lot est envoyé dès qu'il peut remplir une transaction ou que la plus ancienne libération a trop attendu ;
+ * son identifiant Hedera est enregistré avant l'envoi, comme pour les opérations unitaires.
+ */
+@Service
+public class EscrowSettlementBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(EscrowSettlementBatcher.class);
+
+    /** Débit du séquestre et crédit des frais de plateforme, présents dans chaque lot */
+    private static final int FIXED_TRANSFERS = 2;
+
+    @Autowired
+    private TransactionOutboxService outboxService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private SettlementBatchRepository settlementBatchRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EscrowService escrowService;
+
+    @Autowired
+    private HederaService hederaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("outboxExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${app.settlement.batching-enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.settlement.max-transfers-per-transaction:10}")
+    private int maxTransfersPerTransaction;
+
+    @Value("${app.settlement.max-orders-per-batch:100}")
+    private int maxOrdersPerBatch;
+
+    @Value("${app.settlement.max-wait-ms:5000}")
+    private long maxWaitMs;
+
+    @Value("${app.settlement.claim-size:500}")
+    private int claimSize;
+
+    @Value("${app.settlement.max-attempts-per-batch:3}")
+    private int maxAttemptsPerBatch;
+
+    private final TransactionTemplate transactionTemplate;
+
+    private Counter submittedTransactions;
+    private Counter settledReleases;
+    private Counter failedBatches;
+    private DistributionSummary batchSize;
+
+    public EscrowSettlementBatcher(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void initMetrics() {
+        submittedTransactions = Counter.builder("agrilend.settlement.transactions.submitted")
+                .description("Transactions Hedera soumises pour les libérations de séquestre")
+                .register(meterRegistry);
+        settledReleases = Counter.builder("agrilend.settlement.releases.settled")
+                .description("Libérations de séquestre réglées")
+                .register(meterRegistry);
+        failedBatches = Counter.builder("agrilend.settlement.batches.failed")
+                .description("Lots de règlement en échec")
+                .register(meterRegistry);
+        batchSize = DistributionSummary.builder("agrilend.settlement.batch.size")
+                .description("Nombre de commandes par lot de règlement")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.settlement.poll-interval-ms:1000}")
+    public void settle() {
+        if (!enabled) {
+            return;
+        }
+        int capacity = executor.getThreadPoolExecutor().getQueue().remainingCapacity();
+        if (capacity <= 0) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        Object[] due = transactionRepository.countAndOldestDueByType(Transaction.TransactionStatus.PENDING, now,
+                TransactionType.ESCROW_RELEASE).get(0);
+        long dueCount = due[0] != null ? ((Number) due[0]).longValue() : 0;
+        LocalDateTime oldest = (LocalDateTime) due[1];
+        if (dueCount == 0) {
+            return;
+        }
+        boolean full = dueCount >= maxRecipientsPerBatch();
+        boolean overdue = oldest != null && oldest.isBefore(now.minusNanos(maxWaitMs * 1_000_000L));
+        if (!full && !overdue) {
+            return;
+        }
+
+        int limit = (int) Math.min(claimSize, (long) capacity * maxOrdersPerBatch);
+        TransactionOutboxService.Claim claim = outboxService.claimDueOfType(limit, TransactionType.ESCROW_RELEASE);
+        if (claim.getIds().isEmpty()) {
+            return;
+        }
+
+        for (List<Transaction> members : pack(transactionRepository.findAllById(claim.getIds()))) {
+            try {
+                executor.execute(() -> openAndSubmit(members, claim.getLease()));
+            } catch (RejectedExecutionException e) {
+                members.forEach(member -> outboxService.releaseClaim(member.getId(), claim.getLease()));
+            }
+        }
+    }
+
+    /**
+     * Reprend les lots ouverts dont le worker a disparu : le reçu de leur identifiant est relu avant tout renvoi
+     */
+    @Scheduled(fixedDelayString = "${app.settlement.recovery-interval-ms:30000}")
+    public void recoverStaleBatches() {
+        for (Long batchId : settlementBatchRepository.findStaleIds(SettlementBatch.BatchStatus.OPEN,
+                LocalDateTime.now(), PageRequest.of(0, 50))) {
+            LocalDateTime lease = transactionTemplate.execute(status -> {
+                SettlementBatch batch = settlementBatchRepository.findById(batchId).orElse(null);
+                if (batch == null) {
+                    return null;
+                }
+                LocalDateTime now = LocalDateTime.now();
+                LocalDateTime newLease = outboxService.newLease(now);
+                if (settlementBatchRepository.renewLease(batchId, SettlementBatch.BatchStatus.OPEN,
+                        batch.getLeaseExpiresAt(), newLease, now) == 0) {
+                    return null;
+                }
+                transactionRepository.renewBatchLease(batchId, Transaction.TransactionStatus.PROCESSING, newLease, now);
+                return newLease;
+            });
+            if (lease == null) {
+                continue;
+            }
+            logger.warn("Reprise du lot de règlement {} après expiration du bail", batchId);
+            try {
+                executor.execute(() -> submit(batchId, lease));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Exécuteur saturé, lot de règlement {} repris au prochain passage", batchId);
+            }
+        }
+    }
+
+    /**
+     * Répartit les libérations en lots : chaque lot tient dans une transaction (un crédit par agriculteur
+     * distinct, plus le débit du séquestre et les frais) et ne dépasse pas le nombre de commandes autorisé
+     */
+    List<List<Transaction>> pack(List<Transaction> releases) {
+        int maxRecipients = maxRecipientsPerBatch();
+        List<List<Transaction>> batches = new ArrayList<>();
+        List<Set<String>> recipients = new ArrayList<>();
+        for (Transaction release : releases) {
+            int target = -1;
+            for (int i = 0; i < batches.size() && target < 0; i++) {
+                Set<String> accounts = recipients.get(i);
+                boolean fits = accounts.contains(release.getToAccount()) || accounts.size() < maxRecipients;
+                if (fits && batches.get(i).size() < maxOrdersPerBatch) {
+                    target = i;
+                }
+            }
+            if (target < 0) {
+                batches.add(new ArrayList<>());
+                recipients.add(new HashSet<>());
+                target = batches.size() - 1;
+            }
+            batches.get(target).add(release);
+            recipients.get(target).add(release.getToAccount());
+        }
+        return batches;
+    }
+
+    private int maxRecipientsPerBatch() {
+        return Math.max(1, maxTransfersPerTransaction - FIXED_TRANSFERS);
+    }
+
+    void openAndSubmit(List<Transaction> members, LocalDateTime lease) {
+        Long batchId;
+        try {
+            batchId = transactionTemplate.execute(status -> {
+                SettlementBatch batch = new SettlementBatch();
+                batch.setMemberCount(members.size());
+                batch.setTransferCount(escrowService.buildSettlementTransfers(members).size());
+                batch.setTotalAmount(members.stream().map(Transaction::getAmount).reduce(BigDecimal.ZERO, BigDecimal::add));
+                batch.setFeeAmount(members.stream().map(Transaction::getFeeAmount).reduce(BigDecimal.ZERO, BigDecimal::add));
+                batch.setLeaseExpiresAt(lease);
+                batch = settlementBatchRepository.save(batch);
+
+                List<Long> ids = members.stream().map(Transaction::getId).toList();
+                if (transactionRepository.attachToBatch(ids, batch, Transaction.TransactionStatus.PROCESSING,
+                        lease, LocalDateTime.now()) != ids.size()) {
+                    status.setRollbackOnly();
+                    return null;
+                }
+                return batch.getId();
+            });
+        } catch (Exception e) {
+            logger.error("Impossible de constituer le lot de règlement: {}", e.getMessage(), e);
+            batchId = null;
+        }
+
+        if (batchId == null) {
+            members.forEach(member -> outboxService.releaseClaim(member.getId(), lease));
+            return;
+        }
+        submit(batchId, lease);
+    }
+
+    void submit(Long batchId, LocalDateTime lease) {
+        SettlementBatch batch = settlementBatchRepository.findById(batchId).orElse(null);
+        if (batch == null || batch.getStatus() != SettlementBatch.BatchStatus.OPEN || !lease.equals(batch.getLeaseExpiresAt())) {
+            return;
+        }
+        List<Transaction> members = transactionRepository.findBySettlementBatchId(batchId);
+
+        // Identifiant sous lequel le lot a pu être soumis : tant qu'il n'est pas écarté, le lot n'est pas refait
+        String submittedTxId = null;
+        try {
+            String txId = batch.getHederaTransactionId();
+            if (txId != null) {
+                submittedTxId = txId;
+                Status receiptStatus = hederaService.getReceiptStatus(txId);
+                if (receiptStatus == Status.SUCCESS) {
+                    logger.info("Lot de règlement {} déjà exécuté sur le réseau (TX: {})", batchId, txId);
+                    complete(batchId, members, lease, txId);
+                    return;
+                }
+                // UNKNOWN : pas encore de consensus, le même identifiant est resoumis
+                boolean rejected = receiptStatus != null && receiptStatus != Status.UNKNOWN;
+                if (rejected || hederaService.isTransactionIdExpired(txId)) {
+                    txId = null;
+                    submittedTxId = null;
+                }
+            }
+
+            if (txId == null) {
+                Set<Long> inapplicable = findInapplicable(members);
+                if (!inapplicable.isEmpty()) {
+                    dropInapplicable(batchId, members, inapplicable, lease);
+                    return;
+                }
+                if (batch.getAttempts() >= maxAttemptsPerBatch) {
+                    // L'identifiant précédent n'a pas été exécuté : les membres peuvent rejoindre un autre lot
+                    fail(batchId, members, lease, batch.getLastError(), true);
+                    return;
+                }
+                String newTxId = hederaService.generateTransactionId();
+                Integer assigned = transactionTemplate.execute(status -> settlementBatchRepository.assignHederaTransactionId(
+                        batchId, newTxId, SettlementBatch.BatchStatus.OPEN, lease, LocalDateTime.now()));
+                if (assigned == null || assigned == 0) {
+                    logger.warn("Bail perdu pour le lot de règlement {}, envoi abandonné", batchId);
+                    return;
+                }
+                txId = newTxId;
+                submittedTxId = newTxId;
+            }
+
+            submittedTransactions.increment();
+            escrowService.executeSettlement(members, txId);
+            complete(batchId, members, lease, txId);
+
+        } catch (LedgerSubmissionException e) {
+            if (!e.isRetryable() && members.size() > 1) {
+                split(batchId, members, lease, e.getMessage());
+            } else if (e.isRetryable() && submittedTxId != null) {
+                defer(batchId, batch.getAttempts(), lease, e.getMessage());
+            } else {
+                fail(batchId, members, lease, e.getMessage(), e.isRetryable());
+            }
+        } catch (Exception e) {
+            if (submittedTxId != null) {
+                defer(batchId, batch.getAttempts(), lease, e.getMessage());
+            } else {
+                fail(batchId, members, lease, e.getMessage(), true);
+            }
+        }
+    }
+
+    /**
+     * Échec transitoire après envoi possible : la transaction a peut-être atteint le consensus. Le lot reste ouvert
+     * avec son identifiant et un bail repoussé ; la récupération relira le reçu avant tout renvoi, et ne refera
+     * le lot que lorsque l'identifiant est rejeté ou expiré.
+     */
+    private void defer(Long batchId, int attempts, LocalDateTime lease, String error) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime retryAt = now.plusNanos(outboxService.backoffMillis(attempts) * 1_000_000L)
+                .truncatedTo(ChronoUnit.SECONDS).plusSeconds(1);
+        Boolean deferred = transactionTemplate.execute(status -> {
+            if (settlementBatchRepository.deferRetry(batchId, SettlementBatch.BatchStatus.OPEN, lease, retryAt,
+                    truncate(error), now) == 0) {
+                return false;
+            }
+            transactionRepository.renewBatchLease(batchId, Transaction.TransactionStatus.PROCESSING, retryAt, now);
+            return true;
+        });
+        if (Boolean.TRUE.equals(deferred)) {
+            logger.warn("Lot de règlement {} en attente de son reçu, nouvelle vérification à {}: {}", batchId, retryAt, error);
+        }
+    }
+
+    /**
+     * Même règle que l'outbox : une libération n'est soumise que si la commande est toujours en séquestre
+     */
+    private Set<Long> findInapplicable(List<Transaction> members) {
+        List<Long> orderIds = members.stream().map(member -> member.getOrder().getId()).toList();
+        Set<Long> inEscrow = new HashSet<>(orderRepository.findIdsByIdInAndStatus(orderIds, OrderStatus.IN_ESCROW));
+        Set<Long> inapplicable = new HashSet<>();
+        for (Transaction member : members) {
+            if (!inEscrow.contains(member.getOrder().getId())) {
+                inapplicable.add(member.getId());
+            }
+        }
+        return inapplicable;
+    }
+
+    /**
+     * Abandonne le lot sans consommer de tentative : les libérations devenues sans objet sont annulées,
+     * les autres remises en file pour être regroupées à nouveau
+     */
+    private void dropInapplicable(Long batchId, List<Transaction> members, Set<Long> inapplicable, LocalDateTime lease) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!abandon(batchId, lease, "Commande(s) sortie(s) du séquestre avant l'envoi du lot")) {
+                return;
+            }
+            for (Transaction member : members) {
+                if (inapplicable.contains(member.getId())) {
+                    outboxService.markCancelled(member.getId(), lease, "La commande n'est plus dans l'état attendu");
+                } else {
+                    outboxService.releaseClaim(member.getId(), lease);
+                }
+            }
+        });
+        logger.info("Lot de règlement {} abandonné: {} libération(s) annulée(s), {} remise(s) en file",
+                batchId, inapplicable.size(), members.size() - inapplicable.size());
+    }
+
+    /**
+     * Un rejet définitif peut ne tenir qu'à un seul membre : le lot est abandonné sans consommer de tentative
+     * et chaque membre est renvoyé seul, pour que seul le fautif passe en échec
+     */
+    private void split(Long batchId, List<Transaction> members, LocalDateTime lease, String error) {
+        Boolean abandoned = transactionTemplate.execute(status -> abandon(batchId, lease, error));
+        if (!Boolean.TRUE.equals(abandoned)) {
+            return;
+        }
+        failedBatches.increment();
+        logger.warn("Lot de règlement {} rejeté ({}), renvoi unitaire de ses {} commande(s)", batchId, error, members.size());
+        for (Transaction member : members) {
+            openAndSubmit(List.of(member), lease);
+        }
+    }
+
+    private boolean abandon(Long batchId, LocalDateTime lease, String error) {
+        if (settlementBatchRepository.finish(batchId, SettlementBatch.BatchStatus.OPEN, lease,
+                SettlementBatch.BatchStatus.FAILED, truncate(error), LocalDateTime.now()) == 0) {
+            return false;
+        }
+        transactionRepository.detachFromBatch(batchId, Transaction.TransactionStatus.SUCCESS, LocalDateTime.now());
+        return true;
+    }
+
+    private static String truncate(String error) {
+        return error != null && error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
+    private void complete(Long batchId, List<Transaction> members, LocalDateTime lease, String txId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (settlementBatchRepository.finish(batchId, SettlementBatch.BatchStatus.OPEN, lease,
+                    SettlementBatch.BatchStatus.SUCCESS, null, LocalDateTime.now()) == 0) {
+                return;
+            }
+            for (Transaction member : members) {
+                if (!outboxService.markSucceeded(member.getId(), lease)) {
+                    continue;
+                }
+                Long orderId = member.getOrder().getId();
+                if (orderRepository.markReleasedIfInEscrow(orderId, OrderStatus.IN_ESCROW, OrderStatus.RELEASED,
+                        OrderProcessingStage.RELEASED, LocalDateTime.now()) == 0) {
+                    logger.error("Commande {} dans un état inattendu après le règlement du lot {} (TX: {}), intervention manuelle requise",
+                            orderId, batchId, txId);
+                }
+            }
+        });
+        settledReleases.increment(members.size());
+        batchSize.record(members.size());
+        logger.info("Lot de règlement {} exécuté: {} commande(s) (TX: {})", batchId, members.size(), txId);
+    }
+
+    /**
+     * Abandonne le lot ; chaque membre consomme une tentative et sera regroupé à nouveau à sa prochaine échéance.
+     * N'est appelé que si aucun identifiant du lot ne peut encore être exécuté (voir {@link #defer}).
+     * Un rejet définitif n'arrive ici que pour un lot d'un seul membre (voir {@link #split})
+     */
+    private void fail(Long batchId, List<Transaction> members, LocalDateTime lease, String error, boolean retryable) {
+        transactionTemplate.executeWithoutResult(status -> {
+            if (settlementBatchRepository.finish(batchId, SettlementBatch.BatchStatus.OPEN, lease,
+                    SettlementBatch.BatchStatus.FAILED, truncate(error), LocalDateTime.now()) == 0) {
+                return;
+            }
+            for (Transaction member : members) {
+                if (outboxService.markAttemptFailed(member.getId(), lease, member.getAttempts(), error, retryable)) {
+                    orderRepository.updateStageIfStatus(member.getOrder().getId(), OrderProcessingStage.FAILED,
+                            OrderStatus.IN_ESCROW, LocalDateTime.now());
+                }
+            }
+            transactionRepository.detachFromBatch(batchId, Transaction.TransactionStatus.SUCCESS, LocalDateTime.now());
+        });
+        failedBatches.increment();
+        logger.error("Lot de règlement {} en échec ({} commande(s)): {}", batchId, members.size(), error);
+    }
+}
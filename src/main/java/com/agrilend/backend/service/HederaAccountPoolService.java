@@ -0,0 +1,180 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.HederaPooledAccount;
+import com.agrilend.backend.repository.HederaPooledAccountRepository;
+import com.agrilend.backend.service.HederaService.HederaAccountInfo;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.crypto.encrypt.Encryptors;
+import org.springframework.security.crypto.encrypt.TextEncryptor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Réserve de comptes Hedera créés en tâche de fond, pour sortir la création de compte
+ * (et l'attente de son reçu) du chemin de l'inscription et de la première commande.
+ * Si la réserve est vide, le compte est créé immédiatement comme auparavant.
+ */
+@Service
+public class HederaAccountPoolService {
+
+    private static final Logger logger = LoggerFactory.getLogger(HederaAccountPoolService.class);
+
+    @Autowired
+    private HederaPooledAccountRepository poolRepository;
+
+    @Autowired
+    private HederaService hederaService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.hedera.account-pool.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.hedera.account-pool.low-water-mark:20}")
+    private int lowWaterMark;
+
+    @Value("${app.hedera.account-pool.target-size:50}")
+    private int targetSize;
+
+    @Value("${app.hedera.account-pool.refill-batch-size:5}")
+    private int refillBatchSize;
+
+    @Value("${app.hedera.account-pool.encryption-password:}")
+    private String encryptionPassword;
+
+    @Value("${app.hedera.account-pool.encryption-salt:}")
+    private String encryptionSalt;
+
+    private TextEncryptor encryptor;
+
+    private final AtomicLong depth = new AtomicLong();
+    private Timer poolClaimTimer;
+    private Timer inlineCreationTimer;
+    private Counter fallbackCounter;
+
+    @PostConstruct
+    public void init() {
+        // Les clés de la réserve sont chiffrées en base : sans secret configuré, la réserve reste désactivée
+        if (enabled && (encryptionPassword.isBlank() || encryptionSalt.isBlank())) {
+            logger.warn("Secret de chiffrement de la réserve de comptes Hedera absent - réserve désactivée");
+            enabled = false;
+        }
+        if (enabled) {
+            encryptor = Encryptors.delux(encryptionPassword, encryptionSalt);
+        }
+        Gauge.builder("agrilend.hedera.account_pool.depth", depth, AtomicLong::get)
+                .description("Comptes Hedera disponibles dans la réserve")
+                .register(meterRegistry);
+        poolClaimTimer = Timer.builder("agrilend.hedera.account_pool.claim")
+                .description("Durée d'attribution d'un compte Hedera")
+                .tag("source", "pool")
+                .register(meterRegistry);
+        inlineCreationTimer = Timer.builder("agrilend.hedera.account_pool.claim")
+                .description("Durée d'attribution d'un compte Hedera")
+                .tag("source", "inline")
+                .register(meterRegistry);
+        fallbackCounter = Counter.builder("agrilend.hedera.account_pool.fallback")
+                .description("Comptes créés immédiatement faute de compte disponible dans la réserve")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Attribue un compte de la réserve, ou le crée immédiatement si la réserve est vide
+     */
+    @Transactional
+    public HederaAccountInfo acquire(String userEmail) {
+        return claim().orElseGet(() -> createInline(userEmail));
+    }
+
+    /**
+     * Réserve un compte disponible dans la transaction courante ; si elle est annulée, le compte revient à la réserve
+     */
+    @Transactional
+    public Optional<HederaAccountInfo> claim() {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        long start = System.nanoTime();
+        String claimToken = UUID.randomUUID().toString();
+        if (poolRepository.claimOne(claimToken, LocalDateTime.now()) == 0) {
+            return Optional.empty();
+        }
+        HederaPooledAccount account = poolRepository.findByClaimToken(claimToken)
+                .orElseThrow(() -> new IllegalStateException("Compte réservé introuvable: " + claimToken));
+        depth.updateAndGet(current -> Math.max(0, current - 1));
+        HederaAccountInfo info = new HederaAccountInfo(account.getAccountId(),
+                encryptor.decrypt(account.getEncryptedPrivateKey()), account.getPublicKey());
+        poolClaimTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return Optional.of(info);
+    }
+
+    /**
+     * Création immédiate, utilisée lorsque la réserve est vide ou désactivée
+     */
+    public HederaAccountInfo createInline(String userEmail) {
+        if (enabled) {
+            fallbackCounter.increment();
+            logger.warn("Réserve de comptes Hedera vide, création immédiate pour: {}", userEmail);
+        }
+        return inlineCreationTimer.record(() -> hederaService.createAccount(userEmail));
+    }
+
+    /**
+     * Variante non bloquante de {@link #createInline(String)}
+     */
+    public CompletableFuture<HederaAccountInfo> createInlineAsync(String userEmail) {
+        if (enabled) {
+            fallbackCounter.increment();
+            logger.warn("Réserve de comptes Hedera vide, création immédiate pour: {}", userEmail);
+        }
+        Timer.Sample sample = Timer.start(meterRegistry);
+        return hederaService.createAccountAsync(userEmail)
+                .whenComplete((info, error) -> sample.stop(inlineCreationTimer));
+    }
+
+    /**
+     * Réalimente la réserve lorsqu'elle passe sous le seuil bas, par lots bornés pour lisser la charge sur le réseau
+     */
+    @Scheduled(fixedDelayString = "${app.hedera.account-pool.refill-interval-ms:10000}")
+    public void refill() {
+        if (!enabled) {
+            return;
+        }
+        long available = poolRepository.countByStatus(HederaPooledAccount.PoolStatus.AVAILABLE);
+        depth.set(available);
+        if (available >= lowWaterMark) {
+            return;
+        }
+
+        long toCreate = Math.min(refillBatchSize, targetSize - available);
+        for (int i = 0; i < toCreate; i++) {
+            try {
+                HederaAccountInfo info = hederaService.createAccount("account-pool");
+                poolRepository.save(new HederaPooledAccount(info.getAccountId(),
+                        encryptor.encrypt(info.getPrivateKey()), info.getPublicKey()));
+                depth.incrementAndGet();
+            } catch (Exception e) {
+                logger.error("Impossible de réalimenter la réserve de comptes Hedera: {}", e.getMessage());
+                return;
+            }
+        }
+        logger.info("Réserve de comptes Hedera réalimentée: {} compte(s) disponible(s)", depth.get());
+    }
+}
@@ -0,0 +1,93 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.util.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registre HBAR local utilisé en mode simulation : chaque compte démarre avec un solde fixe
+ * et évolue avec les transferts simulés, ce qui rend les soldes reproductibles.
+ * Les soldes de tokens partent de zéro. Aucun solde minimal n'est imposé.
+ * Les identifiants de transaction appliqués sont retenus pour une durée bornée, au-delà de laquelle
+ * le réseau refuserait de toute façon la transaction (TRANSACTION_EXPIRED).
+ */
+@Component
+public class HederaLedgerSimulator {
+
+    private final ConcurrentHashMap<String, AtomicLong> balances = new ConcurrentHashMap<>();
+    // Clé : identifiant du token, puis du compte
+    private final ConcurrentHashMap<String, AtomicLong> tokenBalances = new ConcurrentHashMap<>();
+
+    @Value("${hedera.simulation.initial-balance-hbar:1000}")
+    private BigDecimal initialBalanceHbar;
+
+    @Value("${hedera.simulation.applied-transactions.max-size:100000}")
+    private int maxAppliedTransactions;
+
+    // Fenêtre de validité d'une transaction Hedera (120 s) avec une marge
+    @Value("${hedera.simulation.applied-transactions.ttl-ms:180000}")
+    private long appliedTransactionsTtlMs;
+
+    private BoundedTtlCache<String, Boolean> appliedTransactions;
+
+    @PostConstruct
+    public void init() {
+        appliedTransactions = new BoundedTtlCache<>(maxAppliedTransactions, appliedTransactionsTtlMs);
+    }
+
+    public long balanceOf(String accountId) {
+        return account(accountId).get();
+    }
+
+    /**
+     * Applique un transfert une seule fois par identifiant de transaction, comme le réseau
+     */
+    public boolean apply(String transactionId, Map<String, Long> tinybarTransfers) {
+        if (transactionId != null && !appliedTransactions.putIfAbsent(transactionId, Boolean.TRUE)) {
+            return false;
+        }
+        tinybarTransfers.forEach((accountId, tinybars) -> {
+            if (accountId != null) {
+                account(accountId).addAndGet(tinybars);
+            }
+        });
+        return true;
+    }
+
+    public long tokenBalanceOf(String tokenId, String accountId) {
+        AtomicLong balance = tokenBalances.get(tokenKey(tokenId, accountId));
+        return balance != null ? balance.get() : 0;
+    }
+
+    /**
+     * Applique un transfert de tokens (plus petite unité, de somme nulle) une seule fois par identifiant de transaction
+     */
+    public boolean applyTokenTransfer(String transactionId, String tokenId, Map<String, Long> transfers) {
+        if (transactionId != null && !appliedTransactions.putIfAbsent(transactionId, Boolean.TRUE)) {
+            return false;
+        }
+        transfers.forEach((accountId, amount) ->
+                tokenBalances.computeIfAbsent(tokenKey(tokenId, accountId), key -> new AtomicLong()).addAndGet(amount));
+        return true;
+    }
+
+    public void reset() {
+        balances.clear();
+        tokenBalances.clear();
+        appliedTransactions.invalidateAll();
+    }
+
+    private static String tokenKey(String tokenId, String accountId) {
+        return tokenId + "/" + accountId;
+    }
+
+    private AtomicLong account(String accountId) {
+        return balances.computeIfAbsent(accountId, id -> new AtomicLong(HederaService.toTinybars(initialBalanceHbar)));
+    }
+}
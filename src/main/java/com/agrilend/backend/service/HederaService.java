@@ -1,14 +1,36 @@
 package com.agrilend.backend.service;
 
 import com.agrilend.backend.entity.User;
+import com.agrilend.backend.event.HbarTransferredEvent;
+import com.agrilend.backend.exception.LedgerSubmissionException;
+import com.agrilend.backend.util.AsyncPermits;
 import com.hedera.hashgraph.sdk.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
 import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
 
 /**
  * Service d'intégration avec Hedera Hashgraph pour la tokenisation des récoltes
@@ -17,6 +39,15 @@ import java.math.BigDecimal;
 public class HederaService {
 
     private static final Logger logger = LoggerFactory.getLogger(HederaService.class);
+    static final String SIMULATED_TX_PREFIX = "simulated_tx_";
+    // Séquence des comptes simulés : plusieurs comptes peuvent être créés dans la même milliseconde (réserve de comptes)
+    private static final AtomicLong SIMULATED_ACCOUNT_SEQUENCE = new AtomicLong(System.currentTimeMillis() % 1000000);
+    private static final String SIMULATED_OPERATOR_ACCOUNT = "0.0.2";
+    // Durée de validité par défaut d'une transaction Hedera
+    private static final Duration TRANSACTION_VALID_DURATION = Duration.ofSeconds(120);
+    private static final Set<Status> NON_RETRYABLE_PRECHECK = EnumSet.of(
+            Status.INVALID_SIGNATURE, Status.INVALID_ACCOUNT_ID, Status.ACCOUNT_DELETED,
+            Status.INSUFFICIENT_ACCOUNT_BALANCE, Status.INSUFFICIENT_PAYER_BALANCE, Status.KEY_REQUIRED);
 
     @Value("${hedera.network:testnet}")
     private String network;
@@ -30,6 +61,20 @@ public class HederaService {
     @Value("${hedera.treasury.account-id:}")
     private String treasuryAccountId;
 
+    @Value("${hedera.async.timeout-ms:30000}")
+    private long asyncTimeoutMs;
+
+    @Value("${hedera.async.max-concurrent-per-account:16}")
+    private int maxConcurrentPerAccount;
+
+    private final ConcurrentHashMap<String, AsyncPermits> accountPermits = new ConcurrentHashMap<>();
+
+    @Autowired
+    private HederaLedgerSimulator ledgerSimulator;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     private Client client;
     private AccountId operatorId;
     private PrivateKey operatorKey;
@@ -213,6 +258,70 @@ public class HederaService {
         }
     }
 
+    /**
+     * Transfère des tokens de la trésorerie vers plusieurs destinataires en une seule transaction.
+     * Les montants sont exprimés dans la plus petite unité du token ; le débit du compte source est leur somme.
+     */
+    public String transferTokensToMany(String tokenId, String fromAccountId, Map<String, Long> recipientAmounts) {
+        if (client == null || operatorId == null) {
+            return simulateTokenTransfer(tokenId, fromAccountId, recipientAmounts);
+        }
+
+        try {
+            TokenId token = TokenId.fromString(tokenId);
+            long total = 0;
+            TransferTransaction transferTx = new TransferTransaction();
+            for (Map.Entry<String, Long> recipient : recipientAmounts.entrySet()) {
+                transferTx.addTokenTransfer(token, AccountId.fromString(recipient.getKey()), recipient.getValue());
+                total += recipient.getValue();
+            }
+            transferTx.addTokenTransfer(token, AccountId.fromString(fromAccountId), -total);
+
+            TransactionResponse response = transferTx.execute(client);
+            TransactionReceipt receipt = response.getReceipt(client);
+            if (receipt.status != Status.SUCCESS) {
+                throw new LedgerSubmissionException("Transfert de tokens refusé: " + receipt.status, false);
+            }
+            return response.transactionId.toString();
+
+        } catch (LedgerSubmissionException e) {
+            throw e;
+        } catch (PrecheckStatusException e) {
+            boolean retryable = !NON_RETRYABLE_PRECHECK.contains(e.status);
+            throw new LedgerSubmissionException("Transfert de tokens refusé au précontrôle: " + e.status, retryable, e);
+        } catch (ReceiptStatusException e) {
+            throw new LedgerSubmissionException("Transfert de tokens refusé: " + e.receipt.status, false, e);
+        } catch (Exception e) {
+            throw new LedgerSubmissionException("Échec du transfert de tokens: " + e.getMessage(), true, e);
+        }
+    }
+
+    /**
+     * Transfert simulé appliqué au registre local ; comme sur le réseau, un identifiant de compte invalide
+     * fait échouer toute la transaction (INVALID_ACCOUNT_ID)
+     */
+    private String simulateTokenTransfer(String tokenId, String fromAccountId, Map<String, Long> recipientAmounts) {
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        long total = 0;
+        try {
+            for (Map.Entry<String, Long> recipient : recipientAmounts.entrySet()) {
+                AccountId.fromString(recipient.getKey());
+                transfers.put(recipient.getKey(), recipient.getValue());
+                total += recipient.getValue();
+            }
+            AccountId.fromString(fromAccountId);
+        } catch (IllegalArgumentException e) {
+            throw new LedgerSubmissionException("Transfert de tokens refusé au précontrôle: " + Status.INVALID_ACCOUNT_ID, false, e);
+        }
+        transfers.merge(fromAccountId, -total, Long::sum);
+
+        String simulatedTxId = SIMULATED_TX_PREFIX + UUID.randomUUID();
+        ledgerSimulator.applyTokenTransfer(simulatedTxId, tokenId, transfers);
+        logger.info("Mode simulation - Tokens {} transférés de {} vers {} destinataire(s) (TX: {})",
+                tokenId, fromAccountId, recipientAmounts.size(), simulatedTxId);
+        return simulatedTxId;
+    }
+
     /**
      * Crée un nouveau compte Hedera pour un utilisateur
      */
@@ -220,7 +329,7 @@ public class HederaService {
         try {
             if (client == null || operatorId == null) {
                 // Mode simulation
-                String simulatedAccountId = "0.0." + (System.currentTimeMillis() % 1000000);
+                String simulatedAccountId = "0.0." + SIMULATED_ACCOUNT_SEQUENCE.incrementAndGet();
                 String simulatedPrivateKey = "302e020100300506032b657004220420" + 
                                            String.format("%032x", System.currentTimeMillis());
                 String simulatedPublicKey = "302a300506032b6570032100" + 
@@ -298,13 +407,18 @@ public class HederaService {
      */
     public String transferHbar(String fromAccountId, String fromPrivateKey,
                                String toAccountId, BigDecimal amount) {
+        long tinybars = toTinybars(amount);
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        transfers.put(fromAccountId, -tinybars);
+        transfers.merge(toAccountId, tinybars, Long::sum);
         try {
-            if (client == null) {
+            if (isSimulated()) {
                 // Mode simulation
-                String simulatedTxId = "0.0." + (System.currentTimeMillis() % 1000000) + "@" + 
-                                     (System.currentTimeMillis() / 1000);
+                String simulatedTxId = SIMULATED_TX_PREFIX + UUID.randomUUID();
+                ledgerSimulator.apply(simulatedTxId, transfers);
                 logger.info("Mode simulation - Transfert HBAR: {} HBAR de {} vers {}", 
                            amount, fromAccountId, toAccountId);
+                eventPublisher.publishEvent(new HbarTransferredEvent(simulatedTxId, transfers));
                 return simulatedTxId;
             }
 
@@ -312,8 +426,6 @@ public class HederaService {
             AccountId receiver = AccountId.fromString(toAccountId);
             PrivateKey senderKey = PrivateKey.fromString(fromPrivateKey);
 
-            long tinybars = amount.multiply(BigDecimal.valueOf(100_000_000)).longValue();
-
             TransactionResponse response = new TransferTransaction()
                     .addHbarTransfer(sender, Hbar.fromTinybars(-tinybars))
                     .addHbarTransfer(receiver, Hbar.fromTinybars(tinybars))
@@ -325,6 +437,7 @@ public class HederaService {
 
             logger.info("Transfert HBAR réussi: {} HBAR de {} vers {} (TX: {})",
                     amount, fromAccountId, toAccountId, transactionId);
+            eventPublisher.publishEvent(new HbarTransferredEvent(transactionId, transfers));
 
             return transactionId;
 
@@ -334,6 +447,122 @@ public class HederaService {
         }
     }
 
+
+    /**
+     * Génère un identifiant de transaction payé par l'opérateur, à enregistrer avant l'envoi
+     * pour que les nouvelles tentatives réutilisent le même identifiant
+     */
+    public String generateTransactionId() {
+        if (client == null || operatorId == null) {
+            return SIMULATED_TX_PREFIX + UUID.randomUUID();
+        }
+        return TransactionId.generate(operatorId).toString();
+    }
+
+    /**
+     * Indique si la fenêtre de validité de l'identifiant est dépassée ; il ne peut alors plus être soumis
+     */
+    public boolean isTransactionIdExpired(String transactionId) {
+        if (transactionId == null || transactionId.startsWith(SIMULATED_TX_PREFIX)) {
+            return false;
+        }
+        Instant validStart = TransactionId.fromString(transactionId).validStart;
+        return validStart == null || validStart.plus(TRANSACTION_VALID_DURATION).isBefore(Instant.now());
+    }
+
+    /**
+     * Statut du reçu d'une transaction déjà soumise, ou null si le réseau ne la connaît pas
+     */
+    public Status getReceiptStatus(String transactionId) {
+        if (client == null || operatorId == null || transactionId.startsWith(SIMULATED_TX_PREFIX)) {
+            return null;
+        }
+        try {
+            TransactionReceipt receipt = new TransactionReceiptQuery()
+                    .setTransactionId(TransactionId.fromString(transactionId))
+                    .execute(client);
+            return receipt.status;
+        } catch (PrecheckStatusException e) {
+            if (e.status == Status.RECEIPT_NOT_FOUND) {
+                return null;
+            }
+            throw new LedgerSubmissionException("Lecture du reçu impossible: " + e.status, true, e);
+        } catch (Exception e) {
+            throw new LedgerSubmissionException("Lecture du reçu impossible: " + e.getMessage(), true, e);
+        }
+    }
+
+    /**
+     * Soumet un transfert HBAR (montants en tinybars, de somme nulle) sous un identifiant pré-généré.
+     * Une resoumission du même identifiant (DUPLICATE_TRANSACTION) est considérée comme acceptée et son reçu est relu.
+     */
+    public String submitHbarTransfer(String transactionId, Map<String, Long> tinybarTransfers,
+                                     List<String> signerPrivateKeys, String memo) {
+        if (client == null || operatorId == null) {
+            logger.info("Mode simulation - Transfert HBAR {} : {}", transactionId, tinybarTransfers);
+            if (ledgerSimulator.apply(transactionId, tinybarTransfers)) {
+                eventPublisher.publishEvent(new HbarTransferredEvent(transactionId, tinybarTransfers));
+            }
+            return transactionId;
+        }
+
+        TransactionId txId = TransactionId.fromString(transactionId);
+        try {
+            TransferTransaction transferTx = new TransferTransaction()
+                    .setTransactionId(txId)
+                    .setTransactionMemo(memo != null ? memo : "");
+            for (Map.Entry<String, Long> transfer : tinybarTransfers.entrySet()) {
+                transferTx.addHbarTransfer(AccountId.fromString(transfer.getKey()), Hbar.fromTinybars(transfer.getValue()));
+            }
+            transferTx.freezeWith(client);
+            for (String signerKey : signerPrivateKeys) {
+                transferTx.sign(PrivateKey.fromString(signerKey));
+            }
+
+            try {
+                transferTx.execute(client);
+            } catch (PrecheckStatusException e) {
+                if (e.status != Status.DUPLICATE_TRANSACTION) {
+                    throw e;
+                }
+                logger.info("Transaction {} déjà soumise, lecture de son reçu", transactionId);
+            }
+
+            TransactionReceipt receipt = new TransactionReceiptQuery()
+                    .setTransactionId(txId)
+                    .execute(client);
+            if (receipt.status != Status.SUCCESS) {
+                throw new LedgerSubmissionException("Transaction " + transactionId + " refusée: " + receipt.status, false);
+            }
+            logger.info("Transfert HBAR réussi (TX: {})", transactionId);
+            eventPublisher.publishEvent(new HbarTransferredEvent(transactionId, tinybarTransfers));
+            return transactionId;
+
+        } catch (LedgerSubmissionException e) {
+            throw e;
+        } catch (PrecheckStatusException e) {
+            boolean retryable = !NON_RETRYABLE_PRECHECK.contains(e.status);
+            throw new LedgerSubmissionException("Transfert HBAR refusé au précontrôle: " + e.status, retryable, e);
+        } catch (Exception e) {
+            throw new LedgerSubmissionException("Échec du transfert HBAR: " + e.getMessage(), true, e);
+        }
+    }
+
+    public static long toTinybars(BigDecimal hbar) {
+        return hbar.multiply(BigDecimal.valueOf(100_000_000)).longValue();
+    }
+
+    public static BigDecimal fromTinybars(long tinybars) {
+        return BigDecimal.valueOf(tinybars).divide(BigDecimal.valueOf(100_000_000), 8, RoundingMode.HALF_UP);
+    }
+
+    /**
+     * Vrai sans client ou compte opérateur configuré : les opérations sont simulées localement
+     */
+    public boolean isSimulated() {
+        return client == null || operatorId == null;
+    }
+
     public AccountId getOperatorId() {
         return operatorId;
     }
@@ -354,6 +583,10 @@ public class HederaService {
      * Transfère des HBAR depuis le compte opérateur principal
      */
     public String transferHbarFromOperator(String toAccountId, BigDecimal amount) {
+        if (isSimulated()) {
+            return transferHbar(operatorAccountId != null && !operatorAccountId.isEmpty()
+                    ? operatorAccountId : SIMULATED_OPERATOR_ACCOUNT, null, toAccountId, amount);
+        }
         if (operatorId == null || operatorKey == null) {
             throw new IllegalStateException("Le compte opérateur Hedera n'est pas configuré.");
         }
@@ -361,27 +594,262 @@ public class HederaService {
     }
 
     /**
-     * Récupère le solde d'un compte Hedera
+     * Récupère le solde d'un compte Hedera (0 en cas d'erreur) ; préférer AccountBalanceService, qui met en cache
      */
     public BigDecimal getAccountBalance(String accountId) {
         try {
-            if (client == null) {
-                // Mode simulation - retourner un solde aléatoire
-                return BigDecimal.valueOf(Math.random() * 1000).setScale(8, BigDecimal.ROUND_HALF_UP);
-            }
+            return fromTinybars(getAccountBalanceTinybars(accountId));
+        } catch (Exception e) {
+            logger.error("Erreur lors de la récupération du solde pour le compte: {}", accountId, e);
+            return BigDecimal.ZERO;
+        }
+    }
 
-            AccountId account = AccountId.fromString(accountId);
+    /**
+     * Solde d'un compte en tinybars ; en mode simulation il est lu dans le registre local
+     */
+    public long getAccountBalanceTinybars(String accountId) {
+        if (isSimulated()) {
+            return ledgerSimulator.balanceOf(accountId);
+        }
+        try {
             AccountBalance balance = new AccountBalanceQuery()
-                    .setAccountId(account)
+                    .setAccountId(AccountId.fromString(accountId))
                     .execute(client);
+            return balance.hbars.toTinybars();
+        } catch (Exception e) {
+            throw new LedgerSubmissionException("Lecture du solde impossible pour " + accountId + ": " + e.getMessage(), true, e);
+        }
+    }
 
-            return BigDecimal.valueOf(balance.hbars.toTinybars())
-                    .divide(BigDecimal.valueOf(100_000_000), 8, BigDecimal.ROUND_HALF_UP);
 
-        } catch (Exception e) {
-            logger.error("Erreur lors de la récupération du solde pour le compte: {}", accountId, e);
-            return BigDecimal.ZERO;
+    // =================== API asynchrone ===================
+    // Les appels réseau utilisent les exécuteurs asynchrones du SDK : aucun thread n'est bloqué pendant
+    // l'attente des reçus. Chaque compte payeur a un nombre borné d'opérations en vol, au-delà les
+    // opérations attendent leur tour sans thread. En mode simulation le résultat est immédiat.
+
+    public CompletableFuture<String> submitHbarTransferAsync(String transactionId, Map<String, Long> tinybarTransfers,
+                                                             List<String> signerPrivateKeys, String memo) {
+        if (isSimulated()) {
+            return simulated(() -> submitHbarTransfer(transactionId, tinybarTransfers, signerPrivateKeys, memo));
+        }
+        TransactionId txId = TransactionId.fromString(transactionId);
+        CompletableFuture<String> submitted = onLedger("Transfert HBAR", () -> {
+            TransferTransaction transferTx = new TransferTransaction()
+                    .setTransactionId(txId)
+                    .setTransactionMemo(memo != null ? memo : "");
+            tinybarTransfers.forEach((account, tinybars) ->
+                    transferTx.addHbarTransfer(AccountId.fromString(account), Hbar.fromTinybars(tinybars)));
+            transferTx.freezeWith(client);
+            signerPrivateKeys.forEach(key -> transferTx.sign(PrivateKey.fromString(key)));
+
+            return transferTx.executeAsync(client)
+                    .handle((response, error) -> {
+                        Throwable cause = unwrap(error);
+                        if (cause != null && !(cause instanceof PrecheckStatusException precheck
+                                && precheck.status == Status.DUPLICATE_TRANSACTION)) {
+                            throw toLedgerException(cause, "Transfert HBAR");
+                        }
+                        return txId;
+                    })
+                    .thenCompose(id -> new TransactionReceiptQuery().setTransactionId(id).executeAsync(client))
+                    .thenApply(receipt -> {
+                        if (receipt.status != Status.SUCCESS) {
+                            throw new LedgerSubmissionException("Transaction " + transactionId + " refusée: " + receipt.status, false);
+                        }
+                        eventPublisher.publishEvent(new HbarTransferredEvent(transactionId, tinybarTransfers));
+                        return transactionId;
+                    });
+        });
+        return submitted.exceptionallyCompose(error -> reconcileTimeout(transactionId, tinybarTransfers, error));
+    }
+
+    /**
+     * Un délai dépassé ne dit pas si le transfert a été exécuté : le reçu de l'identifiant pré-généré est relu
+     * avant de conclure à l'échec. Sans réponse du réseau, l'échec reste reprenable sous le même identifiant.
+     */
+    private CompletableFuture<String> reconcileTimeout(String transactionId, Map<String, Long> tinybarTransfers,
+                                                       Throwable error) {
+        Throwable cause = unwrap(error);
+        if (!(cause instanceof LedgerSubmissionException && cause.getCause() instanceof TimeoutException)) {
+            return CompletableFuture.failedFuture(cause);
+        }
+        return onLedger("Lecture du reçu", () -> new TransactionReceiptQuery()
+                        .setTransactionId(TransactionId.fromString(transactionId))
+                        .executeAsync(client))
+                .handle((receipt, receiptError) -> {
+                    if (receiptError != null) {
+                        throw (LedgerSubmissionException) cause;
+                    }
+                    if (receipt.status != Status.SUCCESS) {
+                        throw new LedgerSubmissionException("Transaction " + transactionId + " refusée: " + receipt.status, false);
+                    }
+                    logger.warn("Transaction {} exécutée malgré le délai dépassé", transactionId);
+                    eventPublisher.publishEvent(new HbarTransferredEvent(transactionId, tinybarTransfers));
+                    return transactionId;
+                });
+    }
+
+    public CompletableFuture<String> transferHbarAsync(String fromAccountId, String fromPrivateKey,
+                                                       String toAccountId, BigDecimal amount) {
+        if (isSimulated()) {
+            return simulated(() -> transferHbar(fromAccountId, fromPrivateKey, toAccountId, amount));
+        }
+        long tinybars = toTinybars(amount);
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        transfers.put(fromAccountId, -tinybars);
+        transfers.merge(toAccountId, tinybars, Long::sum);
+        return submitHbarTransferAsync(generateTransactionId(), transfers,
+                List.of(fromPrivateKey), "Transfer " + fromAccountId + " -> " + toAccountId);
+    }
+
+    public CompletableFuture<String> transferHbarFromOperatorAsync(String toAccountId, BigDecimal amount) {
+        if (isSimulated()) {
+            return simulated(() -> transferHbarFromOperator(toAccountId, amount));
+        }
+        if (operatorKey == null) {
+            return CompletableFuture.failedFuture(new IllegalStateException("Le compte opérateur Hedera n'est pas configuré."));
+        }
+        return transferHbarAsync(operatorId.toString(), operatorKey.toString(), toAccountId, amount);
+    }
+
+    public CompletableFuture<String> releaseFromEscrowAsync(String escrowAccountId, String farmerAccountId, BigDecimal farmerAmount,
+                                                            String platformAccountId, BigDecimal platformAmount) {
+        if (isSimulated()) {
+            return simulated(() -> releaseFromEscrow(escrowAccountId, farmerAccountId, farmerAmount, platformAccountId, platformAmount));
+        }
+        long farmerTinybars = toTinybars(farmerAmount);
+        long platformTinybars = toTinybars(platformAmount);
+        Map<String, Long> transfers = new LinkedHashMap<>();
+        transfers.put(escrowAccountId, -(farmerTinybars + platformTinybars));
+        transfers.merge(farmerAccountId, farmerTinybars, Long::sum);
+        transfers.merge(platformAccountId, platformTinybars, Long::sum);
+        return submitHbarTransferAsync(generateTransactionId(), transfers, List.of(operatorKey.toString()), "Escrow release");
+    }
+
+    public CompletableFuture<HederaAccountInfo> createAccountAsync(String userEmail) {
+        if (isSimulated()) {
+            return simulated(() -> createAccount(userEmail));
+        }
+        return onLedger("Création de compte", () -> {
+            PrivateKey privateKey = PrivateKey.generateED25519();
+            PublicKey publicKey = privateKey.getPublicKey();
+            return new AccountCreateTransaction()
+                    .setKey(publicKey)
+                    .setInitialBalance(Hbar.fromTinybars(1000))
+                    .executeAsync(client)
+                    .thenCompose(response -> response.getReceiptAsync(client))
+                    .thenApply(receipt -> {
+                        logger.info("Nouveau compte Hedera créé: {} pour l'utilisateur: {}", receipt.accountId, userEmail);
+                        return new HederaAccountInfo(receipt.accountId.toString(), privateKey.toString(), publicKey.toString());
+                    });
+        });
+    }
+
+    public CompletableFuture<String> createScheduledTokenMintAsync(String tokenId, BigDecimal amount,
+                                                                   String batchNumber, String receiptHash) {
+        if (isSimulated()) {
+            return simulated(() -> createScheduledTokenMint(tokenId, amount, batchNumber, receiptHash));
+        }
+        return onLedger("Création de la transaction programmée", () -> {
+            TokenMintTransaction mintTx = new TokenMintTransaction()
+                    .setTokenId(TokenId.fromString(tokenId))
+                    .setAmount(amount.longValue())
+                    .setTransactionMemo("Mint for batch: " + batchNumber);
+            return new ScheduleCreateTransaction()
+                    .setScheduledTransaction(mintTx)
+                    .setScheduleMemo("Scheduled mint for batch: " + batchNumber + ", hash: " + receiptHash)
+                    .setAdminKey(operatorKey)
+                    .executeAsync(client)
+                    .thenCompose(response -> response.getReceiptAsync(client))
+                    .thenApply(receipt -> receipt.scheduleId.toString());
+        });
+    }
+
+    public CompletableFuture<String> transferTokensToManyAsync(String tokenId, String fromAccountId,
+                                                               Map<String, Long> recipientAmounts) {
+        if (isSimulated()) {
+            return simulated(() -> transferTokensToMany(tokenId, fromAccountId, recipientAmounts));
+        }
+        return onLedger("Transfert de tokens", () -> {
+            TokenId token = TokenId.fromString(tokenId);
+            TransferTransaction transferTx = new TransferTransaction();
+            long total = 0;
+            for (Map.Entry<String, Long> recipient : recipientAmounts.entrySet()) {
+                transferTx.addTokenTransfer(token, AccountId.fromString(recipient.getKey()), recipient.getValue());
+                total += recipient.getValue();
+            }
+            transferTx.addTokenTransfer(token, AccountId.fromString(fromAccountId), -total);
+            return transferTx.executeAsync(client)
+                    .thenCompose(response -> response.getReceiptAsync(client)
+                            .thenApply(receipt -> response.transactionId.toString()));
+        });
+    }
+
+    public CompletableFuture<Long> getAccountBalanceTinybarsAsync(String accountId) {
+        if (isSimulated()) {
+            return simulated(() -> getAccountBalanceTinybars(accountId));
+        }
+        return onLedger("Lecture du solde", () -> new AccountBalanceQuery()
+                .setAccountId(AccountId.fromString(accountId))
+                .executeAsync(client)
+                .thenApply(balance -> balance.hbars.toTinybars()));
+    }
+
+    /**
+     * Exécute une opération réseau sous le quota du compte opérateur, avec délai maximal.
+     * Annuler le résultat libère la place en file ou abandonne l'attente de l'opération.
+     */
+    private <T> CompletableFuture<T> onLedger(String action, Supplier<CompletableFuture<T>> operation) {
+        AsyncPermits permits = accountPermits.computeIfAbsent(operatorId.toString(),
+                account -> new AsyncPermits(maxConcurrentPerAccount));
+        CompletableFuture<T> submitted = permits.submit(
+                () -> operation.get().orTimeout(asyncTimeoutMs, TimeUnit.MILLISECONDS));
+        CompletableFuture<T> result = submitted.handle((value, error) -> {
+            if (error != null) {
+                throw toLedgerException(unwrap(error), action);
+            }
+            return value;
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                submitted.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static <T> CompletableFuture<T> simulated(Supplier<T> operation) {
+        try {
+            return CompletableFuture.completedFuture(operation.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException) && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+
+    private LedgerSubmissionException toLedgerException(Throwable cause, String action) {
+        if (cause instanceof LedgerSubmissionException ledgerException) {
+            return ledgerException;
+        }
+        if (cause instanceof PrecheckStatusException precheck) {
+            return new LedgerSubmissionException(action + " refusé au précontrôle: " + precheck.status,
+                    !NON_RETRYABLE_PRECHECK.contains(precheck.status), precheck);
+        }
+        if (cause instanceof ReceiptStatusException receiptError) {
+            return new LedgerSubmissionException(action + " refusé: " + receiptError.receipt.status, false, receiptError);
+        }
+        if (cause instanceof TimeoutException) {
+            return new LedgerSubmissionException(action + ": délai de " + asyncTimeoutMs + " ms dépassé", true, cause);
         }
+        return new LedgerSubmissionException(action + " en échec: " + cause.getMessage(), true, cause);
     }
 
     /**
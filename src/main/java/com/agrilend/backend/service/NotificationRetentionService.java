@@ -0,0 +1,258 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.notification.NotificationRetentionReportDto;
+import com.agrilend.backend.exception.ServiceUnavailableException;
+import com.agrilend.backend.util.JdbcBatches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Calendar;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rétention des notifications lues : au-delà d'un âge configurable, elles sont déplacées vers
+ * notifications_archive (mode archive) ou supprimées (mode compact), par lots bornés dans des
+ * transactions courtes, pour que la table et son index idx_user_read restent petits.
+ * Les lignes d'un lot sont verrouillées (SKIP LOCKED) : plusieurs nœuds peuvent tourner en même temps
+ * sans archiver deux fois la même notification.
+ */
+@Service
+public class NotificationRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationRetentionService.class);
+
+    private static final String SELECT_EXPIRED_SQL =
+            "SELECT id FROM notifications WHERE is_read = TRUE AND created_at < ? ORDER BY created_at LIMIT ? " +
+            "FOR UPDATE SKIP LOCKED";
+
+    private static final String ARCHIVE_SQL =
+            "INSERT INTO notifications_archive (id, user_id, type, title, message, related_entity_type, " +
+            "related_entity_id, created_at, archived_at) " +
+            "SELECT id, user_id, type, title, message, related_entity_type, related_entity_id, created_at, ? " +
+            "FROM notifications WHERE id IN (%s)";
+
+    private static final String DELETE_SQL = "DELETE FROM notifications WHERE id IN (%s)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.notifications.retention.enabled:true}")
+    private boolean enabled;
+
+    /**
+     * archive : copie dans notifications_archive puis suppression ; compact : suppression seule
+     */
+    @Value("${app.notifications.retention.mode:archive}")
+    private String mode;
+
+    @Value("${app.notifications.retention.max-age-days:90}")
+    private int maxAgeDays;
+
+    @Value("${app.notifications.retention.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${app.notifications.retention.max-batches-per-run:500}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.notifications.retention.pause-between-batches-ms:50}")
+    private long pauseBetweenBatchesMs;
+
+    @Autowired
+    @Qualifier("maintenanceExecutor")
+    private ThreadPoolTaskExecutor maintenanceExecutor;
+
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile NotificationRetentionReportDto lastReport;
+
+    private Counter rowsCounter;
+    private DistributionSummary batchSizeSummary;
+    private Timer runTimer;
+
+    public NotificationRetentionService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        rowsCounter = Counter.builder("agrilend.notifications.retention.rows")
+                .description("Notifications lues archivées ou supprimées par la rétention")
+                .tag("mode", mode)
+                .register(meterRegistry);
+        batchSizeSummary = DistributionSummary.builder("agrilend.notifications.retention.batch.size")
+                .description("Lignes traitées par lot de rétention")
+                .register(meterRegistry);
+        runTimer = Timer.builder("agrilend.notifications.retention.run")
+                .description("Durée d'une passe de rétention des notifications")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(cron = "${app.notifications.retention.cron:0 30 3 * * *}")
+    public void scheduledRun() {
+        if (!enabled) {
+            return;
+        }
+        // Une passe manuelle peut encore tourner à l'heure planifiée : la suivante la rattrapera
+        if (!running.compareAndSet(false, true)) {
+            logger.debug("Passe de rétention planifiée ignorée : une passe est déjà en cours");
+            return;
+        }
+        try {
+            runOnce();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Traite les notifications lues plus anciennes que l'âge maximal, jusqu'à épuisement ou limite de lots
+     */
+    public NotificationRetentionReportDto run() {
+        acquire();
+        try {
+            return runOnce();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Lance une passe en arrière-plan ; son bilan est ensuite disponible via {@link #getLastReport()}
+     */
+    public void runAsync() {
+        acquire();
+        try {
+            maintenanceExecutor.execute(() -> {
+                try {
+                    runOnce();
+                } catch (Exception e) {
+                    logger.error("Échec de la passe de rétention des notifications", e);
+                } finally {
+                    running.set(false);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            running.set(false);
+            throw new ServiceUnavailableException("Exécuteur de maintenance indisponible, réessayez plus tard");
+        }
+    }
+
+    /**
+     * Bilan de la dernière passe terminée depuis le démarrage, ou null
+     */
+    public NotificationRetentionReportDto getLastReport() {
+        return lastReport;
+    }
+
+    private void acquire() {
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("Une passe de rétention des notifications est déjà en cours");
+        }
+    }
+
+    private NotificationRetentionReportDto runOnce() {
+        NotificationRetentionReportDto report = runBatches(LocalDateTime.now().minusDays(maxAgeDays));
+        lastReport = report;
+        return report;
+    }
+
+    private NotificationRetentionReportDto runBatches(LocalDateTime cutoff) {
+        boolean archive = !"compact".equalsIgnoreCase(mode);
+        long start = System.nanoTime();
+        int batches = 0;
+        long rows = 0;
+        boolean complete = false;
+
+        while (batches < maxBatchesPerRun) {
+            Integer processed = transactionTemplate.execute(status -> processBatch(cutoff, archive));
+            int count = processed != null ? processed : 0;
+            if (count == 0) {
+                complete = true;
+                break;
+            }
+            batches++;
+            rows += count;
+            rowsCounter.increment(count);
+            batchSizeSummary.record(count);
+            if (count < batchSize) {
+                complete = true;
+                break;
+            }
+            if (!JdbcBatches.pause(pauseBetweenBatchesMs)) {
+                break;
+            }
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        runTimer.record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+        NotificationRetentionReportDto report = new NotificationRetentionReportDto();
+        report.setMode(archive ? "archive" : "compact");
+        report.setCutoff(cutoff);
+        report.setBatchSize(batchSize);
+        report.setBatches(batches);
+        report.setRowsProcessed(rows);
+        report.setDurationMs(TimeUnit.NANOSECONDS.toMillis(elapsedNanos));
+        report.setRowsPerSecond(elapsedNanos > 0 ? rows * 1_000_000_000d / elapsedNanos : 0);
+        report.setComplete(complete);
+
+        if (rows > 0) {
+            logger.info("Rétention des notifications ({}): {} ligne(s) en {} lot(s), {} ms, {} lignes/s{}",
+                    report.getMode(), rows, batches, report.getDurationMs(), Math.round(report.getRowsPerSecond()),
+                    complete ? "" : " (limite de lots atteinte)");
+        }
+        return report;
+    }
+
+    private int processBatch(LocalDateTime cutoff, boolean archive) {
+        Calendar utc = JdbcBatches.utcCalendar();
+        List<Long> ids = jdbcTemplate.query(SELECT_EXPIRED_SQL, ps -> {
+            ps.setTimestamp(1, Timestamp.valueOf(cutoff), utc);
+            ps.setInt(2, batchSize);
+        }, (rs, rowNum) -> rs.getLong(1));
+        if (ids.isEmpty()) {
+            return 0;
+        }
+
+        String placeholders = String.join(",", Collections.nCopies(ids.size(), "?"));
+        if (archive) {
+            Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+            jdbcTemplate.update(String.format(ARCHIVE_SQL, placeholders), ps -> {
+                ps.setTimestamp(1, now, utc);
+                bindIds(ps, 2, ids);
+            });
+        }
+        return jdbcTemplate.update(String.format(DELETE_SQL, placeholders), ps -> bindIds(ps, 1, ids));
+    }
+
+    private static void bindIds(PreparedStatement ps, int firstIndex, List<Long> ids) throws SQLException {
+        for (int i = 0; i < ids.size(); i++) {
+            ps.setLong(firstIndex + i, ids.get(i));
+        }
+    }
+}
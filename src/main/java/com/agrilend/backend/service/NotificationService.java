@@ -1,23 +1,40 @@
 package com.agrilend.backend.service;
 
+import com.agrilend.backend.dto.common.PageResponse;
 import com.agrilend.backend.dto.notification.NotificationDto;
 import com.agrilend.backend.entity.*;
 import com.agrilend.backend.entity.enums.OrderStatus;
 import com.agrilend.backend.entity.enums.UserRole;
+import com.agrilend.backend.event.NotificationsCreatedEvent;
+import com.agrilend.backend.event.NotificationsReadEvent;
+import com.agrilend.backend.mapper.NotificationMapper;
 import com.agrilend.backend.repository.NotificationRepository;
 import com.agrilend.backend.repository.UserRepository;
-import org.modelmapper.ModelMapper;
+import com.agrilend.backend.util.JdbcBatches;
+import com.agrilend.backend.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
-import org.springframework.mail.SimpleMailMessage;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.stream.Collectors;
 
 @Service
@@ -26,6 +43,10 @@ public class NotificationService {
 
     private static final Logger logger = LoggerFactory.getLogger(NotificationService.class);
 
+    private static final String INSERT_NOTIFICATION_SQL =
+            "INSERT INTO notifications (user_id, type, title, message, is_read, related_entity_type, " +
+            "related_entity_id, created_at) VALUES (?, ?, ?, ?, FALSE, ?, ?, ?)";
+
     @Autowired
     private NotificationRepository notificationRepository;
 
@@ -36,15 +57,30 @@ public class NotificationService {
     private JavaMailSender mailSender;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private NotificationMapper notificationMapper;
+
+    @Autowired
+    private EmailQueueService emailQueueService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.notifications.insert-batch-size:200}")
+    private int insertBatchSize;
 
     public NotificationDto createNotification(Long userId, String title, String message, 
                                             String type, String relatedEntityType, Long relatedEntityId) {
-        User user = userRepository.findById(userId)
+        String email = userRepository.findEmailById(userId)
             .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l\'ID: " + userId));
 
         Notification notification = new Notification();
-        notification.setUser(user);
+        notification.setUser(userRepository.getReferenceById(userId));
         notification.setTitle(title);
         notification.setMessage(message);
         notification.setType(type);
@@ -53,15 +89,56 @@ public class NotificationService {
         notification.setRelatedEntityId(relatedEntityId);
 
         Notification savedNotification = notificationRepository.save(notification);
+        eventPublisher.publishEvent(new NotificationsCreatedEvent(Map.of(userId, 1L)));
 
-        // Send email
-        if (mailSender == null) {
-            logger.warn("Mail sender is not configured. Skipping email notification for user: {}", user.getEmail());
-            return modelMapper.map(savedNotification, NotificationDto.class);
+        sendEmailNotification(email, title, message);
+
+        return notificationMapper.toDto(savedNotification);
+    }
+
+    /**
+     * Envoie la même notification à plusieurs destinataires en une insertion groupée
+     */
+    public int notifyAll(Collection<Recipient> recipients, Template template) {
+        List<Delivery> deliveries = new ArrayList<>(recipients.size());
+        for (Recipient recipient : new LinkedHashSet<>(recipients)) {
+            deliveries.add(new Delivery(recipient, template));
         }
-        sendEmailNotification(user.getEmail(), title, message);
+        return deliver(deliveries);
+    }
 
-        return modelMapper.map(savedNotification, NotificationDto.class);
+    /**
+     * Insère toutes les notifications par lots JDBC sans recharger les utilisateurs ;
+     * les emails sont mis en file et ne partent qu'après la validation de la transaction
+     */
+    public int deliver(List<Delivery> deliveries) {
+        if (deliveries.isEmpty()) {
+            return 0;
+        }
+        Calendar utc = JdbcBatches.utcCalendar();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_NOTIFICATION_SQL, deliveries, insertBatchSize, (ps, delivery) -> {
+            Template template = delivery.getTemplate();
+            ps.setLong(1, delivery.getRecipient().getUserId());
+            ps.setString(2, template.getType());
+            ps.setString(3, template.getTitle());
+            ps.setString(4, template.getMessage());
+            ps.setString(5, template.getRelatedEntityType());
+            if (template.getRelatedEntityId() != null) {
+                ps.setLong(6, template.getRelatedEntityId());
+            } else {
+                ps.setNull(6, Types.BIGINT);
+            }
+            ps.setTimestamp(7, now, utc);
+        });
+        eventPublisher.publishEvent(new NotificationsCreatedEvent(deliveries.stream()
+            .collect(Collectors.groupingBy(delivery -> delivery.getRecipient().getUserId(), Collectors.counting()))));
+
+        for (Delivery delivery : deliveries) {
+            sendEmailNotification(delivery.getRecipient().getEmail(), delivery.getTemplate().getTitle(),
+                delivery.getTemplate().getMessage());
+        }
+        return deliveries.size();
     }
 
     public void sendWelcomeNotification(User user) {
@@ -83,19 +160,19 @@ public class NotificationService {
             user.getFirstName(), user.getLastName(), user.getRole().name().toLowerCase()
         );
         
-        createNotification(user.getId(), title, message, "WELCOME", "USER", user.getId());
+        notifyAll(List.of(Recipient.of(user)), new Template("WELCOME", title, message, "USER", user.getId()));
     }
 
     public void notifyAdminsNewOffer(Offer offer) {
-        List<User> admins = userRepository.findAllByRole(UserRole.ADMIN);
         String title = "Nouvelle offre en attente de validation";
         String message = String.format("L\'offre pour le produit '%s' soumise par %s attend votre validation.",
             offer.getProduct().getName(),
             offer.getFarmer().getUser().getFirstName());
 
-        for (User admin : admins) {
-            createNotification(admin.getId(), title, message, "NEW_OFFER", "OFFER", offer.getId());
-        }
+        List<Recipient> admins = userRepository.findIdAndEmailByRole(UserRole.ADMIN).stream()
+            .map(row -> new Recipient((Long) row[0], (String) row[1]))
+            .collect(Collectors.toList());
+        notifyAll(admins, new Template("NEW_OFFER", title, message, "OFFER", offer.getId()));
     }
 
     public void notifyFarmerOfferApproved(Offer offer) {
@@ -104,7 +181,7 @@ public class NotificationService {
         String message = String.format("Bonne nouvelle ! Votre offre pour le produit '%s' a été approuvée.",
             offer.getProduct().getName());
 
-        createNotification(farmerUser.getId(), title, message, "OFFER_APPROVED", "OFFER", offer.getId());
+        notifyAll(List.of(Recipient.of(farmerUser)), new Template("OFFER_APPROVED", title, message, "OFFER", offer.getId()));
     }
 
     public void notifyFarmerOfferRejected(Offer offer, String reason) {
@@ -113,7 +190,22 @@ public class NotificationService {
         String message = String.format("Votre offre pour le produit '%s' a été rejetée. Raison: %s",
             offer.getProduct().getName(), reason);
 
-        createNotification(farmerUser.getId(), title, message, "OFFER_REJECTED", "OFFER", offer.getId());
+        notifyAll(List.of(Recipient.of(farmerUser)), new Template("OFFER_REJECTED", title, message, "OFFER", offer.getId()));
+    }
+
+    /**
+     * Une notification par offre expirée, insérées en un seul lot
+     */
+    public void notifyFarmersOffersExpired(List<Offer> offers) {
+        List<Delivery> deliveries = new ArrayList<>();
+        for (Offer offer : offers) {
+            String title = "Votre offre a expiré";
+            String message = String.format("Votre offre pour le produit '%s' a expiré et n'est plus visible des acheteurs.",
+                offer.getProduct().getName());
+            deliveries.add(new Delivery(Recipient.of(offer.getFarmer().getUser()),
+                new Template("OFFER_EXPIRED", title, message, "OFFER", offer.getId())));
+        }
+        deliver(deliveries);
     }
 
     public void notifyFarmerNewOrder(Order order) {
@@ -125,19 +217,21 @@ public class NotificationService {
             order.getOffer().getProduct().getName(),
             order.getBuyer().getUser().getFirstName());
 
-        createNotification(farmerUser.getId(), title, message, "NEW_ORDER", "ORDER", order.getId());
+        notifyAll(List.of(Recipient.of(farmerUser)), new Template("NEW_ORDER", title, message, "ORDER", order.getId()));
     }
 
     public void notifyOrderEscrowed(Order order) {
         User buyerUser = order.getBuyer().getUser();
         String buyerTitle = "Confirmation de votre commande";
         String buyerMessage = String.format("Les fonds pour votre commande #%s ont été placés en séquestre. L\'agriculteur a été notifié.", order.getOrderNumber());
-        createNotification(buyerUser.getId(), buyerTitle, buyerMessage, "ESCROW_CONFIRMED", "ORDER", order.getId());
 
         User farmerUser = order.getOffer().getFarmer().getUser();
         String farmerTitle = "Commande confirmée et sécurisée";
         String farmerMessage = String.format("La commande #%s est confirmée. Les fonds de l\'acheteur sont en séquestre.", order.getOrderNumber());
-        createNotification(farmerUser.getId(), farmerTitle, farmerMessage, "ESCROW_CONFIRMED", "ORDER", order.getId());
+
+        deliver(List.of(
+            new Delivery(Recipient.of(buyerUser), new Template("ESCROW_CONFIRMED", buyerTitle, buyerMessage, "ORDER", order.getId())),
+            new Delivery(Recipient.of(farmerUser), new Template("ESCROW_CONFIRMED", farmerTitle, farmerMessage, "ORDER", order.getId()))));
     }
 
     public void notifyOrderStatusChanged(Order order, OrderStatus previousStatus, OrderStatus newStatus) {
@@ -145,8 +239,8 @@ public class NotificationService {
         String message = String.format("Le statut de votre commande #%s est passé de %s à %s.",
             order.getOrderNumber(), previousStatus.name(), newStatus.name());
 
-        createNotification(order.getBuyer().getUser().getId(), title, message, "ORDER_STATUS_CHANGED", "ORDER", order.getId());
-        createNotification(order.getOffer().getFarmer().getUser().getId(), title, message, "ORDER_STATUS_CHANGED", "ORDER", order.getId());
+        notifyAll(List.of(Recipient.of(order.getBuyer().getUser()), Recipient.of(order.getOffer().getFarmer().getUser())),
+            new Template("ORDER_STATUS_CHANGED", title, message, "ORDER", order.getId()));
     }
 
     public void notifyEscrowReleased(Order order) {
@@ -154,25 +248,46 @@ public class NotificationService {
         String farmerTitle = "Paiement reçu";
         String farmerMessage = String.format("Le paiement pour la commande #%s (%.2f €) a été transféré sur votre compte.",
             order.getOrderNumber(), order.getTotalAmount());
-        createNotification(farmerUser.getId(), farmerTitle, farmerMessage, "PAYMENT_RELEASED", "ORDER", order.getId());
 
         User buyerUser = order.getBuyer().getUser();
         String buyerTitle = "Commande finalisée";
         String buyerMessage = String.format("La commande #%s est finalisée. Le paiement a été transféré à l\'agriculteur.",
             order.getOrderNumber());
-        createNotification(buyerUser.getId(), buyerTitle, buyerMessage, "ESCROW_COMPLETED", "ORDER", order.getId());
+
+        deliver(List.of(
+            new Delivery(Recipient.of(farmerUser), new Template("PAYMENT_RELEASED", farmerTitle, farmerMessage, "ORDER", order.getId())),
+            new Delivery(Recipient.of(buyerUser), new Template("ESCROW_COMPLETED", buyerTitle, buyerMessage, "ORDER", order.getId()))));
     }
 
     public List<NotificationDto> getUserNotifications(Long userId) {
         List<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId);
         return notifications.stream()
-            .map(notification -> modelMapper.map(notification, NotificationDto.class))
+            .map(notificationMapper::toDto)
             .collect(Collectors.toList());
     }
 
     public Page<NotificationDto> getUserNotifications(Long userId, Pageable pageable) {
         Page<Notification> notifications = notificationRepository.findByUserIdOrderByCreatedAtDesc(userId, pageable);
-        return notifications.map(notification -> modelMapper.map(notification, NotificationDto.class));
+        return notifications.map(notificationMapper::toDto);
+    }
+
+    /**
+     * Notifications de l'utilisateur par curseur (createdAt, id) ; le total n'est compté que sur demande
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<NotificationDto> getUserNotifications(Long userId, String cursor, int size, boolean includeTotal) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<Notification> notifications;
+        if (cursor == null) {
+            notifications = notificationRepository.findByUserIdKeyset(userId, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            notifications = notificationRepository.findByUserIdKeysetAfter(userId, after.getCreatedAt(), after.getId(), limit);
+        }
+        List<NotificationDto> rows = notifications.stream().map(notificationMapper::toDto).collect(Collectors.toList());
+        Long total = includeTotal ? notificationRepository.countByUserId(userId) : null;
+        return PageResponse.ofKeyset(rows, size, cursor == null,
+                notification -> KeysetCursor.encode(notification.getCreatedAt(), notification.getId()), total);
     }
 
     public NotificationDto markAsRead(Long notificationId, Long userId) {
@@ -183,38 +298,104 @@ public class NotificationService {
             throw new RuntimeException("Vous n\'êtes pas autorisé à modifier cette notification");
         }
 
+        boolean wasUnread = !notification.isRead();
         notification.setRead(true);
         Notification updatedNotification = notificationRepository.save(notification);
+        if (wasUnread) {
+            eventPublisher.publishEvent(new NotificationsReadEvent(userId, 1, false));
+        }
 
-        return modelMapper.map(updatedNotification, NotificationDto.class);
+        return notificationMapper.toDto(updatedNotification);
     }
 
     public void markAllAsRead(Long userId) {
-        List<Notification> notifications = notificationRepository.findByUserIdAndIsReadFalse(userId);
-        notifications.forEach(notification -> notification.setRead(true));
-        notificationRepository.saveAll(notifications);
+        int updated = notificationRepository.markAllAsReadByUserId(userId);
+        eventPublisher.publishEvent(new NotificationsReadEvent(userId, updated, true));
     }
 
     public long getUnreadCount(Long userId) {
-        return notificationRepository.countByUserIdAndIsReadFalse(userId);
+        return unreadCounter.get(userId);
     }
 
+    /**
+     * Met l'email en file ; il n'est enregistré qu'après la validation de la transaction courante
+     */
     private void sendEmailNotification(String to, String subject, String text) {
         if (mailSender == null) {
             logger.warn("Mail sender is not configured. Skipping email notification for user: {}", to);
             return;
         }
-        try {
-            SimpleMailMessage message = new SimpleMailMessage();
-            message.setFrom("noreply@agrilend.com");
-            message.setTo(to);
-            message.setSubject(subject);
-            message.setText(text);
-            System.out.println("Attempting to send email...");
-            mailSender.send(message);
-            System.out.println("Email sending completed (no exception thrown).");
-                    } catch (Exception e) {
-                        logger.error("Erreur lors de l'envoi de l'email à {}: {}", to, e.getMessage(), e);
-                        e.printStackTrace(System.err);
-                    }    }
-}
\ No newline at end of file
+        emailQueueService.enqueue(to, subject, text);
+    }
+
+    /**
+     * Destinataire d'une notification : identifiant et email suffisent, l'utilisateur n'est pas rechargé
+     */
+    public static class Recipient {
+        private final Long userId;
+        private final String email;
+
+        public Recipient(Long userId, String email) {
+            this.userId = userId;
+            this.email = email;
+        }
+
+        public static Recipient of(User user) {
+            return new Recipient(user.getId(), user.getEmail());
+        }
+
+        public Long getUserId() { return userId; }
+        public String getEmail() { return email; }
+
+        @Override
+        public boolean equals(Object o) {
+            return this == o || (o instanceof Recipient other && Objects.equals(userId, other.userId));
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(userId);
+        }
+    }
+
+    /**
+     * Contenu commun d'une notification
+     */
+    public static class Template {
+        private final String type;
+        private final String title;
+        private final String message;
+        private final String relatedEntityType;
+        private final Long relatedEntityId;
+
+        public Template(String type, String title, String message, String relatedEntityType, Long relatedEntityId) {
+            this.type = type;
+            this.title = title;
+            this.message = message;
+            this.relatedEntityType = relatedEntityType;
+            this.relatedEntityId = relatedEntityId;
+        }
+
+        public String getType() { return type; }
+        public String getTitle() { return title; }
+        public String getMessage() { return message; }
+        public String getRelatedEntityType() { return relatedEntityType; }
+        public Long getRelatedEntityId() { return relatedEntityId; }
+    }
+
+    /**
+     * Notification à remettre à un destinataire
+     */
+    public static class Delivery {
+        private final Recipient recipient;
+        private final Template template;
+
+        public Delivery(Recipient recipient, Template template) {
+            this.recipient = recipient;
+            this.template = template;
+        }
+
+        public Recipient getRecipient() { return recipient; }
+        public Template getTemplate() { return template; }
+    }
+}
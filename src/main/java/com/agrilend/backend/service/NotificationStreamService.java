@@ -0,0 +1,254 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.notification.NotificationDto;
+import com.agrilend.backend.event.NotificationsCreatedEvent;
+import com.agrilend.backend.event.NotificationsReadEvent;
+import com.agrilend.backend.mapper.NotificationMapper;
+import com.agrilend.backend.repository.NotificationRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+/**
+ * Flux SSE des notifications. Une connexion inactive ne retient aucun thread : les envois se font
+ * depuis un exécuteur dédié après la validation des créations. Chaque flux mémorise le dernier
+ * identifiant envoyé, ce qui sert aussi à la reprise par Last-Event-ID.
+ */
+@Service
+public class NotificationStreamService {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationStreamService.class);
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Autowired
+    private NotificationMapper notificationMapper;
+
+    @Autowired
+    private UnreadNotificationCounter unreadCounter;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    @Qualifier("notificationPushExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${app.notifications.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    @Value("${app.notifications.stream.max-per-user:5}")
+    private int maxPerUser;
+
+    @Value("${app.notifications.stream.replay-limit:100}")
+    private int replayLimit;
+
+    @Value("${app.notifications.stream.heartbeat-chunk-size:200}")
+    private int heartbeatChunkSize;
+
+    private final ConcurrentHashMap<Long, List<Subscription>> subscriptions = new ConcurrentHashMap<>();
+    private final AtomicInteger connections = new AtomicInteger();
+
+    @PostConstruct
+    public void init() {
+        Gauge.builder("agrilend.notifications.stream.connections", connections, AtomicInteger::get)
+                .description("Flux SSE de notifications ouverts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Ouvre un flux ; avec {@code lastEventId}, les notifications manquées depuis cet identifiant sont renvoyées
+     */
+    public SseEmitter subscribe(Long userId, Long lastEventId) {
+        long cursor = lastEventId != null ? lastEventId : notificationRepository.findMaxIdByUserId(userId);
+        Subscription subscription = new Subscription(userId, new SseEmitter(timeoutMs), cursor);
+        SseEmitter emitter = subscription.emitter;
+        emitter.onCompletion(() -> remove(subscription));
+        emitter.onTimeout(() -> remove(subscription));
+        emitter.onError(error -> remove(subscription));
+
+        List<Subscription> userSubscriptions = subscriptions.compute(userId, (id, list) -> {
+            List<Subscription> current = list != null ? list : new CopyOnWriteArrayList<>();
+            current.add(subscription);
+            return current;
+        });
+        connections.incrementAndGet();
+        // Au-delà de la limite, les flux les plus anciens de l'utilisateur sont fermés
+        while (userSubscriptions.size() > maxPerUser) {
+            Subscription oldest = userSubscriptions.get(0);
+            remove(oldest);
+            oldest.emitter.complete();
+        }
+
+        subscription.send(SseEmitter.event().name("unread-count").data(unreadCounter.get(userId)));
+        if (lastEventId != null) {
+            push(userId);
+        }
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCreated(NotificationsCreatedEvent event) {
+        event.getCountsByUser().keySet().forEach(this::schedulePush);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRead(NotificationsReadEvent event) {
+        schedulePush(event.getUserId());
+    }
+
+    /**
+     * Commentaire SSE périodique : garde les connexions ouvertes à travers les proxys et détecte les clients partis.
+     * Les envois, qui peuvent bloquer sur un client lent, sont faits par lots sur l'exécuteur des envois
+     * et non sur le planificateur partagé.
+     */
+    @Scheduled(fixedDelayString = "${app.notifications.stream.heartbeat-interval-ms:20000}")
+    public void heartbeat() {
+        List<Subscription> open = new ArrayList<>();
+        subscriptions.values().forEach(open::addAll);
+        for (int from = 0; from < open.size(); from += heartbeatChunkSize) {
+            List<Subscription> chunk = open.subList(from, Math.min(from + heartbeatChunkSize, open.size()));
+            try {
+                executor.execute(() -> chunk.forEach(subscription -> subscription.send(SseEmitter.event().comment("ping"))));
+            } catch (RejectedExecutionException e) {
+                logger.warn("Heartbeat des flux de notifications écourté: exécuteur saturé");
+                return;
+            }
+        }
+    }
+
+    private void schedulePush(Long userId) {
+        if (!subscriptions.containsKey(userId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> push(userId));
+        } catch (RejectedExecutionException e) {
+            // Le client recevra ces notifications à la prochaine création ou à sa reconnexion
+            logger.warn("Diffusion des notifications différée pour l'utilisateur {}: exécuteur saturé", userId);
+        }
+    }
+
+    /**
+     * Envoie à chaque flux de l'utilisateur les notifications postérieures à son curseur, puis le compteur de non lues
+     */
+    private void push(Long userId) {
+        List<Subscription> userSubscriptions = subscriptions.get(userId);
+        if (userSubscriptions == null || userSubscriptions.isEmpty()) {
+            return;
+        }
+        long from = userSubscriptions.stream().mapToLong(Subscription::cursor).min().orElse(0);
+        List<NotificationDto> pending = notificationRepository
+                .findByUserIdAndIdGreaterThanOrderByIdAsc(userId, from, PageRequest.of(0, replayLimit)).stream()
+                .map(notificationMapper::toDto)
+                .collect(Collectors.toList());
+        long unread = unreadCounter.get(userId);
+        for (Subscription subscription : userSubscriptions) {
+            subscription.sendNotifications(pending);
+            subscription.send(SseEmitter.event().name("unread-count").data(unread));
+        }
+    }
+
+    private void remove(Subscription subscription) {
+        if (!subscription.closed.compareAndSet(false, true)) {
+            return;
+        }
+        subscriptions.computeIfPresent(subscription.userId, (id, list) -> {
+            list.remove(subscription);
+            return list.isEmpty() ? null : list;
+        });
+        connections.decrementAndGet();
+    }
+
+    /**
+     * Flux ouvert d'un utilisateur ; les envois sont sérialisés pour que le curseur suive l'ordre d'émission
+     */
+    class Subscription {
+        private final Long userId;
+        private final SseEmitter emitter;
+        private final ReentrantLock lock = new ReentrantLock();
+        private long cursor;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        Subscription(Long userId, SseEmitter emitter, long cursor) {
+            this.userId = userId;
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+
+        long cursor() {
+            lock.lock();
+            try {
+                return cursor;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void sendNotifications(List<NotificationDto> notifications) {
+            lock.lock();
+            try {
+                for (NotificationDto notification : notifications) {
+                    if (closed.get()) {
+                        return;
+                    }
+                    if (notification.getId() <= cursor) {
+                        continue;
+                    }
+                    emitter.send(SseEmitter.event()
+                            .id(String.valueOf(notification.getId()))
+                            .name("notification")
+                            .data(notification, MediaType.APPLICATION_JSON));
+                    cursor = notification.getId();
+                }
+            } catch (IOException | IllegalStateException e) {
+                fail(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void send(SseEmitter.SseEventBuilder event) {
+            lock.lock();
+            try {
+                if (!closed.get()) {
+                    emitter.send(event);
+                }
+            } catch (IOException | IllegalStateException e) {
+                fail(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void fail(Exception e) {
+            logger.debug("Flux de notifications fermé pour l'utilisateur {}: {}", userId, e.getMessage());
+            remove(this);
+            emitter.completeWithError(e);
+        }
+    }
+}
@@ -0,0 +1,292 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.offer.OfferDto;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.event.CacheInvalidationBroker;
+import com.agrilend.backend.event.CacheInvalidationMessage;
+import com.agrilend.backend.event.FarmerProfileChangedEvent;
+import com.agrilend.backend.event.OfferChangedEvent;
+import com.agrilend.backend.event.ProductChangedEvent;
+import com.agrilend.backend.repository.OfferRepository;
+import com.agrilend.backend.util.BoundedTtlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Cache en lecture des offres de la place de marché : pages de la liste des offres actives et offres
+ * individuelles, sous forme de DTO prêts à renvoyer. L'invalidation suit les changements validés :
+ * une offre modifiée n'invalide que les pages qui la contiennent, un changement de l'ensemble des
+ * offres actives (validation, rupture de stock...) invalide toutes les pages car les positions se décalent.
+ * Les DTO reprennent aussi le nom de l'agriculteur : un changement de son profil invalide toutes ses offres.
+ * <p>
+ * Les invalidations ne traversent les instances que via {@link CacheInvalidationBroker} : avec le broker
+ * en mémoire fourni par défaut, le cache ne convient qu'à une instance unique. Sur plusieurs nœuds, fournir
+ * un broker partagé ou désactiver le cache (app.offers.cache.enabled=false), sinon une instance peut servir
+ * une offre périmée jusqu'à l'expiration de l'entrée (app.offers.cache.ttl-ms).
+ */
+@Service
+public class OfferCatalogueCache {
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private CacheInvalidationBroker broker;
+
+    @Autowired
+    private CatalogueVersions catalogueVersions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.offers.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.offers.cache.max-offers:10000}")
+    private int maxOffers;
+
+    @Value("${app.offers.cache.max-pages:2000}")
+    private int maxPages;
+
+    @Value("${app.offers.cache.ttl-ms:300000}")
+    private long ttlMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private BoundedTtlCache<Long, Cached<OfferDto>> offers;
+    private BoundedTtlCache<String, Cached<Object>> pages;
+    // Pages mises en cache contenant chaque offre ; les clés de pages déjà évincées sont sans effet
+    private final ConcurrentHashMap<Long, Set<String>> pagesByOffer = new ConcurrentHashMap<>();
+    // Incrémenté à chaque invalidation : un chargement commencé avant n'est pas mis en cache
+    private final AtomicLong generation = new AtomicLong();
+    // Mise en cache (lecture) et invalidation (écriture) exclusives : la génération ne peut changer
+    // entre sa vérification et l'insertion de l'entrée
+    private final ReentrantReadWriteLock invalidationLock = new ReentrantReadWriteLock();
+
+    private Counter offerHits;
+    private Counter offerMisses;
+    private Counter pageHits;
+    private Counter pageMisses;
+    private Timer entryAge;
+    private Timer invalidationLag;
+
+    @PostConstruct
+    public void init() {
+        offers = new BoundedTtlCache<>(maxOffers, ttlMs);
+        pages = new BoundedTtlCache<>(maxPages, ttlMs);
+        offerHits = requests("offer", "hit");
+        offerMisses = requests("offer", "miss");
+        pageHits = requests("page", "hit");
+        pageMisses = requests("page", "miss");
+        entryAge = Timer.builder("agrilend.offers.cache.entry.age")
+                .description("Âge des entrées servies depuis le cache des offres")
+                .register(meterRegistry);
+        invalidationLag = Timer.builder("agrilend.offers.cache.invalidation.lag")
+                .description("Délai entre la publication d'une invalidation par une autre instance et son application")
+                .register(meterRegistry);
+        Gauge.builder("agrilend.offers.cache.size", offers, BoundedTtlCache::size)
+                .tag("cache", "offer")
+                .register(meterRegistry);
+        Gauge.builder("agrilend.offers.cache.size", pages, BoundedTtlCache::size)
+                .tag("cache", "page")
+                .register(meterRegistry);
+        broker.subscribe(this::onRemoteInvalidation);
+    }
+
+    /**
+     * Offre individuelle, chargée par {@code loader} si absente ; les exceptions du chargement ne sont pas mises en cache
+     */
+    public OfferDto getOffer(Long offerId, Supplier<OfferDto> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Cached<OfferDto> cached = offers.get(offerId);
+        if (cached != null) {
+            offerHits.increment();
+            entryAge.record(cached.age());
+            return cached.value;
+        }
+        offerMisses.increment();
+        long loadGeneration = generation.get();
+        OfferDto offer = loader.get();
+        invalidationLock.readLock().lock();
+        try {
+            if (generation.get() == loadGeneration) {
+                offers.put(offerId, new Cached<>(offer));
+            }
+        } finally {
+            invalidationLock.readLock().unlock();
+        }
+        return offer;
+    }
+
+    /**
+     * Page de la liste des offres actives ; {@code contentOf} donne les offres de la page pour l'invalidation ciblée
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T getPage(String key, Supplier<T> loader, Function<T, List<OfferDto>> contentOf) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Cached<Object> cached = pages.get(key);
+        if (cached != null) {
+            pageHits.increment();
+            entryAge.record(cached.age());
+            return (T) cached.value;
+        }
+        pageMisses.increment();
+        long loadGeneration = generation.get();
+        T page = loader.get();
+        invalidationLock.readLock().lock();
+        try {
+            if (generation.get() == loadGeneration) {
+                for (OfferDto offer : contentOf.apply(page)) {
+                    pagesByOffer.computeIfAbsent(offer.getId(), id -> ConcurrentHashMap.newKeySet()).add(key);
+                }
+                pages.put(key, new Cached<>(page));
+            }
+        } finally {
+            invalidationLock.readLock().unlock();
+        }
+        return page;
+    }
+
+    /**
+     * Invalide localement après validation du changement, puis diffuse l'invalidation aux autres instances
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOfferChanged(OfferChangedEvent event) {
+        boolean listingChanged = switch (event.getChange()) {
+            case STATUS_CHANGED, STOCK_RELEASED -> true;
+            // Une réservation ne change la liste que si elle épuise l'offre
+            case STOCK_RESERVED -> offerRepository.findStatusById(event.getOfferId())
+                    .map(status -> status != OfferStatus.ACTIVE)
+                    .orElse(true);
+            case CREATED, UPDATED, DELETED -> false;
+        };
+        invalidate(event.getOfferId(), listingChanged);
+        broker.publish(new CacheInvalidationMessage(CacheInvalidationMessage.OFFERS, nodeId, event.getOfferId(),
+                listingChanged, System.currentTimeMillis()));
+    }
+
+    /**
+     * Les DTO d'offres reprennent les informations du produit : toute modification du catalogue vide le cache
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidateAll();
+    }
+
+    /**
+     * Nom de l'agriculteur repris dans ses offres : seules ses offres et les pages qui les contiennent sont invalidées
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onFarmerProfileChanged(FarmerProfileChangedEvent event) {
+        invalidateFarmer(event.getFarmerId());
+        broker.publish(new CacheInvalidationMessage(CacheInvalidationMessage.FARMERS, nodeId, event.getFarmerId(),
+                false, System.currentTimeMillis()));
+    }
+
+    public void invalidateAll() {
+        invalidationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            offers.invalidateAll();
+            pages.invalidateAll();
+            pagesByOffer.clear();
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+        catalogueVersions.offersChanged();
+    }
+
+    private void onRemoteInvalidation(CacheInvalidationMessage message) {
+        if (nodeId.equals(message.getOriginNodeId())) {
+            return;
+        }
+        if (CacheInvalidationMessage.PRODUCTS.equals(message.getRegion())) {
+            invalidateAll();
+        } else if (CacheInvalidationMessage.FARMERS.equals(message.getRegion())) {
+            invalidateFarmer(message.getEntityId());
+        } else {
+            invalidate(message.getEntityId(), message.isListingChanged());
+        }
+        invalidationLag.record(Duration.ofMillis(Math.max(0, System.currentTimeMillis() - message.getPublishedAtMillis())));
+    }
+
+    private void invalidateFarmer(Long farmerId) {
+        List<Long> offerIds = offerRepository.findIdsByFarmerId(farmerId);
+        invalidationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            for (Long offerId : offerIds) {
+                offers.invalidate(offerId);
+                Set<String> keys = pagesByOffer.remove(offerId);
+                if (keys != null) {
+                    keys.forEach(pages::invalidate);
+                }
+            }
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+        catalogueVersions.offersChanged();
+    }
+
+    private void invalidate(Long offerId, boolean listingChanged) {
+        invalidationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            offers.invalidate(offerId);
+            if (listingChanged) {
+                pages.invalidateAll();
+                pagesByOffer.clear();
+            } else {
+                Set<String> keys = pagesByOffer.remove(offerId);
+                if (keys != null) {
+                    keys.forEach(pages::invalidate);
+                }
+            }
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+        catalogueVersions.offersChanged();
+    }
+
+    private Counter requests(String cache, String result) {
+        return Counter.builder("agrilend.offers.cache.requests")
+                .description("Lectures du cache des offres")
+                .tag("cache", cache)
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private static final class Cached<V> {
+        private final V value;
+        private final long loadedAtNanos = System.nanoTime();
+
+        private Cached(V value) {
+            this.value = value;
+        }
+
+        private Duration age() {
+            return Duration.ofNanos(System.nanoTime() - loadedAtNanos);
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.event.OfferChangedEvent;
+import com.agrilend.backend.repository.OfferRepository;
+import com.agrilend.backend.util.JdbcBatches;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Expiration des offres actives, à la place de l'évènement MySQL quotidien : les offres échues sont
+ * passées à EXPIRED par petits lots, à intervalle régulier, en publiant un {@link OfferChangedEvent}
+ * par offre (caches, index de recherche) et en prévenant les agriculteurs.
+ * Comme l'ancien évènement, une offre expire le lendemain de sa date d'expiration ou lorsque
+ * sa date de disponibilité est dépassée de plus de {@code grace-days} jours, au premier des deux termes.
+ */
+@Service
+public class OfferExpiryService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OfferExpiryService.class);
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private NotificationService notificationService;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.offers.expiry.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.offers.expiry.availability-grace-days:30}")
+    private int availabilityGraceDays;
+
+    @Value("${app.offers.expiry.batch-size:100}")
+    private int batchSize;
+
+    @Value("${app.offers.expiry.max-batches-per-run:20}")
+    private int maxBatchesPerRun;
+
+    @Value("${app.offers.expiry.pause-between-batches-ms:200}")
+    private long pauseBetweenBatchesMs;
+
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private Counter expiredCounter;
+
+    public OfferExpiryService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void init() {
+        expiredCounter = Counter.builder("agrilend.offers.expired")
+                .description("Offres passées à EXPIRED par la tâche d'expiration")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Passe courte et fréquente : le travail du lendemain d'une échéance est étalé sur plusieurs passes
+     */
+    @Scheduled(fixedDelayString = "${app.offers.expiry.interval-ms:300000}")
+    public void expireDueOffers() {
+        if (!enabled || !running.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            int expired = 0;
+            for (int batch = 0; batch < maxBatchesPerRun; batch++) {
+                Integer count = transactionTemplate.execute(status -> expireBatch(LocalDate.now()));
+                int processed = count != null ? count : 0;
+                expired += processed;
+                if (processed == 0 || !JdbcBatches.pause(pauseBetweenBatchesMs)) {
+                    break;
+                }
+            }
+            if (expired > 0) {
+                logger.info("{} offre(s) expirée(s)", expired);
+            }
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Verrouille un lot d'offres échues (les offres prises par une autre instance sont sautées),
+     * les passe à EXPIRED et prévient les agriculteurs des seules offres effectivement expirées ;
+     * les évènements sont traités après validation
+     */
+    private int expireBatch(LocalDate today) {
+        PageRequest limit = PageRequest.of(0, batchSize);
+        List<Offer> due = offerRepository.lockPastExpiryDate(OfferStatus.ACTIVE, today, limit);
+        if (due.isEmpty()) {
+            due = offerRepository.lockPastAvailability(OfferStatus.ACTIVE, today.minusDays(availabilityGraceDays), limit);
+        }
+        if (due.isEmpty()) {
+            return 0;
+        }
+
+        List<Long> ids = due.stream().map(Offer::getId).collect(Collectors.toList());
+        if (offerRepository.expireIfActive(ids, OfferStatus.ACTIVE, OfferStatus.EXPIRED, LocalDateTime.now()) == 0) {
+            return ids.size();
+        }
+        // Les lignes sont verrouillées : une offre du lot désormais EXPIRED l'a été par cette mise à jour
+        List<Offer> expired = offerRepository.findWithFarmerByIdInAndStatus(ids, OfferStatus.EXPIRED);
+        for (Offer offer : expired) {
+            eventPublisher.publishEvent(new OfferChangedEvent(offer.getId(), OfferChangedEvent.Change.STATUS_CHANGED));
+        }
+        notificationService.notifyFarmersOffersExpired(expired);
+        expiredCounter.increment(expired.size());
+        return ids.size();
+    }
+}
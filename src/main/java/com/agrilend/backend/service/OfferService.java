@@ -1,27 +1,30 @@
 package com.agrilend.backend.service;
 
+import com.agrilend.backend.dto.common.PageResponse;
 import com.agrilend.backend.dto.offer.OfferDto;
 import com.agrilend.backend.entity.Farmer;
 import com.agrilend.backend.entity.Offer;
 import com.agrilend.backend.entity.Product;
-import com.agrilend.backend.entity.User;
 import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.event.OfferChangedEvent;
+import com.agrilend.backend.mapper.OfferMapper;
 import com.agrilend.backend.repository.FarmerRepository;
 import com.agrilend.backend.repository.OfferRepository;
 import com.agrilend.backend.repository.ProductRepository;
-import com.agrilend.backend.repository.UserRepository;
-import org.modelmapper.ModelMapper;
+import com.agrilend.backend.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -39,13 +42,16 @@ public class OfferService {
     private FarmerRepository farmerRepository;
 
     @Autowired
-    private UserRepository userRepository;
+    private OfferMapper offerMapper;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private NotificationService notificationService;
 
     @Autowired
-    private NotificationService notificationService;
+    private ApplicationEventPublisher eventPublisher;
+
+    @Autowired
+    private OfferCatalogueCache catalogueCache;
 
     public OfferDto createOffer(Long farmerId, OfferDto offerDto) {
         Farmer farmer = farmerRepository.findById(farmerId)
@@ -59,13 +65,15 @@ public class OfferService {
         offer.setProduct(product);
         offer.setAvailableQuantity(offerDto.getAvailableQuantity());
         offer.setAvailabilityDate(offerDto.getAvailabilityDate());
+        offer.setExpiryDate(offerDto.getExpiryDate());
         offer.setSuggestedUnitPrice(offerDto.getSuggestedUnitPrice());
         offer.setStatus(OfferStatus.PENDING_VALIDATION);
         offer.setNotes(offerDto.getNotes());
 
         Offer savedOffer = offerRepository.save(offer);
+        eventPublisher.publishEvent(new OfferChangedEvent(savedOffer.getId(), OfferChangedEvent.Change.CREATED));
 
-        // notificationService.notifyAdminsNewOffer(savedOffer);
+        notificationService.notifyAdminsNewOffer(savedOffer);
 
         return mapToDto(savedOffer);
     }
@@ -84,10 +92,13 @@ public class OfferService {
 
         offer.setAvailableQuantity(offerDto.getAvailableQuantity());
         offer.setAvailabilityDate(offerDto.getAvailabilityDate());
+        offer.setExpiryDate(offerDto.getExpiryDate());
         offer.setSuggestedUnitPrice(offerDto.getSuggestedUnitPrice());
         offer.setNotes(offerDto.getNotes());
 
-        return mapToDto(offerRepository.save(offer));
+        Offer updatedOffer = offerRepository.save(offer);
+        eventPublisher.publishEvent(new OfferChangedEvent(offerId, OfferChangedEvent.Change.UPDATED));
+        return mapToDto(updatedOffer);
     }
 
     public void deleteOffer(Long offerId, Long farmerId) {
@@ -103,6 +114,7 @@ public class OfferService {
         }
 
         offerRepository.delete(offer);
+        eventPublisher.publishEvent(new OfferChangedEvent(offerId, OfferChangedEvent.Change.DELETED));
     }
 
     public OfferDto approveOffer(Long offerId) {
@@ -119,8 +131,9 @@ public class OfferService {
         offer.setValidatedAt(LocalDateTime.now());
 
         Offer approvedOffer = offerRepository.save(offer);
+        eventPublisher.publishEvent(new OfferChangedEvent(offerId, OfferChangedEvent.Change.STATUS_CHANGED));
 
-        // notificationService.notifyFarmerOfferApproved(approvedOffer);
+        notificationService.notifyFarmerOfferApproved(approvedOffer);
 
         return mapToDto(approvedOffer);
     }
@@ -133,59 +146,62 @@ public class OfferService {
         offer.setRejectionReason(reason);
 
         Offer rejectedOffer = offerRepository.save(offer);
+        eventPublisher.publishEvent(new OfferChangedEvent(offerId, OfferChangedEvent.Change.STATUS_CHANGED));
 
-        // notificationService.notifyFarmerOfferRejected(rejectedOffer, reason);
+        notificationService.notifyFarmerOfferRejected(rejectedOffer, reason);
 
         return mapToDto(rejectedOffer);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public OfferDto getOfferById(Long offerId) {
-        return mapToDto(offerRepository.findById(offerId)
+        return catalogueCache.getOffer(offerId, () -> offerRepository.findDtoById(offerId)
                 .orElseThrow(() -> new RuntimeException("Offre non trouvée avec l'ID: " + offerId)));
     }
 
     public List<OfferDto> getOffersByFarmer(Long farmerId) {
-        List<Offer> offers = offerRepository.findByFarmerId(farmerId);
-        return offers.stream().map(this::mapToDto).collect(Collectors.toList());
+        return offerRepository.findDtosByFarmerId(farmerId);
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Page<OfferDto> getApprovedOffers(Pageable pageable) {
-        return offerRepository.findByStatus(OfferStatus.ACTIVE, pageable)
-                .map(this::mapToDto);
+        String key = "page:" + pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+        return catalogueCache.getPage(key, () -> offerRepository.findDtosByStatus(OfferStatus.ACTIVE, pageable),
+                Page::getContent);
+    }
+
+    /**
+     * Offres actives par curseur (createdAt, id) ; le total n'est compté que sur demande
+     */
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
+    public PageResponse<OfferDto> getApprovedOffers(String cursor, int size, boolean includeTotal) {
+        String key = "keyset:" + cursor + ":" + size + ":" + includeTotal;
+        return catalogueCache.getPage(key, () -> loadApprovedOffers(cursor, size, includeTotal), PageResponse::getContent);
+    }
+
+    private PageResponse<OfferDto> loadApprovedOffers(String cursor, int size, boolean includeTotal) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<OfferDto> rows;
+        if (cursor == null) {
+            rows = offerRepository.findDtosByStatusKeyset(OfferStatus.ACTIVE, limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = offerRepository.findDtosByStatusKeysetAfter(OfferStatus.ACTIVE, after.getCreatedAt(), after.getId(), limit);
+        }
+        Long total = includeTotal ? offerRepository.countByStatus(OfferStatus.ACTIVE) : null;
+        return PageResponse.ofKeyset(rows, size, cursor == null,
+                offer -> KeysetCursor.encode(offer.getCreatedAt(), offer.getId()), total);
     }
 
     public Page<OfferDto> getPendingOffers(Pageable pageable) {
-        return offerRepository.findByStatus(OfferStatus.PENDING_VALIDATION, pageable)
-                .map(this::mapToDto);
+        return offerRepository.findDtosByStatus(OfferStatus.PENDING_VALIDATION, pageable);
     }
 
     public Page<OfferDto> getAllOffers(Pageable pageable) {
-        return offerRepository.findAll(pageable).map(this::mapToDto);
+        return offerRepository.findAllDtos(pageable);
     }
 
     private OfferDto mapToDto(Offer offer) {
-        OfferDto dto = modelMapper.map(offer, OfferDto.class);
-
-        Product product = offer.getProduct();
-        dto.setProductId(product.getId());
-        dto.setProductName(product.getName());
-        dto.setProductDescription(product.getDescription());
-        dto.setProductCategory(product.getCategory());
-        dto.setProductUnit(product.getUnit().name());
-        dto.setProductImageUrl(product.getImageUrl());
-        if (offer.getProductionMethod() != null) {
-            dto.setProductionMethod(offer.getProductionMethod().name());
-        }
-
-        Farmer farmer = offer.getFarmer();
-        User farmerUser = userRepository.findById(farmer.getId())
-                .orElseThrow(() -> new IllegalStateException("User not found for Farmer ID: " + farmer.getId()));
-        dto.setFarmerId(farmer.getId());
-        dto.setFarmerName(farmerUser.getFirstName() + " " + farmerUser.getLastName());
-        dto.setFarmerEmail(farmerUser.getEmail());
-
-        dto.setFinalUnitPrice(offer.getFinalPriceBuyer());
-
-        return dto;
+        return offerMapper.toDto(offer);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,257 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.User;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.repository.OrderRepository;
+import com.agrilend.backend.repository.UserRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pipeline asynchrone des étapes Hedera d'une commande (compte, alimentation, séquestre).
+ * Chaque étape valide son propre changement d'état dans une transaction courte ;
+ * aucun appel réseau n'est effectué pendant qu'une connexion base de données est tenue.
+ * Le dépôt en séquestre est confié à l'outbox ({@link TransactionOutboxService}).
+ */
+@Service
+public class OrderPipelineService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderPipelineService.class);
+    private static final BigDecimal FUNDING_FEE_MARGIN = new BigDecimal("1.0");
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private HederaService hederaService;
+
+    @Autowired
+    private HederaAccountPoolService hederaAccountPoolService;
+
+    @Autowired
+    private AccountBalanceService accountBalanceService;
+
+    @Autowired
+    private EscrowService escrowService;
+
+    @Autowired
+    private TransactionOutboxService transactionOutboxService;
+
+    @Autowired
+    @Qualifier("orderPipelineExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.orders.pipeline.max-in-flight:500}")
+    private int maxInFlight;
+
+    private final TransactionTemplate transactionTemplate;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private Timer pipelineTimer;
+
+    public OrderPipelineService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @PostConstruct
+    public void initMetrics() {
+        pipelineTimer = Timer.builder("agrilend.orders.pipeline.duration")
+                .description("Durée des étapes Hedera d'une commande, jusqu'à la mise en file du séquestre")
+                .register(meterRegistry);
+        Gauge.builder("agrilend.orders.pipeline.in_flight", inFlight, AtomicInteger::get)
+                .description("Commandes dont les étapes Hedera sont en cours")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Indique si le pipeline peut encore accepter une commande (file de l'exécuteur et commandes en vol)
+     */
+    public boolean hasCapacity() {
+        return executor.getThreadPoolExecutor().getQueue().remainingCapacity() > 0 && inFlight.get() < maxInFlight;
+    }
+
+    /**
+     * Soumet une commande PENDING au pipeline ; en cas de saturation la commande est annulée
+     */
+    public void submit(Long orderId) {
+        try {
+            executor.execute(() -> process(orderId));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Pipeline de commandes saturé, commande {} annulée", orderId);
+            markFailed(orderId, "File de traitement des commandes saturée");
+        }
+    }
+
+    /**
+     * Enchaîne les étapes sans bloquer de thread pendant les appels Hedera : le travail en base
+     * reprend sur l'exécuteur du pipeline une fois la réponse du réseau reçue.
+     */
+    void process(Long orderId) {
+        Order order;
+        try {
+            order = loadOrder(orderId);
+        } catch (Exception e) {
+            handleFailure(orderId, e);
+            return;
+        }
+        if (order.getStatus() != OrderStatus.PENDING) {
+            logger.info("Commande {} déjà traitée (statut: {}), pipeline ignoré", orderId, order.getStatus());
+            return;
+        }
+
+        inFlight.incrementAndGet();
+        Timer.Sample sample = Timer.start(meterRegistry);
+        CompletableFuture.completedFuture(order)
+                .thenCompose(this::ensureBuyerAccount)
+                .thenCompose(buyerAccountId -> fundBuyerAccount(order, buyerAccountId))
+                .thenAcceptAsync(buyerAccountId -> {
+                    checkBuyerBalance(order, buyerAccountId);
+                    queueEscrowDeposit(orderId);
+                }, executor)
+                .whenComplete((ignored, error) -> {
+                    inFlight.decrementAndGet();
+                    sample.stop(pipelineTimer);
+                })
+                // L'annulation est un travail JPA bloquant : jamais sur un thread du SDK Hedera.
+                // Si l'exécuteur est saturé, la réservation expirée est libérée par le balayage périodique.
+                .whenCompleteAsync((ignored, error) -> {
+                    if (error != null) {
+                        handleFailure(orderId, error);
+                    }
+                }, executor);
+    }
+
+    private void handleFailure(Long orderId, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        logger.error("Erreur lors du traitement Hedera de la commande {}: {}", orderId, cause.getMessage(), cause);
+        try {
+            markFailed(orderId, "Erreur lors de l'initiation du séquestre Hedera: " + cause.getMessage());
+        } catch (Exception e) {
+            logger.error("Impossible d'annuler la commande {} après l'échec du pipeline", orderId, e);
+        }
+    }
+
+    // --- Étape 1 : compte Hedera de l'acheteur ---
+    private CompletableFuture<String> ensureBuyerAccount(Order order) {
+        User buyerUser = order.getBuyer().getUser();
+        String existingAccountId = buyerUser.getHederaAccountId();
+        if (existingAccountId != null && buyerUser.getHederaPrivateKey() != null) {
+            updateStage(order.getId(), OrderProcessingStage.ACCOUNT_READY);
+            return CompletableFuture.completedFuture(existingAccountId);
+        }
+
+        // Compte de la réserve attribué dans la même transaction que l'utilisateur ; sinon création immédiate
+        HederaService.HederaAccountInfo pooled = transactionTemplate.execute(status -> {
+            HederaService.HederaAccountInfo claimed = hederaAccountPoolService.claim().orElse(null);
+            if (claimed != null) {
+                assignAccount(buyerUser.getId(), claimed);
+            }
+            return claimed;
+        });
+        CompletableFuture<HederaService.HederaAccountInfo> account = pooled != null
+                ? CompletableFuture.completedFuture(pooled)
+                : hederaAccountPoolService.createInlineAsync(buyerUser.getEmail())
+                        .thenApplyAsync(created -> {
+                            transactionTemplate.executeWithoutResult(status -> assignAccount(buyerUser.getId(), created));
+                            return created;
+                        }, executor);
+
+        return account.thenApplyAsync(accountInfo -> {
+            logger.info("Compte Hedera attribué à l'acheteur: {}", accountInfo.getAccountId());
+            updateStage(order.getId(), OrderProcessingStage.ACCOUNT_READY);
+            return accountInfo.getAccountId();
+        }, executor);
+    }
+
+    private void assignAccount(Long userId, HederaService.HederaAccountInfo accountInfo) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l'ID: " + userId));
+        user.setHederaAccountId(accountInfo.getAccountId());
+        user.setHederaPrivateKey(accountInfo.getPrivateKey());
+        userRepository.save(user);
+    }
+
+    // --- Étape 2 : alimentation du compte (Testnet) ---
+    private CompletableFuture<String> fundBuyerAccount(Order order, String buyerAccountId) {
+        BigDecimal initialHbar = order.getTotalAmount().add(FUNDING_FEE_MARGIN);
+        return hederaService.transferHbarFromOperatorAsync(buyerAccountId, initialHbar)
+                .thenApplyAsync(txId -> {
+                    logger.info("Compte Hedera de l'acheteur alimenté avec {} HBAR pour la commande {}", initialHbar, order.getId());
+                    updateStage(order.getId(), OrderProcessingStage.FUNDED);
+                    return buyerAccountId;
+                }, executor);
+    }
+
+    /**
+     * Le solde est lu via le cache, déjà ajusté par le transfert d'alimentation
+     */
+    private void checkBuyerBalance(Order order, String buyerAccountId) {
+        BigDecimal buyerBalance = accountBalanceService.getBalance(buyerAccountId);
+        if (buyerBalance.compareTo(order.getTotalAmount()) < 0) {
+            throw new IllegalStateException("Solde insuffisant sur le compte Hedera de l'acheteur");
+        }
+    }
+
+    // --- Étape 3 : séquestre, écrit dans l'outbox avec le changement d'étape ---
+    private void queueEscrowDeposit(Long orderId) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Order order = orderRepository.findByIdWithBuyer(orderId)
+                    .orElseThrow(() -> new RuntimeException("Commande non trouvée avec l'ID: " + orderId));
+            int updated = orderRepository.markEscrowQueuedIfPending(orderId, OrderProcessingStage.ESCROW_QUEUED,
+                    OrderStatus.PENDING, LocalDateTime.now());
+            if (updated == 0) {
+                throw new IllegalStateException("La commande n'est plus en attente de traitement");
+            }
+            transactionOutboxService.enqueue(escrowService.prepareDeposit(order), "ESCROW_DEPOSIT:" + orderId);
+        });
+        logger.info("Dépôt en séquestre planifié pour la commande {}", orderId);
+    }
+
+    private Order loadOrder(Long orderId) {
+        return transactionTemplate.execute(status -> orderRepository.findByIdWithBuyer(orderId)
+                .orElseThrow(() -> new RuntimeException("Commande non trouvée avec l'ID: " + orderId)));
+    }
+
+    private void updateStage(Long orderId, OrderProcessingStage stage) {
+        Integer updated = transactionTemplate.execute(status -> orderRepository.updateStageIfPending(
+                orderId, stage, OrderStatus.PENDING, LocalDateTime.now()));
+        if (updated == null || updated == 0) {
+            throw new IllegalStateException("La commande n'est plus en attente de traitement");
+        }
+    }
+
+    /**
+     * Annule la commande et restitue la quantité réservée sur l'offre
+     */
+    private void markFailed(Long orderId, String reason) {
+        transactionTemplate.executeWithoutResult(status -> stockReservationService.cancelAndRelease(orderId, reason));
+    }
+}
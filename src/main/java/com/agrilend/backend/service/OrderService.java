@@ -1,24 +1,30 @@
 package com.agrilend.backend.service;
 
+import com.agrilend.backend.dto.common.PageResponse;
 import com.agrilend.backend.dto.order.CreateOrderRequest;
 import com.agrilend.backend.dto.order.OrderDto;
 import com.agrilend.backend.entity.*;
 import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
 import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.exception.ServiceUnavailableException;
+import com.agrilend.backend.mapper.OrderMapper;
 import com.agrilend.backend.repository.*;
-import org.modelmapper.ModelMapper;
+import com.agrilend.backend.util.KeysetCursor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
-import java.util.stream.Collectors;
 
 @Service
 @Transactional
@@ -36,10 +42,7 @@ public class OrderService {
     private BuyerRepository buyerRepository;
 
     @Autowired
-    private UserRepository userRepository;
-
-    @Autowired
-    private ModelMapper modelMapper;
+    private OrderMapper orderMapper;
 
     @Autowired
     private NotificationService notificationService;
@@ -48,14 +51,30 @@ public class OrderService {
     private EscrowService escrowService;
 
     @Autowired
-    private HederaService hederaService;
+    private TransactionOutboxService transactionOutboxService;
+
+    @Autowired
+    private OrderPipelineService orderPipelineService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
 
+    @Autowired
+    private RevenueRollupService revenueRollupService;
+
+    /**
+     * Enregistre la commande PENDING et réserve le stock dans une transaction courte.
+     * Les étapes Hedera (compte, alimentation, séquestre) sont exécutées par le pipeline
+     * après la validation de la transaction ; le statut se suit via {@link #getOrderByNumber(String)}.
+     */
     public OrderDto createOrder(Long buyerId, CreateOrderRequest request) {
         logger.info("Début de la création de commande pour l'acheteur ID: {}", buyerId);
+        if (!orderPipelineService.hasCapacity()) {
+            throw new ServiceUnavailableException("Trop de commandes en cours de traitement, veuillez réessayer dans quelques instants");
+        }
+
         Buyer buyer = buyerRepository.findById(buyerId)
                 .orElseThrow(() -> new RuntimeException("Acheteur non trouvé avec l'ID: " + buyerId));
-        User buyerUser = buyer.getUser();
-        logger.info("Acheteur trouvé: {}", buyerUser.getEmail());
 
         // --- Vérifier l'offre ---
         Offer offer = offerRepository.findById(request.getOfferId())
@@ -69,6 +88,9 @@ public class OrderService {
             throw new RuntimeException("Quantité demandée supérieure à la quantité disponible");
         }
 
+        // --- Réserver la quantité (décrément conditionnel, SOLD_OUT atomique) ---
+        stockReservationService.reserve(offer.getId(), request.getOrderedQuantity());
+
         // --- Calcul du montant total ---
         BigDecimal unitPrice = offer.getFinalPriceBuyer();
         BigDecimal totalAmount = unitPrice.multiply(request.getOrderedQuantity());
@@ -81,47 +103,23 @@ public class OrderService {
         order.setUnitPrice(unitPrice);
         order.setTotalAmount(totalAmount);
         order.setStatus(OrderStatus.PENDING);
+        order.setProcessingStage(OrderProcessingStage.QUEUED);
+        order.setReservationExpiresAt(stockReservationService.reservationDeadline());
         order.setDeliveryAddress(request.getDeliveryAddress());
         order.setNotes(request.getNotes());
-        order = orderRepository.save(order); // sauvegarde initiale
-
-        try {
-            // --- 1. Créer un compte Hedera pour l’acheteur si nécessaire ---
-            if (buyerUser.getHederaAccountId() == null || buyerUser.getHederaPrivateKey() == null) {
-                HederaService.HederaAccountInfo accountInfo = hederaService.createAccount(buyerUser.getEmail());
-                buyerUser.setHederaAccountId(accountInfo.getAccountId());
-                buyerUser.setHederaPrivateKey(accountInfo.getPrivateKey());
-                userRepository.save(buyerUser);
-                logger.info("Compte Hedera créé pour l'acheteur: {}", accountInfo.getAccountId());
+        order = orderRepository.save(order);
+        revenueRollupService.recordOrder(order);
+
+        // --- Lancer le pipeline Hedera une fois la transaction validée ---
+        Long orderId = order.getId();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                orderPipelineService.submit(orderId);
             }
+        });
+        logger.info("Commande {} enregistrée, traitement Hedera planifié", order.getOrderNumber());
 
-            // --- 2. Alimenter le compte avec HBAR de test (Testnet) ---
-            BigDecimal initialHbar = totalAmount.add(new BigDecimal("1.0")); // marge pour frais
-            hederaService.transferHbarFromOperator(buyerUser.getHederaAccountId(), initialHbar);
-            logger.info("Compte Hedera de l'acheteur alimenté avec {} HBAR", initialHbar);
-
-            // --- 3. Initier le séquestre Hedera ---
-            String txId = escrowService.initiateEscrow(order);
-            order.setEscrowTransactionId(txId);
-            order.setStatus(OrderStatus.IN_ESCROW);
-            order.setEscrowStartDate(LocalDateTime.now());
-            order.setEscrowEndDate(LocalDateTime.now().plusMonths(3));
-            order = orderRepository.save(order);
-            logger.info("Séquestre Hedera initié. Transaction ID: {}", txId);
-
-        } catch (Exception e) {
-            logger.error("Erreur lors de l'initiation du séquestre Hedera pour la commande {}: {}", order.getId(), e.getMessage(), e);
-            throw new RuntimeException("Erreur lors de l'initiation du séquestre Hedera: " + e.getMessage());
-        }
-
-        // --- 4. Mettre à jour la quantité disponible de l'offre ---
-        offer.setAvailableQuantity(offer.getAvailableQuantity().subtract(request.getOrderedQuantity()));
-        if (offer.getAvailableQuantity().compareTo(BigDecimal.ZERO) == 0) {
-            offer.setStatus(OfferStatus.SOLD_OUT);
-        }
-        offerRepository.save(offer);
-
-        // --- 5. Retourner l'objet DTO ---
         return mapToDto(order);
     }
 
@@ -140,6 +138,10 @@ public class OrderService {
         return mapToDto(orderRepository.save(order));
     }
 
+    /**
+     * Planifie la libération du séquestre ; le transfert est exécuté par l'outbox
+     * et la commande passe à RELEASED une fois le reçu Hedera confirmé
+     */
     public OrderDto releaseEscrow(Long orderId) {
         Order order = orderRepository.findById(orderId)
                 .orElseThrow(() -> new RuntimeException("Commande non trouvée avec l'ID: " + orderId));
@@ -148,56 +150,60 @@ public class OrderService {
             throw new RuntimeException("La commande n'est pas en séquestre");
         }
 
-        escrowService.releaseEscrow(order);
-        order.setStatus(OrderStatus.RELEASED);
-        return mapToDto(orderRepository.save(order));
+        int queued = orderRepository.markReleaseQueued(orderId, OrderProcessingStage.RELEASE_QUEUED,
+                OrderProcessingStage.REFUND_QUEUED, OrderStatus.IN_ESCROW, LocalDateTime.now());
+        if (queued == 0) {
+            throw new RuntimeException("Une libération ou un remboursement du séquestre est déjà en cours");
+        }
+        transactionOutboxService.enqueue(escrowService.prepareRelease(order), "ESCROW_RELEASE:" + orderId);
+        return getOrderById(orderId);
+    }
+
+    public OrderDto getOrderByNumber(String orderNumber) {
+        return orderRepository.findDtoByOrderNumber(orderNumber)
+                .orElseThrow(() -> new RuntimeException("Commande non trouvée avec le numéro: " + orderNumber));
     }
 
     public OrderDto getOrderById(Long orderId) {
-        return mapToDto(orderRepository.findById(orderId)
-                .orElseThrow(() -> new RuntimeException("Commande non trouvée avec l'ID: " + orderId)));
+        return orderRepository.findDtoById(orderId)
+                .orElseThrow(() -> new RuntimeException("Commande non trouvée avec l'ID: " + orderId));
     }
 
     public List<OrderDto> getOrdersByBuyer(Long buyerId) {
-        return orderRepository.findByBuyerId(buyerId).stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        return orderRepository.findDtosByBuyerId(buyerId);
     }
 
     public List<OrderDto> getOrdersByFarmer(Long farmerId) {
-        return orderRepository.findByOfferFarmerId(farmerId).stream()
-                .map(this::mapToDto)
-                .collect(Collectors.toList());
+        return orderRepository.findDtosByFarmerId(farmerId);
     }
 
     public Page<OrderDto> getAllOrders(Pageable pageable) {
-        return orderRepository.findAll(pageable).map(this::mapToDto);
+        return orderRepository.findAllDtos(pageable);
+    }
+
+    /**
+     * Commandes par curseur (createdAt, id) ; le total n'est compté que sur demande
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<OrderDto> getAllOrders(String cursor, int size, boolean includeTotal) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<OrderDto> rows;
+        if (cursor == null) {
+            rows = orderRepository.findAllDtosKeyset(limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            rows = orderRepository.findAllDtosKeysetAfter(after.getCreatedAt(), after.getId(), limit);
+        }
+        Long total = includeTotal ? orderRepository.count() : null;
+        return PageResponse.ofKeyset(rows, size, cursor == null,
+                order -> KeysetCursor.encode(order.getCreatedAt(), order.getId()), total);
     }
 
     public Page<OrderDto> getOrdersByStatus(OrderStatus status, Pageable pageable) {
-        return orderRepository.findByStatus(status, pageable).map(this::mapToDto);
+        return orderRepository.findDtosByStatus(status, pageable);
     }
 
     private OrderDto mapToDto(Order order) {
-        OrderDto dto = modelMapper.map(order, OrderDto.class);
-
-        Offer offer = order.getOffer();
-        Product product = offer.getProduct();
-        Farmer farmer = offer.getFarmer();
-        User farmerUser = userRepository.findById(farmer.getId())
-                .orElseThrow(() -> new RuntimeException("User for farmer not found"));
-        User buyerUser = userRepository.findById(order.getBuyer().getId())
-                .orElseThrow(() -> new RuntimeException("User for buyer not found"));
-
-        dto.setOfferId(offer.getId());
-        dto.setProductName(product.getName());
-        dto.setProductUnit(product.getUnit().name());
-        dto.setFarmerId(farmer.getId());
-        dto.setFarmerName(farmerUser.getFirstName() + " " + farmerUser.getLastName());
-        dto.setBuyerId(order.getBuyer().getId());
-        dto.setBuyerName(buyerUser.getFirstName() + " " + buyerUser.getLastName());
-        dto.setBuyerEmail(buyerUser.getEmail());
-
-        return dto;
+        return orderMapper.toDto(order);
     }
 }
@@ -0,0 +1,127 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.product.ProductDto;
+import com.agrilend.backend.event.CacheInvalidationBroker;
+import com.agrilend.backend.event.CacheInvalidationMessage;
+import com.agrilend.backend.event.ProductChangedEvent;
+import com.agrilend.backend.util.BoundedTtlCache;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Cache en lecture du catalogue produits (produits et pages). Le catalogue change rarement :
+ * toute modification validée vide le cache et incrémente la version des produits.
+ * Comme le cache des offres, il suppose une instance unique tant que le broker d'invalidation est en mémoire.
+ */
+@Service
+public class ProductCatalogueCache {
+
+    @Autowired
+    private CacheInvalidationBroker broker;
+
+    @Autowired
+    private CatalogueVersions catalogueVersions;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.products.cache.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.products.cache.max-products:5000}")
+    private int maxProducts;
+
+    @Value("${app.products.cache.max-pages:500}")
+    private int maxPages;
+
+    @Value("${app.products.cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private BoundedTtlCache<Long, ProductDto> products;
+    private BoundedTtlCache<String, Page<ProductDto>> pages;
+    // Incrémenté à chaque invalidation : un chargement commencé avant n'est pas mis en cache
+    private final AtomicLong generation = new AtomicLong();
+    // Même protocole que OfferCatalogueCache : vérification de la génération et insertion indivisibles
+    private final ReentrantReadWriteLock invalidationLock = new ReentrantReadWriteLock();
+
+    private Counter hits;
+    private Counter misses;
+
+    @PostConstruct
+    public void init() {
+        products = new BoundedTtlCache<>(maxProducts, ttlMs);
+        pages = new BoundedTtlCache<>(maxPages, ttlMs);
+        hits = Counter.builder("agrilend.products.cache.requests").tag("result", "hit").register(meterRegistry);
+        misses = Counter.builder("agrilend.products.cache.requests").tag("result", "miss").register(meterRegistry);
+        broker.subscribe(this::onRemoteInvalidation);
+    }
+
+    public ProductDto getProduct(Long productId, Supplier<ProductDto> loader) {
+        return readThrough(products, productId, loader);
+    }
+
+    public Page<ProductDto> getPage(String key, Supplier<Page<ProductDto>> loader) {
+        return readThrough(pages, key, loader);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        invalidateAll();
+        broker.publish(new CacheInvalidationMessage(CacheInvalidationMessage.PRODUCTS, nodeId,
+                event.getProductId(), true, System.currentTimeMillis()));
+    }
+
+    public void invalidateAll() {
+        invalidationLock.writeLock().lock();
+        try {
+            generation.incrementAndGet();
+            products.invalidateAll();
+            pages.invalidateAll();
+        } finally {
+            invalidationLock.writeLock().unlock();
+        }
+        catalogueVersions.productsChanged();
+    }
+
+    private void onRemoteInvalidation(CacheInvalidationMessage message) {
+        if (CacheInvalidationMessage.PRODUCTS.equals(message.getRegion()) && !nodeId.equals(message.getOriginNodeId())) {
+            invalidateAll();
+        }
+    }
+
+    private <K, V> V readThrough(BoundedTtlCache<K, V> cache, K key, Supplier<V> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        V cached = cache.get(key);
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+        misses.increment();
+        long loadGeneration = generation.get();
+        V value = loader.get();
+        invalidationLock.readLock().lock();
+        try {
+            if (generation.get() == loadGeneration) {
+                cache.put(key, value);
+            }
+        } finally {
+            invalidationLock.readLock().unlock();
+        }
+        return value;
+    }
+}
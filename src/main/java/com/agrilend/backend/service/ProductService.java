@@ -2,14 +2,24 @@ package com.agrilend.backend.service;
 
 import com.agrilend.backend.dto.product.ProductDto;
 import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.event.ProductChangedEvent;
+import com.agrilend.backend.mapper.ProductMapper;
 import com.agrilend.backend.repository.ProductRepository;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
 @Service
 @Transactional
 public class ProductService {
@@ -18,13 +28,23 @@ public class ProductService {
     private ProductRepository productRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ProductMapper productMapper;
+
+    @Autowired
+    private CatalogueSearchService catalogueSearchService;
+
+    @Autowired
+    private ProductCatalogueCache productCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
 
     // This is an administrative action
     public ProductDto createProduct(ProductDto productDto) {
-        Product product = modelMapper.map(productDto, Product.class);
+        Product product = productMapper.toEntity(productDto);
         Product savedProduct = productRepository.save(product);
-        return modelMapper.map(savedProduct, ProductDto.class);
+        eventPublisher.publishEvent(new ProductChangedEvent(savedProduct.getId()));
+        return productMapper.toDto(savedProduct);
     }
 
     // This is an administrative action
@@ -41,7 +61,8 @@ public class ProductService {
         product.setImageUrl(productDto.getImageUrl());
 
         Product updatedProduct = productRepository.save(product);
-        return modelMapper.map(updatedProduct, ProductDto.class);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId));
+        return productMapper.toDto(updatedProduct);
     }
 
     // Deactivate instead of deleting to preserve historical data
@@ -50,6 +71,7 @@ public class ProductService {
             .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID: " + productId));
         product.setIsActive(false);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId));
     }
 
     public void activateProduct(Long productId) {
@@ -57,21 +79,41 @@ public class ProductService {
             .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID: " + productId));
         product.setIsActive(true);
         productRepository.save(product);
+        eventPublisher.publishEvent(new ProductChangedEvent(productId));
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public ProductDto getProductById(Long productId) {
-        Product product = productRepository.findById(productId)
-            .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID: " + productId));
-        return modelMapper.map(product, ProductDto.class);
+        return productCache.getProduct(productId, () -> productRepository.findById(productId)
+            .map(productMapper::toDto)
+            .orElseThrow(() -> new RuntimeException("Produit non trouvé avec l'ID: " + productId)));
     }
 
+    @Transactional(propagation = Propagation.SUPPORTS, readOnly = true)
     public Page<ProductDto> getAllProducts(Pageable pageable) {
-        Page<Product> products = productRepository.findAll(pageable);
-        return products.map(product -> modelMapper.map(product, ProductDto.class));
+        String key = pageable.getPageNumber() + ":" + pageable.getPageSize() + ":" + pageable.getSort();
+        return productCache.getPage(key, () -> productRepository.findAll(pageable).map(productMapper::toDto));
     }
 
+    /**
+     * Recherche par l'index en mémoire, triée par pertinence ; repli sur LIKE tant que l'index n'est pas construit
+     */
     public Page<ProductDto> searchProducts(String keyword, Pageable pageable) {
-        Page<Product> products = productRepository.findByNameContainingIgnoreCaseOrCategoryContainingIgnoreCase(keyword, keyword, pageable);
-        return products.map(product -> modelMapper.map(product, ProductDto.class));
+        if (!catalogueSearchService.isReady()) {
+            Page<Product> products = productRepository.findByNameContainingIgnoreCaseOrCategoryContainingIgnoreCase(keyword, keyword, pageable);
+            return products.map(productMapper::toDto);
+        }
+        List<Long> ids = catalogueSearchService.searchProductIds(keyword);
+        int from = (int) Math.min(pageable.getOffset(), ids.size());
+        int to = Math.min(from + pageable.getPageSize(), ids.size());
+        List<Long> pageIds = ids.subList(from, to);
+        Map<Long, Product> products = productRepository.findAllById(pageIds).stream()
+                .collect(Collectors.toMap(Product::getId, Function.identity()));
+        List<ProductDto> content = pageIds.stream()
+                .map(products::get)
+                .filter(Objects::nonNull)
+                .map(productMapper::toDto)
+                .collect(Collectors.toList());
+        return new PageImpl<>(content, pageable, ids.size());
     }
 }
\ No newline at end of file
@@ -0,0 +1,128 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.dashboard.RevenueConsistencyReportDto;
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.RevenueDailyRollup;
+import com.agrilend.backend.repository.OrderRepository;
+import com.agrilend.backend.repository.RevenueDailyRollupRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Maintenance de l'agrégat quotidien du chiffre d'affaires (revenue_daily_rollups).
+ * Les journées sont découpées comme les requêtes du dashboard, sur createdAt des commandes.
+ */
+@Service
+public class RevenueRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(RevenueRollupService.class);
+
+    @Autowired
+    private RevenueDailyRollupRepository rollupRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public RevenueRollupService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Ajoute la commande à l'agrégat de son jour, dans la transaction qui l'enregistre
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void recordOrder(Order order) {
+        String category = order.getOffer().getProduct().getCategory();
+        rollupRepository.addOrder(order.getCreatedAt().toLocalDate(), category, order.getTotalAmount());
+    }
+
+    /**
+     * Recalcule l'agrégat depuis la table des commandes, un jour par transaction.
+     * Destiné au rattrapage de l'historique : recalculer le jour courant peut manquer une commande concurrente.
+     */
+    public int rebuild(LocalDate from, LocalDate to) {
+        int days = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            LocalDate current = day;
+            transactionTemplate.executeWithoutResult(status -> rebuildDay(current));
+            days++;
+        }
+        logger.info("Agrégat du chiffre d'affaires recalculé du {} au {} ({} jours)", from, to, days);
+        return days;
+    }
+
+    /**
+     * Compare l'agrégat à la table des commandes, jour par jour et catégorie par catégorie
+     */
+    @Transactional(readOnly = true)
+    public RevenueConsistencyReportDto check(LocalDate from, LocalDate to) {
+        RevenueConsistencyReportDto report = new RevenueConsistencyReportDto();
+        report.setFrom(from);
+        report.setTo(to);
+
+        int days = 0;
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            Map<String, RevenueDailyRollup> rollups = new HashMap<>();
+            for (RevenueDailyRollup rollup : rollupRepository.findByDay(day)) {
+                rollups.put(rollup.getCategory(), rollup);
+            }
+
+            Set<String> seen = new HashSet<>();
+            for (Object[] row : rawTotals(day)) {
+                String category = (String) row[0];
+                BigDecimal rawTotal = (BigDecimal) row[1];
+                long rawCount = ((Number) row[2]).longValue();
+                seen.add(category);
+
+                RevenueDailyRollup rollup = rollups.get(category);
+                BigDecimal rollupTotal = rollup != null ? rollup.getTotalAmount() : BigDecimal.ZERO;
+                long rollupCount = rollup != null ? rollup.getOrderCount() : 0;
+                if (rollupTotal.compareTo(rawTotal) != 0 || rollupCount != rawCount) {
+                    report.getMismatches().add(new RevenueConsistencyReportDto.Mismatch(
+                            day, category, rollupTotal, rawTotal, rollupCount, rawCount));
+                }
+            }
+            for (RevenueDailyRollup rollup : rollups.values()) {
+                if (!seen.contains(rollup.getCategory())) {
+                    report.getMismatches().add(new RevenueConsistencyReportDto.Mismatch(
+                            day, rollup.getCategory(), rollup.getTotalAmount(), BigDecimal.ZERO, rollup.getOrderCount(), 0));
+                }
+            }
+            days++;
+        }
+        report.setCheckedDays(days);
+
+        if (!report.isConsistent()) {
+            logger.warn("Agrégat du chiffre d'affaires incohérent du {} au {} : {} écart(s)", from, to, report.getMismatches().size());
+        }
+        return report;
+    }
+
+    private void rebuildDay(LocalDate day) {
+        rollupRepository.deleteByDay(day);
+        rollupRepository.flush();
+        for (Object[] row : rawTotals(day)) {
+            rollupRepository.save(new RevenueDailyRollup(day, (String) row[0], (BigDecimal) row[1], ((Number) row[2]).longValue()));
+        }
+    }
+
+    private List<Object[]> rawTotals(LocalDate day) {
+        return orderRepository.sumTotalAmountAndCountByCategoryBetween(day.atStartOfDay(), day.plusDays(1).atStartOfDay());
+    }
+}
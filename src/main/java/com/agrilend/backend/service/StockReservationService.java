@@ -0,0 +1,132 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.event.OfferChangedEvent;
+import com.agrilend.backend.repository.OfferRepository;
+import com.agrilend.backend.repository.OrderRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Réservation de stock sur les offres par décrément conditionnel, sans verrou applicatif.
+ * Une réservation expirée est restituée tant que la commande n'a pas dépassé l'étape QUEUED : ensuite
+ * le compte de l'acheteur est alimenté, et seul le pipeline (ou l'outbox) décide de l'issue de la commande.
+ */
+@Service
+public class StockReservationService {
+
+    private static final Logger logger = LoggerFactory.getLogger(StockReservationService.class);
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Value("${app.orders.reservation-ttl-minutes:15}")
+    private long reservationTtlMinutes;
+
+    @Value("${app.orders.reservation-sweep-batch-size:100}")
+    private int sweepBatchSize;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public StockReservationService(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    /**
+     * Réserve la quantité dans la transaction courante ; l'offre passe à SOLD_OUT dans la même instruction
+     */
+    @Transactional
+    public void reserve(Long offerId, BigDecimal quantity) {
+        int updated = offerRepository.reserveQuantity(offerId, quantity,
+                OfferStatus.ACTIVE, OfferStatus.SOLD_OUT, LocalDateTime.now());
+        if (updated == 0) {
+            throw new RuntimeException("Quantité demandée supérieure à la quantité disponible");
+        }
+        eventPublisher.publishEvent(new OfferChangedEvent(offerId, OfferChangedEvent.Change.STOCK_RESERVED));
+    }
+
+    public LocalDateTime reservationDeadline() {
+        return LocalDateTime.now().plusMinutes(reservationTtlMinutes);
+    }
+
+    /**
+     * Annule une commande encore PENDING et restitue sa quantité réservée.
+     * Sans effet si la commande a déjà quitté l'état PENDING (séquestre réussi ou déjà annulée).
+     */
+    @Transactional
+    public boolean cancelAndRelease(Long orderId, String reason) {
+        int cancelled = orderRepository.cancelIfPending(orderId, reason, OrderStatus.PENDING,
+                OrderStatus.CANCELLED, OrderProcessingStage.FAILED, LocalDateTime.now());
+        if (cancelled == 0) {
+            return false;
+        }
+        release(orderId, reason);
+        return true;
+    }
+
+    /**
+     * Annule une commande dont la réservation a expiré, si le pipeline n'a pas encore commencé à alimenter
+     * le compte de l'acheteur ; sans effet sinon
+     */
+    @Transactional
+    public boolean cancelExpiredReservation(Long orderId) {
+        String reason = "Réservation expirée avant la mise en séquestre";
+        int cancelled = orderRepository.cancelIfReservationExpired(orderId, reason, OrderStatus.PENDING,
+                OrderProcessingStage.QUEUED, OrderStatus.CANCELLED, OrderProcessingStage.FAILED, LocalDateTime.now());
+        if (cancelled == 0) {
+            return false;
+        }
+        release(orderId, reason);
+        return true;
+    }
+
+    private void release(Long orderId, String reason) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new RuntimeException("Commande non trouvée avec l'ID: " + orderId));
+        offerRepository.releaseQuantity(order.getOffer().getId(), order.getOrderedQuantity(),
+                OfferStatus.ACTIVE, OfferStatus.SOLD_OUT, LocalDateTime.now());
+        eventPublisher.publishEvent(new OfferChangedEvent(order.getOffer().getId(), OfferChangedEvent.Change.STOCK_RELEASED));
+        logger.info("Réservation de {} libérée sur l'offre {} (commande {}): {}",
+                order.getOrderedQuantity(), order.getOffer().getId(), orderId, reason);
+    }
+
+    /**
+     * Libère les réservations des commandes restées en file au-delà du délai imparti. Une commande dont
+     * le compte acheteur est en cours d'alimentation ou alimenté (ACCOUNT_READY, FUNDED) n'est pas annulée ici : les HBAR
+     * transférés resteraient hors séquestre.
+     */
+    @Scheduled(fixedDelayString = "${app.orders.reservation-sweep-interval-ms:60000}")
+    public void releaseExpiredReservations() {
+        List<Long> expiredOrderIds = orderRepository.findIdsWithExpiredReservation(
+                OrderStatus.PENDING, OrderProcessingStage.QUEUED, LocalDateTime.now(), PageRequest.of(0, sweepBatchSize));
+        for (Long orderId : expiredOrderIds) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> cancelExpiredReservation(orderId));
+            } catch (Exception e) {
+                logger.error("Impossible de libérer la réservation de la commande {}", orderId, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.tokenization.TokenDistributionDto;
+import com.agrilend.backend.dto.tokenization.TokenDistributionResultDto;
+import com.agrilend.backend.entity.HarvestToken;
+import com.agrilend.backend.entity.Transaction;
+import com.agrilend.backend.entity.enums.TransactionType;
+import com.agrilend.backend.util.AsyncPermits;
+import com.agrilend.backend.util.JdbcBatches;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Distribution de tokens par transferts multi-destinataires : les destinataires sont répartis en lots
+ * tenant dans une transaction Hedera, les lots sont soumis en parallèle via l'API asynchrone
+ * (au plus {@code max-in-flight} à la fois) et les transactions résultantes sont enregistrées
+ * par insertion JDBC groupée.
+ */
+@Service
+public class TokenDistributionEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenDistributionEngine.class);
+
+    private static final String INSERT_TRANSACTION_SQL =
+            "INSERT INTO transactions (harvest_token_id, type, amount, from_account, to_account, " +
+            "hedera_transaction_id, status, attempts, last_error, created_at, updated_at) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, 0, ?, ?, ?)";
+
+    @Autowired
+    private HederaService hederaService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${app.tokens.distribution.max-in-flight:4}")
+    private int maxInFlight;
+
+    @Value("${app.tokens.distribution.max-transfers-per-transaction:10}")
+    private int maxTransfersPerTransaction;
+
+    @Value("${app.tokens.distribution.insert-batch-size:100}")
+    private int insertBatchSize;
+
+    private AsyncPermits inFlight;
+
+    @PostConstruct
+    public void init() {
+        inFlight = new AsyncPermits(maxInFlight);
+    }
+
+    /**
+     * Distribue les tokens depuis la trésorerie ; un lot en échec n'empêche pas les autres d'aboutir.
+     * En simulation, HederaService applique les lots au registre local au lieu du réseau.
+     * Le token n'a pas de décimales : un montant non entier est refusé avant tout envoi.
+     */
+    public TokenDistributionResultDto distribute(Long receiptId, HarvestToken harvestToken, String treasuryAccountId,
+                                                 List<TokenDistributionDto> distributions) {
+        requireWholeTokens(distributions);
+        String tokenId = harvestToken.getHederaTokenId();
+        List<List<TokenDistributionDto>> chunks = chunk(distributions);
+
+        List<CompletableFuture<ChunkResult>> futures = new ArrayList<>(chunks.size());
+        for (List<TokenDistributionDto> chunk : chunks) {
+            futures.add(inFlight.submit(() -> submitChunk(tokenId, treasuryAccountId, chunk))
+                    .exceptionally(e -> ChunkResult.failed(chunk, rootMessage(e))));
+        }
+
+        TokenDistributionResultDto result = new TokenDistributionResultDto(receiptId, tokenId);
+        result.setSubmittedTransactions(chunks.size());
+        for (CompletableFuture<ChunkResult> future : futures) {
+            ChunkResult chunkResult = future.join();
+            for (TokenDistributionDto distribution : chunkResult.recipients) {
+                result.getOutcomes().add(new TokenDistributionResultDto.RecipientOutcome(
+                        distribution.getRecipientAccountId(), distribution.getAmount(),
+                        chunkResult.error == null, chunkResult.transactionId, chunkResult.error));
+            }
+        }
+
+        persist(harvestToken.getId(), treasuryAccountId, result.getOutcomes());
+        logger.info("Distribution du token {}: {} destinataire(s) servi(s), {} en échec, {} transaction(s)",
+                tokenId, result.getSucceeded(), result.getFailed(), chunks.size());
+        return result;
+    }
+
+    /**
+     * Répartit les destinataires en lots d'au plus (limite de transferts - 1) comptes distincts,
+     * le débit de la trésorerie occupant le dernier transfert
+     */
+    List<List<TokenDistributionDto>> chunk(List<TokenDistributionDto> distributions) {
+        int maxRecipients = Math.max(1, maxTransfersPerTransaction - 1);
+        List<List<TokenDistributionDto>> chunks = new ArrayList<>();
+        List<Set<String>> accounts = new ArrayList<>();
+        for (TokenDistributionDto distribution : distributions) {
+            int target = -1;
+            for (int i = 0; i < chunks.size() && target < 0; i++) {
+                // Un même destinataire ne peut figurer deux fois dans une transaction
+                if (chunks.get(i).size() < maxRecipients && !accounts.get(i).contains(distribution.getRecipientAccountId())) {
+                    target = i;
+                }
+            }
+            if (target < 0) {
+                chunks.add(new ArrayList<>());
+                accounts.add(new HashSet<>());
+                target = chunks.size() - 1;
+            }
+            chunks.get(target).add(distribution);
+            accounts.get(target).add(distribution.getRecipientAccountId());
+        }
+        return chunks;
+    }
+
+    private static void requireWholeTokens(List<TokenDistributionDto> distributions) {
+        for (TokenDistributionDto distribution : distributions) {
+            try {
+                distribution.getAmount().longValueExact();
+            } catch (ArithmeticException e) {
+                throw new IllegalArgumentException("Montant de tokens invalide pour le compte "
+                        + distribution.getRecipientAccountId() + ": " + distribution.getAmount()
+                        + " (nombre entier de tokens attendu)");
+            }
+        }
+    }
+
+    private CompletableFuture<ChunkResult> submitChunk(String tokenId, String treasuryAccountId, List<TokenDistributionDto> chunk) {
+        Map<String, Long> recipientAmounts = new LinkedHashMap<>();
+        for (TokenDistributionDto distribution : chunk) {
+            recipientAmounts.put(distribution.getRecipientAccountId(), distribution.getAmount().longValueExact());
+        }
+        return hederaService.transferTokensToManyAsync(tokenId, treasuryAccountId, recipientAmounts)
+                .thenApply(transactionId -> new ChunkResult(chunk, transactionId, null));
+    }
+
+    private void persist(Long harvestTokenId, String treasuryAccountId,
+                         List<TokenDistributionResultDto.RecipientOutcome> outcomes) {
+        Calendar utc = JdbcBatches.utcCalendar();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        jdbcTemplate.batchUpdate(INSERT_TRANSACTION_SQL, outcomes, insertBatchSize, (ps, outcome) -> {
+            ps.setLong(1, harvestTokenId);
+            ps.setString(2, TransactionType.FARMER_PAYMENT.name());
+            ps.setBigDecimal(3, outcome.getAmount());
+            ps.setString(4, treasuryAccountId);
+            ps.setString(5, outcome.getRecipientAccountId());
+            ps.setString(6, outcome.getHederaTransactionId());
+            ps.setString(7, (outcome.isSuccess() ? Transaction.TransactionStatus.SUCCESS
+                    : Transaction.TransactionStatus.FAILED).name());
+            ps.setString(8, outcome.getError());
+            ps.setTimestamp(9, now, utc);
+            ps.setTimestamp(10, now, utc);
+        });
+    }
+
+    private static String rootMessage(Throwable e) {
+        Throwable cause = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+        String message = cause.getMessage() != null ? cause.getMessage() : cause.getClass().getSimpleName();
+        return message.length() > 1000 ? message.substring(0, 1000) : message;
+    }
+
+    private static class ChunkResult {
+        private final List<TokenDistributionDto> recipients;
+        private final String transactionId;
+        private final String error;
+
+        ChunkResult(List<TokenDistributionDto> recipients, String transactionId, String error) {
+            this.recipients = recipients;
+            this.transactionId = transactionId;
+            this.error = error;
+        }
+
+        static ChunkResult failed(List<TokenDistributionDto> recipients, String error) {
+            return new ChunkResult(recipients, null, error);
+        }
+    }
+}
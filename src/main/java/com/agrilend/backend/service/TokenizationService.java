@@ -1,6 +1,7 @@
 package com.agrilend.backend.service;
 
 import com.agrilend.backend.dto.tokenization.TokenDistributionDto;
+import com.agrilend.backend.dto.tokenization.TokenDistributionResultDto;
 import com.agrilend.backend.entity.*;
 import com.agrilend.backend.entity.enums.ProductUnit;
 import com.agrilend.backend.entity.enums.TransactionType;
@@ -10,6 +11,7 @@ import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
@@ -35,8 +37,11 @@ public class TokenizationService {
     @Autowired
     private TransactionRepository transactionRepository;
 
-    // @Autowired // Commented out to force simulation mode for HederaService
-    private HederaService hederaService = null; // Force null to activate simulation mode
+    @Autowired
+    private TokenDistributionEngine tokenDistributionEngine;
+
+    @Autowired
+    private HederaService hederaService;
 
     @Value("${hedera.treasury.account-id:0.0.6825338}")
     private String treasuryAccountId;
@@ -189,9 +194,11 @@ public class TokenizationService {
     }
 
     /**
-     * Étape 4: Distribution des tokens aux agriculteurs/investisseurs
+     * Étape 4: Distribution des tokens aux agriculteurs/investisseurs, par transferts multi-destinataires.
+     * Exécutée hors transaction : aucune connexion n'est tenue pendant les appels réseau.
      */
-    public void distributeTokens(Long receiptId, List<TokenDistributionDto> distributions) {
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public TokenDistributionResultDto distributeTokens(Long receiptId, List<TokenDistributionDto> distributions) {
         WarehouseReceipt receipt = warehouseReceiptRepository.findById(receiptId)
             .orElseThrow(() -> new RuntimeException("Reçu d'entrepôt non trouvé"));
 
@@ -202,34 +209,13 @@ public class TokenizationService {
         HarvestToken harvestToken = harvestTokenRepository.findByWarehouseReceipt(receipt)
             .orElseThrow(() -> new RuntimeException("Token non trouvé"));
 
-        try {
-            for (TokenDistributionDto distribution : distributions) {
-                String transactionId = hederaService.transferTokens(
-                    harvestToken.getHederaTokenId(),
-                    treasuryAccountId,
-                    distribution.getRecipientAccountId(),
-                    distribution.getAmount()
-                );
-
-                // Enregistrer la transaction de distribution
-                Transaction transaction = new Transaction();
-                transaction.setHarvestToken(harvestToken);
-                transaction.setType(TransactionType.FARMER_PAYMENT);
-                transaction.setAmount(distribution.getAmount());
-                transaction.setFromAccount(treasuryAccountId);
-                transaction.setToAccount(distribution.getRecipientAccountId());
-                transaction.setHederaTransactionId(transactionId);
-                transaction.setStatus(Transaction.TransactionStatus.SUCCESS);
-                transactionRepository.save(transaction);
-
-                logger.info("Tokens distribués: {} tokens vers {}", 
-                           distribution.getAmount(), distribution.getRecipientAccountId());
-            }
-
-        } catch (Exception e) {
-            logger.error("Erreur lors de la distribution des tokens", e);
-            throw new RuntimeException("Impossible de distribuer les tokens", e);
+        TokenDistributionResultDto result = tokenDistributionEngine.distribute(
+                receiptId, harvestToken, treasuryAccountId, distributions);
+        if (result.getFailed() > 0) {
+            logger.warn("Distribution partielle pour le reçu {}: {} destinataire(s) en échec",
+                       receiptId, result.getFailed());
         }
+        return result;
     }
 
     /**
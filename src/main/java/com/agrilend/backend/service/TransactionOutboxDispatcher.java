@@ -0,0 +1,206 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.Transaction;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.entity.enums.TransactionType;
+import com.agrilend.backend.exception.LedgerSubmissionException;
+import com.agrilend.backend.repository.OrderRepository;
+import com.agrilend.backend.repository.TransactionRepository;
+import com.hedera.hashgraph.sdk.Status;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Envoie les opérations de l'outbox au réseau Hedera puis applique leur effet sur la commande.
+ * L'identifiant Hedera est enregistré avant l'envoi : une reprise relit d'abord le reçu
+ * de cet identifiant, ce qui évite tout double débit.
+ */
+@Service
+public class TransactionOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionOutboxDispatcher.class);
+
+    @Autowired
+    private TransactionOutboxService outboxService;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private EscrowService escrowService;
+
+    @Autowired
+    private HederaService hederaService;
+
+    @Autowired
+    private StockReservationService stockReservationService;
+
+    @Autowired
+    @Qualifier("outboxExecutor")
+    private ThreadPoolTaskExecutor executor;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize;
+
+    @Value("${app.settlement.batching-enabled:true}")
+    private boolean settlementBatchingEnabled;
+
+    private final TransactionTemplate transactionTemplate;
+
+    public TransactionOutboxDispatcher(PlatformTransactionManager transactionManager) {
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:1000}")
+    public void dispatch() {
+        int capacity = Math.min(batchSize, executor.getThreadPoolExecutor().getQueue().remainingCapacity());
+        if (capacity <= 0) {
+            return;
+        }
+
+        // Les libérations sont regroupées par EscrowSettlementBatcher lorsque le regroupement est actif
+        TransactionOutboxService.Claim claim = outboxService.claimDue(capacity,
+                settlementBatchingEnabled ? TransactionType.ESCROW_RELEASE : null);
+        for (Long id : claim.getIds()) {
+            try {
+                executor.execute(() -> process(id, claim.getLease()));
+            } catch (RejectedExecutionException e) {
+                outboxService.releaseClaim(id, claim.getLease());
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.lease-recovery-interval-ms:30000}")
+    public void recoverExpiredLeases() {
+        int recovered = outboxService.recoverExpiredLeases();
+        if (recovered > 0) {
+            logger.warn("{} opération(s) de l'outbox remise(s) en file après expiration du bail", recovered);
+        }
+    }
+
+    void process(Long id, LocalDateTime lease) {
+        Transaction operation = transactionRepository.findByIdWithOrder(id).orElse(null);
+        if (operation == null || operation.getStatus() != Transaction.TransactionStatus.PROCESSING
+                || !lease.equals(operation.getLeaseExpiresAt())) {
+            return;
+        }
+
+        try {
+            String txId = operation.getHederaTransactionId();
+            if (txId != null) {
+                Status receiptStatus = hederaService.getReceiptStatus(txId);
+                if (receiptStatus == Status.SUCCESS) {
+                    logger.info("Opération {} déjà exécutée sur le réseau (TX: {})", operation.getIdempotencyKey(), txId);
+                    complete(operation, lease);
+                    return;
+                }
+                if (receiptStatus != null || hederaService.isTransactionIdExpired(txId)) {
+                    txId = null;
+                }
+            }
+
+            if (txId == null) {
+                if (!stillApplicable(operation)) {
+                    cancel(operation, lease, "La commande n'est plus dans l'état attendu");
+                    return;
+                }
+                String newTxId = hederaService.generateTransactionId();
+                Integer assigned = transactionTemplate.execute(status -> transactionRepository.assignHederaTransactionId(
+                        id, newTxId, Transaction.TransactionStatus.PROCESSING, lease, LocalDateTime.now()));
+                if (assigned == null || assigned == 0) {
+                    logger.warn("Bail perdu pour l'opération {}, envoi abandonné", operation.getIdempotencyKey());
+                    return;
+                }
+                operation.setHederaTransactionId(newTxId);
+            }
+
+            if (operation.getType() == TransactionType.ESCROW_DEPOSIT) {
+                escrowService.executeDeposit(operation, operation.getOrder().getBuyer().getUser().getHederaPrivateKey());
+            } else if (operation.getType() == TransactionType.REFUND) {
+                escrowService.executeRefund(operation);
+            } else {
+                escrowService.executeRelease(operation);
+            }
+            complete(operation, lease);
+
+        } catch (LedgerSubmissionException e) {
+            fail(operation, lease, e.getMessage(), e.isRetryable());
+        } catch (Exception e) {
+            fail(operation, lease, e.getMessage(), true);
+        }
+    }
+
+    /**
+     * Un dépôt n'est soumis pour la première fois que si la commande attend toujours son séquestre ;
+     * une libération ou un remboursement, que si elle est toujours en séquestre
+     */
+    private boolean stillApplicable(Transaction operation) {
+        OrderStatus expected = operation.getType() == TransactionType.ESCROW_DEPOSIT
+                ? OrderStatus.PENDING : OrderStatus.IN_ESCROW;
+        return orderRepository.findById(operation.getOrder().getId())
+                .map(order -> order.getStatus() == expected)
+                .orElse(false);
+    }
+
+    private void complete(Transaction operation, LocalDateTime lease) {
+        Long orderId = operation.getOrder().getId();
+        String txId = operation.getHederaTransactionId();
+        transactionTemplate.executeWithoutResult(status -> {
+            if (!outboxService.markSucceeded(operation.getId(), lease)) {
+                return;
+            }
+            LocalDateTime now = LocalDateTime.now();
+            int updated = switch (operation.getType()) {
+                case ESCROW_DEPOSIT -> orderRepository.markInEscrowIfPending(orderId, txId, now, now.plusMonths(3),
+                        OrderStatus.PENDING, OrderStatus.IN_ESCROW, OrderProcessingStage.ESCROWED);
+                // Séquestre expiré rendu à l'acheteur : la commande est annulée
+                case REFUND -> orderRepository.markReleasedIfInEscrow(orderId, OrderStatus.IN_ESCROW,
+                        OrderStatus.CANCELLED, OrderProcessingStage.REFUNDED, now);
+                default -> orderRepository.markReleasedIfInEscrow(orderId, OrderStatus.IN_ESCROW,
+                        OrderStatus.RELEASED, OrderProcessingStage.RELEASED, now);
+            };
+            if (updated == 0) {
+                logger.error("Commande {} dans un état inattendu après l'opération {} (TX: {}), intervention manuelle requise",
+                        orderId, operation.getIdempotencyKey(), txId);
+            }
+        });
+        logger.info("Opération {} exécutée pour la commande {} (TX: {})", operation.getIdempotencyKey(), orderId, txId);
+    }
+
+    private void cancel(Transaction operation, LocalDateTime lease, String reason) {
+        transactionTemplate.executeWithoutResult(status -> outboxService.markCancelled(operation.getId(), lease, reason));
+        logger.info("Opération {} annulée: {}", operation.getIdempotencyKey(), reason);
+    }
+
+    private void fail(Transaction operation, LocalDateTime lease, String error, boolean retryable) {
+        Long orderId = operation.getOrder().getId();
+        transactionTemplate.executeWithoutResult(status -> {
+            boolean finalFailure = outboxService.markAttemptFailed(operation.getId(), lease,
+                    operation.getAttempts(), error, retryable);
+            if (!finalFailure) {
+                return;
+            }
+            if (operation.getType() == TransactionType.ESCROW_DEPOSIT) {
+                stockReservationService.cancelAndRelease(orderId, "Échec de la mise en séquestre Hedera: " + error);
+            } else {
+                orderRepository.updateStageIfStatus(orderId, OrderProcessingStage.FAILED,
+                        OrderStatus.IN_ESCROW, LocalDateTime.now());
+            }
+        });
+    }
+}
@@ -0,0 +1,195 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.Transaction;
+import com.agrilend.backend.entity.enums.TransactionType;
+import com.agrilend.backend.repository.TransactionRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Outbox des opérations Hedera, persistée dans la table transactions.
+ * Une opération est écrite dans la même transaction que le changement d'état métier,
+ * puis envoyée par {@link TransactionOutboxDispatcher} avec reprise et backoff exponentiel.
+ */
+@Service
+public class TransactionOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TransactionOutboxService.class);
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.base-backoff-ms:2000}")
+    private long baseBackoffMs;
+
+    @Value("${app.outbox.max-backoff-ms:300000}")
+    private long maxBackoffMs;
+
+    @Value("${app.outbox.lease-seconds:120}")
+    private long leaseSeconds;
+
+    /**
+     * Enregistre l'opération dans la transaction courante. Idempotent sur la clé :
+     * une opération existante est retournée telle quelle, sauf si elle a échoué, auquel cas elle est réarmée.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public Transaction enqueue(Transaction operation, String idempotencyKey) {
+        Optional<Transaction> existing = transactionRepository.findByIdempotencyKey(idempotencyKey);
+        if (existing.isPresent()) {
+            Transaction current = existing.get();
+            if (current.getStatus() != Transaction.TransactionStatus.FAILED) {
+                return current;
+            }
+            current.setAmount(operation.getAmount());
+            current.setFeeAmount(operation.getFeeAmount());
+            current.setFromAccount(operation.getFromAccount());
+            current.setToAccount(operation.getToAccount());
+            current.setHederaTransactionId(null);
+            current.setLastError(null);
+            current.setAttempts(0);
+            current.setStatus(Transaction.TransactionStatus.PENDING);
+            current.setNextAttemptAt(LocalDateTime.now());
+            logger.info("Opération {} réarmée après échec", idempotencyKey);
+            return transactionRepository.save(current);
+        }
+
+        operation.setIdempotencyKey(idempotencyKey);
+        operation.setStatus(Transaction.TransactionStatus.PENDING);
+        operation.setAttempts(0);
+        operation.setNextAttemptAt(LocalDateTime.now());
+        return transactionRepository.save(operation);
+    }
+
+    /**
+     * Prend le bail d'au plus {@code limit} opérations échues, hors type exclu (null : tous types) ;
+     * l'échéance du bail retournée sert de jeton
+     */
+    @Transactional
+    public Claim claimDue(int limit, TransactionType excludedType) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> dueIds = excludedType == null
+                ? transactionRepository.findDueIds(Transaction.TransactionStatus.PENDING, now, PageRequest.of(0, limit))
+                : transactionRepository.findDueIdsExcludingType(Transaction.TransactionStatus.PENDING, now,
+                        excludedType, PageRequest.of(0, limit));
+        return claim(dueIds, now);
+    }
+
+    /**
+     * Prend le bail d'au plus {@code limit} opérations échues d'un type donné
+     */
+    @Transactional
+    public Claim claimDueOfType(int limit, TransactionType type) {
+        LocalDateTime now = LocalDateTime.now();
+        return claim(transactionRepository.findDueIdsByType(Transaction.TransactionStatus.PENDING, now,
+                type, PageRequest.of(0, limit)), now);
+    }
+
+    private Claim claim(List<Long> dueIds, LocalDateTime now) {
+        LocalDateTime lease = newLease(now);
+        List<Long> claimed = new ArrayList<>();
+        for (Long id : dueIds) {
+            if (transactionRepository.claim(id, Transaction.TransactionStatus.PENDING,
+                    Transaction.TransactionStatus.PROCESSING, lease, now) == 1) {
+                claimed.add(id);
+            }
+        }
+        return new Claim(claimed, lease);
+    }
+
+    /**
+     * Échéance d'un nouveau bail, tronquée à la seconde pour être comparée sans perte après un aller-retour en base
+     */
+    public LocalDateTime newLease(LocalDateTime now) {
+        return now.plusSeconds(leaseSeconds).truncatedTo(ChronoUnit.SECONDS);
+    }
+
+    @Transactional
+    public int recoverExpiredLeases() {
+        return transactionRepository.recoverExpiredLeases(Transaction.TransactionStatus.PROCESSING,
+                Transaction.TransactionStatus.PENDING, LocalDateTime.now());
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean markSucceeded(Long id, LocalDateTime lease) {
+        return finish(id, lease, Transaction.TransactionStatus.SUCCESS, null, null);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean markCancelled(Long id, LocalDateTime lease, String reason) {
+        return finish(id, lease, Transaction.TransactionStatus.CANCELLED, reason, null);
+    }
+
+    /**
+     * Remet immédiatement l'opération en file lorsque l'exécuteur est saturé
+     */
+    @Transactional
+    public void releaseClaim(Long id, LocalDateTime lease) {
+        finish(id, lease, Transaction.TransactionStatus.PENDING, null, LocalDateTime.now());
+    }
+
+    /**
+     * Enregistre l'échec d'une tentative ; retourne true si l'opération est définitivement en échec
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public boolean markAttemptFailed(Long id, LocalDateTime lease, int attempts, String error, boolean retryable) {
+        String truncated = error != null && error.length() > MAX_ERROR_LENGTH ? error.substring(0, MAX_ERROR_LENGTH) : error;
+        if (retryable && attempts < maxAttempts) {
+            LocalDateTime nextAttemptAt = LocalDateTime.now().plusNanos(backoffMillis(attempts) * 1_000_000L);
+            finish(id, lease, Transaction.TransactionStatus.PENDING, truncated, nextAttemptAt);
+            logger.warn("Opération {} en échec (tentative {}/{}), nouvelle tentative à {}: {}",
+                    id, attempts, maxAttempts, nextAttemptAt, error);
+            return false;
+        }
+        boolean failed = finish(id, lease, Transaction.TransactionStatus.FAILED, truncated, null);
+        logger.error("Opération {} définitivement en échec après {} tentative(s): {}", id, attempts, error);
+        return failed;
+    }
+
+    /**
+     * Backoff exponentiel plafonné, avec une gigue de 20 % pour étaler les reprises
+     */
+    public long backoffMillis(int attempts) {
+        long exponential = baseBackoffMs << Math.min(Math.max(attempts - 1, 0), 20);
+        long capped = Math.min(exponential, maxBackoffMs);
+        return capped + ThreadLocalRandom.current().nextLong(capped / 5 + 1);
+    }
+
+    private boolean finish(Long id, LocalDateTime lease, Transaction.TransactionStatus status,
+                           String error, LocalDateTime nextAttemptAt) {
+        return transactionRepository.finishAttempt(id, Transaction.TransactionStatus.PROCESSING, lease,
+                status, error, nextAttemptAt, LocalDateTime.now()) == 1;
+    }
+
+    /**
+     * Lot d'opérations prises par un même appel, avec l'échéance de leur bail
+     */
+    public static class Claim {
+        private final List<Long> ids;
+        private final LocalDateTime lease;
+
+        public Claim(List<Long> ids, LocalDateTime lease) {
+            this.ids = ids;
+            this.lease = lease;
+        }
+
+        public List<Long> getIds() { return ids; }
+        public LocalDateTime getLease() { return lease; }
+    }
+}
@@ -0,0 +1,77 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.event.NotificationsCreatedEvent;
+import com.agrilend.backend.event.NotificationsReadEvent;
+import com.agrilend.backend.repository.NotificationRepository;
+import com.agrilend.backend.util.BoundedTtlCache;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nombre de notifications non lues par utilisateur, gardé en mémoire et tenu à jour
+ * par les créations et lectures validées. La durée de vie des entrées borne tout écart avec la base.
+ */
+@Service
+public class UnreadNotificationCounter {
+
+    @Autowired
+    private NotificationRepository notificationRepository;
+
+    @Value("${app.notifications.unread-cache.max-size:50000}")
+    private int maxSize;
+
+    @Value("${app.notifications.unread-cache.ttl-ms:600000}")
+    private long ttlMs;
+
+    private BoundedTtlCache<Long, Long> cache;
+    // Lectures en base en cours ; un changement arrivé pendant la lecture empêche sa mise en cache
+    private final ConcurrentHashMap<Long, Object> loading = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        cache = new BoundedTtlCache<>(maxSize, ttlMs);
+    }
+
+    public long get(Long userId) {
+        Long cached = cache.get(userId);
+        if (cached != null) {
+            return cached;
+        }
+        Object token = new Object();
+        loading.put(userId, token);
+        long count = notificationRepository.countByUserIdAndIsReadFalse(userId);
+        if (loading.remove(userId, token)) {
+            cache.put(userId, count);
+        }
+        return count;
+    }
+
+    // Appliqué avant la diffusion des compteurs aux flux ouverts
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCreated(NotificationsCreatedEvent event) {
+        event.getCountsByUser().forEach((userId, created) -> {
+            loading.remove(userId);
+            cache.update(userId, count -> count + created);
+        });
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onRead(NotificationsReadEvent event) {
+        loading.remove(event.getUserId());
+        if (event.isAllRead()) {
+            // Une création validée juste après la lecture rendrait un 0 faux : le compte est relu en base
+            cache.invalidate(event.getUserId());
+        } else {
+            cache.update(event.getUserId(), count -> Math.max(0, count - event.getReadCount()));
+        }
+    }
+}
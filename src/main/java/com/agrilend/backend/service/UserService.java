@@ -1,21 +1,31 @@
 package com.agrilend.backend.service;
 
+import com.agrilend.backend.dto.common.PageResponse;
 import com.agrilend.backend.dto.user.UserProfileDto;
 import com.agrilend.backend.entity.Buyer;
 import com.agrilend.backend.entity.Farmer;
 import com.agrilend.backend.entity.User;
 import com.agrilend.backend.entity.enums.UserRole;
+import com.agrilend.backend.event.FarmerProfileChangedEvent;
+import com.agrilend.backend.mapper.UserMapper;
 import com.agrilend.backend.repository.BuyerRepository;
 import com.agrilend.backend.repository.FarmerRepository;
 import com.agrilend.backend.repository.UserRepository;
-import org.modelmapper.ModelMapper;
+import com.agrilend.backend.security.PrincipalCache;
+import com.agrilend.backend.util.KeysetCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
 @Service
 @Transactional
 public class UserService {
@@ -30,30 +40,32 @@ public class UserService {
     private BuyerRepository buyerRepository;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private UserMapper userMapper;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
 
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     @Transactional(readOnly = true)
     public UserProfileDto getUserProfile(Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l'ID: " + userId));
 
-        UserProfileDto dto = modelMapper.map(user, UserProfileDto.class);
+        UserProfileDto dto = userMapper.toProfileDto(user);
 
         if (user.getRole() == UserRole.FARMER) {
             Farmer farmer = farmerRepository.findById(userId)
                     .orElseThrow(() -> new IllegalStateException("Profil Agriculteur non trouvé pour l'utilisateur: " + userId));
-            dto.setFarmName(farmer.getFarmName());
-            dto.setFarmLocation(farmer.getFarmLocation());
-            dto.setFarmSize(farmer.getFarmSize());
+            userMapper.applyFarmerProfile(dto, farmer);
         } else if (user.getRole() == UserRole.BUYER) {
             Buyer buyer = buyerRepository.findById(userId)
                     .orElseThrow(() -> new IllegalStateException("Profil Acheteur non trouvé pour l'utilisateur: " + userId));
-            dto.setCompanyName(buyer.getCompanyName());
-            dto.setCompanyAddress(buyer.getCompanyAddress());
-            dto.setActivityType(buyer.getActivityType());
+            userMapper.applyBuyerProfile(dto, buyer);
         }
 
         return dto;
@@ -63,6 +75,9 @@ public class UserService {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l'ID: " + userId));
 
+        // Nom et localisation de l'agriculteur sont repris dans ses offres (index de recherche, cache, ETag)
+        boolean offerDataChanged = changed(userProfileDto.getFirstName(), user.getFirstName())
+                || changed(userProfileDto.getLastName(), user.getLastName());
         if (userProfileDto.getFirstName() != null) {
             user.setFirstName(userProfileDto.getFirstName());
         }
@@ -73,6 +88,7 @@ public class UserService {
             user.setPhone(userProfileDto.getPhone());
         }
         userRepository.save(user);
+        principalCache.evict(userId);
 
         if (user.getRole() == UserRole.FARMER) {
             Farmer farmer = farmerRepository.findById(userId)
@@ -80,6 +96,7 @@ public class UserService {
             if (userProfileDto.getFarmName() != null) {
                 farmer.setFarmName(userProfileDto.getFarmName());
             }
+            offerDataChanged |= changed(userProfileDto.getFarmLocation(), farmer.getFarmLocation());
             if (userProfileDto.getFarmLocation() != null) {
                 farmer.setFarmLocation(userProfileDto.getFarmLocation());
             }
@@ -87,6 +104,9 @@ public class UserService {
                 farmer.setFarmSize(userProfileDto.getFarmSize());
             }
             farmerRepository.save(farmer);
+            if (offerDataChanged) {
+                eventPublisher.publishEvent(new FarmerProfileChangedEvent(userId));
+            }
         } else if (user.getRole() == UserRole.BUYER) {
             Buyer buyer = buyerRepository.findById(userId)
                     .orElseThrow(() -> new IllegalStateException("Profil Acheteur non trouvé pour l'utilisateur: " + userId));
@@ -105,6 +125,10 @@ public class UserService {
         return getUserProfile(userId);
     }
 
+    private static boolean changed(String requested, String current) {
+        return requested != null && !Objects.equals(requested, current);
+    }
+
     public void changePassword(Long userId, String currentPassword, String newPassword) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l'ID: " + userId));
@@ -115,6 +139,7 @@ public class UserService {
 
         user.setPassword(passwordEncoder.encode(newPassword));
         userRepository.save(user);
+        principalCache.evict(userId);
     }
 
     public void enableUser(Long userId) {
@@ -122,6 +147,7 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l'ID: " + userId));
         user.setIsActive(true);
         userRepository.save(user);
+        principalCache.evict(userId);
     }
 
     public void disableUser(Long userId) {
@@ -129,6 +155,7 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("Utilisateur non trouvé avec l'ID: " + userId));
         user.setIsActive(false);
         userRepository.save(user);
+        principalCache.evict(userId);
     }
 
     @Transactional(readOnly = true)
@@ -137,6 +164,25 @@ public class UserService {
         return users.map(this::mapUserToProfileDto);
     }
 
+    /**
+     * Utilisateurs par curseur (createdAt, id) ; le total n'est compté que sur demande
+     */
+    @Transactional(readOnly = true)
+    public PageResponse<UserProfileDto> getAllUsers(String cursor, int size, boolean includeTotal) {
+        Pageable limit = PageRequest.of(0, size + 1);
+        List<User> users;
+        if (cursor == null) {
+            users = userRepository.findAllKeyset(limit);
+        } else {
+            KeysetCursor after = KeysetCursor.decode(cursor);
+            users = userRepository.findAllKeysetAfter(after.getCreatedAt(), after.getId(), limit);
+        }
+        List<UserProfileDto> rows = users.stream().map(this::mapUserToProfileDto).collect(Collectors.toList());
+        Long total = includeTotal ? userRepository.count() : null;
+        return PageResponse.ofKeyset(rows, size, cursor == null,
+                user -> KeysetCursor.encode(user.getCreatedAt(), user.getId()), total);
+    }
+
     @Transactional(readOnly = true)
     public Page<UserProfileDto> getUsersByRole(UserRole role, Pageable pageable) {
         Page<User> users = userRepository.findByRole(role, pageable);
@@ -144,20 +190,12 @@ public class UserService {
     }
 
     private UserProfileDto mapUserToProfileDto(User user) {
-        UserProfileDto dto = modelMapper.map(user, UserProfileDto.class);
+        UserProfileDto dto = userMapper.toProfileDto(user);
 
         if (user.getRole() == UserRole.FARMER) {
-            farmerRepository.findById(user.getId()).ifPresent(farmer -> {
-                dto.setFarmName(farmer.getFarmName());
-                dto.setFarmLocation(farmer.getFarmLocation());
-                dto.setFarmSize(farmer.getFarmSize());
-            });
+            farmerRepository.findById(user.getId()).ifPresent(farmer -> userMapper.applyFarmerProfile(dto, farmer));
         } else if (user.getRole() == UserRole.BUYER) {
-            buyerRepository.findById(user.getId()).ifPresent(buyer -> {
-                dto.setCompanyName(buyer.getCompanyName());
-                dto.setCompanyAddress(buyer.getCompanyAddress());
-                dto.setActivityType(buyer.getActivityType());
-            });
+            buyerRepository.findById(user.getId()).ifPresent(buyer -> userMapper.applyBuyerProfile(dto, buyer));
         }
 
         return dto;
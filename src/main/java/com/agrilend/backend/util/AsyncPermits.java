@@ -0,0 +1,120 @@
+package com.agrilend.backend.util;
+
+import java.util.ArrayDeque;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Limite de concurrence non bloquante : au-delà des permis disponibles, les demandes
+ * attendent dans une file sans occuper de thread et sont servies dans l'ordre d'arrivée.
+ */
+public class AsyncPermits {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ArrayDeque<CompletableFuture<Void>> waiters = new ArrayDeque<>();
+    private int available;
+
+    public AsyncPermits(int permits) {
+        if (permits <= 0) {
+            throw new IllegalArgumentException("Le nombre de permis doit être positif");
+        }
+        this.available = permits;
+    }
+
+    /**
+     * Lance l'opération dès qu'un permis est libre ; le permis est rendu à la fin de l'opération.
+     * Annuler le résultat retire la demande de la file ou annule l'opération en cours.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<CompletableFuture<T>> operation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        CompletableFuture<Void> permit = acquire();
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                permit.cancel(false);
+            }
+        });
+        permit.thenRun(() -> {
+            if (result.isDone()) {
+                release();
+                return;
+            }
+            CompletableFuture<T> running;
+            try {
+                running = operation.get();
+            } catch (RuntimeException e) {
+                release();
+                result.completeExceptionally(e);
+                return;
+            }
+            result.whenComplete((value, error) -> {
+                if (result.isCancelled()) {
+                    running.cancel(true);
+                }
+            });
+            running.whenComplete((value, error) -> {
+                release();
+                if (error != null) {
+                    result.completeExceptionally(error);
+                } else {
+                    result.complete(value);
+                }
+            });
+        });
+        return result;
+    }
+
+    public int available() {
+        lock.lock();
+        try {
+            return available;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int queued() {
+        lock.lock();
+        try {
+            return waiters.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private CompletableFuture<Void> acquire() {
+        lock.lock();
+        try {
+            if (available > 0) {
+                available--;
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> waiter = new CompletableFuture<>();
+            waiters.add(waiter);
+            return waiter;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        CompletableFuture<Void> next;
+        lock.lock();
+        try {
+            // Les demandes annulées pendant leur attente sont ignorées
+            do {
+                next = waiters.poll();
+            } while (next != null && next.isCancelled());
+            if (next == null) {
+                available++;
+                return;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!next.complete(null)) {
+            // Annulée entre-temps : le permis passe à la demande suivante
+            release();
+        }
+    }
+}
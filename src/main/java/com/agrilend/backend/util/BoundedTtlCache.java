@@ -0,0 +1,159 @@
+package com.agrilend.backend.util;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.UnaryOperator;
+
+/**
+ * Cache en mémoire borné (éviction LRU) dont les entrées expirent après un délai fixe
+ */
+public class BoundedTtlCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LinkedHashMap<K, Entry<V>> entries;
+
+    public BoundedTtlCache(int maxSize, long ttlMillis) {
+        if (maxSize <= 0) {
+            throw new IllegalArgumentException("La taille maximale du cache doit être positive");
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    public V get(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.isExpired(System.nanoTime())) {
+                entries.remove(key);
+                return null;
+            }
+            return entry.value;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void put(K key, V value) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            insert(key, value, now);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ajoute l'entrée si la clé est absente ou expirée ; retourne false si une entrée valide existe déjà
+     */
+    public boolean putIfAbsent(K key, V value) {
+        long now = System.nanoTime();
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry != null && !entry.isExpired(now)) {
+                return false;
+            }
+            insert(key, value, now);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Remplace la valeur d'une entrée présente et non expirée, sans prolonger son expiration
+     */
+    public boolean update(K key, UnaryOperator<V> updater) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.get(key);
+            if (entry == null || entry.isExpired(System.nanoTime())) {
+                return false;
+            }
+            entries.put(key, new Entry<>(updater.apply(entry.value), entry.expiresAtNanos));
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Retire l'entrée et retourne sa valeur, ou null si elle était absente ou expirée
+     */
+    public V remove(K key) {
+        lock.lock();
+        try {
+            Entry<V> entry = entries.remove(key);
+            return entry != null && !entry.isExpired(System.nanoTime()) ? entry.value : null;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidate(K key) {
+        lock.lock();
+        try {
+            entries.remove(key);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public void invalidateAll() {
+        lock.lock();
+        try {
+            entries.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int size() {
+        lock.lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void insert(K key, V value, long now) {
+        entries.put(key, new Entry<>(value, now + ttlNanos));
+        if (entries.size() > maxSize) {
+            evictExpired(now);
+        }
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+        }
+    }
+
+    private void evictExpired(long now) {
+        entries.values().removeIf(entry -> entry.isExpired(now));
+    }
+
+    private static final class Entry<V> {
+        private final V value;
+        private final long expiresAtNanos;
+
+        private Entry(V value, long expiresAtNanos) {
+            this.value = value;
+            this.expiresAtNanos = expiresAtNanos;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expiresAtNanos >= 0;
+        }
+    }
+}
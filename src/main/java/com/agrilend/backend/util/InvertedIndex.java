@@ -0,0 +1,165 @@
+package com.agrilend.backend.util;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * Index inversé en mémoire : chaque document est découpé en termes normalisés (minuscules, sans accents),
+ * et une recherche retrouve les documents contenant tous les termes de la requête, en début de mot.
+ */
+public class InvertedIndex<D> {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    // Lettres et chiffres Unicode (sans le drapeau, \p{Alnum} se limite à l'ASCII)
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{Alnum}]+", Pattern.UNICODE_CHARACTER_CLASS);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, D> documents = new HashMap<>();
+    private final Map<Long, Set<String>> termsByDocument = new HashMap<>();
+    // Trié pour retrouver les termes par préfixe
+    private final TreeMap<String, Set<Long>> postings = new TreeMap<>();
+
+    /**
+     * Ajoute ou remplace un document et ses textes indexés
+     */
+    public void put(Long id, D document, String... texts) {
+        Set<String> terms = new HashSet<>();
+        for (String text : texts) {
+            terms.addAll(tokenize(text));
+        }
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+            documents.put(id, document);
+            termsByDocument.put(id, terms);
+            for (String term : terms) {
+                postings.computeIfAbsent(term, t -> new HashSet<>()).add(id);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(Long id) {
+        lock.writeLock().lock();
+        try {
+            unindex(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            documents.clear();
+            termsByDocument.clear();
+            postings.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return documents.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Documents contenant tous les termes de la requête (un terme correspond à tout mot qui le commence)
+     * et acceptés par le filtre, triés par pertinence : un mot identique au terme compte plus qu'un préfixe.
+     * Une requête vide retourne tous les documents acceptés.
+     */
+    public List<D> search(String query, Predicate<D> filter) {
+        List<String> queryTerms = tokenize(query);
+        lock.readLock().lock();
+        try {
+            Map<Long, Integer> scores = null;
+            for (String term : queryTerms) {
+                Map<Long, Integer> termScores = new HashMap<>();
+                for (Map.Entry<String, Set<Long>> posting : postings.subMap(term, true, term + Character.MAX_VALUE, false).entrySet()) {
+                    int weight = posting.getKey().equals(term) ? 2 : 1;
+                    for (Long id : posting.getValue()) {
+                        termScores.merge(id, weight, Math::max);
+                    }
+                }
+                if (scores == null) {
+                    scores = termScores;
+                } else {
+                    scores.keySet().retainAll(termScores.keySet());
+                    for (Map.Entry<Long, Integer> score : scores.entrySet()) {
+                        score.setValue(score.getValue() + termScores.get(score.getKey()));
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return new ArrayList<>();
+                }
+            }
+
+            List<Map.Entry<Long, Integer>> matches = new ArrayList<>();
+            if (scores == null) {
+                documents.keySet().forEach(id -> matches.add(Map.entry(id, 0)));
+            } else {
+                matches.addAll(scores.entrySet());
+            }
+            matches.sort(Map.Entry.<Long, Integer>comparingByValue().reversed()
+                    .thenComparing(Map.Entry.<Long, Integer>comparingByKey().reversed()));
+
+            List<D> results = new ArrayList<>();
+            for (Map.Entry<Long, Integer> match : matches) {
+                D document = documents.get(match.getKey());
+                if (filter == null || filter.test(document)) {
+                    results.add(document);
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Découpe un texte en termes : minuscules, sans accents, séparés sur tout caractère non alphanumérique
+     */
+    public static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return new ArrayList<>();
+        }
+        String normalized = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("")
+                .toLowerCase(Locale.ROOT)
+                // Ligatures que NFD ne décompose pas
+                .replace("œ", "oe")
+                .replace("æ", "ae");
+        List<String> terms = new ArrayList<>();
+        for (String term : SEPARATORS.split(normalized)) {
+            if (!term.isEmpty()) {
+                terms.add(term);
+            }
+        }
+        return terms;
+    }
+
+    private void unindex(Long id) {
+        documents.remove(id);
+        Set<String> previous = termsByDocument.remove(id);
+        if (previous == null) {
+            return;
+        }
+        for (String term : previous) {
+            Set<Long> ids = postings.get(term);
+            if (ids != null) {
+                ids.remove(id);
+                if (ids.isEmpty()) {
+                    postings.remove(term);
+                }
+            }
+        }
+    }
+}
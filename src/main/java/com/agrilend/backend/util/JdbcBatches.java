@@ -0,0 +1,37 @@
+package com.agrilend.backend.util;
+
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Outils communs aux traitements JDBC par lots
+ */
+public final class JdbcBatches {
+
+    private JdbcBatches() {
+    }
+
+    /**
+     * Calendrier à passer à setTimestamp / getTimestamp pour convertir les dates comme Hibernate
+     * (hibernate.jdbc.time_zone=UTC) ; une instance par lot, Calendar n'étant pas thread-safe
+     */
+    public static Calendar utcCalendar() {
+        return Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+    }
+
+    /**
+     * Laisse respirer la base entre deux lots ; false si le thread est interrompu
+     */
+    public static boolean pause(long millis) {
+        if (millis <= 0) {
+            return true;
+        }
+        try {
+            Thread.sleep(millis);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+}
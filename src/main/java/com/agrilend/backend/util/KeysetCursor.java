@@ -0,0 +1,59 @@
+package com.agrilend.backend.util;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+
+/**
+ * Curseur opaque de pagination par clé (createdAt, id), pour un tri décroissant sur ces deux colonnes
+ */
+public class KeysetCursor {
+
+    private final LocalDateTime createdAt;
+    private final Long id;
+
+    public KeysetCursor(LocalDateTime createdAt, Long id) {
+        this.createdAt = createdAt;
+        this.id = id;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public static String encode(LocalDateTime createdAt, Long id) {
+        String raw = createdAt + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static KeysetCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf('|');
+            return new KeysetCursor(LocalDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Curseur de pagination invalide");
+        }
+    }
+
+    /**
+     * Curseur fourni, ou première page avec le tri par défaut (createdAt décroissant) : pagination par clé.
+     * Les autres tris et les numéros de page restent servis par l'offset.
+     */
+    public static boolean isKeysetRequest(int page, String sortBy, String sortDir, String cursor) {
+        return cursor != null || (page == 0 && "createdAt".equals(sortBy) && "desc".equalsIgnoreCase(sortDir));
+    }
+
+    /**
+     * Sauf demande explicite, le total n'est compté que sur la première page
+     */
+    public static boolean shouldCountTotal(Boolean includeTotal, String cursor) {
+        return includeTotal != null ? includeTotal : cursor == null;
+    }
+}
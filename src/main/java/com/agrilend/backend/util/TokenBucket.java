@@ -0,0 +1,58 @@
+package com.agrilend.backend.util;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Seau à jetons : {@code ratePerSecond} jetons par seconde, au plus {@code capacity} en réserve
+ */
+public class TokenBucket {
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final long capacity;
+    private final double tokensPerNano;
+    private double tokens;
+    private long lastRefillNanos;
+
+    public TokenBucket(long capacity, double ratePerSecond) {
+        if (capacity <= 0 || ratePerSecond <= 0) {
+            throw new IllegalArgumentException("La capacité et le débit doivent être positifs");
+        }
+        this.capacity = capacity;
+        this.tokensPerNano = ratePerSecond / 1_000_000_000d;
+        this.tokens = capacity;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * Prend jusqu'à {@code requested} jetons ; retourne le nombre effectivement accordé
+     */
+    public int tryAcquireUpTo(int requested) {
+        lock.lock();
+        try {
+            refill();
+            int granted = (int) Math.min(requested, Math.floor(tokens));
+            tokens -= granted;
+            return granted;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Rend des jetons non utilisés
+     */
+    public void refund(int unused) {
+        lock.lock();
+        try {
+            tokens = Math.min(capacity, tokens + unused);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(capacity, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
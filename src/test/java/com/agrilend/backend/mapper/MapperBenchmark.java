@@ -0,0 +1,179 @@
+package com.agrilend.backend.mapper;
+
+import com.agrilend.backend.config.ModelMapperConfig;
+import com.agrilend.backend.dto.notification.NotificationDto;
+import com.agrilend.backend.dto.offer.OfferDto;
+import com.agrilend.backend.dto.order.OrderDto;
+import com.agrilend.backend.entity.Buyer;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.Notification;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.User;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.entity.enums.ProductionMethod;
+import com.agrilend.backend.entity.enums.UserRole;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Débit et octets alloués par conversion : mappers explicites contre le ModelMapper
+ * STRICT utilisé auparavant. Les octets par opération sont dans la colonne gc.alloc.rate.norm.
+ * <p>
+ * Lancement : {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.agrilend.backend.mapper.MapperBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MapperBenchmark {
+
+    private ModelMapper modelMapper;
+    private OrderMapper orderMapper;
+    private OfferMapper offerMapper;
+    private NotificationMapper notificationMapper;
+
+    private Order order;
+    private Offer offer;
+    private Notification notification;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new ModelMapperConfig().modelMapper();
+        orderMapper = new OrderMapper();
+        offerMapper = new OfferMapper();
+        notificationMapper = new NotificationMapper();
+
+        User farmerUser = user(1L, "Awa", "Kone", UserRole.FARMER);
+        Farmer farmer = new Farmer();
+        farmer.setId(farmerUser.getId());
+        farmer.setUser(farmerUser);
+        farmer.setFarmName("Ferme Kone");
+        farmer.setFarmLocation("Daloa");
+
+        User buyerUser = user(2L, "Yao", "Kouassi", UserRole.BUYER);
+        Buyer buyer = new Buyer();
+        buyer.setId(buyerUser.getId());
+        buyer.setUser(buyerUser);
+        buyer.setCompanyName("Société Kouassi");
+
+        Product product = new Product();
+        product.setId(10L);
+        product.setName("Cacao");
+        product.setDescription("Fèves de cacao fermentées");
+        product.setCategory("Cultures de rente");
+        product.setSubcategory("Fèves");
+
+        offer = new Offer();
+        offer.setId(100L);
+        offer.setFarmer(farmer);
+        offer.setProduct(product);
+        offer.setAvailableQuantity(new BigDecimal("1000.00"));
+        offer.setSuggestedUnitPrice(new BigDecimal("1500.00"));
+        offer.setFinalPriceBuyer(new BigDecimal("1650.00"));
+        offer.setAvailabilityDate(LocalDate.now());
+        offer.setExpiryDate(LocalDate.now().plusDays(30));
+        offer.setProductionMethod(ProductionMethod.ORGANIC);
+        offer.setStatus(OfferStatus.ACTIVE);
+        offer.setNotes("Récolte de la grande saison");
+        offer.setCreatedAt(LocalDateTime.now());
+        offer.setUpdatedAt(LocalDateTime.now());
+
+        order = new Order();
+        order.setId(1000L);
+        order.setOrderNumber("AGL-2026-1760745600000");
+        order.setBuyer(buyer);
+        order.setOffer(offer);
+        order.setOrderedQuantity(new BigDecimal("10.00"));
+        order.setUnitPrice(new BigDecimal("1650.00"));
+        order.setTotalAmount(new BigDecimal("16500.00"));
+        order.setStatus(OrderStatus.IN_ESCROW);
+        order.setDeliveryAddress("Abidjan, Plateau");
+        order.setEscrowTransactionId("0.0.1234@1760745600.000000000");
+        order.setEscrowStartDate(LocalDateTime.now());
+        order.setEscrowEndDate(LocalDateTime.now().plusDays(30));
+        order.setCreatedAt(LocalDateTime.now());
+        order.setUpdatedAt(LocalDateTime.now());
+
+        notification = new Notification();
+        notification.setId(5000L);
+        notification.setUser(buyerUser);
+        notification.setType("ORDER_UPDATE");
+        notification.setTitle("Commande en séquestre");
+        notification.setMessage("Votre commande AGL-2026-1760745600000 est en séquestre");
+        notification.setRelatedEntityType("ORDER");
+        notification.setRelatedEntityId(order.getId());
+        notification.setCreatedAt(LocalDateTime.now());
+    }
+
+    @Benchmark
+    public OrderDto orderExplicit() {
+        return orderMapper.toDto(order);
+    }
+
+    @Benchmark
+    public OrderDto orderModelMapper() {
+        return modelMapper.map(order, OrderDto.class);
+    }
+
+    @Benchmark
+    public OfferDto offerExplicit() {
+        return offerMapper.toDto(offer);
+    }
+
+    @Benchmark
+    public OfferDto offerModelMapper() {
+        return modelMapper.map(offer, OfferDto.class);
+    }
+
+    @Benchmark
+    public NotificationDto notificationExplicit() {
+        return notificationMapper.toDto(notification);
+    }
+
+    @Benchmark
+    public NotificationDto notificationModelMapper() {
+        return modelMapper.map(notification, NotificationDto.class);
+    }
+
+    private static User user(Long id, String firstName, String lastName, UserRole role) {
+        User user = new User();
+        user.setId(id);
+        user.setFirstName(firstName);
+        user.setLastName(lastName);
+        user.setEmail(firstName.toLowerCase() + "." + lastName.toLowerCase() + "@agrilend.ci");
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(MapperBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
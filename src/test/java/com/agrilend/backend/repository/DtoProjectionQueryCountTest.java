@@ -0,0 +1,150 @@
+package com.agrilend.backend.repository;
+
+import com.agrilend.backend.dto.offer.OfferDto;
+import com.agrilend.backend.dto.order.OrderDto;
+import com.agrilend.backend.entity.Buyer;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.entity.enums.UserRole;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Budget de requêtes des projections DTO : le nombre d'instructions SQL
+ * ne dépend pas du nombre de lignes (plus de findById par ligne).
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+class DtoProjectionQueryCountTest {
+
+    private static final int FARMERS = 3;
+    private static final int BUYERS = 3;
+    private static final int OFFERS_PER_FARMER = 2;
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    private final List<Farmer> farmers = new ArrayList<>();
+    private final List<Buyer> buyers = new ArrayList<>();
+    private final List<Offer> offers = new ArrayList<>();
+    private int orderCount;
+
+    @BeforeEach
+    void setUp() {
+        Product product = em.persist(TestData.product("Cacao", "Cultures de rente"));
+        for (int i = 0; i < FARMERS; i++) {
+            Farmer farmer = em.persist(TestData.farmer(em.persist(TestData.user("farmer" + i + "@test.ci", UserRole.FARMER))));
+            farmers.add(farmer);
+            for (int j = 0; j < OFFERS_PER_FARMER; j++) {
+                offers.add(em.persist(TestData.offer(farmer, product, "1000.00", OfferStatus.ACTIVE)));
+            }
+        }
+        for (int i = 0; i < BUYERS; i++) {
+            buyers.add(em.persist(TestData.buyer(em.persist(TestData.user("buyer" + i + "@test.ci", UserRole.BUYER)))));
+        }
+        for (Buyer buyer : buyers) {
+            for (Offer offer : offers) {
+                Order order = TestData.order(buyer, offer, OrderStatus.PENDING);
+                // Numéros explicites : celui généré à la création dépend de currentTimeMillis (contrainte unique)
+                order.setOrderNumber("AGL-TEST-" + orderCount);
+                em.persist(order);
+                orderCount++;
+            }
+        }
+        em.flush();
+        em.clear();
+    }
+
+    @Test
+    void orderPagesUseContentAndCountQueriesOnly() {
+        Page<OrderDto> all = countStatements(2, () -> orderRepository.findAllDtos(PageRequest.of(0, 5)));
+        assertThat(all.getTotalElements()).isEqualTo(orderCount);
+        assertThat(all.getContent()).hasSize(5)
+                .allSatisfy(dto -> {
+                    assertThat(dto.getFarmerName()).isNotBlank();
+                    assertThat(dto.getBuyerName()).isNotBlank();
+                    assertThat(dto.getBuyerEmail()).isNotBlank();
+                    assertThat(dto.getProductName()).isEqualTo("Cacao");
+                });
+
+        Page<OrderDto> pending = countStatements(2,
+                () -> orderRepository.findDtosByStatus(OrderStatus.PENDING, PageRequest.of(1, 5)));
+        assertThat(pending.getTotalElements()).isEqualTo(orderCount);
+    }
+
+    @Test
+    void orderListsByBuyerAndFarmerUseOneQuery() {
+        List<OrderDto> byBuyer = countStatements(1, () -> orderRepository.findDtosByBuyerId(buyers.get(0).getId()));
+        assertThat(byBuyer).hasSize(offers.size());
+
+        List<OrderDto> byFarmer = countStatements(1, () -> orderRepository.findDtosByFarmerId(farmers.get(0).getId()));
+        assertThat(byFarmer).hasSize(BUYERS * OFFERS_PER_FARMER);
+    }
+
+    @Test
+    void orderDetailUsesOneQuery() {
+        OrderDto first = orderRepository.findAllDtos(PageRequest.of(0, 1)).getContent().get(0);
+
+        assertThat(countStatements(1, () -> orderRepository.findDtoById(first.getId()))).isPresent();
+        assertThat(countStatements(1, () -> orderRepository.findDtoByOrderNumber(first.getOrderNumber()))).isPresent();
+    }
+
+    @Test
+    void offerPagesUseContentAndCountQueriesOnly() {
+        Page<OfferDto> all = countStatements(2, () -> offerRepository.findAllDtos(PageRequest.of(0, 4)));
+        assertThat(all.getTotalElements()).isEqualTo(offers.size());
+        assertThat(all.getContent()).hasSize(4)
+                .allSatisfy(dto -> assertThat(dto.getFarmerName()).isNotBlank());
+
+        Page<OfferDto> active = countStatements(2,
+                () -> offerRepository.findDtosByStatus(OfferStatus.ACTIVE, PageRequest.of(0, 4)));
+        assertThat(active.getTotalElements()).isEqualTo(offers.size());
+    }
+
+    @Test
+    void offerListAndDetailUseOneQuery() {
+        List<OfferDto> byFarmer = countStatements(1, () -> offerRepository.findDtosByFarmerId(farmers.get(1).getId()));
+        assertThat(byFarmer).hasSize(OFFERS_PER_FARMER);
+
+        assertThat(countStatements(1, () -> offerRepository.findDtoById(offers.get(0).getId()))).isPresent();
+    }
+
+    private <T> T countStatements(long expected, Supplier<T> call) {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        em.clear();
+        statistics.clear();
+        T result = call.get();
+        assertThat(statistics.getPrepareStatementCount()).as("requêtes SQL exécutées").isEqualTo(expected);
+        return result;
+    }
+}
@@ -0,0 +1,212 @@
+package com.agrilend.backend.repository;
+
+import com.agrilend.backend.entity.Buyer;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.OrderProcessingStage;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.entity.enums.UserRole;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Décrément conditionnel du stock sous contention : chaque réservation
+ * s'exécute dans sa propre transaction validée, sur la même offre.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OfferReservationConcurrencyTest {
+
+    private static final int BUYERS = 32;
+
+    @Autowired
+    private OfferRepository offerRepository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private FarmerRepository farmerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private BuyerRepository buyerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Farmer farmer;
+    private Product product;
+
+    @BeforeEach
+    void setUp() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+        transactionTemplate.executeWithoutResult(status -> {
+            farmer = farmerRepository.save(TestData.farmer(
+                    userRepository.save(TestData.user("stock-farmer@test.ci", UserRole.FARMER))));
+            product = productRepository.save(TestData.product("Anacarde", "Cultures de rente"));
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transactionTemplate.executeWithoutResult(status -> {
+            orderRepository.deleteAll();
+            buyerRepository.deleteAll();
+            offerRepository.deleteAll();
+            productRepository.deleteAll();
+            farmerRepository.deleteAll();
+            userRepository.deleteAll();
+        });
+    }
+
+    @Test
+    void concurrentReservationsNeverOversell() throws Exception {
+        // 32 acheteurs de 7 unités sur 100 : 14 réservations passent, 2 unités restent
+        Long offerId = createOffer("100.00");
+        BigDecimal quantity = new BigDecimal("7.00");
+
+        int reserved = reserveConcurrently(offerId, quantity);
+
+        Offer offer = offerRepository.findById(offerId).orElseThrow();
+        assertThat(reserved).isEqualTo(14);
+        assertThat(offer.getAvailableQuantity()).isEqualByComparingTo("2.00");
+        assertThat(offer.getStatus()).isEqualTo(OfferStatus.ACTIVE);
+    }
+
+    @Test
+    void exactSellOutLosesNoSaleAndFlipsToSoldOut() throws Exception {
+        // 32 acheteurs de 5 unités sur 160 : toutes les réservations passent, stock à zéro
+        Long offerId = createOffer("160.00");
+        BigDecimal quantity = new BigDecimal("5.00");
+
+        int reserved = reserveConcurrently(offerId, quantity);
+
+        Offer offer = offerRepository.findById(offerId).orElseThrow();
+        assertThat(reserved).isEqualTo(BUYERS);
+        assertThat(offer.getAvailableQuantity()).isEqualByComparingTo(BigDecimal.ZERO);
+        assertThat(offer.getStatus()).isEqualTo(OfferStatus.SOLD_OUT);
+    }
+
+    @Test
+    void releaseReactivatesSoldOutOffer() {
+        Long offerId = createOffer("5.00");
+        BigDecimal quantity = new BigDecimal("5.00");
+
+        assertThat(reserve(offerId, quantity)).isTrue();
+        assertThat(reserve(offerId, quantity)).isFalse();
+        transactionTemplate.executeWithoutResult(status -> offerRepository.releaseQuantity(offerId, quantity,
+                OfferStatus.ACTIVE, OfferStatus.SOLD_OUT, LocalDateTime.now()));
+
+        Offer offer = offerRepository.findById(offerId).orElseThrow();
+        assertThat(offer.getAvailableQuantity()).isEqualByComparingTo("5.00");
+        assertThat(offer.getStatus()).isEqualTo(OfferStatus.ACTIVE);
+    }
+
+    @Test
+    void expiredReservationIsOnlyCancelledBeforeFunding() {
+        Long offerId = createOffer("50.00");
+        Long orderId = transactionTemplate.execute(status -> {
+            Buyer buyer = buyerRepository.save(TestData.buyer(
+                    userRepository.save(TestData.user("stock-buyer@test.ci", UserRole.BUYER))));
+            Order order = TestData.order(buyer, offerRepository.findById(offerId).orElseThrow(), OrderStatus.PENDING);
+            order.setProcessingStage(OrderProcessingStage.QUEUED);
+            order.setReservationExpiresAt(LocalDateTime.now().minusMinutes(1));
+            return orderRepository.save(order).getId();
+        });
+        assertThat(expiredReservations()).containsExactly(orderId);
+
+        // Compte de l'acheteur alimenté : la réservation n'est plus balayée ni annulée
+        transactionTemplate.executeWithoutResult(status -> orderRepository.updateStageIfPending(
+                orderId, OrderProcessingStage.FUNDED, OrderStatus.PENDING, LocalDateTime.now()));
+        assertThat(expiredReservations()).isEmpty();
+        assertThat(cancelExpired(orderId)).isZero();
+        assertThat(orderRepository.findById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.PENDING);
+
+        transactionTemplate.executeWithoutResult(status -> orderRepository.updateStageIfPending(
+                orderId, OrderProcessingStage.QUEUED, OrderStatus.PENDING, LocalDateTime.now()));
+        assertThat(cancelExpired(orderId)).isEqualTo(1);
+        assertThat(orderRepository.findById(orderId).orElseThrow().getStatus()).isEqualTo(OrderStatus.CANCELLED);
+    }
+
+    private List<Long> expiredReservations() {
+        return orderRepository.findIdsWithExpiredReservation(OrderStatus.PENDING, OrderProcessingStage.QUEUED,
+                LocalDateTime.now(), PageRequest.of(0, 10));
+    }
+
+    private Integer cancelExpired(Long orderId) {
+        return transactionTemplate.execute(status -> orderRepository.cancelIfReservationExpired(orderId,
+                "Réservation expirée", OrderStatus.PENDING, OrderProcessingStage.QUEUED, OrderStatus.CANCELLED,
+                OrderProcessingStage.FAILED, LocalDateTime.now()));
+    }
+
+    private Long createOffer(String quantity) {
+        return transactionTemplate.execute(status ->
+                offerRepository.save(TestData.offer(farmer, product, quantity, OfferStatus.ACTIVE)).getId());
+    }
+
+    private boolean reserve(Long offerId, BigDecimal quantity) {
+        Integer updated = transactionTemplate.execute(status -> offerRepository.reserveQuantity(offerId, quantity,
+                OfferStatus.ACTIVE, OfferStatus.SOLD_OUT, LocalDateTime.now()));
+        return updated != null && updated == 1;
+    }
+
+    private int reserveConcurrently(Long offerId, BigDecimal quantity) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            List<Future<Boolean>> results = new ArrayList<>();
+            for (int i = 0; i < BUYERS; i++) {
+                Callable<Boolean> buyer = () -> {
+                    start.await();
+                    return reserve(offerId, quantity);
+                };
+                results.add(executor.submit(buyer));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<Boolean> result : results) {
+                if (result.get()) {
+                    reserved++;
+                }
+            }
+            return reserved;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.agrilend.backend.repository;
+
+import com.agrilend.backend.entity.Buyer;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.User;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.OrderStatus;
+import com.agrilend.backend.entity.enums.UserRole;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Entités minimales (non persistées) pour les tests de repository
+ */
+final class TestData {
+
+    private TestData() {
+    }
+
+    static User user(String email, UserRole role) {
+        User user = new User();
+        user.setFirstName("Prenom");
+        user.setLastName(email.substring(0, email.indexOf('@')));
+        user.setEmail(email);
+        user.setPassword("secret");
+        user.setRole(role);
+        return user;
+    }
+
+    static Farmer farmer(User user) {
+        Farmer farmer = new Farmer();
+        farmer.setUser(user);
+        farmer.setFarmName("Ferme " + user.getLastName());
+        farmer.setFarmLocation("Bouaké");
+        return farmer;
+    }
+
+    static Buyer buyer(User user) {
+        Buyer buyer = new Buyer();
+        buyer.setUser(user);
+        buyer.setCompanyName("Société " + user.getLastName());
+        return buyer;
+    }
+
+    static Product product(String name, String category) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        return product;
+    }
+
+    static Offer offer(Farmer farmer, Product product, String quantity, OfferStatus status) {
+        Offer offer = new Offer();
+        offer.setFarmer(farmer);
+        offer.setProduct(product);
+        offer.setAvailableQuantity(new BigDecimal(quantity));
+        offer.setSuggestedUnitPrice(new BigDecimal("500.00"));
+        offer.setAvailabilityDate(LocalDate.now());
+        offer.setExpiryDate(LocalDate.now().plusDays(30));
+        offer.setStatus(status);
+        return offer;
+    }
+
+    static Order order(Buyer buyer, Offer offer, OrderStatus status) {
+        Order order = new Order();
+        order.setBuyer(buyer);
+        order.setOffer(offer);
+        order.setOrderedQuantity(new BigDecimal("10.00"));
+        order.setUnitPrice(new BigDecimal("500.00"));
+        order.setTotalAmount(new BigDecimal("5000.00"));
+        order.setStatus(status);
+        order.setDeliveryAddress("Abidjan");
+        return order;
+    }
+}
@@ -0,0 +1,124 @@
+package com.agrilend.backend.security;
+
+import com.agrilend.backend.config.JwtConfig;
+import com.agrilend.backend.entity.User;
+import com.agrilend.backend.entity.enums.UserRole;
+import com.agrilend.backend.repository.UserRepository;
+import jakarta.servlet.ServletException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.ConfigurationPropertiesAutoConfiguration;
+import org.springframework.boot.autoconfigure.context.PropertyPlaceholderAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceAutoConfiguration;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernateJpaAutoConfiguration;
+import org.springframework.boot.autoconfigure.transaction.TransactionAutoConfiguration;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Coût par requête du filtre JWT : vérification du token puis résolution du principal, relu par email
+ * à chaque requête (database) ou servi par {@link PrincipalCache} (cached). Base H2 du profil de test ;
+ * sur MySQL l'écart est plus grand, la requête par email traversant le réseau.
+ * <p>
+ * Lancement : {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.agrilend.backend.security.JwtFilterBenchmark}
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JwtFilterBenchmark {
+
+    private static final String SECRET = "JwtFilterBenchmarkSecretKeyLongEnoughForHmacSha512SignaturesOnly!";
+
+    /**
+     * Valeur de app.security.principal-resolution
+     */
+    @Param({"database", "cached"})
+    public String principalResolution;
+
+    private ConfigurableApplicationContext context;
+    private JwtAuthenticationFilter filter;
+    private String authorization;
+
+    @Configuration
+    @ImportAutoConfiguration({PropertyPlaceholderAutoConfiguration.class, ConfigurationPropertiesAutoConfiguration.class,
+            DataSourceAutoConfiguration.class, HibernateJpaAutoConfiguration.class, TransactionAutoConfiguration.class})
+    @EntityScan(basePackageClasses = User.class)
+    @EnableJpaRepositories(basePackageClasses = UserRepository.class)
+    @Import({JwtConfig.class, JwtTokenProvider.class, JwtAuthenticationFilter.class, CustomUserDetailsService.class,
+            PrincipalCache.class, StreamTicketService.class})
+    static class FilterContext {
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(FilterContext.class)
+                .web(WebApplicationType.NONE)
+                .profiles("test")
+                .run("--app.jwt.secret=" + SECRET, "--app.security.principal-resolution=" + principalResolution);
+        filter = context.getBean(JwtAuthenticationFilter.class);
+
+        User user = new User();
+        user.setFirstName("Awa");
+        user.setLastName("Kone");
+        user.setEmail("awa.kone@agrilend.ci");
+        user.setPassword("secret");
+        user.setRole(UserRole.BUYER);
+        UserPrincipal principal = UserPrincipal.create(context.getBean(UserRepository.class).save(user));
+        Authentication authentication = new UsernamePasswordAuthenticationToken(principal, null, principal.getAuthorities());
+        authorization = "Bearer " + context.getBean(JwtTokenProvider.class).generateToken(authentication);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public Object authenticate() throws ServletException, IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/buyer/offers");
+        request.addHeader("Authorization", authorization);
+        filter.doFilter(request, new MockHttpServletResponse(), new MockFilterChain());
+        Object principal = SecurityContextHolder.getContext().getAuthentication().getPrincipal();
+        SecurityContextHolder.clearContext();
+        return principal;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(JwtFilterBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
@@ -0,0 +1,280 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.offer.OfferDto;
+import com.agrilend.backend.dto.offer.OfferSearchResultDto;
+import com.agrilend.backend.entity.Farmer;
+import com.agrilend.backend.entity.Offer;
+import com.agrilend.backend.entity.Product;
+import com.agrilend.backend.entity.User;
+import com.agrilend.backend.entity.enums.OfferStatus;
+import com.agrilend.backend.entity.enums.ProductionMethod;
+import com.agrilend.backend.entity.enums.UserRole;
+import com.agrilend.backend.event.FarmerProfileChangedEvent;
+import com.agrilend.backend.event.LocalCacheInvalidationBroker;
+import com.agrilend.backend.event.OfferChangedEvent;
+import com.agrilend.backend.mapper.OfferMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * L'index de recherche doit donner les mêmes offres et les mêmes comptes de facettes
+ * que les requêtes équivalentes sur la base.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import({CatalogueSearchService.class, CatalogueVersions.class, OfferMapper.class, OfferCatalogueCache.class,
+        LocalCacheInvalidationBroker.class, CatalogueSearchServiceTest.Metrics.class})
+class CatalogueSearchServiceTest {
+
+    private static final String ACTIVE_OFFERS = "FROM Offer o JOIN o.product p JOIN o.farmer f WHERE o.status = :active";
+
+    @TestConfiguration
+    static class Metrics {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+    }
+
+    @Autowired
+    private TestEntityManager em;
+
+    @Autowired
+    private CatalogueSearchService searchService;
+
+    @Autowired
+    private OfferCatalogueCache offerCache;
+
+    @Autowired
+    private CatalogueVersions catalogueVersions;
+
+    private Offer cacaoDaloa;
+
+    @BeforeEach
+    void setUp() {
+        Product cacao = em.persist(product("Cacao", "Cultures de rente", "Fèves"));
+        Product cafe = em.persist(product("Café robusta", "Cultures de rente", "Grains"));
+        Product mais = em.persist(product("Maïs jaune", "Céréales", "Grains"));
+
+        Farmer daloa = em.persist(farmer("daloa", "Daloa"));
+        Farmer bouake = em.persist(farmer("bouake", "Bouaké"));
+        Farmer korhogo = em.persist(farmer("korhogo", "Korhogo"));
+
+        cacaoDaloa = em.persist(offer(daloa, cacao, "450.00", ProductionMethod.ORGANIC, OfferStatus.ACTIVE));
+        em.persist(offer(daloa, cacao, "1200.00", ProductionMethod.CONVENTIONAL, OfferStatus.ACTIVE));
+        em.persist(offer(bouake, cacao, "1500.00", null, OfferStatus.ACTIVE));
+        em.persist(offer(bouake, cafe, "2600.00", ProductionMethod.ORGANIC, OfferStatus.ACTIVE));
+        em.persist(offer(korhogo, mais, "300.00", ProductionMethod.CONVENTIONAL, OfferStatus.ACTIVE));
+        em.persist(offer(korhogo, mais, "12000.00", ProductionMethod.PERMACULTURE, OfferStatus.ACTIVE));
+        // Hors index : non actives
+        em.persist(offer(daloa, cafe, "800.00", ProductionMethod.ORGANIC, OfferStatus.PENDING_VALIDATION));
+        em.persist(offer(korhogo, cacao, "900.00", ProductionMethod.ORGANIC, OfferStatus.EXPIRED));
+        em.flush();
+        em.clear();
+
+        searchService.rebuild();
+    }
+
+    @Test
+    void emptyQueryReturnsEveryActiveOfferWithDatabaseFacets() {
+        OfferSearchResultDto result = search(null, null, null);
+
+        assertThat(ids(result)).containsExactlyInAnyOrderElementsOf(
+                em.getEntityManager().createQuery("SELECT o.id " + ACTIVE_OFFERS, Long.class)
+                        .setParameter("active", OfferStatus.ACTIVE)
+                        .getResultList());
+        assertFacetsMatchDatabase(result, "");
+    }
+
+    @Test
+    void textQueryAndFiltersMatchDatabase() {
+        OfferSearchResultDto cacao = search("cacao", null, null);
+        assertThat(ids(cacao)).containsExactlyInAnyOrderElementsOf(dbIds(" AND p.name = 'Cacao'"));
+        assertFacetsMatchDatabase(cacao, " AND p.name = 'Cacao'");
+
+        // Préfixe sans accent : "cafe" trouve "Café robusta"
+        OfferSearchResultDto cafe = search("cafe", null, null);
+        assertThat(ids(cafe)).containsExactlyInAnyOrderElementsOf(dbIds(" AND p.name = 'Café robusta'"));
+
+        OfferSearchResultDto grains = search(null, "Cultures de rente", "Bouaké");
+        String grainsFilter = " AND p.category = 'Cultures de rente' AND f.farmLocation = 'Bouaké'";
+        assertThat(ids(grains)).containsExactlyInAnyOrderElementsOf(dbIds(grainsFilter));
+        assertFacetsMatchDatabase(grains, grainsFilter);
+    }
+
+    @Test
+    void priceRangeFacetMatchesDatabaseBuckets() {
+        Map<String, Long> priceRanges = search(null, null, null).getFacets().get("priceRange");
+
+        assertThat(priceRanges).containsEntry("<500", dbCount(" AND o.suggestedUnitPrice < 500"))
+                .containsEntry("1000-2500", dbCount(" AND o.suggestedUnitPrice >= 1000 AND o.suggestedUnitPrice < 2500"))
+                .containsEntry("2500-5000", dbCount(" AND o.suggestedUnitPrice >= 2500 AND o.suggestedUnitPrice < 5000"))
+                .containsEntry("10000+", dbCount(" AND o.suggestedUnitPrice >= 10000"));
+        assertThat(priceRanges.values().stream().mapToLong(Long::longValue).sum()).isEqualTo(dbCount(""));
+    }
+
+    @Test
+    void indexFollowsStatusChanges() {
+        em.getEntityManager().createQuery("UPDATE Offer o SET o.status = :expired WHERE o.id = :id")
+                .setParameter("expired", OfferStatus.EXPIRED)
+                .setParameter("id", cacaoDaloa.getId())
+                .executeUpdate();
+        em.clear();
+        searchService.onOfferChanged(new OfferChangedEvent(cacaoDaloa.getId(), OfferChangedEvent.Change.UPDATED));
+
+        OfferSearchResultDto result = search("cacao", null, null);
+        assertThat(ids(result)).doesNotContain(cacaoDaloa.getId())
+                .containsExactlyInAnyOrderElementsOf(dbIds(" AND p.name = 'Cacao'"));
+        assertFacetsMatchDatabase(result, " AND p.name = 'Cacao'");
+    }
+
+    @Test
+    void indexFollowsFarmerProfileChanges() {
+        Long farmerId = cacaoDaloa.getFarmer().getId();
+        em.getEntityManager().createQuery("UPDATE Farmer f SET f.farmLocation = 'Man' WHERE f.id = :id")
+                .setParameter("id", farmerId)
+                .executeUpdate();
+        em.getEntityManager().createQuery("UPDATE User u SET u.lastName = 'Traore' WHERE u.id = :id")
+                .setParameter("id", farmerId)
+                .executeUpdate();
+        em.clear();
+        searchService.onFarmerProfileChanged(new FarmerProfileChangedEvent(farmerId));
+
+        OfferSearchResultDto result = search(null, null, null);
+        assertFacetsMatchDatabase(result, "");
+        assertThat(result.getFacets().get("location")).containsKey("Man").doesNotContainKey("Daloa");
+        assertThat(ids(search(null, null, "Man"))).containsExactlyInAnyOrderElementsOf(dbIds(" AND f.farmLocation = 'Man'"));
+        assertThat(result.getResults().getContent())
+                .filteredOn(dto -> farmerId.equals(dto.getFarmerId()))
+                .isNotEmpty()
+                .allSatisfy(dto -> assertThat(dto.getFarmerName()).isEqualTo("Prenom Traore"));
+    }
+
+    @Test
+    void farmerProfileChangeEvictsTheirCachedOffersAndBumpsOffersTag() {
+        Long farmerId = cacaoDaloa.getFarmer().getId();
+        Long otherOfferId = dbIds(" AND f.id <> " + farmerId).get(0);
+        AtomicInteger loads = new AtomicInteger();
+        offerCache.getOffer(cacaoDaloa.getId(), () -> loaded(cacaoDaloa.getId(), loads));
+        offerCache.getOffer(otherOfferId, () -> loaded(otherOfferId, loads));
+        offerCache.getPage("page-0", () -> List.of(loaded(cacaoDaloa.getId(), loads)), page -> page);
+        String tag = catalogueVersions.offersTag();
+        loads.set(0);
+
+        offerCache.onFarmerProfileChanged(new FarmerProfileChangedEvent(farmerId));
+
+        assertThat(catalogueVersions.offersTag()).isNotEqualTo(tag);
+        offerCache.getOffer(otherOfferId, () -> loaded(otherOfferId, loads));
+        assertThat(loads).hasValue(0);
+        offerCache.getOffer(cacaoDaloa.getId(), () -> loaded(cacaoDaloa.getId(), loads));
+        offerCache.getPage("page-0", () -> List.of(loaded(cacaoDaloa.getId(), loads)), page -> page);
+        assertThat(loads).hasValue(2);
+    }
+
+    private static OfferDto loaded(Long offerId, AtomicInteger loads) {
+        loads.incrementAndGet();
+        OfferDto dto = new OfferDto();
+        dto.setId(offerId);
+        return dto;
+    }
+
+    private OfferSearchResultDto search(String query, String category, String location) {
+        return searchService.searchOffers(query, category, null, location, null, null, null, 0, 100);
+    }
+
+    private static List<Long> ids(OfferSearchResultDto result) {
+        return result.getResults().getContent().stream().map(OfferDto::getId).collect(Collectors.toList());
+    }
+
+    private void assertFacetsMatchDatabase(OfferSearchResultDto result, String where) {
+        assertThat(result.getResults().getTotalElements()).isEqualTo(dbCount(where));
+        assertThat(result.getFacets().get("category")).isEqualTo(dbFacet("p.category", where));
+        assertThat(result.getFacets().get("subcategory")).isEqualTo(dbFacet("p.subcategory", where));
+        assertThat(result.getFacets().get("location")).isEqualTo(dbFacet("f.farmLocation", where));
+        Map<String, Long> productionMethods = new HashMap<>();
+        em.getEntityManager().createQuery("SELECT o.productionMethod, COUNT(o) " + ACTIVE_OFFERS + where +
+                        " AND o.productionMethod IS NOT NULL GROUP BY o.productionMethod", Object[].class)
+                .setParameter("active", OfferStatus.ACTIVE)
+                .getResultList()
+                .forEach(row -> productionMethods.put(((ProductionMethod) row[0]).name(), (Long) row[1]));
+        assertThat(result.getFacets().get("productionMethod")).isEqualTo(productionMethods);
+    }
+
+    private Map<String, Long> dbFacet(String column, String where) {
+        Map<String, Long> counts = new HashMap<>();
+        em.getEntityManager().createQuery("SELECT " + column + ", COUNT(o) " + ACTIVE_OFFERS + where +
+                        " AND " + column + " IS NOT NULL GROUP BY " + column, Object[].class)
+                .setParameter("active", OfferStatus.ACTIVE)
+                .getResultList()
+                .forEach(row -> counts.put((String) row[0], (Long) row[1]));
+        return counts;
+    }
+
+    private List<Long> dbIds(String where) {
+        return em.getEntityManager().createQuery("SELECT o.id " + ACTIVE_OFFERS + where, Long.class)
+                .setParameter("active", OfferStatus.ACTIVE)
+                .getResultList();
+    }
+
+    private long dbCount(String where) {
+        return em.getEntityManager().createQuery("SELECT COUNT(o) " + ACTIVE_OFFERS + where, Long.class)
+                .setParameter("active", OfferStatus.ACTIVE)
+                .getSingleResult();
+    }
+
+    private static Product product(String name, String category, String subcategory) {
+        Product product = new Product();
+        product.setName(name);
+        product.setCategory(category);
+        product.setSubcategory(subcategory);
+        return product;
+    }
+
+    private Farmer farmer(String name, String location) {
+        User user = new User();
+        user.setFirstName("Prenom");
+        user.setLastName(name);
+        user.setEmail(name + "@test.ci");
+        user.setPassword("secret");
+        user.setRole(UserRole.FARMER);
+        Farmer farmer = new Farmer();
+        farmer.setUser(em.persist(user));
+        farmer.setFarmName("Ferme " + name);
+        farmer.setFarmLocation(location);
+        return farmer;
+    }
+
+    private static Offer offer(Farmer farmer, Product product, String price, ProductionMethod method, OfferStatus status) {
+        Offer offer = new Offer();
+        offer.setFarmer(farmer);
+        offer.setProduct(product);
+        offer.setAvailableQuantity(new BigDecimal("100.00"));
+        offer.setSuggestedUnitPrice(new BigDecimal(price));
+        offer.setAvailabilityDate(LocalDate.now());
+        offer.setExpiryDate(LocalDate.now().plusDays(30));
+        offer.setProductionMethod(method);
+        offer.setStatus(status);
+        return offer;
+    }
+}
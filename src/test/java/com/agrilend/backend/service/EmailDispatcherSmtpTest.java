@@ -0,0 +1,259 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.OutboundEmail;
+import com.agrilend.backend.repository.OutboundEmailRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Envoi des lots d'emails vers un serveur SMTP embarqué dont les réponses sont scriptées par destinataire :
+ * un lot passe sur une seule connexion, une réponse 4xx remet l'email en file, une réponse 5xx l'abandonne.
+ */
+@DataJpaTest
+@ActiveProfiles("test")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({EmailQueueService.class, EmailDispatcher.class, EmailDispatcherSmtpTest.Smtp.class})
+class EmailDispatcherSmtpTest {
+
+    private static final ScriptedSmtpServer SMTP = ScriptedSmtpServer.start();
+
+    @TestConfiguration
+    static class Smtp {
+        @Bean
+        MeterRegistry meterRegistry() {
+            return new SimpleMeterRegistry();
+        }
+
+        @Bean
+        JavaMailSender mailSender() {
+            JavaMailSenderImpl sender = new JavaMailSenderImpl();
+            sender.setHost("localhost");
+            sender.setPort(SMTP.port());
+            return sender;
+        }
+
+        @Bean(name = "mailExecutor")
+        ThreadPoolTaskExecutor mailExecutor() {
+            ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+            executor.setCorePoolSize(1);
+            executor.setQueueCapacity(5);
+            executor.initialize();
+            return executor;
+        }
+    }
+
+    @Autowired
+    private EmailQueueService emailQueueService;
+
+    @Autowired
+    private EmailDispatcher emailDispatcher;
+
+    @Autowired
+    private OutboundEmailRepository outboundEmailRepository;
+
+    @AfterEach
+    void tearDown() {
+        outboundEmailRepository.deleteAll();
+        SMTP.reset();
+    }
+
+    @AfterAll
+    static void stopServer() {
+        SMTP.stop();
+    }
+
+    @Test
+    void batchSharesOneConnectionRetries4xxAndAbandons5xx() {
+        emailQueueService.enqueue("awa@agrilend.ci", "Commande confirmée", "Votre commande est en séquestre");
+        emailQueueService.enqueue("busy@agrilend.ci", "Commande confirmée", "Votre commande est en séquestre");
+        emailQueueService.enqueue("unknown@agrilend.ci", "Commande confirmée", "Votre commande est en séquestre");
+
+        sendDueBatch();
+
+        assertThat(SMTP.connections()).hasValue(1);
+        assertThat(SMTP.delivered()).containsExactly("awa@agrilend.ci");
+        Map<String, OutboundEmail> emails = byRecipient();
+        assertThat(emails.get("awa@agrilend.ci").getStatus()).isEqualTo(OutboundEmail.EmailStatus.SENT);
+
+        OutboundEmail busy = emails.get("busy@agrilend.ci");
+        assertThat(busy.getStatus()).isEqualTo(OutboundEmail.EmailStatus.PENDING);
+        assertThat(busy.getLastError()).contains("451");
+        assertThat(busy.getNextAttemptAt()).isAfter(LocalDateTime.now());
+
+        OutboundEmail unknown = emails.get("unknown@agrilend.ci");
+        assertThat(unknown.getStatus()).isEqualTo(OutboundEmail.EmailStatus.FAILED);
+        assertThat(unknown.getNextAttemptAt()).isNull();
+    }
+
+    @Test
+    void unavailableServerKeepsTheWholeBatchQueued() {
+        SMTP.refuseConnections();
+        emailQueueService.enqueue("awa@agrilend.ci", "Paiement reçu", "Le séquestre est libéré");
+        emailQueueService.enqueue("yao@agrilend.ci", "Paiement reçu", "Le séquestre est libéré");
+
+        sendDueBatch();
+
+        assertThat(SMTP.delivered()).isEmpty();
+        assertThat(byRecipient().values()).allSatisfy(email -> {
+            assertThat(email.getStatus()).isEqualTo(OutboundEmail.EmailStatus.PENDING);
+            assertThat(email.getAttempts()).isEqualTo(1);
+        });
+    }
+
+    private void sendDueBatch() {
+        EmailQueueService.Claim claim = emailQueueService.claimDue(10);
+        emailDispatcher.sendBatch(claim.getIds(), claim.getLease());
+    }
+
+    private Map<String, OutboundEmail> byRecipient() {
+        return outboundEmailRepository.findAll().stream()
+                .collect(Collectors.toMap(OutboundEmail::getRecipient, Function.identity()));
+    }
+
+    /**
+     * Serveur SMTP minimal : 451 pour les destinataires "busy", 550 pour "unknown", 250 sinon ;
+     * en mode refus, salutation 421 puis fermeture
+     */
+    private static final class ScriptedSmtpServer {
+
+        private final ServerSocket serverSocket;
+        private final AtomicInteger connections = new AtomicInteger();
+        private final List<String> delivered = new CopyOnWriteArrayList<>();
+        private volatile boolean refusing;
+
+        private ScriptedSmtpServer(ServerSocket serverSocket) {
+            this.serverSocket = serverSocket;
+        }
+
+        static ScriptedSmtpServer start() {
+            try {
+                ScriptedSmtpServer server = new ScriptedSmtpServer(new ServerSocket(0));
+                Thread acceptor = new Thread(server::acceptLoop, "scripted-smtp");
+                acceptor.setDaemon(true);
+                acceptor.start();
+                return server;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        int port() {
+            return serverSocket.getLocalPort();
+        }
+
+        AtomicInteger connections() {
+            return connections;
+        }
+
+        List<String> delivered() {
+            return delivered;
+        }
+
+        void refuseConnections() {
+            refusing = true;
+        }
+
+        void reset() {
+            refusing = false;
+            connections.set(0);
+            delivered.clear();
+        }
+
+        void stop() {
+            try {
+                serverSocket.close();
+            } catch (IOException ignored) {
+                // Arrêt du test
+            }
+        }
+
+        private void acceptLoop() {
+            while (!serverSocket.isClosed()) {
+                try (Socket socket = serverSocket.accept()) {
+                    connections.incrementAndGet();
+                    session(socket);
+                } catch (IOException e) {
+                    // Connexion fermée par le client ou arrêt du serveur
+                }
+            }
+        }
+
+        private void session(Socket socket) throws IOException {
+            BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            Writer out = new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.ISO_8859_1);
+            if (refusing) {
+                reply(out, "421 4.3.2 Service not available");
+                return;
+            }
+            reply(out, "220 localhost ESMTP");
+            String recipient = null;
+            String line;
+            while ((line = in.readLine()) != null) {
+                String command = line.toUpperCase();
+                if (command.startsWith("RCPT TO:")) {
+                    recipient = line.substring(line.indexOf('<') + 1, line.indexOf('>'));
+                    if (recipient.startsWith("busy@")) {
+                        reply(out, "451 4.3.0 Mailbox temporarily unavailable");
+                    } else if (recipient.startsWith("unknown@")) {
+                        reply(out, "550 5.1.1 User unknown");
+                    } else {
+                        reply(out, "250 2.1.5 OK");
+                    }
+                } else if (command.equals("DATA")) {
+                    reply(out, "354 End data with <CR><LF>.<CR><LF>");
+                    while ((line = in.readLine()) != null && !line.equals(".")) {
+                        // Corps du message ignoré
+                    }
+                    delivered.add(recipient);
+                    reply(out, "250 2.0.0 Queued");
+                } else if (command.equals("QUIT")) {
+                    reply(out, "221 2.0.0 Bye");
+                    return;
+                } else {
+                    // EHLO, HELO, MAIL FROM, RSET, NOOP
+                    reply(out, "250 OK");
+                }
+            }
+        }
+
+        private static void reply(Writer out, String response) throws IOException {
+            out.write(response + "\r\n");
+            out.flush();
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.entity.Order;
+import com.agrilend.backend.entity.SettlementBatch;
+import com.agrilend.backend.entity.Transaction;
+import com.agrilend.backend.entity.enums.TransactionType;
+import com.agrilend.backend.exception.LedgerSubmissionException;
+import com.agrilend.backend.repository.OrderRepository;
+import com.agrilend.backend.repository.SettlementBatchRepository;
+import com.agrilend.backend.repository.TransactionRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+/**
+ * Règlement groupé en mode simulation Hedera : les lots passent par {@link HederaService#submitHbarTransfer}
+ * et le registre simulé ; la persistance est remplacée par un état en mémoire.
+ */
+class EscrowSettlementBatcherSimulationTest {
+
+    private static final String ESCROW_ACCOUNT = "0.0.900";
+    private static final String OPERATOR_ACCOUNT = "0.0.2";
+    private static final BigDecimal AMOUNT = new BigDecimal("10.00");
+    private static final BigDecimal FEE = new BigDecimal("0.20");
+
+    private final Map<Long, SettlementBatch> batches = new HashMap<>();
+    private final Map<Long, List<Transaction>> membersByBatch = new HashMap<>();
+    private final Map<Long, Transaction> releasesById = new HashMap<>();
+    private final AtomicLong batchIds = new AtomicLong();
+
+    private MeterRegistry meterRegistry;
+    private HederaLedgerSimulator ledger;
+    private HederaService hederaService;
+    private TransactionOutboxService outboxService;
+    private EscrowSettlementBatcher batcher;
+    private LocalDateTime lease;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        lease = LocalDateTime.now().plusMinutes(2).truncatedTo(ChronoUnit.SECONDS);
+
+        ledger = new HederaLedgerSimulator();
+        ReflectionTestUtils.setField(ledger, "initialBalanceHbar", new BigDecimal("1000"));
+        ReflectionTestUtils.setField(ledger, "maxAppliedTransactions", 10_000);
+        ReflectionTestUtils.setField(ledger, "appliedTransactionsTtlMs", 180_000L);
+        ledger.init();
+        HederaService simulated = new HederaService();
+        ReflectionTestUtils.setField(simulated, "ledgerSimulator", ledger);
+        ReflectionTestUtils.setField(simulated, "eventPublisher", mock(ApplicationEventPublisher.class));
+        hederaService = spy(simulated);
+
+        EscrowService escrowService = new EscrowService();
+        ReflectionTestUtils.setField(escrowService, "hederaService", hederaService);
+        ReflectionTestUtils.setField(escrowService, "operatorAccountId", OPERATOR_ACCOUNT);
+
+        outboxService = mock(TransactionOutboxService.class);
+        when(outboxService.markSucceeded(anyLong(), any())).thenReturn(true);
+
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+
+        batcher = new EscrowSettlementBatcher(transactionManager);
+        ReflectionTestUtils.setField(batcher, "outboxService", outboxService);
+        ReflectionTestUtils.setField(batcher, "transactionRepository", transactionRepository());
+        ReflectionTestUtils.setField(batcher, "settlementBatchRepository", settlementBatchRepository());
+        ReflectionTestUtils.setField(batcher, "orderRepository", orderRepository());
+        ReflectionTestUtils.setField(batcher, "escrowService", escrowService);
+        ReflectionTestUtils.setField(batcher, "hederaService", hederaService);
+        ReflectionTestUtils.setField(batcher, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(batcher, "maxTransfersPerTransaction", 10);
+        ReflectionTestUtils.setField(batcher, "maxOrdersPerBatch", 100);
+        ReflectionTestUtils.setField(batcher, "maxAttemptsPerBatch", 3);
+        batcher.initMetrics();
+    }
+
+    @Test
+    void thousandReleasesNeedTenTransactions() {
+        // 1 000 libérations pour 80 agriculteurs, par tranches de 100 commandes réparties sur 8 d'entre eux :
+        // 8 destinataires et 100 commandes au plus par transaction
+        List<Transaction> releases = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            releases.add(release(i + 1L, farmerAccount((i / 100) * 8 + i % 8)));
+        }
+
+        List<List<Transaction>> packed = batcher.pack(releases);
+        packed.forEach(members -> batcher.openAndSubmit(members, lease));
+
+        double submitted = meterRegistry.get("agrilend.settlement.transactions.submitted").counter().count();
+        double settled = meterRegistry.get("agrilend.settlement.releases.settled").counter().count();
+        System.out.printf("Règlement simulé : %.0f transaction(s) Hedera pour %.0f libération(s)%n", submitted, settled);
+
+        assertThat(packed).hasSize(10);
+        assertThat(settled).isEqualTo(1000);
+        assertThat(submitted * 1000 / settled).isEqualTo(10);
+        assertThat(batches.values()).allMatch(batch -> batch.getStatus() == SettlementBatch.BatchStatus.SUCCESS);
+
+        // 1 000 HBAR de départ ; 13 libérations de 9,8 HBAR nets pour les 4 premiers agriculteurs d'une tranche, 12 ensuite
+        assertThat(ledger.balanceOf(farmerAccount(0))).isEqualTo(HederaService.toTinybars(new BigDecimal("1127.40")));
+        assertThat(ledger.balanceOf(farmerAccount(7))).isEqualTo(HederaService.toTinybars(new BigDecimal("1117.60")));
+        assertThat(ledger.balanceOf(OPERATOR_ACCOUNT)).isEqualTo(HederaService.toTinybars(new BigDecimal("1200")));
+        assertThat(ledger.balanceOf(ESCROW_ACCOUNT)).isEqualTo(HederaService.toTinybars(new BigDecimal("-9000")));
+    }
+
+    @Test
+    void transientErrorAfterConsensusKeepsBatchAndPaysOnce() {
+        List<Transaction> members = List.of(release(1L, farmerAccount(0)), release(2L, farmerAccount(1)),
+                release(3L, farmerAccount(0)));
+        // Le transfert atteint le registre, puis la réponse se perd
+        doAnswer(invocation -> {
+            invocation.callRealMethod();
+            throw new LedgerSubmissionException("Délai dépassé", true);
+        }).doCallRealMethod().when(hederaService).submitHbarTransfer(anyString(), any(), any(), any());
+
+        batcher.openAndSubmit(members, lease);
+
+        SettlementBatch batch = batches.values().iterator().next();
+        String firstTxId = batch.getHederaTransactionId();
+        assertThat(batch.getStatus()).isEqualTo(SettlementBatch.BatchStatus.OPEN);
+        assertThat(firstTxId).isNotNull();
+        assertThat(membersByBatch.get(batch.getId())).hasSize(3);
+        verify(outboxService, never()).markAttemptFailed(anyLong(), any(), anyInt(), any(), eq(true));
+
+        // Reprise par la récupération des lots : même identifiant, reçu connu du registre
+        batcher.submit(batch.getId(), batch.getLeaseExpiresAt());
+
+        assertThat(batch.getStatus()).isEqualTo(SettlementBatch.BatchStatus.SUCCESS);
+        assertThat(batch.getHederaTransactionId()).isEqualTo(firstTxId);
+        assertThat(batch.getAttempts()).isEqualTo(1);
+        assertThat(ledger.balanceOf(farmerAccount(0))).isEqualTo(HederaService.toTinybars(new BigDecimal("1019.60")));
+        assertThat(ledger.balanceOf(farmerAccount(1))).isEqualTo(HederaService.toTinybars(new BigDecimal("1009.80")));
+    }
+
+    private Transaction release(Long id, String farmerAccount) {
+        Order order = new Order();
+        order.setId(id);
+        Transaction release = new Transaction();
+        release.setId(id);
+        release.setOrder(order);
+        release.setType(TransactionType.ESCROW_RELEASE);
+        release.setStatus(Transaction.TransactionStatus.PROCESSING);
+        release.setAmount(AMOUNT);
+        release.setFeeAmount(FEE);
+        release.setFromAccount(ESCROW_ACCOUNT);
+        release.setToAccount(farmerAccount);
+        release.setLeaseExpiresAt(lease);
+        releasesById.put(id, release);
+        return release;
+    }
+
+    private static String farmerAccount(int index) {
+        return "0.0." + (1000 + index);
+    }
+
+    private TransactionRepository transactionRepository() {
+        TransactionRepository repository = mock(TransactionRepository.class);
+        when(repository.attachToBatch(any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            List<Long> ids = invocation.getArgument(0);
+            SettlementBatch batch = invocation.getArgument(1);
+            membersByBatch.put(batch.getId(), ids.stream().map(releasesById::get).toList());
+            return ids.size();
+        });
+        when(repository.findBySettlementBatchId(anyLong()))
+                .thenAnswer(invocation -> membersByBatch.getOrDefault(invocation.<Long>getArgument(0), List.of()));
+        when(repository.detachFromBatch(anyLong(), any(), any()))
+                .thenAnswer(invocation -> membersByBatch.remove(invocation.<Long>getArgument(0)).size());
+        return repository;
+    }
+
+    private SettlementBatchRepository settlementBatchRepository() {
+        SettlementBatchRepository repository = mock(SettlementBatchRepository.class);
+        when(repository.save(any())).thenAnswer(invocation -> {
+            SettlementBatch batch = invocation.getArgument(0);
+            batch.setId(batchIds.incrementAndGet());
+            batches.put(batch.getId(), batch);
+            return batch;
+        });
+        when(repository.findById(anyLong()))
+                .thenAnswer(invocation -> Optional.ofNullable(batches.get(invocation.<Long>getArgument(0))));
+        when(repository.assignHederaTransactionId(anyLong(), anyString(), any(), any(), any())).thenAnswer(invocation -> {
+            SettlementBatch batch = leased(invocation.getArgument(0), invocation.getArgument(3));
+            if (batch == null) {
+                return 0;
+            }
+            batch.setHederaTransactionId(invocation.getArgument(1));
+            batch.setAttempts(batch.getAttempts() + 1);
+            return 1;
+        });
+        when(repository.finish(anyLong(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            SettlementBatch batch = leased(invocation.getArgument(0), invocation.getArgument(2));
+            if (batch == null) {
+                return 0;
+            }
+            batch.setStatus(invocation.getArgument(3));
+            batch.setLastError(invocation.getArgument(4));
+            batch.setLeaseExpiresAt(null);
+            return 1;
+        });
+        when(repository.deferRetry(anyLong(), any(), any(), any(), any(), any())).thenAnswer(invocation -> {
+            SettlementBatch batch = leased(invocation.getArgument(0), invocation.getArgument(2));
+            if (batch == null) {
+                return 0;
+            }
+            batch.setLeaseExpiresAt(invocation.getArgument(3));
+            batch.setLastError(invocation.getArgument(4));
+            return 1;
+        });
+        return repository;
+    }
+
+    private OrderRepository orderRepository() {
+        OrderRepository repository = mock(OrderRepository.class);
+        when(repository.findIdsByIdInAndStatus(any(), any()))
+                .thenAnswer(invocation -> new ArrayList<>(invocation.<Collection<Long>>getArgument(0)));
+        when(repository.markReleasedIfInEscrow(anyLong(), any(), any(), any(), any())).thenReturn(1);
+        return repository;
+    }
+
+    private SettlementBatch leased(Long batchId, LocalDateTime expectedLease) {
+        SettlementBatch batch = batches.get(batchId);
+        boolean held = batch != null && batch.getStatus() == SettlementBatch.BatchStatus.OPEN
+                && expectedLease.equals(batch.getLeaseExpiresAt());
+        return held ? batch : null;
+    }
+}
@@ -0,0 +1,121 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.event.HbarTransferredEvent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Registre simulé : soldes reproductibles, transaction resoumise appliquée une seule fois
+ * (DUPLICATE_TRANSACTION côté réseau) et mémoire des identifiants bornée.
+ */
+class HederaLedgerSimulatorTest {
+
+    private static final String PAYER = "0.0.5001";
+    private static final String PAYEE = "0.0.5002";
+    private static final long ONE_HBAR = 100_000_000L;
+
+    private HederaLedgerSimulator ledger;
+    private ApplicationEventPublisher eventPublisher;
+    private HederaService hederaService;
+
+    @BeforeEach
+    void setUp() {
+        ledger = ledger(10_000);
+        eventPublisher = mock(ApplicationEventPublisher.class);
+        hederaService = new HederaService();
+        ReflectionTestUtils.setField(hederaService, "ledgerSimulator", ledger);
+        ReflectionTestUtils.setField(hederaService, "eventPublisher", eventPublisher);
+    }
+
+    @Test
+    void balancesAreReproducibleFromTheSameTransfers() {
+        HederaLedgerSimulator other = ledger(10_000);
+        for (HederaLedgerSimulator simulator : List.of(ledger, other)) {
+            simulator.apply("0.0.5001@1700000000.000000001", transfer(3 * ONE_HBAR));
+            simulator.apply("0.0.5001@1700000000.000000002", transfer(ONE_HBAR / 2));
+        }
+
+        assertThat(ledger.balanceOf(PAYER)).isEqualTo(1000 * ONE_HBAR - 3 * ONE_HBAR - ONE_HBAR / 2)
+                .isEqualTo(other.balanceOf(PAYER));
+        assertThat(ledger.balanceOf(PAYEE)).isEqualTo(other.balanceOf(PAYEE));
+        assertThat(ledger.balanceOf(PAYER) + ledger.balanceOf(PAYEE)).isEqualTo(2000 * ONE_HBAR);
+    }
+
+    @Test
+    void resubmittedTransactionIsAppliedOnce() {
+        String transactionId = "0.0.5001@1700000000.000000003";
+
+        assertThat(hederaService.submitHbarTransfer(transactionId, transfer(ONE_HBAR), List.of(), "séquestre"))
+                .isEqualTo(transactionId);
+        assertThat(hederaService.submitHbarTransfer(transactionId, transfer(ONE_HBAR), List.of(), "séquestre"))
+                .isEqualTo(transactionId);
+
+        assertThat(ledger.balanceOf(PAYER)).isEqualTo(999 * ONE_HBAR);
+        assertThat(ledger.balanceOf(PAYEE)).isEqualTo(1001 * ONE_HBAR);
+        verify(eventPublisher, times(1)).publishEvent(any(HbarTransferredEvent.class));
+    }
+
+    @Test
+    void concurrentResubmissionsAreAppliedOnce() throws Exception {
+        String transactionId = "0.0.5001@1700000000.000000004";
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Callable<Boolean>> submissions = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                submissions.add(() -> ledger.apply(transactionId, transfer(ONE_HBAR)));
+            }
+            int applied = 0;
+            for (Future<Boolean> result : executor.invokeAll(submissions)) {
+                applied += result.get() ? 1 : 0;
+            }
+            assertThat(applied).isEqualTo(1);
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertThat(ledger.balanceOf(PAYER)).isEqualTo(999 * ONE_HBAR);
+    }
+
+    @Test
+    void appliedTransactionIdsAreBounded() {
+        HederaLedgerSimulator bounded = ledger(2);
+        bounded.apply("0.0.5001@1700000000.000000005", transfer(ONE_HBAR));
+        bounded.apply("0.0.5001@1700000000.000000006", transfer(ONE_HBAR));
+        bounded.apply("0.0.5001@1700000000.000000007", transfer(ONE_HBAR));
+
+        // Les deux derniers identifiants sont retenus, le plus ancien a été évincé
+        assertThat(bounded.apply("0.0.5001@1700000000.000000007", transfer(ONE_HBAR))).isFalse();
+        assertThat(bounded.apply("0.0.5001@1700000000.000000006", transfer(ONE_HBAR))).isFalse();
+        assertThat(bounded.apply("0.0.5001@1700000000.000000005", transfer(ONE_HBAR))).isTrue();
+    }
+
+    private static HederaLedgerSimulator ledger(int maxAppliedTransactions) {
+        HederaLedgerSimulator simulator = new HederaLedgerSimulator();
+        ReflectionTestUtils.setField(simulator, "initialBalanceHbar", new BigDecimal("1000"));
+        ReflectionTestUtils.setField(simulator, "maxAppliedTransactions", maxAppliedTransactions);
+        ReflectionTestUtils.setField(simulator, "appliedTransactionsTtlMs", 180_000L);
+        simulator.init();
+        return simulator;
+    }
+
+    private static Map<String, Long> transfer(long tinybars) {
+        return Map.of(PAYER, -tinybars, PAYEE, tinybars);
+    }
+}
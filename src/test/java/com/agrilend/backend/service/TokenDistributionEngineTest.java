@@ -0,0 +1,136 @@
+package com.agrilend.backend.service;
+
+import com.agrilend.backend.dto.tokenization.TokenDistributionDto;
+import com.agrilend.backend.dto.tokenization.TokenDistributionResultDto;
+import com.agrilend.backend.entity.HarvestToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Distribution par lots en mode simulation Hedera : les lots passent par l'API asynchrone de
+ * {@link HederaService} et le registre simulé, comme ils passeraient par le réseau.
+ */
+class TokenDistributionEngineTest {
+
+    private static final String TOKEN_ID = "0.0.7000";
+    private static final String TREASURY = "0.0.6000";
+
+    private HederaLedgerSimulator ledger;
+    private HederaService hederaService;
+    private JdbcTemplate jdbcTemplate;
+    private TokenDistributionEngine engine;
+    private HarvestToken harvestToken;
+
+    @BeforeEach
+    void setUp() {
+        ledger = new HederaLedgerSimulator();
+        ReflectionTestUtils.setField(ledger, "initialBalanceHbar", new BigDecimal("1000"));
+        ReflectionTestUtils.setField(ledger, "maxAppliedTransactions", 10_000);
+        ReflectionTestUtils.setField(ledger, "appliedTransactionsTtlMs", 180_000L);
+        ledger.init();
+        HederaService simulated = new HederaService();
+        ReflectionTestUtils.setField(simulated, "ledgerSimulator", ledger);
+        ReflectionTestUtils.setField(simulated, "eventPublisher", mock(ApplicationEventPublisher.class));
+        hederaService = spy(simulated);
+        jdbcTemplate = mock(JdbcTemplate.class);
+
+        engine = new TokenDistributionEngine();
+        ReflectionTestUtils.setField(engine, "hederaService", hederaService);
+        ReflectionTestUtils.setField(engine, "jdbcTemplate", jdbcTemplate);
+        ReflectionTestUtils.setField(engine, "maxInFlight", 2);
+        // 3 destinataires par transaction, le débit de la trésorerie occupant le quatrième transfert
+        ReflectionTestUtils.setField(engine, "maxTransfersPerTransaction", 4);
+        ReflectionTestUtils.setField(engine, "insertBatchSize", 100);
+        engine.init();
+
+        harvestToken = new HarvestToken();
+        harvestToken.setId(1L);
+        harvestToken.setHederaTokenId(TOKEN_ID);
+    }
+
+    @Test
+    void failingChunkDoesNotStopTheOthers() {
+        // 8 destinataires en 3 lots ; le deuxième contient un compte invalide et échoue en entier
+        List<TokenDistributionDto> distributions = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            distributions.add(distribution(i == 4 ? "compte-invalide" : account(i), (i + 1) * 10));
+        }
+
+        TokenDistributionResultDto result = engine.distribute(42L, harvestToken, TREASURY, distributions);
+
+        assertThat(result.getSubmittedTransactions()).isEqualTo(3);
+        assertThat(result.getSucceeded()).isEqualTo(5);
+        assertThat(result.getFailed()).isEqualTo(3);
+        verify(hederaService, times(3)).transferTokensToManyAsync(eq(TOKEN_ID), eq(TREASURY), anyMap());
+
+        assertThat(result.getOutcomes())
+                .filteredOn(outcome -> !outcome.isSuccess())
+                .extracting(TokenDistributionResultDto.RecipientOutcome::getRecipientAccountId)
+                .containsExactlyInAnyOrder(account(3), "compte-invalide", account(5));
+        assertThat(result.getOutcomes())
+                .filteredOn(outcome -> !outcome.isSuccess())
+                .allSatisfy(outcome -> {
+                    assertThat(outcome.getHederaTransactionId()).isNull();
+                    assertThat(outcome.getError()).contains("INVALID_ACCOUNT_ID");
+                });
+
+        // Seuls les lots acceptés sont appliqués au registre, chacun une fois
+        assertThat(ledger.tokenBalanceOf(TOKEN_ID, account(0))).isEqualTo(10);
+        assertThat(ledger.tokenBalanceOf(TOKEN_ID, account(2))).isEqualTo(30);
+        assertThat(ledger.tokenBalanceOf(TOKEN_ID, account(3))).isZero();
+        assertThat(ledger.tokenBalanceOf(TOKEN_ID, account(5))).isZero();
+        assertThat(ledger.tokenBalanceOf(TOKEN_ID, account(7))).isEqualTo(80);
+        assertThat(ledger.tokenBalanceOf(TOKEN_ID, TREASURY)).isEqualTo(-(10 + 20 + 30 + 70 + 80));
+
+        verify(jdbcTemplate).batchUpdate(anyString(), anyList(), eq(100), any());
+    }
+
+    @Test
+    void nonIntegralAmountIsRejectedBeforeAnySubmission() {
+        List<TokenDistributionDto> distributions = List.of(
+                distribution(account(0), 10),
+                distribution(account(1), new BigDecimal("12.5")));
+
+        assertThatThrownBy(() -> engine.distribute(42L, harvestToken, TREASURY, distributions))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(account(1));
+
+        verify(hederaService, never()).transferTokensToManyAsync(anyString(), anyString(), anyMap());
+        assertThat(ledger.tokenBalanceOf(TOKEN_ID, TREASURY)).isZero();
+    }
+
+    private static String account(int index) {
+        return "0.0." + (1000 + index);
+    }
+
+    private static TokenDistributionDto distribution(String accountId, long amount) {
+        return distribution(accountId, BigDecimal.valueOf(amount));
+    }
+
+    private static TokenDistributionDto distribution(String accountId, BigDecimal amount) {
+        TokenDistributionDto distribution = new TokenDistributionDto();
+        distribution.setRecipientAccountId(accountId);
+        distribution.setAmount(amount);
+        return distribution;
+    }
+}
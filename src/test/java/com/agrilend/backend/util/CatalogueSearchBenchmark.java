@@ -0,0 +1,174 @@
+package com.agrilend.backend.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recherche de produits sur 100 000 lignes : index inversé contre l'ancienne requête
+ * {@code findByNameContainingIgnoreCaseOrCategoryContainingIgnoreCase} (page de 20 plus comptage),
+ * sur une base H2 en mémoire en mode MySQL. Les deux variantes chargent la même page de produits.
+ * <p>
+ * Lancement : {@code mvn test-compile exec:java -Dexec.classpathScope=test
+ * -Dexec.mainClass=com.agrilend.backend.util.CatalogueSearchBenchmark}
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CatalogueSearchBenchmark {
+
+    private static final int PRODUCTS = 100_000;
+    private static final int PAGE_SIZE = 20;
+
+    private static final String[] CROPS = {"Cacao", "Café", "Manioc", "Igname", "Banane plantain", "Riz", "Maïs",
+            "Arachide", "Tomate", "Piment", "Oignon", "Aubergine", "Gombo", "Noix de cajou", "Hévéa", "Palmier à huile",
+            "Ananas", "Mangue", "Papaye", "Avocat"};
+    private static final String[] CATEGORIES = {"Cultures de rente", "Céréales", "Tubercules", "Légumes", "Fruits"};
+    private static final String[] QUALITIES = {"premium", "standard", "bio", "séché", "frais"};
+
+    /** Mot fréquent (un produit sur vingt) et mot rare (un produit sur mille) */
+    @Param({"cacao", "gingembre"})
+    public String keyword;
+
+    private Connection connection;
+    private InvertedIndex<Long> index;
+
+    @Setup(Level.Trial)
+    public void setUp() throws SQLException {
+        connection = DriverManager.getConnection("jdbc:h2:mem:catalogue_search_benchmark;MODE=MySQL;DB_CLOSE_DELAY=-1");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE IF EXISTS products");
+            statement.execute("CREATE TABLE products (id BIGINT PRIMARY KEY, name VARCHAR(255) NOT NULL, "
+                    + "description VARCHAR(1000), category VARCHAR(100), subcategory VARCHAR(100))");
+            statement.execute("CREATE INDEX idx_products_name ON products (name)");
+            statement.execute("CREATE INDEX idx_products_category ON products (category)");
+        }
+
+        index = new InvertedIndex<>();
+        connection.setAutoCommit(false);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "INSERT INTO products (id, name, description, category, subcategory) VALUES (?, ?, ?, ?, ?)")) {
+            for (long id = 1; id <= PRODUCTS; id++) {
+                int i = (int) id;
+                String crop = i % 1000 == 0 ? "Gingembre" : CROPS[i % CROPS.length];
+                String name = crop + " " + QUALITIES[(i / CROPS.length) % QUALITIES.length] + " lot " + i;
+                String description = "Récolte de la coopérative " + (i % 400) + ", conditionnée en sacs";
+                String category = CATEGORIES[i % CATEGORIES.length];
+                String subcategory = crop;
+                insert.setLong(1, id);
+                insert.setString(2, name);
+                insert.setString(3, description);
+                insert.setString(4, category);
+                insert.setString(5, subcategory);
+                insert.addBatch();
+                if (i % 1000 == 0) {
+                    insert.executeBatch();
+                }
+                index.put(id, id, name, description, category, subcategory);
+            }
+            insert.executeBatch();
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("DROP TABLE products");
+        }
+        connection.close();
+    }
+
+    /**
+     * Requête générée par Spring Data pour l'ancien chemin : balayage complet, deux fois (page et total)
+     */
+    @Benchmark
+    public List<String> likeQuery() throws SQLException {
+        String pattern = "%" + keyword + "%";
+        List<String> page = new ArrayList<>();
+        try (PreparedStatement select = connection.prepareStatement(
+                "SELECT id, name, category FROM products WHERE UPPER(name) LIKE UPPER(?) OR UPPER(category) LIKE UPPER(?) "
+                        + "LIMIT ?")) {
+            select.setString(1, pattern);
+            select.setString(2, pattern);
+            select.setInt(3, PAGE_SIZE);
+            try (ResultSet rows = select.executeQuery()) {
+                while (rows.next()) {
+                    page.add(rows.getString(2));
+                }
+            }
+        }
+        try (PreparedStatement count = connection.prepareStatement(
+                "SELECT COUNT(id) FROM products WHERE UPPER(name) LIKE UPPER(?) OR UPPER(category) LIKE UPPER(?)")) {
+            count.setString(1, pattern);
+            count.setString(2, pattern);
+            try (ResultSet rows = count.executeQuery()) {
+                rows.next();
+                page.add(String.valueOf(rows.getLong(1)));
+            }
+        }
+        return page;
+    }
+
+    /**
+     * Chemin actuel de ProductService.searchProducts : index, puis chargement de la page par identifiants
+     */
+    @Benchmark
+    public List<String> invertedIndex() throws SQLException {
+        List<Long> ids = index.search(keyword, null);
+        List<Long> pageIds = ids.subList(0, Math.min(PAGE_SIZE, ids.size()));
+        List<String> page = new ArrayList<>();
+        if (!pageIds.isEmpty()) {
+            StringBuilder placeholders = new StringBuilder("?");
+            for (int i = 1; i < pageIds.size(); i++) {
+                placeholders.append(", ?");
+            }
+            try (PreparedStatement select = connection.prepareStatement(
+                    "SELECT id, name, category FROM products WHERE id IN (" + placeholders + ")")) {
+                for (int i = 0; i < pageIds.size(); i++) {
+                    select.setLong(i + 1, pageIds.get(i));
+                }
+                try (ResultSet rows = select.executeQuery()) {
+                    while (rows.next()) {
+                        page.add(rows.getString(2));
+                    }
+                }
+            }
+        }
+        page.add(String.valueOf(ids.size()));
+        return page;
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(CatalogueSearchBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
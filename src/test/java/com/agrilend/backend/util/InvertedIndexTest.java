@@ -0,0 +1,31 @@
+package com.agrilend.backend.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InvertedIndexTest {
+
+    @Test
+    void tokenizeFoldsAccentsAndLigatures() {
+        assertThat(InvertedIndex.tokenize("Œufs frais, Ex-æquo")).containsExactly("oeufs", "frais", "ex", "aequo");
+        assertThat(InvertedIndex.tokenize("Maïs jaune / Café")).containsExactly("mais", "jaune", "cafe");
+    }
+
+    @Test
+    void tokenizeKeepsNonLatinLetters() {
+        assertThat(InvertedIndex.tokenize("Гречка 25kg")).containsExactly("гречка", "25kg");
+    }
+
+    @Test
+    void searchMatchesLigatureWithOrWithoutIt() {
+        InvertedIndex<String> index = new InvertedIndex<>();
+        index.put(1L, "oeufs", "Œufs de poule");
+        index.put(2L, "mais", "Maïs");
+
+        assertThat(index.search("oeufs", null)).containsExactly("oeufs");
+        assertThat(index.search("œufs", null)).containsExactly("oeufs");
+        assertThat(index.search("OEU", null)).containsExactly("oeufs");
+        assertThat(index.search("maïs", null)).containsExactly("mais");
+    }
+}